@@ -0,0 +1,131 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.jmf.vo.IssuesResponse;
+import org.jmf.vo.SettingsResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+/**
+ * Benchmark of decoding the responses of the SonarQube web service API: the original path via an intermediate String,
+ * the shared mapper, pre-built readers from bytes and from a stream, Afterburner and a hand-written streaming decoder.
+ * <p>
+ * Blackbird is not included, as it requires Jackson 2.12 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodingBenchmark {
+
+   @Param({ "500" })
+   private int pageSize;
+
+   @Param({ "3" })
+   private int maxComments;
+
+   private byte[] issuesPage;
+
+   private byte[] settings;
+
+   private ObjectMapper mapper;
+
+   private ObjectReader issuesReader;
+
+   private ObjectReader settingsReader;
+
+   private ObjectReader afterburnerIssuesReader;
+
+   private IssuesResponseParser parser;
+
+   /**
+    * Create the responses and decoders.
+    */
+   @Setup(Level.Trial)
+   public void setup() {
+      this.issuesPage = SonarResponses.issuesPage(this.pageSize, this.maxComments, 42);
+      this.settings = SonarResponses.settings(200);
+      this.mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+      this.issuesReader = this.mapper.readerFor(IssuesResponse.class);
+      this.settingsReader = this.mapper.readerFor(SettingsResponse.class);
+      this.afterburnerIssuesReader = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .registerModule(new AfterburnerModule())
+            .readerFor(IssuesResponse.class);
+      this.parser = new IssuesResponseParser();
+   }
+
+   @Benchmark
+   public IssuesResponse issuesViaString() throws IOException {
+      return this.mapper.readValue(new String(this.issuesPage, StandardCharsets.UTF_8), IssuesResponse.class);
+   }
+
+   @Benchmark
+   public IssuesResponse issuesMapperBytes() throws IOException {
+      return this.mapper.readValue(this.issuesPage, IssuesResponse.class);
+   }
+
+   @Benchmark
+   public IssuesResponse issuesReaderBytes() throws IOException {
+      return this.issuesReader.readValue(this.issuesPage);
+   }
+
+   @Benchmark
+   public IssuesResponse issuesReaderStream() throws IOException {
+      return this.issuesReader.readValue(new ByteArrayInputStream(this.issuesPage));
+   }
+
+   @Benchmark
+   public IssuesResponse issuesAfterburner() throws IOException {
+      return this.afterburnerIssuesReader.readValue(new ByteArrayInputStream(this.issuesPage));
+   }
+
+   @Benchmark
+   public IssuesResponse issuesStreaming() throws IOException {
+      return this.parser.parse(new ByteArrayInputStream(this.issuesPage));
+   }
+
+   @Benchmark
+   public SettingsResponse settingsViaString() throws IOException {
+      return this.mapper.readValue(new String(this.settings, StandardCharsets.UTF_8), SettingsResponse.class);
+   }
+
+   @Benchmark
+   public SettingsResponse settingsReaderStream() throws IOException {
+      return this.settingsReader.readValue(new ByteArrayInputStream(this.settings));
+   }
+
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jmf.services.MigrationService;
+import org.jmf.services.SonarCatalog;
+import org.jmf.vo.MigrationJob;
+import org.jmf.vo.MigrationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end benchmark of an issue migration against the in-process {@link FakeSonarServer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+
+   private static final String SOURCE = "com.test:prj1";
+
+   private static final String TARGET = "com.test:prj1-branch";
+
+   @Param({ "10000" })
+   private int issues;
+
+   @Param({ "0", "5" })
+   private long latencyMillis;
+
+   @Param({ "0" })
+   private double errorRate;
+
+   private FakeSonarServer server;
+
+   /**
+    * Start the server with the source and target project.
+    *
+    * @throws IOException if the server cannot be started
+    */
+   @Setup(Level.Trial)
+   public void startServer() throws IOException {
+      this.server = new FakeSonarServer(0, FakeSonarServer.DEFAULT_THREADS);
+      final IssueCorpus corpus = IssueCorpus.generate(this.issues, 500, 1.0, 2000, 5, 42);
+      this.server.addProject(EndToEndBenchmark.SOURCE, corpus.getSourceIssues());
+      this.server.addProject(EndToEndBenchmark.TARGET, corpus.getTargetIssues());
+      this.server.setLatency(this.latencyMillis, 0);
+      this.server.setErrorRate(this.errorRate);
+      this.server.start();
+   }
+
+   /**
+    * Reset the target project, so that each iteration migrates all issues.
+    */
+   @Setup(Level.Iteration)
+   public void resetServer() {
+      this.server.reset();
+      SonarCatalog.invalidateAll();
+   }
+
+   /**
+    * Stop the server.
+    */
+   @TearDown(Level.Trial)
+   public void stopServer() {
+      this.server.close();
+   }
+
+   /**
+    * Migrate the issues and comments of the source project to the target project.
+    *
+    * @return the result
+    */
+   @Benchmark
+   public MigrationResult migrateIssues() {
+      final MigrationJob job = new MigrationJob();
+      job.setSourceUrl(this.server.getUrl());
+      job.setSourceComponent(EndToEndBenchmark.SOURCE);
+      job.setTargetComponent(EndToEndBenchmark.TARGET);
+      job.setDeltaLines(5);
+      return new MigrationService().run(job);
+   }
+
+}
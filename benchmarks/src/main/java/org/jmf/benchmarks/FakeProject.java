@@ -0,0 +1,317 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.benchmarks;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jmf.vo.Comment;
+import org.jmf.vo.Issue;
+
+/**
+ * Project of the {@link FakeSonarServer} with a compact issue store (a few bytes per issue), so that datasets of
+ * millions of issues fit into memory.
+ */
+final class FakeProject {
+
+   /** statuses by code */
+   static final String[] STATUSES = { "OPEN", "CONFIRMED", "REOPENED", "RESOLVED", "CLOSED" };
+
+   /** resolutions by code, 0 for none */
+   static final String[] RESOLUTIONS = { null, "FALSE-POSITIVE", "WONTFIX", "FIXED", "REMOVED" };
+
+   private static final String KEY_PREFIX = "AX";
+
+   private final String key;
+
+   private final int ordinal;
+
+   /** date of the (fake) analysis, null for projects without issues */
+   private final String analysisDate;
+
+   private final String[] ruleNames;
+
+   private final String[] componentNames;
+
+   private final int[] rules;
+
+   private final int[] components;
+
+   /** line numbers, 0 for none */
+   private final int[] lines;
+
+   private final byte[] initialStatuses;
+
+   private final byte[] initialResolutions;
+
+   private final byte[] statuses;
+
+   private final byte[] resolutions;
+
+   private final Map<Integer, List<String>> initialComments;
+
+   private final Map<Integer, List<String>> comments = new ConcurrentHashMap<>();
+
+   /** issue indexes by rule id */
+   private final int[][] issuesByRule;
+
+   private final Map<String, Integer> ruleIds;
+
+   private final Map<String, Object> settings = new ConcurrentHashMap<>();
+
+   private final Map<String, String> qualityProfiles = new ConcurrentHashMap<>();
+
+   /**
+    * Constructor.
+    *
+    * @param key the project key
+    * @param ordinal the ordinal of the project, used for the issue keys
+    * @param issues the issues (rule, parsed component, line, status, resolution and comments are used)
+    */
+   FakeProject(final String key, final int ordinal, final List<Issue> issues) {
+      this.key = key;
+      this.ordinal = ordinal;
+      this.analysisDate = issues.isEmpty() ? null : new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ").format(new Date());
+      final int size = issues.size();
+      this.rules = new int[size];
+      this.components = new int[size];
+      this.lines = new int[size];
+      this.initialStatuses = new byte[size];
+      this.initialResolutions = new byte[size];
+      this.initialComments = new HashMap<>();
+      final Map<String, Integer> ruleIndex = new LinkedHashMap<>();
+      final Map<String, Integer> componentIndex = new LinkedHashMap<>();
+      for (int i = 0; i < size; i++) {
+         final Issue issue = issues.get(i);
+         this.rules[i] = ruleIndex.computeIfAbsent(issue.getRule(), r -> ruleIndex.size());
+         this.components[i] = componentIndex.computeIfAbsent(issue.getParsedComponent(), c -> componentIndex.size());
+         this.lines[i] = issue.getLine() != null ? issue.getLine() : 0;
+         this.initialStatuses[i] = FakeProject.code(FakeProject.STATUSES, issue.getStatus() != null ? issue.getStatus() : "OPEN");
+         this.initialResolutions[i] = FakeProject.code(FakeProject.RESOLUTIONS, issue.getResolution());
+         if (issue.getComments() != null && !issue.getComments().isEmpty()) {
+            final List<String> texts = new ArrayList<>();
+            for (final Comment comment : issue.getComments()) {
+               texts.add(comment.getMarkdown());
+            }
+            this.initialComments.put(i, texts);
+         }
+      }
+      this.ruleNames = ruleIndex.keySet().toArray(new String[ruleIndex.size()]);
+      this.componentNames = componentIndex.keySet().toArray(new String[componentIndex.size()]);
+      this.ruleIds = ruleIndex;
+
+      final int[] counts = new int[this.ruleNames.length];
+      for (final int rule : this.rules) {
+         counts[rule]++;
+      }
+      this.issuesByRule = new int[this.ruleNames.length][];
+      for (int rule = 0; rule < counts.length; rule++) {
+         this.issuesByRule[rule] = new int[counts[rule]];
+         counts[rule] = 0;
+      }
+      for (int i = 0; i < size; i++) {
+         this.issuesByRule[this.rules[i]][counts[this.rules[i]]++] = i;
+      }
+
+      this.statuses = this.initialStatuses.clone();
+      this.resolutions = this.initialResolutions.clone();
+      this.reset();
+   }
+
+   /**
+    * Reset the issues, settings and quality profiles to their initial state.
+    */
+   synchronized void reset() {
+      System.arraycopy(this.initialStatuses, 0, this.statuses, 0, this.statuses.length);
+      System.arraycopy(this.initialResolutions, 0, this.resolutions, 0, this.resolutions.length);
+      this.comments.clear();
+      this.initialComments.forEach((issue, texts) -> this.comments.put(issue, Collections.synchronizedList(new ArrayList<>(texts))));
+      this.settings.clear();
+      this.qualityProfiles.clear();
+   }
+
+   String getKey() {
+      return this.key;
+   }
+
+   String getAnalysisDate() {
+      return this.analysisDate;
+   }
+
+   int size() {
+      return this.rules.length;
+   }
+
+   /**
+    * Get the issues matching a search.
+    *
+    * @param rules the rules or empty for all rules
+    * @param statuses the statuses or null for all statuses
+    * @param resolutions the resolutions or null for all resolutions
+    * @return the indexes of the matching issues
+    */
+   int[] search(final List<String> rules, final List<String> statuses, final List<String> resolutions) {
+      int[] candidates = null;
+      if (!rules.isEmpty()) {
+         candidates = new int[0];
+         for (final String rule : rules) {
+            final Integer ruleId = this.ruleIds.get(rule);
+            if (ruleId != null) {
+               final int[] issues = this.issuesByRule[ruleId];
+               candidates = Arrays.copyOf(candidates, candidates.length + issues.length);
+               System.arraycopy(issues, 0, candidates, candidates.length - issues.length, issues.length);
+            }
+         }
+      }
+      final boolean[] statusFilter = FakeProject.filter(FakeProject.STATUSES, statuses);
+      final boolean[] resolutionFilter = FakeProject.filter(FakeProject.RESOLUTIONS, resolutions);
+      final int size = candidates != null ? candidates.length : this.rules.length;
+      final int[] result = new int[size];
+      int count = 0;
+      for (int c = 0; c < size; c++) {
+         final int i = candidates != null ? candidates[c] : c;
+         if ((statusFilter == null || statusFilter[this.statuses[i]]) && (resolutionFilter == null || resolutionFilter[this.resolutions[i]])) {
+            result[count++] = i;
+         }
+      }
+      return Arrays.copyOf(result, count);
+   }
+
+   String getIssueKey(final int issue) {
+      return FakeProject.KEY_PREFIX + this.ordinal + "-" + issue;
+   }
+
+   String getRule(final int issue) {
+      return this.ruleNames[this.rules[issue]];
+   }
+
+   String getComponent(final int issue) {
+      return this.key + ":" + this.componentNames[this.components[issue]];
+   }
+
+   Integer getLine(final int issue) {
+      return this.lines[issue] > 0 ? this.lines[issue] : null;
+   }
+
+   String getStatus(final int issue) {
+      return FakeProject.STATUSES[this.statuses[issue]];
+   }
+
+   String getResolution(final int issue) {
+      return FakeProject.RESOLUTIONS[this.resolutions[issue]];
+   }
+
+   List<String> getComments(final int issue) {
+      return this.comments.getOrDefault(issue, Collections.emptyList());
+   }
+
+   /**
+    * Do a transition.
+    *
+    * @param issue the issue index
+    * @param transition the transition, e.g. confirm
+    * @return false, if the transition is not possible
+    */
+   synchronized boolean doTransition(final int issue, final String transition) {
+      switch (transition) {
+         case "confirm":
+            this.setState(issue, "CONFIRMED", null);
+            return true;
+         case "unconfirm":
+         case "reopen":
+            this.setState(issue, "REOPENED", null);
+            return true;
+         case "falsepositive":
+            this.setState(issue, "RESOLVED", "FALSE-POSITIVE");
+            return true;
+         case "wontfix":
+            this.setState(issue, "RESOLVED", "WONTFIX");
+            return true;
+         case "resolve":
+            this.setState(issue, "RESOLVED", "FIXED");
+            return true;
+         default:
+            return false;
+      }
+   }
+
+   void addComment(final int issue, final String text) {
+      this.comments.computeIfAbsent(issue, i -> Collections.synchronizedList(new ArrayList<>())).add(text);
+   }
+
+   Map<String, Object> getSettings() {
+      return this.settings;
+   }
+
+   Map<String, String> getQualityProfiles() {
+      return this.qualityProfiles;
+   }
+
+   /**
+    * Get the index of an issue of this project.
+    *
+    * @param issueKey the issue key
+    * @return the index or -1, if the issue is not an issue of this project
+    */
+   int indexOf(final String issueKey) {
+      final String prefix = FakeProject.KEY_PREFIX + this.ordinal + "-";
+      if (issueKey == null || !issueKey.startsWith(prefix)) {
+         return -1;
+      }
+      try {
+         final int index = Integer.parseInt(issueKey.substring(prefix.length()));
+         return index >= 0 && index < this.size() ? index : -1;
+      } catch (final NumberFormatException e) {
+         return -1;
+      }
+   }
+
+   private void setState(final int issue, final String status, final String resolution) {
+      this.statuses[issue] = FakeProject.code(FakeProject.STATUSES, status);
+      this.resolutions[issue] = FakeProject.code(FakeProject.RESOLUTIONS, resolution);
+   }
+
+   private static byte code(final String[] values, final String value) {
+      for (byte i = 0; i < values.length; i++) {
+         if (value == null ? values[i] == null : value.equals(values[i])) {
+            return i;
+         }
+      }
+      throw new IllegalArgumentException("Unknown value: " + value);
+   }
+
+   private static boolean[] filter(final String[] values, final List<String> selected) {
+      if (selected == null || selected.isEmpty()) {
+         return null;
+      }
+      final boolean[] filter = new boolean[values.length];
+      for (final String value : selected) {
+         for (int i = 0; i < values.length; i++) {
+            if (value.equals(values[i])) {
+               filter[i] = true;
+            }
+         }
+      }
+      return filter;
+   }
+
+}
@@ -0,0 +1,856 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.jmf.vo.Issue;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Fake SonarQube server implementing the web service API used by the tool, for load tests without a real server.
+ * <p>
+ * Latency, server errors (500) and throttling (429) can be injected. The server runs in-process (e.g. in a benchmark) or
+ * standalone, see {@link #main(String...)}.
+ */
+public class FakeSonarServer implements Closeable {
+
+   /** maximum number of results of an issue search (like SonarQube) */
+   public static final int MAX_RESULTS = 10000;
+
+   /** default number of threads handling requests */
+   public static final int DEFAULT_THREADS = 32;
+
+   private static final int DEFAULT_PAGE_SIZE = 100;
+
+   private static final int MAX_PAGE_SIZE = 500;
+
+   private static final JsonFactory FACTORY = new JsonFactory();
+
+   private static final String[] LANGUAGES = { "java", "js", "xml" };
+
+   /** endpoints answering with plain text instead of JSON */
+   private static final List<String> PLAIN_TEXT = Arrays.asList("/api/sources/raw", "/api/system/ping");
+
+   /** severities of the issues, by rule */
+   private static final String[] SEVERITIES = { "BLOCKER", "CRITICAL", "MAJOR", "MAJOR", "MINOR", "MINOR", "INFO" };
+
+   private final HttpServer server;
+
+   /** additional servers sharing the state, like the application nodes of a cluster */
+   private final List<HttpServer> nodes = new ArrayList<>();
+
+   private final ExecutorService executor;
+
+   private final Map<String, Endpoint> endpoints = new HashMap<>();
+
+   private final Map<String, FakeProject> projects = new ConcurrentHashMap<>();
+
+   private final Map<String, Function<String, String>> sources = new ConcurrentHashMap<>();
+
+   private final AtomicInteger projectCount = new AtomicInteger();
+
+   private final AtomicLong requests = new AtomicLong();
+
+   private final Map<String, String> globalSettings = new LinkedHashMap<>();
+
+   private volatile long latencyMillis;
+
+   private volatile long latencyJitterMillis;
+
+   private volatile double errorRate;
+
+   private volatile double throttleRate;
+
+   private volatile long analysisMillis = 1000;
+
+   private volatile long analysisEnd;
+
+   /**
+    * Constructor.
+    *
+    * @param port the port or 0 for any free port
+    * @param threads the number of threads handling requests
+    * @throws IOException if the server cannot be created
+    */
+   public FakeSonarServer(final int port, final int threads) throws IOException {
+      // without TCP_NODELAY, each response on a kept-alive connection waits for the delayed ACK of the client
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+      this.server = HttpServer.create(new InetSocketAddress(port), 0);
+      final AtomicInteger threadCount = new AtomicInteger();
+      this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+         final Thread thread = new Thread(runnable, "fake-sonar-" + threadCount.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      });
+      this.server.setExecutor(this.executor);
+      this.server.createContext("/", this::handle);
+
+      this.globalSettings.put("sonar.exclusions", "**/generated/**");
+      this.globalSettings.put("sonar.cpd.exclusions", "**/*Dto.java");
+      this.globalSettings.put("sonar.java.source", "1.8");
+
+      this.endpoints.put("/api/issues/search", this::searchIssues);
+      this.endpoints.put("/api/issues/do_transition", this::doTransition);
+      this.endpoints.put("/api/issues/add_comment", this::addComment);
+      this.endpoints.put("/api/issues/assign", this::assign);
+      this.endpoints.put("/api/issues/bulk_change", this::bulkChange);
+      this.endpoints.put("/api/settings/values", this::getSettings);
+      this.endpoints.put("/api/settings/set", this::setSetting);
+      this.endpoints.put("/api/settings/reset", this::resetSettings);
+      this.endpoints.put("/api/qualityprofiles/search", this::searchQualityProfiles);
+      this.endpoints.put("/api/qualityprofiles/add_project", this::addProjectToQualityProfile);
+      this.endpoints.put("/api/projects/create", this::createProject);
+      this.endpoints.put("/api/components/show", this::showComponent);
+      this.endpoints.put("/api/ce/component", this::getAnalysisTasks);
+      this.endpoints.put("/api/sources/raw", this::getSource);
+      this.endpoints.put("/api/system/ping", this::ping);
+   }
+
+   /**
+    * Add an application node, i.e. a server on another port sharing all projects and settings. Must be called before
+    * {@link #start()}.
+    *
+    * @param port the port or 0 for any free port
+    * @return the base URL of the node, e.g. http://localhost:9001/
+    * @throws IOException if the server cannot be created
+    */
+   public String addNode(final int port) throws IOException {
+      final HttpServer node = HttpServer.create(new InetSocketAddress(port), 0);
+      node.setExecutor(this.executor);
+      node.createContext("/", this::handle);
+      this.nodes.add(node);
+      return "http://localhost:" + node.getAddress().getPort() + "/";
+   }
+
+   /**
+    * Start the server.
+    */
+   public void start() {
+      this.server.start();
+      this.nodes.forEach(HttpServer::start);
+   }
+
+   /**
+    * Stop the server.
+    */
+   @Override
+   public void close() {
+      this.server.stop(0);
+      this.nodes.forEach(node -> node.stop(0));
+      this.executor.shutdownNow();
+   }
+
+   /**
+    * @return the base URL of the server, e.g. http://localhost:9000/
+    */
+   public String getUrl() {
+      return "http://localhost:" + this.server.getAddress().getPort() + "/";
+   }
+
+   /**
+    * Add a project.
+    *
+    * @param key the project key
+    * @param issues the issues of the project (only rule, parsed component, line, status, resolution and comments are
+    *           used, the issues get new keys)
+    */
+   public void addProject(final String key, final List<Issue> issues) {
+      this.addProject(key, issues, path -> null);
+   }
+
+   /**
+    * Add a project with the sources of its files.
+    *
+    * @param key the project key
+    * @param issues the issues of the project, see {@link #addProject(String, List)}
+    * @param sources the sources by path (the parsed component), null for unknown files
+    */
+   public void addProject(final String key, final List<Issue> issues, final Function<String, String> sources) {
+      this.projects.put(key, new FakeProject(key, this.projectCount.incrementAndGet(), issues));
+      this.sources.put(key, sources);
+   }
+
+   /**
+    * Reset all projects to their initial state, e.g. before the next run of a benchmark. Projects created via the API
+    * are removed.
+    */
+   public void reset() {
+      this.projects.values().removeIf(project -> project.size() == 0);
+      this.projects.values().forEach(FakeProject::reset);
+      this.requests.set(0);
+   }
+
+   /**
+    * Set the latency of each request.
+    *
+    * @param latencyMillis the fixed latency in milliseconds
+    * @param jitterMillis the maximum random latency added in milliseconds
+    */
+   public void setLatency(final long latencyMillis, final long jitterMillis) {
+      this.latencyMillis = latencyMillis;
+      this.latencyJitterMillis = jitterMillis;
+   }
+
+   /**
+    * @param errorRate the fraction of requests answered with 500
+    */
+   public void setErrorRate(final double errorRate) {
+      this.errorRate = errorRate;
+   }
+
+   /**
+    * @param throttleRate the fraction of requests answered with 429
+    */
+   public void setThrottleRate(final double throttleRate) {
+      this.throttleRate = throttleRate;
+   }
+
+   /**
+    * Simulate a running analysis of all projects: the background tasks are reported as running for the given time.
+    *
+    * @param durationMillis the duration of the analysis in milliseconds, also reported as execution time of the last
+    *           analysis
+    */
+   public void startAnalysis(final long durationMillis) {
+      this.analysisMillis = durationMillis;
+      this.analysisEnd = System.currentTimeMillis() + durationMillis;
+   }
+
+   /**
+    * @return the number of requests since the start or the last reset
+    */
+   public long getRequests() {
+      return this.requests.get();
+   }
+
+   private void handle(final HttpExchange exchange) throws IOException {
+      try {
+         this.requests.incrementAndGet();
+         final long latency = this.latencyMillis + (this.latencyJitterMillis > 0 ? ThreadLocalRandom.current().nextLong(this.latencyJitterMillis + 1) : 0);
+         if (latency > 0) {
+            TimeUnit.MILLISECONDS.sleep(latency);
+         }
+         final Map<String, List<String>> params = FakeSonarServer.parseParameters(exchange);
+         final Endpoint endpoint = this.endpoints.get(exchange.getRequestURI().getPath());
+         final ByteArrayOutputStream body = new ByteArrayOutputStream();
+         int status;
+         try (JsonGenerator json = FakeSonarServer.FACTORY.createGenerator(body)) {
+            final double random = ThreadLocalRandom.current().nextDouble();
+            if (random < this.throttleRate) {
+               exchange.getResponseHeaders().add("Retry-After", "1");
+               status = FakeSonarServer.error(json, 429, "Too many requests");
+            } else if (random < this.throttleRate + this.errorRate) {
+               status = FakeSonarServer.error(json, 500, "An error has occurred");
+            } else if (endpoint == null) {
+               status = FakeSonarServer.error(json, 404, "Unknown url : " + exchange.getRequestURI().getPath());
+            } else {
+               status = endpoint.handle(params, json);
+            }
+         }
+         if (status == 204) {
+            exchange.sendResponseHeaders(status, -1);
+         } else {
+            exchange.getResponseHeaders().add("Content-Type", status == 200 && FakeSonarServer.PLAIN_TEXT.contains(exchange.getRequestURI().getPath())
+                  ? "text/plain;charset=utf-8" : "application/json");
+            exchange.sendResponseHeaders(status, body.size());
+            exchange.getResponseBody().write(body.toByteArray());
+         }
+      } catch (final InterruptedException e) {
+         Thread.currentThread().interrupt();
+      } finally {
+         exchange.close();
+      }
+   }
+
+   private int searchIssues(final Map<String, List<String>> params, final JsonGenerator json) throws IOException {
+      final List<String> issueKeys = FakeSonarServer.list(params, "issues");
+      final FakeProject project = issueKeys.isEmpty() ? this.projects.get(FakeSonarServer.param(params, "componentKeys")) : this.findProject(issueKeys.get(0));
+      final int pageIndex = Integer.parseInt(FakeSonarServer.param(params, "p", FakeSonarServer.param(params, "pageIndex", "1")));
+      final int pageSize = Math.min(FakeSonarServer.MAX_PAGE_SIZE, Integer.parseInt(FakeSonarServer.param(params, "ps", String.valueOf(FakeSonarServer.DEFAULT_PAGE_SIZE))));
+      if (pageIndex * pageSize > FakeSonarServer.MAX_RESULTS) {
+         return FakeSonarServer.error(json, 400, "Can return only the first " + FakeSonarServer.MAX_RESULTS + " results. " + pageIndex * pageSize + "th result asked.");
+      }
+      final int[] issues;
+      if (project == null) {
+         issues = new int[0];
+      } else if (!issueKeys.isEmpty()) {
+         // search by keys (of one project)
+         issues = issueKeys.stream().mapToInt(project::indexOf).filter(issue -> issue >= 0).toArray();
+      } else {
+         issues = project.search(FakeSonarServer.list(params, "rules"), FakeSonarServer.list(params, "statuses"), FakeSonarServer.list(params, "resolutions"));
+      }
+      final boolean withComments = FakeSonarServer.list(params, "additionalFields").contains("comments");
+
+      json.writeStartObject();
+      json.writeNumberField("total", issues.length);
+      json.writeNumberField("p", pageIndex);
+      json.writeNumberField("ps", pageSize);
+      json.writeObjectFieldStart("paging");
+      json.writeNumberField("pageIndex", pageIndex);
+      json.writeNumberField("pageSize", pageSize);
+      json.writeNumberField("total", issues.length);
+      json.writeEndObject();
+      json.writeArrayFieldStart("issues");
+      for (int i = (pageIndex - 1) * pageSize; i < Math.min(issues.length, pageIndex * pageSize); i++) {
+         FakeSonarServer.writeIssue(json, project, issues[i], withComments);
+      }
+      json.writeEndArray();
+      json.writeArrayFieldStart("facets");
+      for (final String facet : FakeSonarServer.list(params, "facets")) {
+         FakeSonarServer.writeFacet(json, project, issues, facet);
+      }
+      json.writeEndArray();
+      json.writeEndObject();
+      return 200;
+   }
+
+   private FakeProject findProject(final String issueKey) {
+      for (final FakeProject project : this.projects.values()) {
+         if (project.indexOf(issueKey) >= 0) {
+            return project;
+         }
+      }
+      return null;
+   }
+
+   private int doTransition(final Map<String, List<String>> params, final JsonGenerator json) throws IOException {
+      final String issueKey = FakeSonarServer.param(params, "issue");
+      for (final FakeProject project : this.projects.values()) {
+         final int issue = project.indexOf(issueKey);
+         if (issue >= 0) {
+            if (!project.doTransition(issue, FakeSonarServer.param(params, "transition", ""))) {
+               return FakeSonarServer.error(json, 400, "Transition '" + FakeSonarServer.param(params, "transition") + "' not allowed");
+            }
+            json.writeStartObject();
+            json.writeFieldName("issue");
+            FakeSonarServer.writeIssue(json, project, issue, true);
+            json.writeEndObject();
+            return 200;
+         }
+      }
+      return FakeSonarServer.error(json, 404, "Issue with key '" + issueKey + "' does not exist");
+   }
+
+   private int addComment(final Map<String, List<String>> params, final JsonGenerator json) throws IOException {
+      final String issueKey = FakeSonarServer.param(params, "issue");
+      for (final FakeProject project : this.projects.values()) {
+         final int issue = project.indexOf(issueKey);
+         if (issue >= 0) {
+            project.addComment(issue, FakeSonarServer.param(params, "text", ""));
+            json.writeStartObject();
+            json.writeFieldName("issue");
+            FakeSonarServer.writeIssue(json, project, issue, true);
+            json.writeEndObject();
+            return 200;
+         }
+      }
+      return FakeSonarServer.error(json, 404, "Issue with key '" + issueKey + "' does not exist");
+   }
+
+   private int assign(final Map<String, List<String>> params, final JsonGenerator json) throws IOException {
+      final String issueKey = FakeSonarServer.param(params, "issue");
+      for (final FakeProject project : this.projects.values()) {
+         final int issue = project.indexOf(issueKey);
+         if (issue >= 0) {
+            json.writeStartObject();
+            json.writeFieldName("issue");
+            FakeSonarServer.writeIssue(json, project, issue, false);
+            json.writeEndObject();
+            return 200;
+         }
+      }
+      return FakeSonarServer.error(json, 404, "Issue with key '" + issueKey + "' does not exist");
+   }
+
+   private int bulkChange(final Map<String, List<String>> params, final JsonGenerator json) throws IOException {
+      final String transition = FakeSonarServer.param(params, "do_transition");
+      final String comment = FakeSonarServer.param(params, "comment");
+      int success = 0;
+      int failures = 0;
+      final List<String> issueKeys = FakeSonarServer.list(params, "issues");
+      for (final String issueKey : issueKeys) {
+         boolean found = false;
+         for (final FakeProject project : this.projects.values()) {
+            final int issue = project.indexOf(issueKey);
+            if (issue >= 0) {
+               found = transition == null || project.doTransition(issue, transition);
+               if (found && comment != null) {
+                  project.addComment(issue, comment);
+               }
+               break;
+            }
+         }
+         if (found) {
+            success++;
+         } else {
+            failures++;
+         }
+      }
+      json.writeStartObject();
+      json.writeNumberField("total", issueKeys.size());
+      json.writeNumberField("success", success);
+      json.writeNumberField("ignored", 0);
+      json.writeNumberField("failures", failures);
+      json.writeEndObject();
+      return 200;
+   }
+
+   private int getSettings(final Map<String, List<String>> params, final JsonGenerator json) throws IOException {
+      final String component = FakeSonarServer.param(params, "component");
+      final Map<String, Object> settings = new LinkedHashMap<>(this.globalSettings);
+      if (component != null) {
+         final FakeProject project = this.projects.get(component);
+         if (project == null) {
+            return FakeSonarServer.error(json, 404, "Component key '" + component + "' not found");
+         }
+         settings.putAll(project.getSettings());
+      }
+      json.writeStartObject();
+      json.writeArrayFieldStart("settings");
+      for (final Map.Entry<String, Object> setting : settings.entrySet()) {
+         json.writeStartObject();
+         json.writeStringField("key", setting.getKey());
+         if (setting.getValue() instanceof String) {
+            json.writeStringField("value", (String) setting.getValue());
+         } else {
+            json.writeArrayFieldStart("values");
+            for (final Object value : (List<?>) setting.getValue()) {
+               json.writeString(value.toString());
+            }
+            json.writeEndArray();
+         }
+         json.writeBooleanField("inherited", component != null && !this.projects.get(component).getSettings().containsKey(setting.getKey()));
+         json.writeEndObject();
+      }
+      json.writeEndArray();
+      json.writeEndObject();
+      return 200;
+   }
+
+   private int setSetting(final Map<String, List<String>> params, final JsonGenerator json) throws IOException {
+      final FakeProject project = this.projects.get(FakeSonarServer.param(params, "component", ""));
+      if (project == null) {
+         return FakeSonarServer.error(json, 404, "Component key '" + FakeSonarServer.param(params, "component") + "' not found");
+      }
+      final String key = FakeSonarServer.param(params, "key");
+      if (params.containsKey("value")) {
+         project.getSettings().put(key, FakeSonarServer.param(params, "value"));
+      } else if (params.containsKey("values")) {
+         project.getSettings().put(key, new ArrayList<>(params.get("values")));
+      } else if (params.containsKey("fieldValues")) {
+         project.getSettings().put(key, new ArrayList<>(params.get("fieldValues")));
+      } else {
+         return FakeSonarServer.error(json, 400, "Either 'value', 'values' or 'fieldValues' must be provided");
+      }
+      return 204;
+   }
+
+   private int resetSettings(final Map<String, List<String>> params, final JsonGenerator json) throws IOException {
+      final FakeProject project = this.projects.get(FakeSonarServer.param(params, "component", ""));
+      if (project == null) {
+         return FakeSonarServer.error(json, 404, "Component key '" + FakeSonarServer.param(params, "component") + "' not found");
+      }
+      FakeSonarServer.list(params, "keys").forEach(project.getSettings()::remove);
+      return 204;
+   }
+
+   private int searchQualityProfiles(final Map<String, List<String>> params, final JsonGenerator json) throws IOException {
+      final String projectKey = FakeSonarServer.param(params, "project");
+      final FakeProject project = projectKey != null ? this.projects.get(projectKey) : null;
+      if (projectKey != null && project == null) {
+         return FakeSonarServer.error(json, 404, "Project '" + projectKey + "' not found");
+      }
+      json.writeStartObject();
+      json.writeArrayFieldStart("profiles");
+      for (final String language : FakeSonarServer.LANGUAGES) {
+         if (project != null) {
+            FakeSonarServer.writeQualityProfile(json, language, project.getQualityProfiles().getOrDefault(language, "Sonar way"));
+         } else {
+            FakeSonarServer.writeQualityProfile(json, language, "Sonar way");
+            FakeSonarServer.writeQualityProfile(json, language, "Custom way");
+         }
+      }
+      json.writeEndArray();
+      json.writeEndObject();
+      return 200;
+   }
+
+   private int addProjectToQualityProfile(final Map<String, List<String>> params, final JsonGenerator json) throws IOException {
+      final FakeProject project = this.projects.get(FakeSonarServer.param(params, "project", ""));
+      if (project == null) {
+         return FakeSonarServer.error(json, 404, "Project '" + FakeSonarServer.param(params, "project") + "' not found");
+      }
+      project.getQualityProfiles().put(FakeSonarServer.param(params, "language", ""), FakeSonarServer.param(params, "qualityProfile", ""));
+      return 204;
+   }
+
+   private int createProject(final Map<String, List<String>> params, final JsonGenerator json) throws IOException {
+      final String key = FakeSonarServer.param(params, "project");
+      if (key == null) {
+         return FakeSonarServer.error(json, 400, "The 'project' parameter is missing");
+      }
+      if (this.projects.putIfAbsent(key, new FakeProject(key, this.projectCount.incrementAndGet(), Collections.emptyList())) != null) {
+         return FakeSonarServer.error(json, 400, "Could not create Project, key already exists: " + key);
+      }
+      json.writeStartObject();
+      json.writeObjectFieldStart("project");
+      json.writeStringField("key", key);
+      json.writeStringField("name", FakeSonarServer.param(params, "name", key));
+      json.writeStringField("qualifier", "TRK");
+      json.writeEndObject();
+      json.writeEndObject();
+      return 200;
+   }
+
+   private int showComponent(final Map<String, List<String>> params, final JsonGenerator json) throws IOException {
+      final String key = FakeSonarServer.param(params, "component");
+      final FakeProject project = key != null ? this.projects.get(key) : null;
+      if (project == null) {
+         return FakeSonarServer.error(json, 404, "Component key '" + key + "' not found");
+      }
+      json.writeStartObject();
+      json.writeObjectFieldStart("component");
+      json.writeStringField("key", key);
+      json.writeStringField("name", key);
+      json.writeStringField("qualifier", "TRK");
+      if (project.getAnalysisDate() != null) {
+         json.writeStringField("analysisDate", project.getAnalysisDate());
+      }
+      json.writeEndObject();
+      json.writeEndObject();
+      return 200;
+   }
+
+   private int getSource(final Map<String, List<String>> params, final JsonGenerator json) throws IOException {
+      final String key = FakeSonarServer.param(params, "key", "");
+      final int separator = key.lastIndexOf(':');
+      final Function<String, String> projectSources = separator > 0 ? this.sources.get(key.substring(0, separator)) : null;
+      final String source = projectSources != null ? projectSources.apply(key.substring(separator + 1)) : null;
+      if (source == null) {
+         return FakeSonarServer.error(json, 404, "Component key '" + key + "' not found");
+      }
+      // plain text instead of JSON
+      json.writeRaw(source);
+      return 200;
+   }
+
+   private int ping(final Map<String, List<String>> params, final JsonGenerator json) throws IOException {
+      json.writeRaw("pong");
+      return 200;
+   }
+
+   private int getAnalysisTasks(final Map<String, List<String>> params, final JsonGenerator json) throws IOException {
+      final String key = FakeSonarServer.param(params, "component");
+      final FakeProject project = key != null ? this.projects.get(key) : null;
+      if (project == null) {
+         return FakeSonarServer.error(json, 404, "Component key '" + key + "' not found");
+      }
+      final long now = System.currentTimeMillis();
+      json.writeStartObject();
+      json.writeArrayFieldStart("queue");
+      if (now < this.analysisEnd) {
+         FakeSonarServer.writeTask(json, key, "task-" + this.analysisEnd, "IN_PROGRESS", null);
+      }
+      json.writeEndArray();
+      if (project.getAnalysisDate() != null) {
+         json.writeFieldName("current");
+         FakeSonarServer.writeTask(json, key, "task-0", "SUCCESS", this.analysisMillis);
+      }
+      json.writeEndObject();
+      return 200;
+   }
+
+   private static void writeTask(final JsonGenerator json, final String componentKey, final String id, final String status, final Long executionTimeMs)
+         throws IOException {
+      json.writeStartObject();
+      json.writeStringField("id", id);
+      json.writeStringField("type", "REPORT");
+      json.writeStringField("componentKey", componentKey);
+      json.writeStringField("status", status);
+      if (executionTimeMs != null) {
+         json.writeNumberField("executionTimeMs", executionTimeMs);
+      }
+      json.writeEndObject();
+   }
+
+   private static void writeIssue(final JsonGenerator json, final FakeProject project, final int issue, final boolean withComments) throws IOException {
+      json.writeStartObject();
+      json.writeStringField("key", project.getIssueKey(issue));
+      json.writeStringField("rule", project.getRule(issue));
+      json.writeStringField("severity", FakeSonarServer.SEVERITIES[Math.floorMod(project.getRule(issue).hashCode(), FakeSonarServer.SEVERITIES.length)]);
+      json.writeStringField("component", project.getComponent(issue));
+      json.writeStringField("project", project.getKey());
+      final Integer line = project.getLine(issue);
+      if (line != null) {
+         json.writeNumberField("line", line);
+         json.writeObjectFieldStart("textRange");
+         json.writeNumberField("startLine", line);
+         json.writeNumberField("endLine", line);
+         json.writeNumberField("startOffset", 0);
+         json.writeNumberField("endOffset", 10);
+         json.writeEndObject();
+      }
+      json.writeArrayFieldStart("flows");
+      json.writeEndArray();
+      json.writeStringField("status", project.getStatus(issue));
+      if (project.getResolution(issue) != null) {
+         json.writeStringField("resolution", project.getResolution(issue));
+      }
+      json.writeStringField("message", "Fix this issue of rule " + project.getRule(issue) + ".");
+      json.writeStringField("effort", "5min");
+      json.writeArrayFieldStart("tags");
+      json.writeEndArray();
+      if (withComments) {
+         json.writeArrayFieldStart("comments");
+         final List<String> comments = project.getComments(issue);
+         synchronized (comments) {
+            for (int c = 0; c < comments.size(); c++) {
+               json.writeStartObject();
+               json.writeStringField("key", project.getIssueKey(issue) + "-c" + c);
+               json.writeStringField("login", "admin");
+               json.writeStringField("markdown", comments.get(c));
+               json.writeStringField("htmlText", comments.get(c));
+               json.writeBooleanField("updatable", true);
+               json.writeStringField("createdAt", "2020-03-17T10:15:30+0100");
+               json.writeEndObject();
+            }
+         }
+         json.writeEndArray();
+      }
+      json.writeStringField("creationDate", "2019-11-05T08:12:44+0100");
+      json.writeStringField("updateDate", "2020-03-17T10:15:30+0100");
+      json.writeStringField("type", "CODE_SMELL");
+      json.writeEndObject();
+   }
+
+   private static void writeFacet(final JsonGenerator json, final FakeProject project, final int[] issues, final String facet) throws IOException {
+      final Map<String, Integer> counts = new LinkedHashMap<>();
+      for (final int issue : issues) {
+         final String value;
+         switch (facet) {
+            case "rules":
+               value = project.getRule(issue);
+               break;
+            case "statuses":
+               value = project.getStatus(issue);
+               break;
+            case "resolutions":
+               value = project.getResolution(issue);
+               break;
+            default:
+               value = null;
+               break;
+         }
+         if (value != null) {
+            counts.merge(value, 1, Integer::sum);
+         }
+      }
+      json.writeStartObject();
+      json.writeStringField("property", facet);
+      json.writeArrayFieldStart("values");
+      for (final Map.Entry<String, Integer> count : counts.entrySet()) {
+         json.writeStartObject();
+         json.writeStringField("val", count.getKey());
+         json.writeNumberField("count", count.getValue());
+         json.writeEndObject();
+      }
+      json.writeEndArray();
+      json.writeEndObject();
+   }
+
+   private static void writeQualityProfile(final JsonGenerator json, final String language, final String name) throws IOException {
+      json.writeStartObject();
+      json.writeStringField("key", language + "-" + name.replace(' ', '-').toLowerCase());
+      json.writeStringField("name", name);
+      json.writeStringField("language", language);
+      json.writeStringField("languageName", language);
+      json.writeBooleanField("isDefault", "Sonar way".equals(name));
+      json.writeBooleanField("isBuiltIn", "Sonar way".equals(name));
+      json.writeEndObject();
+   }
+
+   private static int error(final JsonGenerator json, final int status, final String message) throws IOException {
+      json.writeStartObject();
+      json.writeArrayFieldStart("errors");
+      json.writeStartObject();
+      json.writeStringField("msg", message);
+      json.writeEndObject();
+      json.writeEndArray();
+      json.writeEndObject();
+      return status;
+   }
+
+   private static String param(final Map<String, List<String>> params, final String name) {
+      return FakeSonarServer.param(params, name, null);
+   }
+
+   private static String param(final Map<String, List<String>> params, final String name, final String defaultValue) {
+      final List<String> values = params.get(name);
+      return values == null || values.isEmpty() ? defaultValue : values.get(0);
+   }
+
+   /** comma separated values of a parameter, empty values are ignored */
+   private static List<String> list(final Map<String, List<String>> params, final String name) {
+      final String value = FakeSonarServer.param(params, name);
+      if (value == null || value.isEmpty()) {
+         return Collections.emptyList();
+      }
+      return Arrays.asList(value.split(","));
+   }
+
+   private static Map<String, List<String>> parseParameters(final HttpExchange exchange) throws IOException {
+      final Map<String, List<String>> params = new HashMap<>();
+      FakeSonarServer.parseParameters(exchange.getRequestURI().getRawQuery(), params);
+      if ("POST".equals(exchange.getRequestMethod())) {
+         try (InputStream in = exchange.getRequestBody()) {
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+               body.write(buffer, 0, n);
+            }
+            FakeSonarServer.parseParameters(new String(body.toByteArray(), StandardCharsets.UTF_8), params);
+         }
+      }
+      return params;
+   }
+
+   private static void parseParameters(final String query, final Map<String, List<String>> params) throws UnsupportedEncodingException {
+      if (query == null || query.isEmpty()) {
+         return;
+      }
+      for (final String pair : query.split("&")) {
+         final int separator = pair.indexOf('=');
+         final String name = URLDecoder.decode(separator >= 0 ? pair.substring(0, separator) : pair, "UTF-8");
+         final String value = separator >= 0 ? URLDecoder.decode(pair.substring(separator + 1), "UTF-8") : "";
+         params.computeIfAbsent(name, n -> new ArrayList<>()).add(value);
+      }
+   }
+
+   /**
+    * Run the server standalone.
+    *
+    * @param args see the help
+    * @throws Exception if the server cannot be started
+    */
+   public static void main(final String... args) throws Exception {
+      final Options options = new Options();
+      options.addOption(Option.builder("h").longOpt("help").desc("print this help").build());
+      options.addOption(Option.builder("p").longOpt("port").hasArg().argName("port").desc("Port (default 9000)").build());
+      options.addOption(Option.builder("np").longOpt("node-ports").hasArgs().argName("port")
+            .desc("Additional ports serving the same projects, like the application nodes of a cluster").build());
+      options.addOption(Option.builder("pp").longOpt("project-pair").hasArgs().argName("source,target,issues")
+            .desc("Source project with flagged issues and target project (e.g. a branch) with the open issues, "
+                  + "e.g. com.test:prj1,com.test:prj1-branch,1000000")
+            .build());
+      options.addOption(Option.builder("r").longOpt("rules").hasArg().argName("count").desc("Number of rules (default 500)").build());
+      options.addOption(Option.builder("f").longOpt("files").hasArg().argName("count").desc("Number of files (default 2000)").build());
+      options.addOption(Option.builder("ld").longOpt("line-drift").hasArg().argName("lines")
+            .desc("Maximum number of lines inserted or deleted in a file of a target project (default 5)").build());
+      options.addOption(Option.builder("l").longOpt("latency").hasArg().argName("millis").desc("Latency of each request (default 0)").build());
+      options.addOption(Option.builder("j").longOpt("jitter").hasArg().argName("millis").desc("Maximum random latency added (default 0)").build());
+      options.addOption(Option.builder("e").longOpt("error-rate").hasArg().argName("fraction").desc("Fraction of requests answered with 500 (default 0)").build());
+      options.addOption(Option.builder("t").longOpt("throttle-rate").hasArg().argName("fraction").desc("Fraction of requests answered with 429 (default 0)").build());
+      options.addOption(Option.builder("a").longOpt("analysis").hasArg().argName("millis")
+            .desc("Report a running analysis of all projects for <millis> after the start (default none)").build());
+      options.addOption(Option.builder("th").longOpt("threads").hasArg().argName("count")
+            .desc("Number of threads handling requests (default " + FakeSonarServer.DEFAULT_THREADS + ")").build());
+
+      final CommandLine cl;
+      try {
+         cl = new DefaultParser().parse(options, args);
+      } catch (final ParseException e) {
+         System.err.println(e.getMessage());
+         new HelpFormatter().printHelp("java -cp benchmarks.jar " + FakeSonarServer.class.getName(), options);
+         return;
+      }
+      if (cl.hasOption("h")) {
+         new HelpFormatter().printHelp("java -cp benchmarks.jar " + FakeSonarServer.class.getName(), options);
+         return;
+      }
+
+      final FakeSonarServer server = new FakeSonarServer(Integer.parseInt(cl.getOptionValue("p", "9000")),
+            Integer.parseInt(cl.getOptionValue("th", String.valueOf(FakeSonarServer.DEFAULT_THREADS))));
+      server.setLatency(Long.parseLong(cl.getOptionValue("l", "0")), Long.parseLong(cl.getOptionValue("j", "0")));
+      server.setErrorRate(Double.parseDouble(cl.getOptionValue("e", "0")));
+      server.setThrottleRate(Double.parseDouble(cl.getOptionValue("t", "0")));
+      final int rules = Integer.parseInt(cl.getOptionValue("r", "500"));
+      final int files = Integer.parseInt(cl.getOptionValue("f", "2000"));
+      final int lineDrift = Integer.parseInt(cl.getOptionValue("ld", "5"));
+      int seed = 0;
+      for (final String pair : Optional.ofNullable(cl.getOptionValues("pp")).orElse(new String[0])) {
+         final String[] parts = pair.split(",");
+         if (parts.length != 3) {
+            System.err.println("Invalid project pair: " + pair);
+            return;
+         }
+         final IssueCorpus corpus = IssueCorpus.generate(Integer.parseInt(parts[2]), rules, 1.0, files, lineDrift, seed++);
+         server.addProject(parts[0], corpus.getSourceIssues(), path -> corpus.getSource(path, false));
+         server.addProject(parts[1], corpus.getTargetIssues(), path -> corpus.getSource(path, true));
+         System.out.println("Project " + parts[0] + ": " + corpus.getSourceIssues().size() + " issues, project " + parts[1] + ": "
+               + corpus.getTargetIssues().size() + " issues");
+      }
+      if (cl.hasOption("a")) {
+         server.startAnalysis(Long.parseLong(cl.getOptionValue("a")));
+      }
+      final List<String> nodeUrls = new ArrayList<>();
+      for (final String port : Optional.ofNullable(cl.getOptionValues("np")).orElse(new String[0])) {
+         nodeUrls.add(server.addNode(Integer.parseInt(port)));
+      }
+      server.start();
+      System.out.println("Fake SonarQube server running at " + server.getUrl() + (nodeUrls.isEmpty() ? "" : " and " + String.join(", ", nodeUrls)));
+   }
+
+   /** handler of an endpoint, writing the response and returning the HTTP status */
+   @FunctionalInterface
+   private interface Endpoint {
+
+      int handle(Map<String, List<String>> params, JsonGenerator json) throws IOException;
+   }
+
+}
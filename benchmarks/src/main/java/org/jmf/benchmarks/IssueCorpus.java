@@ -0,0 +1,209 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jmf.vo.Comment;
+import org.jmf.vo.Issue;
+
+/**
+ * Synthetic corpus of source and target issues, e.g. of a project and its branch after some changes.
+ * <p>
+ * Some source issues are confirmed, resolved as false positive or won't fix, and some have a comment. The target issues
+ * are the open source issues with the lines of each file shifted below a random line (simulating inserted or deleted
+ * lines), some of them fixed (removed) and some new ones added.
+ */
+public final class IssueCorpus {
+
+   /** number of lines of a file */
+   private static final int FILE_LINES = 2000;
+
+   private static final Pattern FILE_PATTERN = Pattern.compile(".*/File(\\d+)\\.java");
+
+   /** fraction of issues without line, i.e. on file level */
+   private static final double FILE_LEVEL_ISSUES = 0.02;
+
+   /** fraction of issues fixed or added in the target */
+   private static final double CHURN = 0.05;
+
+   /** fraction of source issues confirmed, resolved as false positive and resolved as won't fix */
+   private static final double FLAGGED = 0.1;
+
+   /** fraction of source issues with a comment */
+   private static final double COMMENTED = 0.05;
+
+   private final List<Issue> sourceIssues;
+
+   private final List<Issue> targetIssues;
+
+   private final int[] splitLines;
+
+   private final int[] drifts;
+
+   private IssueCorpus(final List<Issue> sourceIssues, final List<Issue> targetIssues, final int[] splitLines, final int[] drifts) {
+      this.sourceIssues = sourceIssues;
+      this.targetIssues = targetIssues;
+      this.splitLines = splitLines;
+      this.drifts = drifts;
+   }
+
+   /**
+    * Generate a corpus.
+    *
+    * @param issues the number of source issues
+    * @param rules the number of rules
+    * @param ruleSkew the exponent of the Zipf distribution of the issues over the rules (0 for uniform)
+    * @param files the number of files
+    * @param lineDrift the maximum number of lines the issues of a file are shifted in the target
+    * @param seed the seed of the random generator
+    * @return the corpus
+    */
+   public static IssueCorpus generate(final int issues, final int rules, final double ruleSkew, final int files, final int lineDrift, final long seed) {
+      final Random random = new Random(seed);
+      final double[] ruleDistribution = IssueCorpus.zipf(rules, ruleSkew);
+
+      // per file: lines below the split line are shifted by the drift
+      final int[] splitLines = new int[files];
+      final int[] drifts = new int[files];
+      for (int file = 0; file < files; file++) {
+         splitLines[file] = 1 + random.nextInt(IssueCorpus.FILE_LINES);
+         drifts[file] = lineDrift == 0 ? 0 : random.nextInt(2 * lineDrift + 1) - lineDrift;
+      }
+
+      final List<Issue> sourceIssues = new ArrayList<>(issues);
+      final List<Issue> targetIssues = new ArrayList<>(issues);
+      for (int i = 0; i < issues; i++) {
+         final int file = random.nextInt(files);
+         final String rule = "squid:S" + IssueCorpus.sample(ruleDistribution, random.nextDouble());
+         final Integer line = random.nextDouble() < IssueCorpus.FILE_LEVEL_ISSUES ? null : 1 + random.nextInt(IssueCorpus.FILE_LINES);
+         final Issue sourceIssue = IssueCorpus.createIssue("S" + i, rule, file, line);
+         final double flag = random.nextDouble();
+         if (flag < IssueCorpus.FLAGGED) {
+            sourceIssue.setStatus("CONFIRMED");
+         } else if (flag < 2 * IssueCorpus.FLAGGED) {
+            sourceIssue.setStatus("RESOLVED");
+            sourceIssue.setResolution("FALSE-POSITIVE");
+         } else if (flag < 3 * IssueCorpus.FLAGGED) {
+            sourceIssue.setStatus("RESOLVED");
+            sourceIssue.setResolution("WONTFIX");
+         }
+         if (random.nextDouble() < IssueCorpus.COMMENTED) {
+            final Comment comment = new Comment();
+            comment.setMarkdown("Reviewed, see ticket " + random.nextInt(10000));
+            sourceIssue.setComments(Collections.singletonList(comment));
+         }
+         sourceIssues.add(sourceIssue);
+
+         if (random.nextDouble() >= IssueCorpus.CHURN) {
+            final Integer targetLine = line == null || line < splitLines[file] ? line : Integer.valueOf(Math.max(1, line + drifts[file]));
+            targetIssues.add(IssueCorpus.createIssue("T" + i, rule, file, targetLine));
+         }
+         if (random.nextDouble() < IssueCorpus.CHURN) {
+            targetIssues.add(IssueCorpus.createIssue("N" + i, rule, random.nextInt(files), 1 + random.nextInt(IssueCorpus.FILE_LINES)));
+         }
+      }
+      // the server returns the issues in no particular order
+      Collections.shuffle(targetIssues, random);
+      return new IssueCorpus(sourceIssues, targetIssues, splitLines, drifts);
+   }
+
+   /**
+    * @return the source issues
+    */
+   public List<Issue> getSourceIssues() {
+      return this.sourceIssues;
+   }
+
+   /**
+    * @return the target issues
+    */
+   public List<Issue> getTargetIssues() {
+      return this.targetIssues;
+   }
+
+   /**
+    * Get the source of a file, consistent with the lines of the issues: in the target, lines are inserted or deleted
+    * above the split line of the file.
+    *
+    * @param path the path of the file, i.e. the parsed component of an issue
+    * @param target true for the source of the file in the target, false for the source
+    * @return the source or null, if there is no such file
+    */
+   public String getSource(final String path, final boolean target) {
+      final Matcher matcher = IssueCorpus.FILE_PATTERN.matcher(path);
+      if (!matcher.matches() || Integer.parseInt(matcher.group(1)) >= this.splitLines.length) {
+         return null;
+      }
+      final int file = Integer.parseInt(matcher.group(1));
+      final int drift = target ? this.drifts[file] : 0;
+      final StringBuilder source = new StringBuilder();
+      for (int line = 1; line <= IssueCorpus.FILE_LINES; line++) {
+         if (line == this.splitLines[file]) {
+            for (int inserted = 0; inserted < drift; inserted++) {
+               source.append("   // inserted line ").append(inserted).append('\n');
+            }
+         }
+         // the lines above the split line are deleted for a negative drift
+         if (line < this.splitLines[file] + drift || line >= this.splitLines[file]) {
+            source.append("   statement(").append(file).append(", ").append(line).append(");\n");
+         }
+      }
+      return source.toString();
+   }
+
+   private static Issue createIssue(final String key, final String rule, final int file, final Integer line) {
+      final Issue issue = new Issue();
+      issue.setKey(key);
+      issue.setRule(rule);
+      issue.setComponent("com.test:prj1:src/main/java/com/test/package" + file % 100 + "/File" + file + ".java");
+      issue.setLine(line);
+      issue.setStatus("OPEN");
+      return issue;
+   }
+
+   /** cumulative Zipf distribution */
+   private static double[] zipf(final int n, final double exponent) {
+      final double[] cumulative = new double[n];
+      double sum = 0;
+      for (int i = 0; i < n; i++) {
+         sum += 1 / Math.pow(i + 1, exponent);
+         cumulative[i] = sum;
+      }
+      for (int i = 0; i < n; i++) {
+         cumulative[i] /= sum;
+      }
+      return cumulative;
+   }
+
+   private static int sample(final double[] cumulative, final double value) {
+      int low = 0;
+      int high = cumulative.length - 1;
+      while (low < high) {
+         final int middle = (low + high) >>> 1;
+         if (cumulative[middle] < value) {
+            low = middle + 1;
+         } else {
+            high = middle;
+         }
+      }
+      return low;
+   }
+
+}
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jmf.vo.Comment;
+import org.jmf.vo.Issue;
+import org.jmf.vo.IssuesResponse;
+import org.jmf.vo.Paging;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Hand-written streaming decoder of api/issues/search responses, reading only the fields used by the tool.
+ */
+public final class IssuesResponseParser {
+
+   private final JsonFactory factory = new JsonFactory();
+
+   /**
+    * Decode a response.
+    *
+    * @param in the response body
+    * @return the response
+    * @throws IOException if the response cannot be decoded
+    */
+   public IssuesResponse parse(final InputStream in) throws IOException {
+      final IssuesResponse response = new IssuesResponse();
+      try (JsonParser parser = this.factory.createParser(in)) {
+         IssuesResponseParser.expect(parser.nextToken(), JsonToken.START_OBJECT);
+         while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("paging".equals(field)) {
+               response.setPaging(IssuesResponseParser.parsePaging(parser));
+            } else if ("issues".equals(field)) {
+               response.setIssues(IssuesResponseParser.parseIssues(parser));
+            } else {
+               parser.skipChildren();
+            }
+         }
+      }
+      return response;
+   }
+
+   private static Paging parsePaging(final JsonParser parser) throws IOException {
+      IssuesResponseParser.expect(parser.getCurrentToken(), JsonToken.START_OBJECT);
+      final Paging paging = new Paging();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+         final String field = parser.getCurrentName();
+         parser.nextToken();
+         if ("pageIndex".equals(field)) {
+            paging.setPageIndex(parser.getIntValue());
+         } else if ("pageSize".equals(field)) {
+            paging.setPageSize(parser.getIntValue());
+         } else if ("total".equals(field)) {
+            paging.setTotal(parser.getIntValue());
+         } else {
+            parser.skipChildren();
+         }
+      }
+      return paging;
+   }
+
+   private static List<Issue> parseIssues(final JsonParser parser) throws IOException {
+      IssuesResponseParser.expect(parser.getCurrentToken(), JsonToken.START_ARRAY);
+      final List<Issue> issues = new ArrayList<>();
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+         final Issue issue = new Issue();
+         while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+               case "key":
+                  issue.setKey(parser.getText());
+                  break;
+               case "component":
+                  issue.setComponent(parser.getText());
+                  break;
+               case "rule":
+                  issue.setRule(parser.getText());
+                  break;
+               case "status":
+                  issue.setStatus(parser.getText());
+                  break;
+               case "resolution":
+                  issue.setResolution(parser.getText());
+                  break;
+               case "severity":
+                  issue.setSeverity(parser.getText());
+                  break;
+               case "line":
+                  issue.setLine(parser.getIntValue());
+                  break;
+               case "assignee":
+                  issue.setAssignee(parser.getText());
+                  break;
+               case "updateDate":
+                  issue.setUpdateDate(parser.getText());
+                  break;
+               case "comments":
+                  issue.setComments(IssuesResponseParser.parseComments(parser));
+                  break;
+               default:
+                  parser.skipChildren();
+                  break;
+            }
+         }
+         issues.add(issue);
+      }
+      return issues;
+   }
+
+   private static List<Comment> parseComments(final JsonParser parser) throws IOException {
+      IssuesResponseParser.expect(parser.getCurrentToken(), JsonToken.START_ARRAY);
+      final List<Comment> comments = new ArrayList<>();
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+         final Comment comment = new Comment();
+         while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+               case "key":
+                  comment.setKey(parser.getText());
+                  break;
+               case "login":
+                  comment.setLogin(parser.getText());
+                  break;
+               case "markdown":
+                  comment.setMarkdown(parser.getText());
+                  break;
+               case "createdAt":
+                  comment.setCreatedAt(parser.getText());
+                  break;
+               default:
+                  parser.skipChildren();
+                  break;
+            }
+         }
+         comments.add(comment);
+      }
+      return comments;
+   }
+
+   private static void expect(final JsonToken actual, final JsonToken expected) throws IOException {
+      if (actual != expected) {
+         throw new IOException("Expected " + expected + ", but got " + actual);
+      }
+   }
+
+}
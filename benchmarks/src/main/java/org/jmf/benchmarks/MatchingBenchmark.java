@@ -0,0 +1,131 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.jmf.services.IssueIndex;
+import org.jmf.services.IssueMatcher;
+import org.jmf.vo.Issue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the matching of source and target issues as done by {@code SonarClientService.updateIssues}, without
+ * the requests: the target issues are indexed per rule and each source issue is matched with the closest target issue.
+ * <p>
+ * Run with {@code -prof gc} to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MatchingBenchmark {
+
+   @Param({ "10000", "100000", "1000000" })
+   private int issues;
+
+   @Param({ "0", "5", "50" })
+   private int deltaLines;
+
+   @Param({ "1.0" })
+   private double ruleSkew;
+
+   @Param({ "500" })
+   private int rules;
+
+   @Param({ "2000" })
+   private int files;
+
+   @Param({ "5" })
+   private int lineDrift;
+
+   private IssueIndex sourceIndex;
+
+   /** target issues by rule, i.e. as returned by the searches per rule */
+   private Map<String, List<Issue>> targetIssuesByRule;
+
+   private List<IssueIndex> targetIndexes;
+
+   /**
+    * Generate the corpus.
+    */
+   @Setup(Level.Trial)
+   public void setup() {
+      final IssueCorpus corpus = IssueCorpus.generate(this.issues, this.rules, this.ruleSkew, this.files, this.lineDrift, 42);
+      this.sourceIndex = IssueIndex.of(corpus.getSourceIssues());
+      this.targetIssuesByRule = corpus.getTargetIssues().stream().collect(Collectors.groupingBy(Issue::getRule));
+      this.targetIndexes = new ArrayList<>();
+      for (final String rule : this.sourceIndex.getRules()) {
+         this.targetIndexes.add(this.index(rule));
+      }
+   }
+
+   /**
+    * Index the target issues and match all source issues.
+    *
+    * @return the number of matched issues
+    */
+   @Benchmark
+   public int indexAndMatch() {
+      final IssueMatcher matcher = new IssueMatcher(this.deltaLines);
+      for (final String rule : this.sourceIndex.getRules()) {
+         final IssueIndex targetIndex = this.index(rule);
+         for (final Issue sourceIssue : this.sourceIndex.getIssues(rule)) {
+            matcher.match(targetIndex, sourceIssue);
+         }
+      }
+      return matcher.getMatched();
+   }
+
+   /**
+    * Match all source issues with the already indexed target issues.
+    *
+    * @return the number of matched issues
+    */
+   @Benchmark
+   public int match() {
+      final IssueMatcher matcher = new IssueMatcher(this.deltaLines);
+      int ruleIndex = 0;
+      for (final String rule : this.sourceIndex.getRules()) {
+         final IssueIndex targetIndex = this.targetIndexes.get(ruleIndex++);
+         for (final Issue sourceIssue : this.sourceIndex.getIssues(rule)) {
+            matcher.match(targetIndex, sourceIssue);
+         }
+      }
+      return matcher.getMatched();
+   }
+
+   private IssueIndex index(final String rule) {
+      final List<Issue> targetIssues = this.targetIssuesByRule.get(rule);
+      return IssueIndex.of(targetIssues != null ? targetIssues : new ArrayList<>());
+   }
+
+}
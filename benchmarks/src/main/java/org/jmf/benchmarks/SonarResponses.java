@@ -0,0 +1,193 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Synthetic responses of the SonarQube web service API, with all the fields a real server sends (most of which are
+ * ignored by the tool).
+ */
+public final class SonarResponses {
+
+   private static final JsonFactory FACTORY = new JsonFactory();
+
+   private static final String[] SEVERITIES = { "INFO", "MINOR", "MAJOR", "CRITICAL", "BLOCKER" };
+
+   private static final String[] STATUSES = { "OPEN", "CONFIRMED", "REOPENED", "RESOLVED" };
+
+   private static final String[] TAGS = { "cwe", "bad-practice", "performance", "pitfall", "unused", "security" };
+
+   private SonarResponses() {
+      // never instantiated
+   }
+
+   /**
+    * Create a page of api/issues/search.
+    *
+    * @param issues the number of issues on the page
+    * @param maxComments the maximum number of comments of an issue
+    * @param seed the seed of the random generator
+    * @return the JSON response
+    */
+   public static byte[] issuesPage(final int issues, final int maxComments, final long seed) {
+      final Random random = new Random(seed);
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (JsonGenerator json = SonarResponses.FACTORY.createGenerator(out)) {
+         json.writeStartObject();
+         json.writeNumberField("total", issues * 20);
+         json.writeNumberField("p", 1);
+         json.writeNumberField("ps", issues);
+         json.writeObjectFieldStart("paging");
+         json.writeNumberField("pageIndex", 1);
+         json.writeNumberField("pageSize", issues);
+         json.writeNumberField("total", issues * 20);
+         json.writeEndObject();
+         json.writeNumberField("effortTotal", 12345);
+         json.writeNumberField("debtTotal", 12345);
+         json.writeArrayFieldStart("issues");
+         for (int i = 0; i < issues; i++) {
+            SonarResponses.writeIssue(json, i, maxComments, random);
+         }
+         json.writeEndArray();
+         json.writeArrayFieldStart("components");
+         for (int i = 0; i < 50; i++) {
+            json.writeStartObject();
+            json.writeStringField("key", "com.test:prj1:src/main/java/com/test/File" + i + ".java");
+            json.writeBooleanField("enabled", true);
+            json.writeStringField("qualifier", "FIL");
+            json.writeStringField("name", "File" + i + ".java");
+            json.writeStringField("longName", "src/main/java/com/test/File" + i + ".java");
+            json.writeStringField("path", "src/main/java/com/test/File" + i + ".java");
+            json.writeEndObject();
+         }
+         json.writeEndArray();
+         json.writeArrayFieldStart("facets");
+         json.writeEndArray();
+         json.writeEndObject();
+      } catch (final IOException e) {
+         throw new UncheckedIOException(e);
+      }
+      return out.toByteArray();
+   }
+
+   /**
+    * Create a response of api/settings/values.
+    *
+    * @param settings the number of settings
+    * @return the JSON response
+    */
+   public static byte[] settings(final int settings) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (JsonGenerator json = SonarResponses.FACTORY.createGenerator(out)) {
+         json.writeStartObject();
+         json.writeArrayFieldStart("settings");
+         for (int i = 0; i < settings; i++) {
+            json.writeStartObject();
+            json.writeStringField("key", "sonar.setting" + i);
+            if (i % 5 == 0) {
+               json.writeArrayFieldStart("values");
+               json.writeString("**/generated/**");
+               json.writeString("**/*Test.java");
+               json.writeEndArray();
+            } else if (i % 17 == 0) {
+               json.writeArrayFieldStart("fieldValues");
+               json.writeStartObject();
+               json.writeStringField("ruleKey", "squid:S" + i);
+               json.writeStringField("resourceKey", "**/legacy/**");
+               json.writeEndObject();
+               json.writeEndArray();
+            } else {
+               json.writeStringField("value", "value of setting " + i);
+            }
+            json.writeBooleanField("inherited", i % 2 == 0);
+            json.writeEndObject();
+         }
+         json.writeEndArray();
+         json.writeEndObject();
+      } catch (final IOException e) {
+         throw new UncheckedIOException(e);
+      }
+      return out.toByteArray();
+   }
+
+   private static void writeIssue(final JsonGenerator json, final int i, final int maxComments, final Random random) throws IOException {
+      final int line = 1 + random.nextInt(2000);
+      json.writeStartObject();
+      json.writeStringField("key", "AW" + Long.toHexString(random.nextLong()));
+      json.writeStringField("rule", "squid:S" + random.nextInt(1000));
+      json.writeStringField("severity", SonarResponses.SEVERITIES[random.nextInt(SonarResponses.SEVERITIES.length)]);
+      json.writeStringField("component", "com.test:prj1:src/main/java/com/test/File" + random.nextInt(50) + ".java");
+      json.writeStringField("project", "com.test:prj1");
+      json.writeNumberField("line", line);
+      json.writeStringField("hash", Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()));
+      json.writeObjectFieldStart("textRange");
+      json.writeNumberField("startLine", line);
+      json.writeNumberField("endLine", line);
+      json.writeNumberField("startOffset", 8);
+      json.writeNumberField("endOffset", 42);
+      json.writeEndObject();
+      json.writeArrayFieldStart("flows");
+      json.writeEndArray();
+      final String status = SonarResponses.STATUSES[random.nextInt(SonarResponses.STATUSES.length)];
+      json.writeStringField("status", status);
+      if ("RESOLVED".equals(status)) {
+         json.writeStringField("resolution", random.nextBoolean() ? "FALSE-POSITIVE" : "WONTFIX");
+      }
+      json.writeStringField("message", "Remove this unused private \"field" + i + "\" field or refactor the code to use it.");
+      json.writeStringField("effort", "5min");
+      json.writeStringField("debt", "5min");
+      json.writeStringField("author", "developer" + random.nextInt(20) + "@test.com");
+      json.writeArrayFieldStart("tags");
+      json.writeString(SonarResponses.TAGS[random.nextInt(SonarResponses.TAGS.length)]);
+      json.writeEndArray();
+      json.writeArrayFieldStart("transitions");
+      json.writeString("confirm");
+      json.writeString("resolve");
+      json.writeString("falsepositive");
+      json.writeString("wontfix");
+      json.writeEndArray();
+      json.writeArrayFieldStart("actions");
+      json.writeString("set_tags");
+      json.writeString("comment");
+      json.writeString("assign");
+      json.writeEndArray();
+      json.writeArrayFieldStart("comments");
+      final int comments = random.nextInt(maxComments + 1);
+      for (int c = 0; c < comments; c++) {
+         json.writeStartObject();
+         json.writeStringField("key", "AX" + Long.toHexString(random.nextLong()));
+         json.writeStringField("login", "reviewer" + c);
+         json.writeStringField("htmlText", "This is <strong>intended</strong>, see ticket " + random.nextInt(10000));
+         json.writeStringField("markdown", "This is *intended*, see ticket " + random.nextInt(10000));
+         json.writeBooleanField("updatable", false);
+         json.writeStringField("createdAt", "2020-03-17T10:15:30+0100");
+         json.writeEndObject();
+      }
+      json.writeEndArray();
+      json.writeStringField("creationDate", "2019-11-05T08:12:44+0100");
+      json.writeStringField("updateDate", "2020-03-17T10:15:30+0100");
+      json.writeStringField("type", "CODE_SMELL");
+      json.writeStringField("organization", "default-organization");
+      json.writeBooleanField("fromHotspot", false);
+      json.writeEndObject();
+   }
+
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jmf.vo.MigrationJob;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+/**
+ * Reader for batch manifests listing the migrations to run.
+ * <p>
+ * A YAML or JSON manifest contains either a list of jobs or an object with the optional <code>defaults</code> for all
+ * jobs and the list of <code>jobs</code>. A CSV manifest contains a header line with the property names followed by one
+ * line per job. The property names are those of {@link MigrationJob}, unknown properties (e.g. misspelled ones) are
+ * rejected, e.g.:
+ *
+ * <pre>
+ * defaults:
+ *   sourceUrl: https://sonar.test.com
+ *   migrateComments: true
+ * jobs:
+ *   - sourceComponent: com.test:prj1
+ *     targetComponent: com.test:prj1-branch
+ * </pre>
+ */
+public final class BatchManifest {
+
+   private static final String FIELD_DEFAULTS = "defaults";
+
+   private static final String FIELD_JOBS = "jobs";
+
+   private BatchManifest() {
+      // never instantiated
+   }
+
+   /**
+    * Read the jobs from a manifest. The format is determined by the file extension.
+    *
+    * @param file the manifest file (.yaml, .yml, .json or .csv)
+    * @return the jobs with the defaults of the manifest applied
+    * @throws IOException if the manifest cannot be read
+    */
+   public static List<MigrationJob> read(final File file) throws IOException {
+      final String name = file.getName().toLowerCase();
+      final List<MigrationJob> jobs = new ArrayList<>();
+      if (name.endsWith(".csv")) {
+         final CsvMapper mapper = new CsvMapper();
+         final ObjectMapper converter = BatchManifest.createMapper(new ObjectMapper());
+         try (MappingIterator<Map<String, String>> rows = mapper.readerFor(Map.class).with(CsvSchema.emptySchema().withHeader()).readValues(file)) {
+            while (rows.hasNext()) {
+               final Map<String, String> row = rows.next();
+               // empty cells are not set
+               row.values().removeIf(StringUtils::isBlank);
+               try {
+                  jobs.add(converter.convertValue(row, MigrationJob.class));
+               } catch (final IllegalArgumentException e) {
+                  // the header is line 1
+                  throw new IOException("Invalid line " + (jobs.size() + 2) + " of manifest " + file + ": " + e.getMessage().trim(), e);
+               }
+            }
+         }
+      } else {
+         final ObjectMapper mapper = BatchManifest.createMapper(name.endsWith(".json") ? new ObjectMapper() : new ObjectMapper(new YAMLFactory()));
+         jobs.addAll(BatchManifest.read(mapper, mapper.readTree(file)));
+      }
+      if (jobs.isEmpty()) {
+         throw new IOException("No jobs found in manifest " + file);
+      }
+      return jobs;
+   }
+
+   /**
+    * Read the jobs from a JSON manifest, e.g. the body of a request. Besides the formats of a manifest file, a single
+    * job is accepted.
+    *
+    * @param in the manifest
+    * @return the jobs with the defaults of the manifest applied
+    * @throws IOException if the manifest cannot be read or contains no jobs
+    */
+   public static List<MigrationJob> readJson(final InputStream in) throws IOException {
+      final ObjectMapper mapper = BatchManifest.createMapper(new ObjectMapper());
+      final JsonNode root = mapper.readTree(in);
+      if (root == null || !root.isContainerNode()) {
+         throw new IOException("No jobs found");
+      }
+      final List<MigrationJob> jobs = root.isObject() && !root.has(BatchManifest.FIELD_JOBS) && !root.has(BatchManifest.FIELD_DEFAULTS)
+            ? Collections.singletonList(mapper.treeToValue(root, MigrationJob.class))
+            : BatchManifest.read(mapper, root);
+      if (jobs.isEmpty()) {
+         throw new IOException("No jobs found");
+      }
+      return jobs;
+   }
+
+   private static List<MigrationJob> read(final ObjectMapper mapper, final JsonNode root) throws IOException {
+      for (final Iterator<String> names = root.fieldNames(); names.hasNext();) {
+         final String name = names.next();
+         if (!BatchManifest.FIELD_DEFAULTS.equals(name) && !BatchManifest.FIELD_JOBS.equals(name)) {
+            throw new IOException("Unknown property '" + name + "' of the manifest, expected '" + BatchManifest.FIELD_DEFAULTS + "' and '"
+                  + BatchManifest.FIELD_JOBS + "'");
+         }
+      }
+      final List<MigrationJob> jobs = new ArrayList<>();
+      final MigrationJob defaults = root.has(BatchManifest.FIELD_DEFAULTS)
+            ? mapper.treeToValue(root.get(BatchManifest.FIELD_DEFAULTS), MigrationJob.class)
+            : new MigrationJob();
+      final JsonNode entries = root.isArray() ? root : root.path(BatchManifest.FIELD_JOBS);
+      for (final Iterator<JsonNode> iterator = entries.elements(); iterator.hasNext();) {
+         jobs.add(mapper.treeToValue(iterator.next(), MigrationJob.class).withDefaults(defaults));
+      }
+      return jobs;
+   }
+
+   /** manifests are written by hand, so misspelled properties are errors instead of being ignored silently */
+   private static ObjectMapper createMapper(final ObjectMapper mapper) {
+      return mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, true);
+   }
+
+}
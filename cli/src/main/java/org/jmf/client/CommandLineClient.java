@@ -0,0 +1,760 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.appender.ConsoleAppender;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilder;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilderFactory;
+import org.apache.logging.log4j.core.config.builder.impl.BuiltConfiguration;
+import org.jmf.services.DeadLetterQueue;
+import org.jmf.services.DecisionTrace;
+import org.jmf.services.HttpClientPool;
+import org.jmf.services.HttpRecorder;
+import org.jmf.services.MigrationEstimator;
+import org.jmf.services.Migrator;
+import org.jmf.services.NodeBalancer;
+import org.jmf.services.ProgressReporter;
+import org.jmf.services.RequestThrottle;
+import org.jmf.services.RunMetrics;
+import org.jmf.services.SettingsFingerprintStore;
+import org.jmf.services.SonarCatalog;
+import org.jmf.services.SonarClientService;
+import org.jmf.services.jfr.JfrSupport;
+import org.jmf.vo.FailedWrite;
+import org.jmf.vo.MigrationEstimate;
+import org.jmf.vo.MigrationJob;
+import org.jmf.vo.MigrationResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Main class.
+ *
+ * @author MVlcek
+ * @version 29.04.2020
+ */
+public final class CommandLineClient {
+
+   static {
+      CommandLineClient.initializeLogging();
+   }
+
+   // Logger
+   private static final Logger LOG = LoggerFactory.getLogger(CommandLineClient.class);
+
+   private static final Options OPTIONS = CommandLineClient.createOptions();
+
+   private CommandLineClient() {
+      // never instantiated
+   }
+
+   /**
+    * Main.
+    *
+    * @param args see {@link #createOptions()}
+    */
+   public static void main(final String... args) {
+      String metricsPrefix = null;
+      String jfrFile = null;
+      DecisionTrace decisionTrace = null;
+      DeadLetterQueue deadLetters = null;
+      File replacedDeadLetters = null;
+      try {
+         final CommandLineParser clp = new DefaultParser();
+         final CommandLine cl = clp.parse(CommandLineClient.OPTIONS, args);
+         metricsPrefix = cl.getOptionValue("mx");
+         if (cl.hasOption("v")) {
+            Configurator.setRootLevel(Level.DEBUG);
+         }
+         Optional.ofNullable(cl.getOptionValue("pi")).map(Long::valueOf).map(TimeUnit.SECONDS::toMillis).ifPresent(ProgressReporter::setInterval);
+         RunMetrics.get().reset();
+         if (cl.hasOption("jfr")) {
+            JfrSupport.start();
+            jfrFile = cl.getOptionValue("jfr");
+         }
+
+         RequestThrottle.setDefaultRates(
+               Optional.ofNullable(cl.getOptionValue("rr")).map(Double::valueOf).orElse(0.0),
+               Optional.ofNullable(cl.getOptionValue("wr")).map(Double::valueOf).orElse(0.0));
+         for (final String nodeUrls : Optional.ofNullable(cl.getOptionValues("nu")).orElse(new String[0])) {
+            final int separator = nodeUrls.indexOf('=');
+            if (separator <= 0) {
+               throw new ParseException("Invalid node URLs: " + nodeUrls);
+            }
+            NodeBalancer.setNodes(nodeUrls.substring(0, separator), Arrays.asList(nodeUrls.substring(separator + 1).split(",")));
+         }
+         Optional.ofNullable(cl.getOptionValue("ct")).map(Long::valueOf).map(TimeUnit.SECONDS::toMillis).ifPresent(SonarCatalog::setTtl);
+         HttpClientPool.setMaxConnections(Optional.ofNullable(cl.getOptionValue("cx")).map(Integer::valueOf).orElse(HttpClientPool.DEFAULT_MAX_CONNECTIONS));
+         if (cl.hasOption("rec")) {
+            HttpClientPool.setRecorder(new HttpRecorder(new File(cl.getOptionValue("rec"))));
+         }
+         if (cl.hasOption("rpl")) {
+            HttpClientPool.setReplay(new File(cl.getOptionValue("rpl")),
+                  Optional.ofNullable(cl.getOptionValue("rls")).map(Double::valueOf).orElse(1.0));
+         }
+
+         if (cl.hasOption("dt")) {
+            decisionTrace = new DecisionTrace(new File(cl.getOptionValue("dt")));
+         }
+         // read the failed writes first, the dead-letter queue might be the same file
+         final List<FailedWrite> failures = cl.hasOption("rf") ? DeadLetterQueue.read(new File(cl.getOptionValue("rf"))) : null;
+         if (cl.hasOption("dlq")) {
+            File file = new File(cl.getOptionValue("dlq"));
+            if (failures != null && file.getCanonicalFile().equals(new File(cl.getOptionValue("rf")).getCanonicalFile())) {
+               // the writes failing again replace the queue after the replay, i.e. nothing is lost, if it is interrupted
+               replacedDeadLetters = file;
+               file = new File(file.getPath() + ".tmp");
+               Files.deleteIfExists(file.toPath());
+            }
+            deadLetters = new DeadLetterQueue(file);
+         }
+
+         final Migrator.Builder builder = Migrator.builder()
+               .job(CommandLineClient.createJob(cl))
+               .decisionTrace(decisionTrace)
+               .deadLetterQueue(deadLetters);
+         Optional.ofNullable(cl.getOptionValue("bw")).map(Integer::valueOf).ifPresent(builder::workers);
+         Optional.ofNullable(cl.getOptionValue("pw")).map(Integer::valueOf).ifPresent(builder::writeParallelism);
+         Optional.ofNullable(cl.getOptionValue("ix")).map(File::new).ifPresent(builder::indexDirectory);
+         Optional.ofNullable(cl.getOptionValue("sd")).map(File::new).ifPresent(builder::sourceDiff);
+         if (cl.hasOption("mh")) {
+            builder.matchByHash();
+         }
+         if (cl.hasOption("hp")) {
+            builder.hedging(Double.parseDouble(cl.getOptionValue("hp")), Optional.ofNullable(cl.getOptionValue("hb")).map(Double::valueOf).orElse(10.0) / 100.0);
+         }
+         if (cl.hasOption("dd")) {
+            // the deadline is one point in time, the jobs of a daemon would be started after it
+            if (cl.hasOption("dm")) {
+               throw new ParseException("A deadline (-dd) cannot be used with --daemon.");
+            }
+            builder.deadline(CommandLineClient.parseDeadline(cl.getOptionValue("dd")));
+         }
+         for (final String ruleWeight : Optional.ofNullable(cl.getOptionValues("rw")).orElse(new String[0])) {
+            final int separator = ruleWeight.lastIndexOf('=');
+            if (separator <= 0) {
+               throw new ParseException("Invalid rule weight: " + ruleWeight);
+            }
+            builder.ruleWeight(ruleWeight.substring(0, separator), Double.parseDouble(ruleWeight.substring(separator + 1)));
+         }
+         if (cl.hasOption("fs")) {
+            builder.fingerprintStore(new SettingsFingerprintStore(new File(cl.getOptionValue("fs"))));
+         }
+         final Migrator migrator = builder.build();
+
+         if (failures != null) {
+            final List<MigrationResult> results = migrator.replayFailures(failures);
+            results.forEach(result -> result.setSourceComponent(cl.getOptionValue("rf")));
+            CommandLineClient.report(results);
+            if (replacedDeadLetters != null) {
+               // closed again (and reported) below
+               deadLetters.close();
+               Files.move(new File(replacedDeadLetters.getPath() + ".tmp").toPath(), replacedDeadLetters.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return;
+         }
+
+         if (cl.hasOption("dm")) {
+            CommandLineClient.runDaemon(migrator, Integer.parseInt(cl.getOptionValue("dm")),
+                  Optional.ofNullable(cl.getOptionValue("bw")).map(Integer::valueOf).orElse(Migrator.DEFAULT_WORKERS));
+            return;
+         }
+
+         if (cl.hasOption("bm")) {
+            final List<MigrationJob> jobs = BatchManifest.read(new File(cl.getOptionValue("bm")));
+            final int workers = Optional.ofNullable(cl.getOptionValue("bw")).map(Integer::valueOf).orElse(Migrator.DEFAULT_WORKERS);
+            if (cl.hasOption("es")) {
+               CommandLineClient.reportEstimates(migrator.estimateAll(jobs), workers, false);
+               return;
+            }
+            CommandLineClient.LOG.info("Running {} migrations with {} workers...", jobs.size(), workers);
+            CommandLineClient.report(migrator.runAll(jobs));
+            return;
+         }
+
+         final String[] sourceComponents = cl.getOptionValues("sc");
+         final String[] targetComponents = cl.getOptionValues("tc");
+         try {
+            migrator.validate();
+         } catch (final IllegalArgumentException e) {
+            CommandLineClient.LOG.error(e.getMessage());
+            CommandLineClient.help();
+            return;
+         }
+         if (sourceComponents.length > 1) {
+            if (targetComponents == null || targetComponents.length != 1) {
+               CommandLineClient.LOG.error("Exactly one target component must be given for several source components.");
+               CommandLineClient.help();
+               return;
+            }
+            if (cl.hasOption("es")) {
+               // estimated as separate migrations, i.e. the target issues are counted for each source
+               final List<MigrationJob> jobs = Arrays.stream(sourceComponents).map(sourceComponent -> {
+                  final MigrationJob job = new MigrationJob();
+                  job.setSourceComponent(sourceComponent);
+                  return job;
+               }).collect(Collectors.toList());
+               CommandLineClient.reportEstimates(migrator.estimateAll(jobs),
+                     Optional.ofNullable(cl.getOptionValue("bw")).map(Integer::valueOf).orElse(sourceComponents.length), false);
+               return;
+            }
+            CommandLineClient.report(Collections.singletonList(migrator.runConsolidation(Arrays.asList(sourceComponents))));
+            return;
+         }
+         if (targetComponents != null && targetComponents.length > 1) {
+            if (cl.hasOption("es")) {
+               final List<MigrationJob> jobs = Arrays.stream(targetComponents).map(targetComponent -> {
+                  final MigrationJob job = new MigrationJob();
+                  job.setTargetComponent(targetComponent);
+                  return job;
+               }).collect(Collectors.toList());
+               CommandLineClient.reportEstimates(migrator.estimateAll(jobs),
+                     Optional.ofNullable(cl.getOptionValue("bw")).map(Integer::valueOf).orElse(targetComponents.length), true);
+               return;
+            }
+            CommandLineClient.report(migrator.runFanOut(Arrays.asList(targetComponents)));
+            return;
+         }
+         if (cl.hasOption("es")) {
+            CommandLineClient.reportEstimates(Collections.singletonList(migrator.estimate()), 1, false);
+            return;
+         }
+         migrator.run();
+      } catch (final ParseException e) {
+         CommandLineClient.LOG.error(e.getMessage(), e);
+         CommandLineClient.help();
+      } catch (final Exception e) {
+         CommandLineClient.LOG.error("Error migrating sonar issues: {}", e.getMessage(), e);
+      } finally {
+         if (decisionTrace != null) {
+            CommandLineClient.closeDecisionTrace(decisionTrace);
+         }
+         if (deadLetters != null) {
+            CommandLineClient.closeDeadLetterQueue(deadLetters);
+         }
+         if (metricsPrefix != null) {
+            CommandLineClient.writeMetrics(metricsPrefix);
+         }
+         if (jfrFile != null) {
+            CommandLineClient.writeRecording(jfrFile);
+         }
+         HttpClientPool.shutdown();
+         LogManager.shutdown();
+      }
+
+   }
+
+   /**
+    * Run the migrations submitted to a daemon until the JVM is terminated. The running jobs may finish before the
+    * resources shared by all jobs are closed.
+    */
+   private static void runDaemon(final Migrator migrator, final int port, final int workers) throws IOException, InterruptedException {
+      final MigrationDaemon daemon = new MigrationDaemon(migrator, port, workers);
+      final Thread main = Thread.currentThread();
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+         daemon.close();
+         try {
+            // let the main thread close the decision trace, the dead-letter queue etc.
+            main.join(TimeUnit.SECONDS.toMillis(10));
+         } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }, "daemon-shutdown"));
+      daemon.start();
+      daemon.awaitClose();
+   }
+
+   private static void writeMetrics(final String prefix) {
+      try {
+         RunMetrics.get().writeJson(new File(prefix + ".json"));
+         RunMetrics.get().writePrometheus(new File(prefix + ".prom"));
+         CommandLineClient.LOG.info("Metrics written to {}.json and {}.prom", prefix, prefix);
+      } catch (final Exception e) {
+         CommandLineClient.LOG.warn("Error writing metrics: {}", e.getMessage(), e);
+      }
+   }
+
+   private static void closeDecisionTrace(final DecisionTrace decisionTrace) {
+      try {
+         decisionTrace.close();
+      } catch (final Exception e) {
+         CommandLineClient.LOG.warn("Error writing decision trace: {}", e.getMessage(), e);
+      }
+   }
+
+   private static void closeDeadLetterQueue(final DeadLetterQueue deadLetters) {
+      try {
+         deadLetters.close();
+         if (deadLetters.getCount() > 0) {
+            CommandLineClient.LOG.warn("{} failed writes added to the dead-letter queue.", deadLetters.getCount());
+         }
+      } catch (final Exception e) {
+         CommandLineClient.LOG.warn("Error writing dead-letter queue: {}", e.getMessage(), e);
+      }
+   }
+
+   private static void writeRecording(final String file) {
+      try {
+         JfrSupport.stop(new File(file));
+      } catch (final Exception e) {
+         CommandLineClient.LOG.warn("Error writing JFR recording: {}", e.getMessage(), e);
+      }
+      final RunMetrics metrics = RunMetrics.get();
+      CommandLineClient.LOG.info("Phases: fetch {} s, match {} s, write {} s, wall time {} s",
+            CommandLineClient.seconds(metrics.getPhaseNanos(RunMetrics.PHASE_FETCH)),
+            CommandLineClient.seconds(metrics.getPhaseNanos(RunMetrics.PHASE_MATCH)),
+            CommandLineClient.seconds(metrics.getPhaseNanos(RunMetrics.PHASE_WRITE)),
+            String.format(Locale.ROOT, "%.3f", metrics.getSummary().get("wallSeconds")));
+   }
+
+   private static String seconds(final long nanos) {
+      return String.format(Locale.ROOT, "%.3f", nanos / 1e9);
+   }
+
+   /**
+    * Parse a deadline: a time (HH:mm, the next occurrence), a date and time (yyyy-MM-ddTHH:mm) or minutes from now
+    * (+minutes).
+    */
+   private static long parseDeadline(final String value) throws ParseException {
+      try {
+         if (value.startsWith("+")) {
+            return System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(Long.parseLong(value.substring(1)));
+         } else if (value.contains("T")) {
+            return LocalDateTime.parse(value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+         }
+         final LocalDateTime time = LocalDate.now().atTime(LocalTime.parse(value));
+         return (time.isAfter(LocalDateTime.now()) ? time : time.plusDays(1)).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+      } catch (final DateTimeParseException | NumberFormatException e) {
+         throw new ParseException("Invalid deadline: " + value);
+      }
+   }
+
+   private static MigrationJob createJob(final CommandLine cl) {
+      final MigrationJob job = new MigrationJob();
+      job.setSourceUrl(cl.getOptionValue("su"));
+      job.setSourceComponent(cl.getOptionValue("sc"));
+      job.setSourceLogin(cl.getOptionValue("sl"));
+      job.setSourcePassword(cl.getOptionValue("sp"));
+      job.setTargetUrl(cl.getOptionValue("tu"));
+      job.setTargetComponent(cl.getOptionValue("tc"));
+      job.setTargetLogin(cl.getOptionValue("tl"));
+      job.setTargetPassword(cl.getOptionValue("tp"));
+      job.setDeltaLines(Optional.ofNullable(cl.getOptionValue("dl")).map(Integer::valueOf).orElse(null));
+      // only set options given, so that they can be overridden in a batch manifest
+      job.setMigrateProject(cl.hasOption("mp") ? Boolean.TRUE : null);
+      job.setMigrateConfirmed(cl.hasOption("mc") ? Boolean.TRUE : null);
+      job.setMigrateFalsePositive(cl.hasOption("mf") ? Boolean.TRUE : null);
+      job.setMigrateWontFix(cl.hasOption("mw") ? Boolean.TRUE : null);
+      job.setMigrateComments(cl.hasOption("mo") ? Boolean.TRUE : null);
+      job.setDryRun(cl.hasOption("d") ? Boolean.TRUE : null);
+      job.setWaitForAnalysis(Optional.ofNullable(cl.getOptionValue("wa")).map(Integer::valueOf).orElse(null));
+      return job;
+   }
+
+   private static void report(final List<MigrationResult> results) {
+      int processed = 0;
+      int updated = 0;
+      int unmatched = 0;
+      int failed = 0;
+      int remaining = 0;
+      int errors = 0;
+      for (final MigrationResult result : results) {
+         if (result.getError() != null) {
+            errors++;
+            CommandLineClient.LOG.warn("{} -> {}: error after {} ms: {}", result.getSourceComponent(), result.getTargetComponent(), result.getDurationMillis(), result.getError());
+         } else {
+            CommandLineClient.LOG.info("{} -> {}: {} processed, {} updated, {} unmatched, {} failed{} ({} ms)", result.getSourceComponent(), result.getTargetComponent(),
+                  result.getProcessed(), result.getUpdated(), result.getUnmatched(), result.getFailed(),
+                  result.getRemaining() > 0 ? ", " + result.getRemaining() + " left at the deadline" : "", result.getDurationMillis());
+         }
+         processed += result.getProcessed();
+         updated += result.getUpdated();
+         unmatched += result.getUnmatched();
+         failed += result.getFailed();
+         remaining += result.getRemaining();
+      }
+      CommandLineClient.LOG.info("Finished: {} migrations ({} with errors), {} processed, {} updated, {} unmatched, {} failed{}.",
+            results.size(), errors, processed, updated, unmatched, failed, remaining > 0 ? ", " + remaining + " left at the deadline" : "");
+   }
+
+   private static void reportEstimates(final List<MigrationEstimate> estimates, final int workers, final boolean sharedSource) {
+      for (final MigrationEstimate estimate : estimates) {
+         if (estimate.getError() != null) {
+            CommandLineClient.LOG.warn("{} -> {}: cannot be estimated: {}", estimate.getSourceComponent(), estimate.getTargetComponent(), estimate.getError());
+         } else {
+            CommandLineClient.logEstimate(estimate.getSourceComponent() + " -> " + estimate.getTargetComponent(), estimate);
+         }
+      }
+      if (estimates.size() > 1) {
+         CommandLineClient.logEstimate("Total with " + workers + " workers", MigrationEstimator.total(estimates, workers, sharedSource));
+      }
+   }
+
+   private static void logEstimate(final String title, final MigrationEstimate estimate) {
+      CommandLineClient.LOG.info("{}: {} source issues, {} target issues in {} rules, match rate {}% ({} issues sampled), {} writes per issue",
+            title, estimate.getSourceIssues(), estimate.getTargetIssues(), estimate.getRules(),
+            String.format(Locale.ROOT, "%.1f", estimate.getMatchRate() * 100), estimate.getSampledIssues(),
+            String.format(Locale.ROOT, "%.2f", estimate.getWritesPerIssue()));
+      CommandLineClient.LOG.info("{}: {} requests ({} source reads, {} target reads, {} writes), {} MB received, about {} s{}",
+            title, estimate.getSourceRequests() + estimate.getTargetRequests() + estimate.getWriteRequests(),
+            estimate.getSourceRequests(), estimate.getTargetRequests(), estimate.getWriteRequests(),
+            String.format(Locale.ROOT, "%.1f", (estimate.getSourceBytes() + estimate.getTargetBytes()) / 1e6),
+            String.format(Locale.ROOT, "%.0f", estimate.getEstimatedSeconds()),
+            estimate.getNote() != null ? " (" + estimate.getNote() + ")" : "");
+   }
+
+   private static void help() {
+      final StringWriter stringWriter = new StringWriter();
+      final PrintWriter printWriter = new PrintWriter(stringWriter);
+      final HelpFormatter helpFormatter = new HelpFormatter();
+      final String jarName = Optional.ofNullable(new File(CommandLineClient.class.getProtectionDomain().getCodeSource().getLocation().getPath()))
+            .map(File::getName)
+            .filter(name -> name.endsWith(".jar"))
+            .orElse("sims.jar");
+
+      helpFormatter.printHelp(
+            printWriter,
+            120,
+            "java -jar " + jarName,
+            "\nA tool for migrating SonarQube issue resolutions and comments from one project to another."
+                  + "\n\nOptions:",
+            CommandLineClient.OPTIONS, 2, 3,
+            "\nIf none of the migration options are given, all are enabled.\n"
+                  + "The projects need to be identical or at least very similar to map the issues.\n"
+                  + "\nExamples:\n"
+                  + "> java -jar " + jarName + " -su https://sonar.test.com -sc com.test:prj1 -tc com.test:prj1-branch -tl 21..."
+                  + "\tMigrates resolutions and comments to a branch.\n"
+                  + "> java -jar " + jarName + " -su https://sonar1.test.com -sc com.test:prj1 -tu https://sonar2.test.com -tl 21..."
+                  + "\tMigrates resolutions and comments from one server to another one.\n",
+            true);
+      CommandLineClient.LOG.info("{}", stringWriter.getBuffer().toString());
+   }
+
+   private static Options createOptions() {
+      final Options options = new Options();
+
+      options.addOption("h", "help", false, "print this help");
+      options.addOption(Option.builder("su")
+            .longOpt("source-url")
+            .hasArgs()
+            .argName("url")
+            .desc("URL of source SonarQube")
+            .build());
+      options.addOption(Option.builder("sc")
+            .longOpt("source-component")
+            .hasArgs()
+            .argName("key")
+            .desc("Source component key, e.g. project key. If several keys are given, all sources are migrated to one target")
+            .build());
+      options.addOption(Option.builder("sl")
+            .longOpt("source-login")
+            .hasArgs()
+            .argName("user-or-token")
+            .desc("Login user name or token for source")
+            .build());
+      options.addOption(Option.builder("sp")
+            .longOpt("source-password")
+            .hasArgs()
+            .argName("password")
+            .desc("Password for source, if login user name is given")
+            .build());
+      options.addOption(Option.builder("tu")
+            .longOpt("target-url")
+            .hasArgs()
+            .argName("url")
+            .desc("URL of target SonarQube - if not set, the source URL is used")
+            .build());
+      options.addOption(Option.builder("tc")
+            .longOpt("target-component")
+            .hasArgs()
+            .argName("key")
+            .desc("Target component key - if not set the source comonent key is used. If several keys are given, the source is migrated to all of them")
+            .build());
+      options.addOption(Option.builder("tl")
+            .longOpt("target-login")
+            .hasArgs()
+            .argName("user-or-token")
+            .desc("Login user name or token for target - if not set the source login is used")
+            .build());
+      options.addOption(Option.builder("tp")
+            .longOpt("target-password")
+            .hasArgs()
+            .argName("password")
+            .desc("Password for target, if login user  name is given - if not set the source password is used")
+            .build());
+      options.addOption(Option.builder("dl")
+            .longOpt("delta-line")
+            .hasArg()
+            .argName("delta")
+            .desc("Maximum delta of line numbers (default 0)")
+            .build());
+      options.addOption(Option.builder("hp")
+            .longOpt("hedge-percentile")
+            .hasArg()
+            .argName("percentile")
+            .desc("Send a duplicate GET request, if a request takes longer than this percentile of the observed latencies, e.g. 95 (default no hedging)")
+            .build());
+      options.addOption(Option.builder("hb")
+            .longOpt("hedge-budget")
+            .hasArg()
+            .argName("percent")
+            .desc("Maximum percentage of GET requests which may be hedged (default 10)")
+            .build());
+      options.addOption(Option.builder("rr")
+            .longOpt("read-rate")
+            .hasArg()
+            .argName("requests")
+            .desc("Maximum number of read requests per second and server (default unlimited)")
+            .build());
+      options.addOption(Option.builder("wr")
+            .longOpt("write-rate")
+            .hasArg()
+            .argName("requests")
+            .desc("Maximum number of write requests per second and server (default unlimited)")
+            .build());
+      options.addOption(Option.builder("nu")
+            .longOpt("node-urls")
+            .hasArgs()
+            .argName("url=nodes")
+            .desc("Balance the requests to the server <url> across its application nodes (comma separated URLs), "
+                  + "e.g. https://sonar.test.com=http://app1:9000,http://app2:9000")
+            .build());
+      options.addOption(Option.builder("bm")
+            .longOpt("batch-manifest")
+            .hasArg()
+            .argName("file")
+            .desc("Run the migrations listed in the manifest (YAML, JSON or CSV) - the other options are used as defaults")
+            .build());
+      options.addOption(Option.builder("dm")
+            .longOpt("daemon")
+            .hasArg()
+            .argName("port")
+            .desc("Run as daemon taking migration jobs over a local HTTP/JSON API on <port> - the other options are used as defaults")
+            .build());
+      options.addOption(Option.builder("bw")
+            .longOpt("batch-workers")
+            .hasArg()
+            .argName("count")
+            .desc("Maximum number of migrations running in parallel in batch mode (default " + Migrator.DEFAULT_WORKERS
+                  + ") or with several sources or targets (default all)")
+            .build());
+      options.addOption(Option.builder("cx")
+            .longOpt("max-connections")
+            .hasArg()
+            .argName("count")
+            .desc("Maximum number of HTTP connections (default " + HttpClientPool.DEFAULT_MAX_CONNECTIONS + ")")
+            .build());
+      options.addOption(Option.builder("pw")
+            .longOpt("parallel-writes")
+            .hasArg()
+            .argName("count")
+            .desc("Maximum number of concurrent write requests per migration (default " + SonarClientService.DEFAULT_WRITE_PARALLELISM + ")")
+            .build());
+      options.addOption(Option.builder("ct")
+            .longOpt("catalog-ttl")
+            .hasArg()
+            .argName("seconds")
+            .desc("Time to live of the cached quality profiles and global settings of a server (default "
+                  + TimeUnit.MILLISECONDS.toSeconds(SonarCatalog.DEFAULT_TTL) + ")")
+            .build());
+      options.addOption(Option.builder("mx")
+            .longOpt("metrics")
+            .hasArg()
+            .argName("prefix")
+            .desc("Write the metrics of the run (requests, latencies and bytes per endpoint, time per phase) to <prefix>.json and <prefix>.prom")
+            .build());
+      options.addOption(Option.builder("dt")
+            .longOpt("decision-trace")
+            .hasArg()
+            .argName("file")
+            .desc("Write the decision for each source issue (matched target issue, line distance, transition, comments) as JSON lines to <file>")
+            .build());
+      options.addOption(Option.builder("dlq")
+            .longOpt("dead-letter")
+            .hasArg()
+            .argName("file")
+            .desc("Append the writes, which failed, with their parameters and error as JSON lines to <file>")
+            .build());
+      options.addOption(Option.builder("rf")
+            .longOpt("replay-failures")
+            .hasArg()
+            .argName("file")
+            .desc("Send the failed writes of the dead-letter queue <file> again (skipping changes already applied) instead of migrating")
+            .build());
+      options.addOption(Option.builder("es")
+            .longOpt("estimate")
+            .desc("Estimate the requests, bytes, match rate and wall time of the migrations from counts and a small sample instead of migrating")
+            .build());
+      options.addOption(Option.builder("jfr")
+            .longOpt("jfr")
+            .hasArg()
+            .argName("file")
+            .desc("Record the run with JDK Flight Recorder (requests, issue pages and match decisions) to <file> and log the time per phase")
+            .build());
+      options.addOption(Option.builder("rec")
+            .longOpt("record")
+            .hasArg()
+            .argName("file")
+            .desc("Record all requests and responses (without credentials) to the gzipped archive <file>")
+            .build());
+      options.addOption(Option.builder("rpl")
+            .longOpt("replay")
+            .hasArg()
+            .argName("file")
+            .desc("Replay the responses recorded in the archive <file> instead of sending requests")
+            .build());
+      options.addOption(Option.builder("rls")
+            .longOpt("replay-latency-scale")
+            .hasArg()
+            .argName("factor")
+            .desc("Factor for the recorded latencies when replaying, e.g. 0 for no latency (default 1)")
+            .build());
+      options.addOption(Option.builder("mp")
+            .longOpt("migrate-project")
+            .desc("Migrate project settings")
+            .build());
+      options.addOption(Option.builder("fs")
+            .longOpt("fingerprint-store")
+            .hasArg()
+            .argName("file")
+            .desc("File storing the fingerprints of the project settings - projects unchanged since the last migration are skipped")
+            .build());
+      options.addOption(Option.builder("ix")
+            .longOpt("index-dir")
+            .hasArg()
+            .argName("dir")
+            .desc("Persist the index of the target issues in <dir> and reuse it until the target is analyzed again"
+                  + " (issues changed in SonarQube by hand are not seen until then)")
+            .build());
+      options.addOption(Option.builder("mh")
+            .longOpt("match-hash")
+            .desc("Match issues not found within the delta line by their line hash (same rule and file)")
+            .build());
+      options.addOption(Option.builder("mc")
+            .longOpt("migrate-confirmed")
+            .desc("Migrate confirmed")
+            .build());
+      options.addOption(Option.builder("mf")
+            .longOpt("migrate-false-positive")
+            .desc("Migrate resolved/false-positive")
+            .build());
+      options.addOption(Option.builder("mw")
+            .longOpt("migrate-wont-fix")
+            .desc("Migrate resolved/won't fix")
+            .build());
+      options.addOption(Option.builder("mo")
+            .longOpt("migrate-comments")
+            .desc("Migrate comments")
+            .build());
+      options.addOption(Option.builder("pi")
+            .longOpt("progress-interval")
+            .hasArg()
+            .argName("seconds")
+            .desc("Interval for reporting the progress of an issue migration (default "
+                  + TimeUnit.MILLISECONDS.toSeconds(ProgressReporter.DEFAULT_INTERVAL) + ")")
+            .build());
+      options.addOption(Option.builder("v")
+            .longOpt("verbose")
+            .desc("Log the details of each issue")
+            .build());
+      options.addOption(Option.builder("sd")
+            .longOpt("source-diff")
+            .hasArg()
+            .argName("dir")
+            .desc("Match issues not found within the delta at their line mapped by a diff of the source and target file - the sources are cached in <dir>")
+            .build());
+      options.addOption(Option.builder("dd")
+            .longOpt("deadline")
+            .hasArg()
+            .argName("time")
+            .desc("Stop updating issues at <time> (HH:mm, yyyy-MM-ddTHH:mm or +minutes) and report the updates left - the most valuable updates are written first")
+            .build());
+      options.addOption(Option.builder("rw")
+            .longOpt("rule-weight")
+            .hasArgs()
+            .argName("rule=weight")
+            .desc("Weight of a rule for the order of the updates (default 1), e.g. java:S2068=20")
+            .build());
+      options.addOption(Option.builder("wa")
+            .longOpt("wait-for-analysis")
+            .hasArg()
+            .argName("seconds")
+            .desc("Wait at most <seconds> for the running analysis of the target to finish before migrating the issues")
+            .build());
+      options.addOption(Option.builder("d")
+            .longOpt("dry-run")
+            .desc("Run without actually updating anything")
+            .build());
+
+      return options;
+   }
+
+   private static void initializeLogging() {
+      final ConfigurationBuilder<BuiltConfiguration> builder = ConfigurationBuilderFactory.newConfigurationBuilder();
+      builder
+            .setConfigurationName("CLI")
+            .setStatusLevel(Level.ERROR)
+            .add(builder.newAppender("stdout", "Console")
+                  .addAttribute("target", ConsoleAppender.Target.SYSTEM_OUT)
+                  .add(builder.newLayout("PatternLayout")
+                        .addAttribute("pattern", "%msg%ex{0}%n"))
+                  .add(builder.newFilter("LevelRangeFilter", Filter.Result.ACCEPT, Filter.Result.DENY)
+                        .addAttribute("minLevel", "INFO")
+                        .addAttribute("maxLevel", "DEBUG")))
+            .add(builder.newAppender("stderr", "Console")
+                  .addAttribute("target", ConsoleAppender.Target.SYSTEM_ERR)
+                  .add(builder.newLayout("PatternLayout")
+                        .addAttribute("pattern", "%msg%ex{0}%n"))
+                  .add(builder.newFilter("ThresholdFilter", Filter.Result.ACCEPT, Filter.Result.DENY)
+                        .addAttribute("level", "WARN")))
+            // console output is done asynchronously, so that logging does not slow down the migration
+            .add(builder.newAppender("async", "Async")
+                  .addComponent(builder.newAppenderRef("stdout"))
+                  .addComponent(builder.newAppenderRef("stderr")))
+            .add(builder.newRootLogger(Level.INFO)
+                  .add(builder.newAppenderRef("async")));
+      Configurator.initialize(builder.build());
+   }
+
+}
@@ -0,0 +1,387 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jmf.services.Migrator;
+import org.jmf.services.RunMetrics;
+import org.jmf.services.SonarCatalog;
+import org.jmf.vo.MigrationJob;
+import org.jmf.vo.MigrationResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Long-running process taking migration jobs over a local HTTP/JSON API.
+ * <p>
+ * All jobs share the pooled connections, the cached catalogs and the hedging statistics of the servers and the
+ * compiled code, so that a migration costs only its requests. The jobs are queued and run by a fixed number of workers
+ * within the connection and rate budgets of the JVM. The API listens on the loopback interface only:
+ * <ul>
+ * <li><code>POST /jobs</code> - submit a job, a list of jobs or a manifest with defaults (JSON, see
+ * {@link BatchManifest}), answers the queued jobs</li>
+ * <li><code>GET /jobs</code> - all jobs, <code>GET /jobs/{id}</code> - one job with its result</li>
+ * <li><code>DELETE /jobs/{id}</code> - cancel a queued job</li>
+ * <li><code>GET /metrics</code> - the metrics of all jobs in the Prometheus text format,
+ * <code>GET /metrics.json</code> - as JSON</li>
+ * <li><code>DELETE /catalogs</code> - drop the cached catalogs of quality profiles and global settings, so that the
+ * next jobs read them again</li>
+ * </ul>
+ */
+public final class MigrationDaemon implements Closeable {
+
+   /** maximum number of finished jobs kept for their status */
+   static final int MAX_FINISHED_JOBS = 1000;
+
+   private static final Logger LOG = LoggerFactory.getLogger(MigrationDaemon.class);
+
+   private static final ObjectMapper MAPPER = new ObjectMapper();
+
+   /** time running jobs may take to finish when the daemon is closed */
+   private static final long SHUTDOWN_GRACE_SECONDS = 60;
+
+   private static final String PATH_JOBS = "/jobs";
+
+   private static final String CONTENT_TYPE_JSON = "application/json";
+
+   private final Migrator migrator;
+
+   private final HttpServer server;
+
+   private final ExecutorService apiExecutor;
+
+   private final ExecutorService workers;
+
+   /** jobs by id in the order of submission */
+   private final Map<Integer, DaemonJob> jobs = new LinkedHashMap<>();
+
+   private final AtomicInteger nextId = new AtomicInteger();
+
+   private final AtomicLong finished = new AtomicLong();
+
+   private final AtomicLong failed = new AtomicLong();
+
+   private final CountDownLatch closed = new CountDownLatch(1);
+
+   /**
+    * Constructor.
+    *
+    * @param migrator the migrator, its job holds the defaults of all submitted jobs
+    * @param port the port of the API or 0 for any free port
+    * @param workers the maximum number of migrations running in parallel
+    * @throws IOException if the server cannot be created
+    */
+   public MigrationDaemon(final Migrator migrator, final int port, final int workers) throws IOException {
+      this.migrator = migrator;
+      final AtomicInteger threadCount = new AtomicInteger();
+      this.workers = Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+         final Thread thread = new Thread(runnable, "migration-" + threadCount.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      });
+      this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+      this.apiExecutor = Executors.newSingleThreadExecutor(runnable -> {
+         final Thread thread = new Thread(runnable, "daemon-api");
+         thread.setDaemon(true);
+         return thread;
+      });
+      this.server.setExecutor(this.apiExecutor);
+      this.server.createContext("/", this::handle);
+   }
+
+   /**
+    * Start taking jobs.
+    */
+   public void start() {
+      this.server.start();
+      MigrationDaemon.LOG.info("Migration daemon listening at {}", this.getUrl());
+   }
+
+   /**
+    * @return the base URL of the API, e.g. http://127.0.0.1:9100/
+    */
+   public String getUrl() {
+      return "http://" + this.server.getAddress().getAddress().getHostAddress() + ":" + this.server.getAddress().getPort() + "/";
+   }
+
+   /**
+    * Wait until the daemon is closed.
+    *
+    * @throws InterruptedException if interrupted while waiting
+    */
+   public void awaitClose() throws InterruptedException {
+      this.closed.await();
+   }
+
+   /**
+    * Stop taking jobs, cancel the queued jobs and wait for the running jobs to finish.
+    */
+   @Override
+   public void close() {
+      if (this.closed.getCount() == 0) {
+         return;
+      }
+      this.server.stop(0);
+      this.apiExecutor.shutdown();
+      // the running jobs are not interrupted
+      this.workers.shutdown();
+      int canceled = 0;
+      synchronized (this.jobs) {
+         for (final DaemonJob job : this.jobs.values()) {
+            if (job.status == Status.QUEUED && job.future.cancel(false)) {
+               job.status = Status.CANCELED;
+               job.finished = Instant.now();
+               canceled++;
+            }
+         }
+      }
+      MigrationDaemon.LOG.info("Migration daemon stopped, {} queued jobs canceled, waiting for {} running jobs...", canceled, this.count(Status.RUNNING));
+      try {
+         if (!this.workers.awaitTermination(MigrationDaemon.SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+            MigrationDaemon.LOG.warn("Jobs still running after {} s: {}", MigrationDaemon.SHUTDOWN_GRACE_SECONDS, this.count(Status.RUNNING));
+         }
+      } catch (final InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+      this.closed.countDown();
+   }
+
+   private void handle(final HttpExchange exchange) throws IOException {
+      final ByteArrayOutputStream body = new ByteArrayOutputStream();
+      String contentType = MigrationDaemon.CONTENT_TYPE_JSON;
+      int status;
+      try {
+         final String method = exchange.getRequestMethod();
+         final String path = exchange.getRequestURI().getPath();
+         if (MigrationDaemon.PATH_JOBS.equals(path) && "POST".equals(method)) {
+            status = this.submit(exchange, body);
+         } else if (MigrationDaemon.PATH_JOBS.equals(path) && "GET".equals(method)) {
+            final List<Map<String, Object>> statuses = new ArrayList<>();
+            synchronized (this.jobs) {
+               this.jobs.values().forEach(job -> statuses.add(job.toMap()));
+            }
+            MigrationDaemon.MAPPER.writeValue(body, statuses);
+            status = 200;
+         } else if (path.startsWith(MigrationDaemon.PATH_JOBS + "/") && ("GET".equals(method) || "DELETE".equals(method))) {
+            status = this.handleJob(path.substring(MigrationDaemon.PATH_JOBS.length() + 1), "DELETE".equals(method), body);
+         } else if ("/metrics".equals(path) && "GET".equals(method)) {
+            contentType = "text/plain; version=0.0.4";
+            this.writeMetrics(body);
+            status = 200;
+         } else if ("/metrics.json".equals(path) && "GET".equals(method)) {
+            MigrationDaemon.MAPPER.writeValue(body, RunMetrics.get().getSummary());
+            status = 200;
+         } else if ("/catalogs".equals(path) && "DELETE".equals(method)) {
+            SonarCatalog.invalidateAll();
+            MigrationDaemon.LOG.info("Catalogs invalidated.");
+            status = 204;
+         } else {
+            status = MigrationDaemon.error(body, 404, "Unknown request: " + method + " " + path);
+         }
+      } catch (final Exception e) {
+         MigrationDaemon.LOG.error("Error handling request {}: {}", exchange.getRequestURI(), e.getMessage(), e);
+         body.reset();
+         status = MigrationDaemon.error(body, 500, String.valueOf(e.getMessage()));
+      }
+      try {
+         exchange.getResponseHeaders().add("Content-Type", contentType);
+         // -1: no response body (204)
+         exchange.sendResponseHeaders(status, body.size() > 0 ? body.size() : -1);
+         exchange.getResponseBody().write(body.toByteArray());
+      } finally {
+         exchange.close();
+      }
+   }
+
+   private int submit(final HttpExchange exchange, final ByteArrayOutputStream body) throws IOException {
+      final List<MigrationJob> submitted;
+      try {
+         submitted = BatchManifest.readJson(exchange.getRequestBody());
+         for (int i = 0; i < submitted.size(); i++) {
+            try {
+               this.migrator.validate(submitted.get(i));
+            } catch (final IllegalArgumentException e) {
+               throw new IOException("Job " + (i + 1) + ": " + e.getMessage(), e);
+            }
+         }
+      } catch (final IOException e) {
+         return MigrationDaemon.error(body, 400, e.getMessage());
+      }
+      final List<Map<String, Object>> statuses = new ArrayList<>();
+      synchronized (this.jobs) {
+         for (final MigrationJob migrationJob : submitted) {
+            final DaemonJob job = new DaemonJob(this.nextId.incrementAndGet(), migrationJob.withDefaults(this.migrator.getJob()));
+            job.future = this.workers.submit(() -> this.run(job));
+            this.jobs.put(job.id, job);
+            statuses.add(job.toMap());
+         }
+         this.evictFinished();
+      }
+      MigrationDaemon.LOG.info("{} jobs queued, {} queued and {} running in total.", submitted.size(), this.count(Status.QUEUED), this.count(Status.RUNNING));
+      MigrationDaemon.MAPPER.writeValue(body, statuses);
+      return 202;
+   }
+
+   private int handleJob(final String id, final boolean cancel, final ByteArrayOutputStream body) throws IOException {
+      final DaemonJob job;
+      synchronized (this.jobs) {
+         job = id.matches("\\d{1,9}") ? this.jobs.get(Integer.valueOf(id)) : null;
+         if (job == null) {
+            return MigrationDaemon.error(body, 404, "Unknown job: " + id);
+         }
+         if (cancel) {
+            if (job.status != Status.QUEUED || !job.future.cancel(false)) {
+               return MigrationDaemon.error(body, 409, "Job " + id + " is not queued");
+            }
+            job.status = Status.CANCELED;
+            job.finished = Instant.now();
+         }
+      }
+      MigrationDaemon.MAPPER.writeValue(body, job.toMap());
+      return 200;
+   }
+
+   private void run(final DaemonJob job) {
+      synchronized (this.jobs) {
+         if (job.status != Status.QUEUED) {
+            return;
+         }
+         job.status = Status.RUNNING;
+         job.started = Instant.now();
+      }
+      final MigrationResult result = this.migrator.run(job.job);
+      synchronized (this.jobs) {
+         job.result = result;
+         job.status = result.getError() != null ? Status.FAILED : Status.FINISHED;
+         job.finished = Instant.now();
+      }
+      this.finished.incrementAndGet();
+      if (result.getError() != null) {
+         this.failed.incrementAndGet();
+      }
+      MigrationDaemon.LOG.info("Job {} {}: {} -> {}, {} updated, {} unmatched, {} failed ({} ms){}", job.id, job.status.getName(), result.getSourceComponent(),
+            result.getTargetComponent(), result.getUpdated(), result.getUnmatched(), result.getFailed(), result.getDurationMillis(),
+            result.getError() != null ? ": " + result.getError() : "");
+   }
+
+   /** drop the oldest finished jobs beyond the limit, must hold the lock of the jobs */
+   private void evictFinished() {
+      int finishedJobs = (int) this.jobs.values().stream().filter(job -> job.finished != null).count();
+      for (final Iterator<DaemonJob> iterator = this.jobs.values().iterator(); iterator.hasNext() && finishedJobs > MigrationDaemon.MAX_FINISHED_JOBS;) {
+         if (iterator.next().finished != null) {
+            iterator.remove();
+            finishedJobs--;
+         }
+      }
+   }
+
+   private int count(final Status status) {
+      synchronized (this.jobs) {
+         return (int) this.jobs.values().stream().filter(job -> job.status == status).count();
+      }
+   }
+
+   private void writeMetrics(final ByteArrayOutputStream body) {
+      final PrintWriter out = new PrintWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+      RunMetrics.get().writePrometheus(out);
+      out.println("# TYPE sonar_migrator_jobs gauge");
+      out.printf("sonar_migrator_jobs{status=\"%s\"} %d%n", Status.QUEUED.getName(), this.count(Status.QUEUED));
+      out.printf("sonar_migrator_jobs{status=\"%s\"} %d%n", Status.RUNNING.getName(), this.count(Status.RUNNING));
+      out.println("# TYPE sonar_migrator_jobs_finished_total counter");
+      out.printf("sonar_migrator_jobs_finished_total %d%n", this.finished.get());
+      out.println("# TYPE sonar_migrator_jobs_failed_total counter");
+      out.printf("sonar_migrator_jobs_failed_total %d%n", this.failed.get());
+      out.flush();
+   }
+
+   private static int error(final ByteArrayOutputStream body, final int status, final String message) throws IOException {
+      MigrationDaemon.MAPPER.writeValue(body, Collections.singletonMap("error", message));
+      return status;
+   }
+
+   /** status of a job */
+   private enum Status {
+      QUEUED, RUNNING, FINISHED, FAILED, CANCELED;
+
+      String getName() {
+         return this.name().toLowerCase();
+      }
+   }
+
+   /** submitted job, guarded by the lock of the jobs */
+   private static final class DaemonJob {
+
+      final int id;
+
+      final MigrationJob job;
+
+      final Instant submitted = Instant.now();
+
+      Future<?> future;
+
+      Status status = Status.QUEUED;
+
+      Instant started;
+
+      Instant finished;
+
+      MigrationResult result;
+
+      DaemonJob(final int id, final MigrationJob job) {
+         this.id = id;
+         this.job = job;
+      }
+
+      /** the status and result without credentials */
+      Map<String, Object> toMap() {
+         final Map<String, Object> map = new LinkedHashMap<>();
+         map.put("id", this.id);
+         map.put("status", this.status.getName());
+         map.put("sourceComponent", this.job.getSourceComponent());
+         map.put("targetComponent", this.job.getTargetComponent() != null ? this.job.getTargetComponent() : this.job.getSourceComponent());
+         map.put("submitted", this.submitted.toString());
+         map.put("started", this.started != null ? this.started.toString() : null);
+         map.put("finished", this.finished != null ? this.finished.toString() : null);
+         map.put("result", this.result);
+         return map;
+      }
+   }
+
+}
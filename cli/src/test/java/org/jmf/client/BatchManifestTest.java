@@ -0,0 +1,130 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jmf.vo.MigrationJob;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link BatchManifest}.
+ */
+public class BatchManifestTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   @Test
+   public void yamlWithDefaults() throws IOException {
+      final List<MigrationJob> jobs = BatchManifest.read(this.write("manifest.yaml",
+            "defaults:",
+            "  sourceUrl: https://sonar.test.com",
+            "  migrateComments: true",
+            "jobs:",
+            "  - sourceComponent: com.test:prj1",
+            "    targetComponent: com.test:prj1-branch",
+            "  - sourceComponent: com.test:prj2",
+            "    deltaLines: 2",
+            "    migrateComments: false"));
+
+      assertEquals(2, jobs.size());
+      assertEquals("https://sonar.test.com", jobs.get(0).getSourceUrl());
+      assertEquals("com.test:prj1", jobs.get(0).getSourceComponent());
+      assertEquals("com.test:prj1-branch", jobs.get(0).getTargetComponent());
+      assertEquals(Boolean.TRUE, jobs.get(0).getMigrateComments());
+      assertNull(jobs.get(0).getDeltaLines());
+      assertEquals("https://sonar.test.com", jobs.get(1).getSourceUrl());
+      assertEquals(Integer.valueOf(2), jobs.get(1).getDeltaLines());
+      assertEquals(Boolean.FALSE, jobs.get(1).getMigrateComments());
+   }
+
+   @Test
+   public void jsonList() throws IOException {
+      final List<MigrationJob> jobs = BatchManifest.read(this.write("manifest.json",
+            "[{\"sourceComponent\":\"prj1\",\"dryRun\":true},{\"sourceComponent\":\"prj2\",\"waitForAnalysis\":60}]"));
+
+      assertEquals(2, jobs.size());
+      assertEquals("prj1", jobs.get(0).getSourceComponent());
+      assertEquals(Boolean.TRUE, jobs.get(0).getDryRun());
+      assertEquals("prj2", jobs.get(1).getSourceComponent());
+      assertEquals(Integer.valueOf(60), jobs.get(1).getWaitForAnalysis());
+   }
+
+   @Test
+   public void csvWithEmptyCells() throws IOException {
+      final List<MigrationJob> jobs = BatchManifest.read(this.write("manifest.csv",
+            "sourceComponent,targetComponent,deltaLines",
+            "prj1,prj1-branch,2",
+            "prj2,,"));
+
+      assertEquals(2, jobs.size());
+      assertEquals("prj1-branch", jobs.get(0).getTargetComponent());
+      assertEquals(Integer.valueOf(2), jobs.get(0).getDeltaLines());
+      assertEquals("prj2", jobs.get(1).getSourceComponent());
+      assertNull(jobs.get(1).getTargetComponent());
+      assertNull(jobs.get(1).getDeltaLines());
+   }
+
+   @Test
+   public void singleJsonJob() throws IOException {
+      final List<MigrationJob> jobs = BatchManifest.readJson(new ByteArrayInputStream(
+            "{\"sourceComponent\":\"prj1\",\"targetComponent\":\"prj2\"}".getBytes(StandardCharsets.UTF_8)));
+
+      assertEquals(1, jobs.size());
+      assertEquals("prj2", jobs.get(0).getTargetComponent());
+   }
+
+   @Test
+   public void unknownPropertiesAreRejected() throws IOException {
+      BatchManifestTest.assertRejected(this.write("job.yaml", "jobs:", "  - sourceComponent: prj1", "    migrateComment: true"), "migrateComment");
+      BatchManifestTest.assertRejected(this.write("defaults.json", "{\"defaults\":{\"dryrun\":true},\"jobs\":[{\"sourceComponent\":\"prj1\"}]}"), "dryrun");
+      BatchManifestTest.assertRejected(this.write("root.yaml", "default:", "  dryRun: true", "jobs:", "  - sourceComponent: prj1"), "default");
+      BatchManifestTest.assertRejected(this.write("header.csv", "sourceComponent,deltaLine", "prj1,2"), "deltaLine");
+   }
+
+   @Test(expected = IOException.class)
+   public void emptyManifestIsRejected() throws IOException {
+      BatchManifest.read(this.write("manifest.yaml", "jobs: []"));
+   }
+
+   private File write(final String name, final String... lines) throws IOException {
+      final File file = new File(this.folder.getRoot(), name);
+      Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+      return file;
+   }
+
+   private static void assertRejected(final File file, final String property) {
+      try {
+         BatchManifest.read(file);
+         fail("Manifest accepted: " + file.getName());
+      } catch (final IOException e) {
+         assertTrue(e.getMessage(), e.getMessage().contains(property));
+      }
+   }
+
+}
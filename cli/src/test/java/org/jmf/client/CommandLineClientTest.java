@@ -0,0 +1,95 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.jmf.services.DeadLetterQueue;
+import org.jmf.vo.FailedWrite;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link CommandLineClient}.
+ */
+public class CommandLineClientTest {
+
+   /** nothing listens on port 1, i.e. all requests fail */
+   private static final String UNREACHABLE_URL = "http://127.0.0.1:1/";
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   @Test
+   public void replayIntoTheSameQueueKeepsFailingWrites() throws IOException {
+      final File file = this.folder.newFile("failed.jsonl");
+      CommandLineClientTest.write(file,
+            CommandLineClientTest.failure("api/issues/do_transition", "issue", "t1", "transition", "falsepositive"),
+            CommandLineClientTest.failure("api/settings/set", "component", "tgt", "key", "a", "value", "1"));
+
+      CommandLineClient.main("-rf", file.getPath(), "-dlq", file.getPath());
+
+      assertEquals(Arrays.asList("api/issues/do_transition {issue=[t1], transition=[falsepositive]}", "api/settings/set {component=[tgt], key=[a], value=[1]}"),
+            CommandLineClientTest.describe(DeadLetterQueue.read(file)));
+      assertFalse(new File(file.getPath() + ".tmp").exists());
+   }
+
+   @Test
+   public void replayIntoAnotherQueueKeepsTheReplayedQueue() throws IOException {
+      final File file = this.folder.newFile("failed.jsonl");
+      final File again = new File(this.folder.getRoot(), "again.jsonl");
+      CommandLineClientTest.write(file, CommandLineClientTest.failure("api/settings/set", "component", "tgt", "key", "a", "value", "1"));
+
+      CommandLineClient.main("-rf", file.getPath(), "-dlq", again.getPath());
+
+      assertEquals(Collections.singletonList("api/settings/set {component=[tgt], key=[a], value=[1]}"), CommandLineClientTest.describe(DeadLetterQueue.read(file)));
+      assertEquals(Collections.singletonList("api/settings/set {component=[tgt], key=[a], value=[1]}"), CommandLineClientTest.describe(DeadLetterQueue.read(again)));
+   }
+
+   private static void write(final File file, final FailedWrite... failures) throws IOException {
+      try (DeadLetterQueue queue = new DeadLetterQueue(file)) {
+         for (final FailedWrite failure : failures) {
+            queue.add(failure);
+         }
+      }
+   }
+
+   private static FailedWrite failure(final String endpoint, final String... parameters) {
+      final FailedWrite failure = new FailedWrite();
+      failure.setUrl(CommandLineClientTest.UNREACHABLE_URL);
+      failure.setEndpoint(endpoint);
+      final Map<String, List<String>> parameterMap = new LinkedHashMap<>();
+      for (int i = 0; i < parameters.length; i += 2) {
+         parameterMap.put(parameters[i], Collections.singletonList(parameters[i + 1]));
+      }
+      failure.setParameters(parameterMap);
+      return failure;
+   }
+
+   private static List<String> describe(final List<FailedWrite> failures) {
+      return failures.stream().map(failure -> failure.getEndpoint() + " " + failure.getParameters()).collect(Collectors.toList());
+   }
+
+}
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jmf.services.Migrator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests of the HTTP API of {@link MigrationDaemon}. The jobs migrate from a server, which answers every request with an
+ * error, but only when released, so that the first job keeps running.
+ */
+public class MigrationDaemonTest {
+
+   private static final ObjectMapper MAPPER = new ObjectMapper();
+
+   private final CountDownLatch release = new CountDownLatch(1);
+
+   private final ExecutorService executor = Executors.newCachedThreadPool();
+
+   private HttpServer sonar;
+
+   private MigrationDaemon daemon;
+
+   @Before
+   public void setUp() throws IOException {
+      this.sonar = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+      this.sonar.setExecutor(this.executor);
+      this.sonar.createContext("/", exchange -> {
+         try {
+            this.release.await(30, TimeUnit.SECONDS);
+         } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         exchange.sendResponseHeaders(500, -1);
+         exchange.close();
+      });
+      this.sonar.start();
+      this.daemon = new MigrationDaemon(Migrator.builder().build(), 0, 1);
+      this.daemon.start();
+   }
+
+   @After
+   public void tearDown() {
+      this.release.countDown();
+      this.daemon.close();
+      this.sonar.stop(0);
+      this.executor.shutdownNow();
+   }
+
+   @Test
+   public void jobsAreQueuedRunAndCanceled() throws Exception {
+      final String job = "{\"sourceUrl\":\"http://127.0.0.1:" + this.sonar.getAddress().getPort() + "/\",\"sourceComponent\":\"%s\","
+            + "\"targetComponent\":\"tgt\",\"migrateFalsePositive\":true}";
+      final Response submitted = this.request("POST", "jobs", "[" + String.format(job, "a") + "," + String.format(job, "b") + "]");
+      assertEquals(202, submitted.status);
+      final List<Map<String, Object>> queued = MigrationDaemonTest.MAPPER.readValue(submitted.body, new TypeReference<List<Map<String, Object>>>() {
+         // type of the list
+      });
+      assertEquals(2, queued.size());
+      assertEquals("queued", queued.get(1).get("status"));
+      assertEquals("b", queued.get(1).get("sourceComponent"));
+      final Object first = queued.get(0).get("id");
+      final Object second = queued.get(1).get("id");
+
+      // the first job runs (waiting for the server), the second one is queued and can be canceled
+      this.awaitStatus(first, "running");
+      assertEquals(409, this.request("DELETE", "jobs/" + first, null).status);
+      final Response canceled = this.request("DELETE", "jobs/" + second, null);
+      assertEquals(200, canceled.status);
+      assertEquals("canceled", this.readMap(canceled.body).get("status"));
+      assertEquals(2, MigrationDaemonTest.MAPPER.readValue(this.request("GET", "jobs", null).body, List.class).size());
+
+      this.release.countDown();
+      final Map<String, Object> finished = this.awaitStatus(first, "finished", "failed");
+      assertNotNull(finished.get("finished"));
+      assertNotNull(finished.get("result"));
+      assertEquals("canceled", this.readMap(this.request("GET", "jobs/" + second, null).body).get("status"));
+
+      final Response metrics = this.request("GET", "metrics", null);
+      assertEquals(200, metrics.status);
+      assertTrue(metrics.body, metrics.body.contains("sonar_migrator_jobs_finished_total 1"));
+      assertTrue(metrics.body, metrics.body.contains("sonar_migrator_jobs{status=\"queued\"} 0"));
+      assertEquals(200, this.request("GET", "metrics.json", null).status);
+   }
+
+   @Test
+   public void invalidRequestsAreRejected() throws IOException {
+      final Response invalid = this.request("POST", "jobs", "{\"sourceComponent\":\"a\"}");
+      assertEquals(400, invalid.status);
+      assertTrue(invalid.body, this.readMap(invalid.body).get("error").toString().startsWith("Job 1: "));
+      assertEquals(400, this.request("POST", "jobs", "{\"sourceComponent\":\"a\",\"unknown\":1}").status);
+      assertEquals(400, this.request("POST", "jobs", "not json").status);
+      assertEquals(404, this.request("GET", "jobs/1", null).status);
+      assertEquals(404, this.request("GET", "jobs/x", null).status);
+      assertEquals(404, this.request("PUT", "jobs", "[]").status);
+      assertEquals(0, MigrationDaemonTest.MAPPER.readValue(this.request("GET", "jobs", null).body, List.class).size());
+   }
+
+   @Test
+   public void catalogsAreInvalidated() throws IOException {
+      final Response response = this.request("DELETE", "catalogs", null);
+      assertEquals(204, response.status);
+      assertEquals("", response.body);
+   }
+
+   private Map<String, Object> awaitStatus(final Object id, final String... statuses) throws IOException, InterruptedException {
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+      while (true) {
+         final Map<String, Object> job = this.readMap(this.request("GET", "jobs/" + id, null).body);
+         for (final String status : statuses) {
+            if (status.equals(job.get("status"))) {
+               return job;
+            }
+         }
+         assertTrue("Job " + id + " is " + job.get("status"), System.nanoTime() < deadline);
+         Thread.sleep(20);
+      }
+   }
+
+   private Map<String, Object> readMap(final String json) throws IOException {
+      return MigrationDaemonTest.MAPPER.readValue(json, new TypeReference<Map<String, Object>>() {
+         // type of the map
+      });
+   }
+
+   private Response request(final String method, final String path, final String body) throws IOException {
+      final HttpURLConnection connection = (HttpURLConnection) new URL(this.daemon.getUrl() + path).openConnection();
+      connection.setRequestMethod(method);
+      if (body != null) {
+         connection.setDoOutput(true);
+         connection.setRequestProperty("Content-Type", "application/json");
+         try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+         }
+      }
+      final Response response = new Response();
+      response.status = connection.getResponseCode();
+      final ByteArrayOutputStream content = new ByteArrayOutputStream();
+      try (InputStream in = response.status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+         if (in != null) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+               content.write(buffer, 0, read);
+            }
+         }
+      }
+      response.body = new String(content.toByteArray(), StandardCharsets.UTF_8);
+      return response;
+   }
+
+   /** status and body of a response */
+   private static final class Response {
+
+      int status;
+
+      String body;
+   }
+
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.jmf.vo.CeComponentResponse;
+import org.jmf.vo.CeTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gate waiting until the background tasks of a component (i.e. the processing of the analysis reports) have finished,
+ * so that the issues of the new analysis can be migrated as soon as they are available.
+ * <p>
+ * The queue of the component is polled with an adaptive delay: if the execution time of the last finished task is
+ * known, the remaining time of the running and pending tasks is estimated and the next poll is scheduled after half of
+ * it, so the polls get denser towards the expected end. Without an estimate or after the estimate has passed, the
+ * delay starts short and doubles up to a maximum.
+ */
+public class AnalysisGate {
+
+   /** status of a task, which failed */
+   static final String STATUS_FAILED = "FAILED";
+
+   /** status of a task, which was canceled */
+   static final String STATUS_CANCELED = "CANCELED";
+
+   /** status of a task, which is running */
+   static final String STATUS_IN_PROGRESS = "IN_PROGRESS";
+
+   /** shortest delay between two polls */
+   private static final long MIN_DELAY_MILLIS = 500;
+
+   /** longest delay between two polls */
+   private static final long MAX_DELAY_MILLIS = 30000;
+
+   private static final Logger LOG = LoggerFactory.getLogger(AnalysisGate.class);
+
+   private final SonarClientService service;
+
+   /**
+    * Constructor.
+    *
+    * @param service the service of the server running the analysis
+    */
+   public AnalysisGate(final SonarClientService service) {
+      this.service = service;
+   }
+
+   /**
+    * Wait until no background task of the component is pending or running.
+    *
+    * @param componentKey the component key, e.g. project key
+    * @param timeoutMillis the maximum time to wait in milliseconds
+    * @return the last finished task or null, if the component was never analyzed
+    * @throws IllegalStateException if the last task failed or was canceled, or if the tasks did not finish in time
+    */
+   public CeTask await(final String componentKey, final long timeoutMillis) {
+      final long start = System.nanoTime();
+      final long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+      long backoff = AnalysisGate.MIN_DELAY_MILLIS;
+      String runningTask = null;
+      long runningSince = start;
+      int polls = 0;
+      try {
+         while (true) {
+            final CeComponentResponse tasks = this.service.getAnalysisTasks(componentKey);
+            polls++;
+            long delay;
+            if (tasks == null) {
+               // the error is logged, retry
+               delay = backoff;
+               backoff = Math.min(backoff * 2, AnalysisGate.MAX_DELAY_MILLIS);
+            } else {
+               final List<CeTask> queue = tasks.getQueue() != null ? tasks.getQueue() : Collections.emptyList();
+               final CeTask current = tasks.getCurrent();
+               if (queue.isEmpty()) {
+                  if (polls > 1) {
+                     AnalysisGate.LOG.info("Analysis of {} finished after waiting {} s ({} polls).", componentKey,
+                           String.format(Locale.ROOT, "%.1f", (System.nanoTime() - start) / 1e9), polls);
+                  }
+                  if (current != null && (AnalysisGate.STATUS_FAILED.equals(current.getStatus()) || AnalysisGate.STATUS_CANCELED.equals(current.getStatus()))) {
+                     throw new IllegalStateException("Last analysis of " + componentKey + " " + current.getStatus().toLowerCase(Locale.ROOT)
+                           + (current.getErrorMessage() != null ? ": " + current.getErrorMessage() : ""));
+                  }
+                  return current;
+               }
+
+               // the time of the running task is measured from the first poll seeing it running
+               final CeTask head = queue.get(0);
+               if (AnalysisGate.STATUS_IN_PROGRESS.equals(head.getStatus()) && !Objects.equals(head.getId(), runningTask)) {
+                  runningTask = head.getId();
+                  runningSince = System.nanoTime();
+                  backoff = AnalysisGate.MIN_DELAY_MILLIS;
+               }
+               if (polls == 1) {
+                  AnalysisGate.LOG.info("Waiting for {} background tasks of {}...", queue.size(), componentKey);
+               }
+               final long expected = current != null && current.getExecutionTimeMs() != null ? current.getExecutionTimeMs() : 0;
+               final long remaining = expected * queue.size()
+                     - (runningTask != null && Objects.equals(runningTask, head.getId()) ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runningSince) : 0);
+               if (remaining / 2 > AnalysisGate.MIN_DELAY_MILLIS) {
+                  delay = Math.min(remaining / 2, AnalysisGate.MAX_DELAY_MILLIS);
+               } else {
+                  delay = backoff;
+                  backoff = Math.min(backoff * 2, AnalysisGate.MAX_DELAY_MILLIS);
+               }
+            }
+
+            final long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (left <= 0) {
+               throw new IllegalStateException("Analysis of " + componentKey + " did not finish within " + TimeUnit.MILLISECONDS.toSeconds(timeoutMillis) + " s");
+            }
+            // poll once more at the deadline
+            TimeUnit.MILLISECONDS.sleep(Math.min(delay, left));
+         }
+      } catch (final InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException("Interrupted waiting for the analysis of " + componentKey, e);
+      } finally {
+         RunMetrics.get().recordPhase(RunMetrics.PHASE_WAIT, System.nanoTime() - start);
+      }
+   }
+
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content-addressed disk store of file contents, e.g. the sources of the files of a project.
+ * <p>
+ * Each content is stored once (gzipped) under its SHA-256 hash, so identical files of several projects or branches
+ * share the storage and can be compared by hash. References (e.g. a file of a server in an analysis) point to the
+ * contents, so that they are not fetched again. The store can be used by several threads and processes.
+ */
+public class ContentStore {
+
+   private static final String OBJECTS = "objects";
+
+   private static final String REFS = "refs";
+
+   private final File directory;
+
+   /**
+    * Constructor.
+    *
+    * @param directory the directory of the store, created if necessary
+    */
+   public ContentStore(final File directory) {
+      this.directory = directory;
+   }
+
+   /**
+    * Get the hash of the content a reference points to.
+    *
+    * @param ref the reference, e.g. URL, file key and analysis date
+    * @return the hash or null, if the reference is unknown or its content is missing
+    * @throws IOException if the store cannot be read
+    */
+   public String getHash(final String ref) throws IOException {
+      final File file = this.getFile(ContentStore.REFS, ContentStore.hash(ref));
+      if (!file.isFile()) {
+         return null;
+      }
+      final String hash = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+      return this.getFile(ContentStore.OBJECTS, hash).isFile() ? hash : null;
+   }
+
+   /**
+    * Get a content.
+    *
+    * @param hash the hash of the content
+    * @return the content or null, if it is not stored
+    * @throws IOException if the store cannot be read
+    */
+   public String get(final String hash) throws IOException {
+      final File file = this.getFile(ContentStore.OBJECTS, hash);
+      if (!file.isFile()) {
+         return null;
+      }
+      try (InputStream in = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+         final ByteArrayOutputStream content = new ByteArrayOutputStream();
+         final byte[] buffer = new byte[8192];
+         int n;
+         while ((n = in.read(buffer)) > 0) {
+            content.write(buffer, 0, n);
+         }
+         return new String(content.toByteArray(), StandardCharsets.UTF_8);
+      }
+   }
+
+   /**
+    * Store a content and a reference to it.
+    *
+    * @param ref the reference or null
+    * @param content the content
+    * @return the hash of the content
+    * @throws IOException if the store cannot be written
+    */
+   public String put(final String ref, final String content) throws IOException {
+      final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+      final String hash = ContentStore.hash(bytes);
+      final File file = this.getFile(ContentStore.OBJECTS, hash);
+      if (!file.isFile()) {
+         final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+         try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+         }
+         ContentStore.write(file, compressed.toByteArray());
+      }
+      if (ref != null) {
+         ContentStore.write(this.getFile(ContentStore.REFS, ContentStore.hash(ref)), hash.getBytes(StandardCharsets.UTF_8));
+      }
+      return hash;
+   }
+
+   /**
+    * Calculate the hash of a content.
+    *
+    * @param content the content
+    * @return the hex encoded SHA-256 hash
+    */
+   public static String hash(final String content) {
+      return ContentStore.hash(content.getBytes(StandardCharsets.UTF_8));
+   }
+
+   private static String hash(final byte[] content) {
+      try {
+         final byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+         final StringBuilder hex = new StringBuilder();
+         for (final byte b : hash) {
+            hex.append(String.format("%02x", b));
+         }
+         return hex.toString();
+      } catch (final NoSuchAlgorithmException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /** the file of an object or reference, in sub-directories by the first two characters of the hash */
+   private File getFile(final String type, final String hash) {
+      return new File(new File(new File(this.directory, type), hash.substring(0, 2)), hash);
+   }
+
+   /** written to a temporary file first, so that readers never see partial files */
+   private static void write(final File file, final byte[] bytes) throws IOException {
+      Files.createDirectories(file.getParentFile().toPath());
+      final Path temp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+      try {
+         Files.write(temp, bytes);
+         Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+         Files.deleteIfExists(temp);
+      }
+   }
+
+}
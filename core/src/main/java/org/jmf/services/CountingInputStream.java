@@ -0,0 +1,73 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream counting the bytes read, e.g. for the metrics of a response decoded directly from the stream.
+ */
+class CountingInputStream extends FilterInputStream {
+
+   private long count;
+
+   /**
+    * Constructor.
+    *
+    * @param in the stream to read from
+    */
+   CountingInputStream(final InputStream in) {
+      super(in);
+   }
+
+   @Override
+   public int read() throws IOException {
+      final int b = super.read();
+      if (b >= 0) {
+         this.count++;
+      }
+      return b;
+   }
+
+   @Override
+   public int read(final byte[] b, final int off, final int len) throws IOException {
+      final int n = super.read(b, off, len);
+      if (n > 0) {
+         this.count += n;
+      }
+      return n;
+   }
+
+   @Override
+   public long skip(final long n) throws IOException {
+      final long skipped = super.skip(n);
+      this.count += skipped;
+      return skipped;
+   }
+
+   @Override
+   public boolean markSupported() {
+      return false;
+   }
+
+   /**
+    * @return the number of bytes read
+    */
+   long getCount() {
+      return this.count;
+   }
+
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jmf.vo.FailedWrite;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Dead-letter queue for write requests, which failed: each failed write is appended as JSON line to a file and can be
+ * sent again later (see {@link SonarClientService#replayFailures(List)}).
+ * <p>
+ * Failures are rare, so each line is flushed immediately, i.e. the queue survives a crash of the migration.
+ */
+public class DeadLetterQueue implements Closeable {
+
+   private static final ObjectMapper MAPPER = new ObjectMapper()
+         .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+         .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+   private final Writer out;
+
+   private final ObjectWriter writer = DeadLetterQueue.MAPPER.writerFor(FailedWrite.class);
+
+   private final AtomicInteger count = new AtomicInteger();
+
+   /**
+    * Constructor.
+    *
+    * @param file the file (failed writes are appended)
+    * @throws IOException if the file cannot be opened
+    */
+   public DeadLetterQueue(final File file) throws IOException {
+      this.out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+   }
+
+   /**
+    * Read the failed writes of a dead-letter queue.
+    *
+    * @param file the file of the queue
+    * @return the failed writes in the order of their failure
+    * @throws IOException if the file cannot be read
+    */
+   public static List<FailedWrite> read(final File file) throws IOException {
+      final ObjectReader reader = DeadLetterQueue.MAPPER.readerFor(FailedWrite.class);
+      final List<FailedWrite> failures = new ArrayList<>();
+      try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+         String line;
+         while ((line = in.readLine()) != null) {
+            if (!line.trim().isEmpty()) {
+               failures.add(reader.readValue(line));
+            }
+         }
+      }
+      return failures;
+   }
+
+   /**
+    * Append a failed write.
+    *
+    * @param failure the failed write
+    * @throws IOException if the queue cannot be written
+    */
+   public synchronized void add(final FailedWrite failure) throws IOException {
+      this.writer.writeValue(this.out, failure);
+      this.out.write('\n');
+      this.out.flush();
+      this.count.incrementAndGet();
+   }
+
+   /**
+    * @return the number of failed writes added
+    */
+   public int getCount() {
+      return this.count.get();
+   }
+
+   @Override
+   public synchronized void close() throws IOException {
+      this.out.close();
+   }
+
+}
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jmf.vo.IssueDecision;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Trace of the decisions of issue migrations written as JSON lines.
+ * <p>
+ * Recording a decision only publishes it to a lock-free ring buffer, the serialization and I/O is done by a background
+ * writer thread. Decisions are never dropped: if the buffer is full, the recording thread waits for the writer.
+ */
+public class DecisionTrace implements Closeable {
+
+   /** default capacity of the ring buffer */
+   public static final int DEFAULT_CAPACITY = 8192;
+
+   private static final Logger LOG = LoggerFactory.getLogger(DecisionTrace.class);
+
+   /** time the writer parks, if the buffer is empty */
+   private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+   /** time a producer parks, if the buffer is full */
+   private static final long FULL_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+   private final AtomicReferenceArray<IssueDecision> slots;
+
+   private final int mask;
+
+   /** next sequence to be claimed by a producer */
+   private final AtomicLong head = new AtomicLong();
+
+   /** next sequence to be written by the writer */
+   private final AtomicLong tail = new AtomicLong();
+
+   private final Writer out;
+
+   private final ObjectWriter writer;
+
+   private final Thread writerThread;
+
+   private volatile boolean closed;
+
+   private volatile IOException writeError;
+
+   /**
+    * Constructor.
+    *
+    * @param file the file to write the decisions to (JSON lines, overwritten)
+    * @throws IOException if the file cannot be created
+    */
+   public DecisionTrace(final File file) throws IOException {
+      this(file, DecisionTrace.DEFAULT_CAPACITY);
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param file the file to write the decisions to (JSON lines, overwritten)
+    * @param capacity the capacity of the ring buffer (rounded up to a power of two)
+    * @throws IOException if the file cannot be created
+    */
+   public DecisionTrace(final File file, final int capacity) throws IOException {
+      final int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+      this.slots = new AtomicReferenceArray<>(size);
+      this.mask = size - 1;
+      this.out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+      this.writer = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .writerFor(IssueDecision.class);
+      this.writerThread = new Thread(this::writeLoop, "decision-trace");
+      this.writerThread.setDaemon(true);
+      this.writerThread.start();
+   }
+
+   /**
+    * Record a decision. Safe to be called by several threads.
+    *
+    * @param decision the decision (must not be modified afterwards)
+    */
+   public void record(final IssueDecision decision) {
+      if (this.closed) {
+         throw new IllegalStateException("Decision trace already closed");
+      }
+      final long sequence = this.head.getAndIncrement();
+      while (sequence - this.tail.get() >= this.slots.length()) {
+         LockSupport.parkNanos(DecisionTrace.FULL_NANOS);
+      }
+      this.slots.lazySet((int) sequence & this.mask, decision);
+   }
+
+   /**
+    * Write all recorded decisions and close the file.
+    *
+    * @throws IOException if the decisions could not be written
+    */
+   @Override
+   public void close() throws IOException {
+      if (this.closed) {
+         return;
+      }
+      this.closed = true;
+      try {
+         this.writerThread.join();
+      } catch (final InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IOException("Interrupted waiting for decision trace", e);
+      } finally {
+         this.out.close();
+      }
+      if (this.writeError != null) {
+         throw this.writeError;
+      }
+   }
+
+   private void writeLoop() {
+      long sequence = this.tail.get();
+      boolean dirty = false;
+      while (true) {
+         final int index = (int) sequence & this.mask;
+         final IssueDecision decision = this.slots.get(index);
+         if (decision != null) {
+            this.write(decision);
+            dirty = true;
+            this.slots.lazySet(index, null);
+            this.tail.lazySet(++sequence);
+         } else if (this.closed && sequence == this.head.get()) {
+            break;
+         } else {
+            if (dirty) {
+               this.flush();
+               dirty = false;
+            }
+            LockSupport.parkNanos(DecisionTrace.IDLE_NANOS);
+         }
+      }
+      this.flush();
+   }
+
+   private void write(final IssueDecision decision) {
+      if (this.writeError != null) {
+         return;
+      }
+      try {
+         this.writer.writeValue(this.out, decision);
+         this.out.write('\n');
+      } catch (final IOException e) {
+         DecisionTrace.LOG.error("Error writing decision trace: {}", e.getMessage(), e);
+         this.writeError = e;
+      }
+   }
+
+   private void flush() {
+      if (this.writeError != null) {
+         return;
+      }
+      try {
+         this.out.flush();
+      } catch (final IOException e) {
+         DecisionTrace.LOG.error("Error writing decision trace: {}", e.getMessage(), e);
+         this.writeError = e;
+      }
+   }
+
+}
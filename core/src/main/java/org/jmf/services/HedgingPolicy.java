@@ -0,0 +1,172 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Policy for hedging idempotent GET requests: if a request did not answer within a percentile of the observed
+ * latencies, a duplicate request is sent and the first response wins.
+ */
+public class HedgingPolicy {
+
+   /** number of latency samples kept */
+   private static final int SAMPLE_SIZE = 256;
+
+   /** minimum number of samples before requests are hedged */
+   static final int MIN_SAMPLES = 10;
+
+   /** number of samples after which the hedge delay is computed again */
+   static final int RECOMPUTE_INTERVAL = 16;
+
+   private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+   /** runs the (hedged) requests of all policies */
+   private static ExecutorService executor;
+
+   private final double percentile;
+
+   private final double budget;
+
+   private final long[] samples = new long[HedgingPolicy.SAMPLE_SIZE];
+
+   private int sampleCount;
+
+   private int sampleIndex;
+
+   /** number of samples recorded since the hedge delay was computed */
+   private int samplesSinceComputed;
+
+   private volatile long hedgeDelay = -1;
+
+   private final AtomicLong requests = new AtomicLong();
+
+   private final AtomicLong hedges = new AtomicLong();
+
+   /**
+    * Constructor.
+    *
+    * @param percentile the percentile of the observed latencies after which a request is hedged, e.g. 95
+    * @param budget the maximum fraction of requests which may be hedged, e.g. 0.1 for 10%
+    */
+   public HedgingPolicy(final double percentile, final double budget) {
+      if (percentile <= 0 || percentile >= 100) {
+         throw new IllegalArgumentException("Hedge percentile must be between 0 and 100: " + percentile);
+      }
+      if (budget < 0 || budget > 1) {
+         throw new IllegalArgumentException("Hedge budget must be between 0 and 1: " + budget);
+      }
+      this.percentile = percentile;
+      this.budget = budget;
+   }
+
+   /**
+    * Stop the threads of the (hedged) requests, see {@link HttpClientPool#shutdown()}.
+    */
+   static synchronized void shutdown() {
+      if (HedgingPolicy.executor != null) {
+         HedgingPolicy.executor.shutdownNow();
+         HedgingPolicy.executor = null;
+      }
+   }
+
+   /**
+    * Get the delay after which a request should be hedged. The delay is computed from the samples when the minimum
+    * number of samples is reached and then every {@value #RECOMPUTE_INTERVAL} samples.
+    *
+    * @return the delay in milliseconds or -1, if not enough latencies have been observed yet
+    */
+   public long getHedgeDelay() {
+      return this.hedgeDelay;
+   }
+
+   /**
+    * Record the latency of a successful request.
+    *
+    * @param millis the latency in milliseconds
+    */
+   public synchronized void recordLatency(final long millis) {
+      this.samples[this.sampleIndex] = millis;
+      this.sampleIndex = (this.sampleIndex + 1) % HedgingPolicy.SAMPLE_SIZE;
+      this.sampleCount = Math.min(this.sampleCount + 1, HedgingPolicy.SAMPLE_SIZE);
+      this.samplesSinceComputed++;
+      if (this.sampleCount == HedgingPolicy.MIN_SAMPLES || this.sampleCount > HedgingPolicy.MIN_SAMPLES
+            && this.samplesSinceComputed >= HedgingPolicy.RECOMPUTE_INTERVAL) {
+         final long[] sorted = Arrays.copyOf(this.samples, this.sampleCount);
+         Arrays.sort(sorted);
+         final int index = (int) Math.ceil(this.percentile / 100.0 * sorted.length) - 1;
+         this.hedgeDelay = sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+         this.samplesSinceComputed = 0;
+      }
+   }
+
+   /**
+    * Count a request, which might be hedged.
+    */
+   public void recordRequest() {
+      this.requests.incrementAndGet();
+   }
+
+   /**
+    * Try to acquire a hedge from the budget.
+    *
+    * @return true, if the request may be hedged
+    */
+   public boolean tryAcquireHedge() {
+      while (true) {
+         final long current = this.hedges.get();
+         if (current + 1 > this.budget * this.requests.get()) {
+            return false;
+         }
+         if (this.hedges.compareAndSet(current, current + 1)) {
+            return true;
+         }
+      }
+   }
+
+   /**
+    * @return the number of requests
+    */
+   public long getRequests() {
+      return this.requests.get();
+   }
+
+   /**
+    * @return the number of hedged requests
+    */
+   public long getHedges() {
+      return this.hedges.get();
+   }
+
+   /**
+    * @return the executor running the (hedged) requests, shared by all policies
+    */
+   public ExecutorService getExecutor() {
+      synchronized (HedgingPolicy.class) {
+         if (HedgingPolicy.executor == null) {
+            HedgingPolicy.executor = Executors.newCachedThreadPool(runnable -> {
+               final Thread thread = new Thread(runnable, "hedge-" + HedgingPolicy.THREAD_COUNT.incrementAndGet());
+               thread.setDaemon(true);
+               return thread;
+            });
+         }
+         return HedgingPolicy.executor;
+      }
+   }
+
+}
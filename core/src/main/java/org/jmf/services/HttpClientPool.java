@@ -0,0 +1,156 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.ssl.SSLContextBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The HTTP client shared by all {@link SonarClientService} instances in the JVM.
+ * <p>
+ * The client accepts all certificates and keeps a pool of connections, which is limited by the connection budget.
+ * All requests and responses can be recorded (see {@link HttpRecorder}) or replayed from a recording instead of being
+ * sent (see {@link ReplayHttpClient}).
+ */
+public final class HttpClientPool {
+
+   /** default maximum number of connections */
+   public static final int DEFAULT_MAX_CONNECTIONS = 20;
+
+   private static final Logger LOG = LoggerFactory.getLogger(HttpClientPool.class);
+
+   private static int maxConnections = HttpClientPool.DEFAULT_MAX_CONNECTIONS;
+
+   private static CloseableHttpClient client;
+
+   private static HttpRecorder recorder;
+
+   private HttpClientPool() {
+      // never instantiated
+   }
+
+   /**
+    * Set the maximum number of connections of the pool (for all servers together and per server).
+    * Must be called before the first request.
+    *
+    * @param maxConnections the maximum number of connections
+    */
+   public static synchronized void setMaxConnections(final int maxConnections) {
+      if (HttpClientPool.client != null) {
+         throw new IllegalStateException("HTTP client already in use");
+      }
+      HttpClientPool.maxConnections = maxConnections;
+   }
+
+   /**
+    * Record all requests and responses. Must be called before the first request.
+    *
+    * @param recorder the recorder (closed on {@link #shutdown()})
+    */
+   public static synchronized void setRecorder(final HttpRecorder recorder) {
+      if (HttpClientPool.client != null) {
+         throw new IllegalStateException("HTTP client already in use");
+      }
+      HttpClientPool.recorder = recorder;
+   }
+
+   /**
+    * Replay the responses of a recording instead of sending requests. Must be called before the first request.
+    *
+    * @param archive the archive recorded by {@link HttpRecorder}
+    * @param latencyScale the factor for the recorded latencies, e.g. 0 for no latency, 1 for the recorded latency
+    * @throws IOException if the archive cannot be read
+    */
+   public static synchronized void setReplay(final File archive, final double latencyScale) throws IOException {
+      if (HttpClientPool.client != null) {
+         throw new IllegalStateException("HTTP client already in use");
+      }
+      HttpClientPool.client = new ReplayHttpClient(archive, latencyScale);
+   }
+
+   /**
+    * Get the shared client.
+    *
+    * @return the shared client (must not be closed)
+    * @throws GeneralSecurityException if the SSL context cannot be created
+    */
+   public static synchronized CloseableHttpClient getClient() throws GeneralSecurityException {
+      if (HttpClientPool.client == null) {
+         HttpClientPool.client = HttpClientPool.createClient();
+      }
+      return HttpClientPool.client;
+   }
+
+   /**
+    * Close the shared client and all pooled connections, stop probing failed nodes (see {@link NodeBalancer}) and stop
+    * the threads of hedged requests (see {@link HedgingPolicy}).
+    */
+   public static synchronized void shutdown() {
+      NodeBalancer.shutdown();
+      HedgingPolicy.shutdown();
+      if (HttpClientPool.client != null) {
+         try {
+            HttpClientPool.client.close();
+         } catch (final IOException e) {
+            HttpClientPool.LOG.warn("Error closing HTTP client: {}", e.getMessage(), e);
+         }
+         HttpClientPool.client = null;
+      }
+      if (HttpClientPool.recorder != null) {
+         try {
+            HttpClientPool.recorder.close();
+         } catch (final IOException e) {
+            HttpClientPool.LOG.warn("Error closing HTTP recording: {}", e.getMessage(), e);
+         }
+         HttpClientPool.recorder = null;
+      }
+   }
+
+   private static CloseableHttpClient createClient() throws GeneralSecurityException {
+      // Accept ALL certificates
+      final SSLContext sslContext = new SSLContextBuilder().loadTrustMaterial(null, (final X509Certificate[] chain, final String authType) -> true).build();
+      final Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory> create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+            .register("https", new SSLConnectionSocketFactory(sslContext, new NoopHostnameVerifier()))
+            .build();
+      final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(registry);
+      connectionManager.setMaxTotal(HttpClientPool.maxConnections);
+      connectionManager.setDefaultMaxPerRoute(HttpClientPool.maxConnections);
+      final HttpClientBuilder builder = HttpClients.custom().setConnectionManager(connectionManager);
+      if (HttpClientPool.recorder != null) {
+         builder.addInterceptorLast(HttpClientPool.recorder.getRequestInterceptor());
+         builder.addInterceptorLast(HttpClientPool.recorder.getResponseInterceptor());
+      }
+      return builder.build();
+   }
+
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.jmf.vo.RecordedExchange;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Records all requests and responses of the shared HTTP client to a gzipped JSON lines archive, which can be served
+ * back by {@link ReplayHttpClient}.
+ * <p>
+ * Credentials are never recorded: the Authorization header is not part of the archive and login, password and token
+ * parameters are masked.
+ */
+public class HttpRecorder implements Closeable {
+
+   private static final String ATTRIBUTE_START = HttpRecorder.class.getName() + ".start";
+
+   private static final Pattern CREDENTIALS = Pattern.compile("(^|[?&])(login|password|token)=[^&]*");
+
+   private final Writer out;
+
+   private final ObjectWriter writer;
+
+   /**
+    * Constructor.
+    *
+    * @param file the archive (overwritten)
+    * @throws IOException if the archive cannot be created
+    */
+   public HttpRecorder(final File file) throws IOException {
+      this.out = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(file.toPath())), StandardCharsets.UTF_8);
+      this.writer = new ObjectMapper()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .writerFor(RecordedExchange.class);
+   }
+
+   /**
+    * @return the interceptor noting the start of a request
+    */
+   public HttpRequestInterceptor getRequestInterceptor() {
+      return (request, context) -> context.setAttribute(HttpRecorder.ATTRIBUTE_START, System.nanoTime());
+   }
+
+   /**
+    * @return the interceptor recording the request and its response
+    */
+   public HttpResponseInterceptor getResponseInterceptor() {
+      return this::record;
+   }
+
+   @Override
+   public synchronized void close() throws IOException {
+      this.out.close();
+   }
+
+   private void record(final HttpResponse response, final HttpContext context) throws IOException {
+      final HttpClientContext clientContext = HttpClientContext.adapt(context);
+      final HttpRequest request = clientContext.getRequest();
+      final Long start = (Long) context.getAttribute(HttpRecorder.ATTRIBUTE_START);
+
+      final RecordedExchange exchange = new RecordedExchange();
+      exchange.setMethod(request.getRequestLine().getMethod());
+      exchange.setUrl(HttpRecorder.scrub(HttpRecorder.getUrl(clientContext.getTargetHost(), request)));
+      if (request instanceof HttpEntityEnclosingRequest && ((HttpEntityEnclosingRequest) request).getEntity() != null) {
+         exchange.setRequestBody(HttpRecorder.scrub(EntityUtils.toString(((HttpEntityEnclosingRequest) request).getEntity(), StandardCharsets.UTF_8)));
+      }
+      exchange.setStatus(response.getStatusLine().getStatusCode());
+      final HttpEntity entity = response.getEntity();
+      if (entity != null) {
+         // buffer the body, so that it can be recorded and still be read by the caller
+         final HttpEntity buffered = new BufferedHttpEntity(entity);
+         response.setEntity(buffered);
+         final ContentType contentType = ContentType.get(buffered);
+         exchange.setContentType(contentType != null ? contentType.toString() : null);
+         exchange.setResponseBody(EntityUtils.toString(buffered, StandardCharsets.UTF_8));
+      }
+      exchange.setLatencyMicros(start != null ? TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) : 0);
+      this.write(exchange);
+   }
+
+   private synchronized void write(final RecordedExchange exchange) throws IOException {
+      this.writer.writeValue(this.out, exchange);
+      this.out.write('\n');
+   }
+
+   /**
+    * Get the absolute URL of a request. The URI of the request might be relative, if the client already rewrote it.
+    * Requests sent to an application node (see {@link NodeBalancer}) get the URL of the server, so that a recording
+    * can be replayed independently of the nodes.
+    *
+    * @param target the target host
+    * @param request the request
+    * @return the URL
+    */
+   static String getUrl(final HttpHost target, final HttpRequest request) {
+      final URI uri = URI.create(request.getRequestLine().getUri());
+      if (uri.isAbsolute()) {
+         return NodeBalancer.toServerUrl(uri.toString());
+      }
+      return NodeBalancer.toServerUrl(target.toURI() + (uri.getRawPath() != null && uri.getRawPath().startsWith("/") ? "" : "/") + uri.toString());
+   }
+
+   /** mask credentials in a query string or form body */
+   static String scrub(final String parameters) {
+      return HttpRecorder.CREDENTIALS.matcher(parameters).replaceAll("$1$2=***");
+   }
+
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.jmf.vo.Issue;
+
+/**
+ * Immutable index of issues by rule and (parsed) component, used for matching source and target issues.
+ * <p>
+ * The index can safely be shared by several threads, e.g. when one source is migrated to several targets.
+ */
+public final class IssueIndex implements MatchIndex {
+
+   private static final Comparator<Issue> BY_LINE = Comparator.comparing(Issue::getLine, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+   /** issues by rule in the original order */
+   private final Map<String, List<Issue>> issuesByRule;
+
+   /** issues by rule and component, sorted by line */
+   private final Map<String, Map<String, List<Issue>>> issuesByRuleAndComponent;
+
+   private final int size;
+
+   private IssueIndex(final Map<String, List<Issue>> issuesByRule, final Map<String, Map<String, List<Issue>>> issuesByRuleAndComponent, final int size) {
+      this.issuesByRule = issuesByRule;
+      this.issuesByRuleAndComponent = issuesByRuleAndComponent;
+      this.size = size;
+   }
+
+   /**
+    * Create an index.
+    *
+    * @param issues the issues
+    * @return the index
+    */
+   public static IssueIndex of(final Collection<Issue> issues) {
+      final Map<String, List<Issue>> byRule = new LinkedHashMap<>();
+      final Map<String, Map<String, List<Issue>>> byRuleAndComponent = new LinkedHashMap<>();
+      for (final Issue issue : issues) {
+         byRule.computeIfAbsent(issue.getRule(), r -> new ArrayList<>()).add(issue);
+         byRuleAndComponent.computeIfAbsent(issue.getRule(), r -> new LinkedHashMap<>())
+               .computeIfAbsent(issue.getParsedComponent(), c -> new ArrayList<>())
+               .add(issue);
+      }
+      byRule.replaceAll((rule, list) -> Collections.unmodifiableList(list));
+      byRuleAndComponent.replaceAll((rule, byComponent) -> {
+         byComponent.replaceAll((component, list) -> {
+            // stable sort: issues on the same line keep their original order
+            list.sort(IssueIndex.BY_LINE);
+            return Collections.unmodifiableList(list);
+         });
+         return Collections.unmodifiableMap(byComponent);
+      });
+      return new IssueIndex(Collections.unmodifiableMap(byRule), Collections.unmodifiableMap(byRuleAndComponent), issues.size());
+   }
+
+   /**
+    * @return the rules of the indexed issues
+    */
+   public Set<String> getRules() {
+      return this.issuesByRule.keySet();
+   }
+
+   /**
+    * @param rule the rule key
+    * @return the issues of the rule in their original order
+    */
+   public List<Issue> getIssues(final String rule) {
+      return this.issuesByRule.getOrDefault(rule, Collections.emptyList());
+   }
+
+   /**
+    * @return the number of indexed issues
+    */
+   public int size() {
+      return this.size;
+   }
+
+   @Override
+   public Issue findClosest(final Issue issue, final int deltaLines, final Predicate<Issue> available) {
+      if (issue.getLine() == null) {
+         return null;
+      }
+      final List<Issue> candidates = this.issuesByRuleAndComponent.getOrDefault(issue.getRule(), Collections.emptyMap())
+            .getOrDefault(issue.getParsedComponent(), Collections.emptyList());
+      final int line = issue.getLine();
+      Issue closest = null;
+      int closestDistance = Integer.MAX_VALUE;
+      for (int i = IssueIndex.firstIndexOf(candidates, line - deltaLines); i < candidates.size(); i++) {
+         final Issue candidate = candidates.get(i);
+         final int distance = Math.abs(candidate.getLine() - line);
+         if (candidate.getLine() > line + deltaLines) {
+            break;
+         }
+         if (distance < closestDistance && available.test(candidate)) {
+            closest = candidate;
+            closestDistance = distance;
+         }
+      }
+      return closest;
+   }
+
+   @Override
+   public Issue findByFingerprint(final Issue issue, final Predicate<Issue> available) {
+      if (issue.getLine() == null || issue.getHash() == null) {
+         return null;
+      }
+      final List<Issue> candidates = this.issuesByRuleAndComponent.getOrDefault(issue.getRule(), Collections.emptyMap())
+            .getOrDefault(issue.getParsedComponent(), Collections.emptyList());
+      final int line = issue.getLine();
+      Issue closest = null;
+      int closestDistance = Integer.MAX_VALUE;
+      for (int i = IssueIndex.firstIndexOf(candidates, Integer.MIN_VALUE); i < candidates.size(); i++) {
+         final Issue candidate = candidates.get(i);
+         final int distance = Math.abs(candidate.getLine() - line);
+         if (distance < closestDistance && issue.getHash().equals(candidate.getHash()) && available.test(candidate)) {
+            closest = candidate;
+            closestDistance = distance;
+         }
+      }
+      return closest;
+   }
+
+   @Override
+   public int countCandidates(final Issue issue, final int deltaLines) {
+      if (issue.getLine() == null) {
+         return 0;
+      }
+      final List<Issue> candidates = this.issuesByRuleAndComponent.getOrDefault(issue.getRule(), Collections.emptyMap())
+            .getOrDefault(issue.getParsedComponent(), Collections.emptyList());
+      return IssueIndex.firstIndexOf(candidates, issue.getLine() + deltaLines + 1) - IssueIndex.firstIndexOf(candidates, issue.getLine() - deltaLines);
+   }
+
+   /** index of the first issue with a line number (i.e. not closed) greater than or equal to the given line */
+   private static int firstIndexOf(final List<Issue> issues, final int line) {
+      int low = 0;
+      int high = issues.size();
+      while (low < high) {
+         final int middle = (low + high) >>> 1;
+         final Integer middleLine = issues.get(middle).getLine();
+         if (middleLine == null || middleLine < line) {
+            low = middle + 1;
+         } else {
+            high = middle;
+         }
+      }
+      return low;
+   }
+
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.jmf.vo.Issue;
+
+/**
+ * Matches source issues with target issues of one migration: each target issue is matched at most once.
+ * <p>
+ * An instance is used by one thread.
+ */
+public class IssueMatcher {
+
+   private final int deltaLines;
+
+   private final boolean matchByHash;
+
+   private final Set<String> matchedKeys = new HashSet<>();
+
+   /**
+    * Constructor.
+    *
+    * @param deltaLines the maximum delta of line numbers
+    */
+   public IssueMatcher(final int deltaLines) {
+      this(deltaLines, false);
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param deltaLines the maximum delta of line numbers
+    * @param matchByHash if issues not found within the delta should be matched by their line hash
+    */
+   public IssueMatcher(final int deltaLines, final boolean matchByHash) {
+      this.deltaLines = deltaLines;
+      this.matchByHash = matchByHash;
+   }
+
+   /**
+    * Match a source issue with the closest target issue, which is not matched yet. If there is none within the delta
+    * of line numbers and matching by hash is enabled, the closest target issue with the same fingerprint (line hash) is
+    * matched.
+    *
+    * @param targetIndex the index of the target issues (for the rule of the source issue)
+    * @param sourceIssue the source issue
+    * @return the matched target issue or null, if none is found
+    */
+   public Issue match(final MatchIndex targetIndex, final Issue sourceIssue) {
+      final Predicate<Issue> available = issue -> !this.matchedKeys.contains(issue.getKey());
+      Issue targetIssue = targetIndex.findClosest(sourceIssue, this.deltaLines, available);
+      if (targetIssue == null && this.matchByHash) {
+         targetIssue = targetIndex.findByFingerprint(sourceIssue, available);
+      }
+      if (targetIssue != null) {
+         this.matchedKeys.add(targetIssue.getKey());
+      }
+      return targetIssue;
+   }
+
+   /**
+    * Match a source issue with the closest target issue at another line, which is not matched yet, e.g. the line of the
+    * source issue mapped to the target by a diff.
+    *
+    * @param targetIndex the index of the target issues (for the rule of the source issue)
+    * @param sourceIssue the source issue
+    * @param line the line in the target
+    * @param deltaLines the maximum delta of line numbers, e.g. 0 for an exact match
+    * @return the matched target issue or null, if none is found
+    */
+   public Issue matchAt(final MatchIndex targetIndex, final Issue sourceIssue, final int line, final int deltaLines) {
+      final Issue moved = new Issue();
+      moved.setKey(sourceIssue.getKey());
+      moved.setRule(sourceIssue.getRule());
+      moved.setComponent(sourceIssue.getComponent());
+      moved.setLine(line);
+      final Issue targetIssue = targetIndex.findClosest(moved, deltaLines, issue -> !this.matchedKeys.contains(issue.getKey()));
+      if (targetIssue != null) {
+         this.matchedKeys.add(targetIssue.getKey());
+      }
+      return targetIssue;
+   }
+
+   /**
+    * @return the number of matched target issues
+    */
+   public int getMatched() {
+      return this.matchedKeys.size();
+   }
+
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Line diff of two versions of a file (Myers' O(ND) algorithm in linear space), mapping the lines of the old version
+ * to the lines of the new version, which are unchanged.
+ * <p>
+ * The common prefix and suffix are skipped, the rest is split at the middle of an optimal edit path and diffed
+ * recursively, so the memory is linear in the number of edits and the cost depends on the size of the changed region
+ * and the number of edits. Files with more than {@link #MAX_EDITS} edits are not diffed.
+ */
+public final class LineDiff {
+
+   /** maximum number of inserted and deleted lines, the time of the diff is linear in it */
+   public static final int MAX_EDITS = 4000;
+
+   private LineDiff() {
+      // never instantiated
+   }
+
+   /**
+    * Map the lines of the old version to the lines of the new version.
+    *
+    * @param oldLines the lines of the old version
+    * @param newLines the lines of the new version
+    * @return the line numbers (1-based) in the new version by line number in the old version, 0 for lines deleted or
+    *         changed - or null, if there are too many edits
+    */
+   public static int[] map(final List<String> oldLines, final List<String> newLines) {
+      // compare ids instead of strings
+      final Map<String, Integer> ids = new HashMap<>();
+      final int[] a = new int[oldLines.size()];
+      for (int i = 0; i < a.length; i++) {
+         a[i] = ids.computeIfAbsent(oldLines.get(i), line -> ids.size());
+      }
+      final int[] b = new int[newLines.size()];
+      for (int i = 0; i < b.length; i++) {
+         b[i] = ids.computeIfAbsent(newLines.get(i), line -> ids.size());
+      }
+      final int[] map = new int[a.length + 1];
+      return LineDiff.diff(a, 0, a.length, b, 0, b.length, map, LineDiff.MAX_EDITS) ? map : null;
+   }
+
+   /**
+    * Diff the ranges of a and b, adding the unchanged lines to the map.
+    *
+    * @return false, if there are more edits than the maximum
+    */
+   private static boolean diff(final int[] a, final int aFrom, final int aTo, final int[] b, final int bFrom, final int bTo, final int[] map,
+         final int maxEdits) {
+      int aStart = aFrom;
+      int bStart = bFrom;
+      while (aStart < aTo && bStart < bTo && a[aStart] == b[bStart]) {
+         aStart++;
+         bStart++;
+         map[aStart] = bStart;
+      }
+      int aEnd = aTo;
+      int bEnd = bTo;
+      while (aEnd > aStart && bEnd > bStart && a[aEnd - 1] == b[bEnd - 1]) {
+         map[aEnd] = bEnd;
+         aEnd--;
+         bEnd--;
+      }
+      if (aStart == aEnd || bStart == bEnd) {
+         // only deleted or only inserted lines
+         return aEnd - aStart + bEnd - bStart <= maxEdits;
+      }
+      final int[] split = LineDiff.split(a, aStart, aEnd, b, bStart, bEnd, maxEdits);
+      if (split == null) {
+         return false;
+      }
+      // both halves have fewer edits than the range
+      LineDiff.diff(a, aStart, split[0], b, bStart, split[1], map, Integer.MAX_VALUE);
+      LineDiff.diff(a, split[0], aEnd, b, split[1], bEnd, map, Integer.MAX_VALUE);
+      return true;
+   }
+
+   /**
+    * Find a point of an optimal edit path of the ranges, where the forward search from the start and the reverse
+    * search from the end meet, i.e. which halves the edits. The ranges must neither start nor end with the same line.
+    *
+    * @return the index in a and b of the point or null, if there are more edits than the maximum
+    */
+   private static int[] split(final int[] a, final int aStart, final int aEnd, final int[] b, final int bStart, final int bEnd, final int maxEdits) {
+      final int n = aEnd - aStart;
+      final int m = bEnd - bStart;
+      final int maxD = (Math.min(n + m, maxEdits) + 1) / 2;
+      final int offset = maxD + 1;
+      // furthest x on diagonal k (x - y) of the forward search and (from the end) of the reverse search, -1 for none
+      final int[] forward = new int[2 * offset + 1];
+      final int[] reverse = new int[2 * offset + 1];
+      Arrays.fill(forward, -1);
+      Arrays.fill(reverse, -1);
+      forward[offset + 1] = 0;
+      reverse[offset + 1] = 0;
+      final int delta = n - m;
+      // the searches can meet in the forward search only, if delta is odd, in the reverse search only, if it is even
+      final boolean odd = (delta & 1) != 0;
+      // diagonals left of or below the edit graph are not searched any more
+      int forwardStart = 0;
+      int forwardEnd = 0;
+      int reverseStart = 0;
+      int reverseEnd = 0;
+      for (int d = 0; d <= maxD; d++) {
+         for (int k = -d + forwardStart; k <= d - forwardEnd; k += 2) {
+            final int i = offset + k;
+            int x = k == -d || k != d && forward[i - 1] < forward[i + 1] ? forward[i + 1] : forward[i - 1] + 1;
+            int y = x - k;
+            while (x < n && y < m && a[aStart + x] == b[bStart + y]) {
+               x++;
+               y++;
+            }
+            forward[i] = x;
+            if (x > n) {
+               forwardEnd += 2;
+            } else if (y > m) {
+               forwardStart += 2;
+            } else if (odd) {
+               final int j = offset + delta - k;
+               if (j >= 0 && j < reverse.length && LineDiff.isOnGrid(reverse[j], j - offset, n, m) && x >= n - reverse[j]) {
+                  return 2 * d - 1 <= maxEdits ? new int[] { aStart + x, bStart + y } : null;
+               }
+            }
+         }
+         for (int k = -d + reverseStart; k <= d - reverseEnd; k += 2) {
+            final int i = offset + k;
+            int x = k == -d || k != d && reverse[i - 1] < reverse[i + 1] ? reverse[i + 1] : reverse[i - 1] + 1;
+            int y = x - k;
+            while (x < n && y < m && a[aEnd - 1 - x] == b[bEnd - 1 - y]) {
+               x++;
+               y++;
+            }
+            reverse[i] = x;
+            if (x > n) {
+               reverseEnd += 2;
+            } else if (y > m) {
+               reverseStart += 2;
+            } else if (!odd) {
+               final int j = offset + delta - k;
+               if (j >= 0 && j < forward.length && LineDiff.isOnGrid(forward[j], j - offset, n, m) && forward[j] >= n - x) {
+                  return 2 * d <= maxEdits ? new int[] { aStart + forward[j], bStart + forward[j] - (j - offset) } : null;
+               }
+            }
+         }
+      }
+      return null;
+   }
+
+   /** true, if the furthest x on diagonal k is found and within the edit graph */
+   private static boolean isOnGrid(final int x, final int k, final int n, final int m) {
+      return x >= 0 && x <= n && x - k >= 0 && x - k <= m;
+   }
+
+}
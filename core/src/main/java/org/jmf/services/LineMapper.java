@@ -0,0 +1,183 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jmf.vo.Issue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Maps the lines of source issues to the target by a diff of the source and target file, e.g. if code was inserted
+ * above the issues. The sources are fetched only for files with unmatched issues and cached in a {@link ContentStore}:
+ * by the date of the last analysis of the project, so that they are not fetched again until the project is analyzed
+ * again.
+ * <p>
+ * An instance is used by one migration (thread).
+ */
+class LineMapper {
+
+   /** marker for files, which cannot be mapped */
+   private static final int[] NO_MAP = new int[0];
+
+   private static final Logger LOG = LoggerFactory.getLogger(LineMapper.class);
+
+   private final SonarClientService source;
+
+   private final SonarClientService target;
+
+   private final ContentStore store;
+
+   /** the analysis dates by server and project, empty if unknown */
+   private final Map<String, String> analysisDates = new HashMap<>();
+
+   /** the line maps by source and target file */
+   private final Map<String, int[]> maps = new HashMap<>();
+
+   private int fetched;
+
+   private int diffed;
+
+   /**
+    * Constructor.
+    *
+    * @param source the service of the source
+    * @param target the service of the target
+    * @param store the store of the file contents
+    */
+   LineMapper(final SonarClientService source, final SonarClientService target, final ContentStore store) {
+      this.source = source;
+      this.target = target;
+      this.store = store;
+   }
+
+   /**
+    * Get the line map of the file of a source issue.
+    *
+    * @param sourceIssue the source issue
+    * @param targetComponentKey the target component key, e.g. project key
+    * @return the line numbers in the target by line number in the source (see {@link LineDiff#map(List, List)}) or
+    *         null, if the file cannot be mapped (e.g. it is missing or unchanged in the target)
+    */
+   int[] getLineMap(final Issue sourceIssue, final String targetComponentKey) {
+      final String sourceFile = sourceIssue.getComponent();
+      final String targetFile = targetComponentKey + ":" + sourceIssue.getParsedComponent();
+      final int[] map = this.maps.computeIfAbsent(sourceFile + "->" + targetFile, key -> this.diff(sourceFile, targetFile));
+      return map != LineMapper.NO_MAP ? map : null;
+   }
+
+   /**
+    * Map a line using a line map.
+    *
+    * @param map the line map
+    * @param line the line in the source
+    * @return the line in the target: exact, if the line is unchanged (see {@link #isUnchanged(int[], int)}), otherwise
+    *         shifted like the closest unchanged line
+    */
+   static int mapLine(final int[] map, final int line) {
+      if (LineMapper.isUnchanged(map, line)) {
+         return map[line];
+      }
+      for (int previous = Math.min(line, map.length) - 1; previous > 0; previous--) {
+         if (map[previous] > 0) {
+            return map[previous] + line - previous;
+         }
+      }
+      for (int next = line + 1; next < map.length; next++) {
+         if (map[next] > 0) {
+            return Math.max(1, map[next] - (next - line));
+         }
+      }
+      return line;
+   }
+
+   /**
+    * @param map the line map
+    * @param line the line in the source
+    * @return true, if the line is unchanged in the target
+    */
+   static boolean isUnchanged(final int[] map, final int line) {
+      return line > 0 && line < map.length && map[line] > 0;
+   }
+
+   /**
+    * @return the number of sources fetched (i.e. not found in the store)
+    */
+   int getFetched() {
+      return this.fetched;
+   }
+
+   /**
+    * @return the number of files diffed
+    */
+   int getDiffed() {
+      return this.diffed;
+   }
+
+   private int[] diff(final String sourceFile, final String targetFile) {
+      try {
+         final String sourceHash = this.getContentHash(this.source, sourceFile);
+         final String targetHash = sourceHash != null ? this.getContentHash(this.target, targetFile) : null;
+         // unchanged files need no mapping
+         if (sourceHash == null || targetHash == null || sourceHash.equals(targetHash)) {
+            return LineMapper.NO_MAP;
+         }
+         final String sourceContent = this.store.get(sourceHash);
+         final String targetContent = this.store.get(targetHash);
+         if (sourceContent == null || targetContent == null) {
+            return LineMapper.NO_MAP;
+         }
+         this.diffed++;
+         final int[] map = LineDiff.map(LineMapper.lines(sourceContent), LineMapper.lines(targetContent));
+         if (map == null) {
+            LineMapper.LOG.debug("Too many changes to map the lines of {} to {}", sourceFile, targetFile);
+         }
+         return map != null ? map : LineMapper.NO_MAP;
+      } catch (final IOException e) {
+         LineMapper.LOG.warn("Error mapping the lines of {} to {}: {}", sourceFile, targetFile, e.getMessage(), e);
+         return LineMapper.NO_MAP;
+      }
+   }
+
+   private String getContentHash(final SonarClientService service, final String fileKey) throws IOException {
+      final String projectKey = fileKey.substring(0, Math.max(0, fileKey.lastIndexOf(':')));
+      final String analysisDate = this.analysisDates.computeIfAbsent(service.getBaseUrl() + "|" + projectKey,
+            key -> {
+               final String date = service.getAnalysisDate(projectKey);
+               return date != null ? date : "";
+            });
+      // without analysis date, the content may have changed since it was stored
+      final String ref = analysisDate.isEmpty() ? null : service.getBaseUrl() + "|" + fileKey + "|" + analysisDate;
+      final String hash = ref != null ? this.store.getHash(ref) : null;
+      if (hash != null) {
+         return hash;
+      }
+      final String content = service.getSource(fileKey);
+      if (content == null) {
+         return null;
+      }
+      this.fetched++;
+      return this.store.put(ref, content);
+   }
+
+   private static List<String> lines(final String content) {
+      return Arrays.asList(content.split("\r?\n", -1));
+   }
+
+}
@@ -0,0 +1,833 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import org.jmf.vo.Comment;
+import org.jmf.vo.Issue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Persistent index of the issues of a target component in a memory-mapped file, so later migrations into the same
+ * target need not fetch the target issues again, as long as the target was not analyzed again.
+ * <p>
+ * The file contains (in this order):
+ * <ul>
+ * <li>a header with the magic number, the version of the format and the offsets of the sections</li>
+ * <li>the date of the analysis of the target, the indexed rules and the components (both sorted)</li>
+ * <li>records of fixed size sorted by rule, component and line: rule, component, line, fingerprint and the position of
+ * the JSON blob with the key, status, resolution, line hash and comments of the issue</li>
+ * <li>the fingerprints sorted by their hash with the number of their record</li>
+ * <li>the JSON blobs</li>
+ * </ul>
+ * Only the rules and components are read into the heap, the rest is mapped in segments of 1 GB, i.e. the index may be
+ * larger than the heap (and than 2 GB). Changes of the issues by migrations (transitions and comments) are appended to
+ * a journal next to the index and merged into the index, when it is written the next time.
+ * <p>
+ * An instance is used by one thread.
+ */
+public final class MappedIssueIndex implements MatchIndex, Closeable {
+
+   /** version of the file format, files of other versions are ignored (and rebuilt) */
+   public static final int VERSION = 1;
+
+   private static final Logger LOG = LoggerFactory.getLogger(MappedIssueIndex.class);
+
+   private static final int MAGIC = 0x53494458;
+
+   private static final int HEADER_SIZE = 64;
+
+   /** rule (int), component (int), line (int), blob length (int), blob offset (long), fingerprint (long) */
+   private static final int RECORD_SIZE = 32;
+
+   /** hash of the fingerprint (high int) and number of the record (low int) */
+   private static final int FINGERPRINT_SIZE = 8;
+
+   /** size of the mapped segments, a multiple of the record size, so records never span two segments */
+   private static final int SEGMENT_BITS = 30;
+
+   private static final long SEGMENT_MASK = (1L << MappedIssueIndex.SEGMENT_BITS) - 1;
+
+   /** line of issues without line, sorted first */
+   private static final int NO_LINE = Integer.MIN_VALUE;
+
+   private static final String JOURNAL_SUFFIX = ".journal";
+
+   private static final ObjectMapper MAPPER = new ObjectMapper();
+
+   private static final JsonFactory FACTORY = MappedIssueIndex.MAPPER.getFactory();
+
+   private final File file;
+
+   private final String analysisDate;
+
+   private final String[] rules;
+
+   private final String[] components;
+
+   private final long recordCount;
+
+   private final long recordsOffset;
+
+   private final long fingerprintsOffset;
+
+   private final long fingerprintCount;
+
+   private final long blobsOffset;
+
+   private final MappedByteBuffer[] segments;
+
+   /** changes of the issues by record number */
+   private final Map<Long, Issue> changes = new HashMap<>();
+
+   private BufferedWriter journal;
+
+   private MappedIssueIndex(final File file, final DataInputStream in, final long length) throws IOException {
+      this.file = file;
+      in.readInt(); // magic and version already checked
+      in.readInt();
+      this.recordCount = in.readLong();
+      this.recordsOffset = in.readLong();
+      this.fingerprintsOffset = in.readLong();
+      this.blobsOffset = in.readLong();
+      this.fingerprintCount = (this.blobsOffset - this.fingerprintsOffset) / MappedIssueIndex.FINGERPRINT_SIZE;
+      in.readFully(new byte[MappedIssueIndex.HEADER_SIZE - 40]);
+      this.analysisDate = in.readUTF();
+      this.rules = MappedIssueIndex.readStrings(in);
+      this.components = MappedIssueIndex.readStrings(in);
+
+      final int segmentCount = (int) ((length + MappedIssueIndex.SEGMENT_MASK) >>> MappedIssueIndex.SEGMENT_BITS);
+      this.segments = new MappedByteBuffer[segmentCount];
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+         for (int i = 0; i < segmentCount; i++) {
+            final long start = (long) i << MappedIssueIndex.SEGMENT_BITS;
+            this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MappedIssueIndex.SEGMENT_MASK + 1, length - start));
+         }
+      }
+   }
+
+   /**
+    * Get the file of the index of a target component.
+    *
+    * @param directory the directory of the indexes
+    * @param baseUrl the base URL of the target server
+    * @param componentKey the target component key
+    * @return the file (which might not exist)
+    */
+   public static File getFile(final File directory, final String baseUrl, final String componentKey) {
+      try {
+         final byte[] hash = MessageDigest.getInstance("SHA-256").digest((baseUrl + "|" + componentKey).getBytes(StandardCharsets.UTF_8));
+         final StringBuilder name = new StringBuilder(componentKey.replaceAll("[^A-Za-z0-9._-]", "_")).append('-');
+         for (int i = 0; i < 4; i++) {
+            name.append(String.format("%02x", hash[i]));
+         }
+         return new File(directory, name.append(".idx").toString());
+      } catch (final NoSuchAlgorithmException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /**
+    * Open an index.
+    *
+    * @param file the file of the index
+    * @param analysisDate the date of the last analysis of the target
+    * @return the index or null, if the file does not exist, has another version or is stale, i.e. the target was
+    *         analyzed again since the index was written
+    * @throws IOException if the index cannot be read
+    */
+   public static MappedIssueIndex open(final File file, final String analysisDate) throws IOException {
+      if (!file.isFile()) {
+         return null;
+      }
+      final MappedIssueIndex index;
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+         in.mark(8);
+         if (in.readInt() != MappedIssueIndex.MAGIC) {
+            throw new IOException("Not an issue index: " + file);
+         }
+         final int version = in.readInt();
+         if (version != MappedIssueIndex.VERSION) {
+            MappedIssueIndex.LOG.info("Ignoring issue index {} of version {}.", file, version);
+            return null;
+         }
+         in.reset();
+         index = new MappedIssueIndex(file, in, file.length());
+      }
+      if (!index.analysisDate.equals(analysisDate)) {
+         MappedIssueIndex.LOG.info("Ignoring issue index {} of analysis {}, the target was analyzed on {}.", file, index.analysisDate, analysisDate);
+         index.close();
+         return null;
+      }
+      try {
+         index.loadJournal();
+      } catch (final IOException | RuntimeException e) {
+         index.close();
+         throw e;
+      }
+      return index;
+   }
+
+   /**
+    * Write an index. The issues of the previous index are merged with the new issues, i.e. the file is replaced.
+    *
+    * @param file the file of the index
+    * @param analysisDate the date of the last analysis of the target
+    * @param previous the previous index of the same analysis or null, it is closed and must not be used any more
+    * @param rules the rules of the new issues (which replace the issues of these rules of the previous index)
+    * @param issues the new issues (all issues of these rules)
+    * @throws IOException if the index cannot be written
+    */
+   public static void write(final File file, final String analysisDate, final MappedIssueIndex previous, final Collection<String> rules,
+         final List<Issue> issues) throws IOException {
+      final Set<String> newRules = new HashSet<>(rules);
+      final TreeSet<String> allRules = new TreeSet<>(rules);
+      final TreeSet<String> allComponents = new TreeSet<>();
+      if (previous != null) {
+         allRules.addAll(Arrays.asList(previous.rules));
+         allComponents.addAll(Arrays.asList(previous.components));
+      }
+      issues.forEach(issue -> allComponents.add(issue.getParsedComponent()));
+      final String[] ruleNames = allRules.toArray(new String[allRules.size()]);
+      final String[] componentNames = allComponents.toArray(new String[allComponents.size()]);
+      // the IDs of the previous index change, but not their order
+      final int[] ruleIds = previous != null ? MappedIssueIndex.mapIds(previous.rules, ruleNames) : null;
+      final int[] componentIds = previous != null ? MappedIssueIndex.mapIds(previous.components, componentNames) : null;
+
+      final List<Issue> sorted = new ArrayList<>(issues);
+      // stable sort: issues on the same line keep their original order
+      sorted.sort(Comparator.comparingInt((final Issue issue) -> Arrays.binarySearch(ruleNames, issue.getRule()))
+            .thenComparingInt(issue -> Arrays.binarySearch(componentNames, issue.getParsedComponent()))
+            .thenComparingInt(MappedIssueIndex::getLine));
+
+      final File directory = file.getAbsoluteFile().getParentFile();
+      Files.createDirectories(directory.toPath());
+      final File recordsFile = File.createTempFile(file.getName(), ".records", directory);
+      final File blobsFile = File.createTempFile(file.getName(), ".blobs", directory);
+      final File temp = new File(directory, file.getName() + ".tmp");
+      try {
+         long recordCount = 0;
+         long blobOffset = 0;
+         long[] fingerprints = new long[1024];
+         int fingerprintCount = 0;
+         try (DataOutputStream records = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(recordsFile.toPath())));
+               OutputStream blobs = new BufferedOutputStream(Files.newOutputStream(blobsFile.toPath()))) {
+            long previousRecord = 0;
+            int next = 0;
+            while (true) {
+               while (previous != null && previousRecord < previous.recordCount && newRules.contains(previous.rules[previous.getRuleId(previousRecord)])) {
+                  previousRecord++;
+               }
+               final boolean hasPrevious = previous != null && previousRecord < previous.recordCount;
+               if (!hasPrevious && next >= sorted.size()) {
+                  break;
+               }
+               final int rule;
+               final int component;
+               final int line;
+               final long fingerprint;
+               final byte[] blob;
+               if (hasPrevious) {
+                  final int previousRule = ruleIds[previous.getRuleId(previousRecord)];
+                  final int previousComponent = componentIds[previous.getComponentId(previousRecord)];
+                  final int previousLine = previous.getLine(previousRecord);
+                  final Issue issue = next < sorted.size() ? sorted.get(next) : null;
+                  if (issue == null || MappedIssueIndex.compare(previousRule, previousComponent, previousLine, Arrays.binarySearch(ruleNames, issue.getRule()),
+                        Arrays.binarySearch(componentNames, issue.getParsedComponent()), MappedIssueIndex.getLine(issue)) <= 0) {
+                     rule = previousRule;
+                     component = previousComponent;
+                     line = previousLine;
+                     fingerprint = previous.getFingerprint(previousRecord);
+                     blob = previous.changes.containsKey(previousRecord) ? MappedIssueIndex.toJson(previous.getIssue(previousRecord), false)
+                           : previous.getBlob(previousRecord);
+                     previousRecord++;
+                  } else {
+                     rule = Arrays.binarySearch(ruleNames, issue.getRule());
+                     component = Arrays.binarySearch(componentNames, issue.getParsedComponent());
+                     line = MappedIssueIndex.getLine(issue);
+                     fingerprint = MappedIssueIndex.fingerprint(issue.getHash());
+                     blob = MappedIssueIndex.toJson(issue, false);
+                     next++;
+                  }
+               } else {
+                  final Issue issue = sorted.get(next++);
+                  rule = Arrays.binarySearch(ruleNames, issue.getRule());
+                  component = Arrays.binarySearch(componentNames, issue.getParsedComponent());
+                  line = MappedIssueIndex.getLine(issue);
+                  fingerprint = MappedIssueIndex.fingerprint(issue.getHash());
+                  blob = MappedIssueIndex.toJson(issue, false);
+               }
+               records.writeInt(rule);
+               records.writeInt(component);
+               records.writeInt(line);
+               records.writeInt(blob.length);
+               records.writeLong(blobOffset);
+               records.writeLong(fingerprint);
+               blobs.write(blob);
+               blobOffset += blob.length;
+               if (fingerprint != 0) {
+                  if (fingerprintCount == fingerprints.length) {
+                     fingerprints = Arrays.copyOf(fingerprints, fingerprintCount * 2);
+                  }
+                  fingerprints[fingerprintCount++] = (long) MappedIssueIndex.hash32(fingerprint) << 32 | recordCount;
+               }
+               recordCount++;
+            }
+         }
+         Arrays.sort(fingerprints, 0, fingerprintCount);
+
+         final ByteArrayOutputStream tables = new ByteArrayOutputStream();
+         try (DataOutputStream out = new DataOutputStream(tables)) {
+            out.writeUTF(analysisDate);
+            MappedIssueIndex.writeStrings(out, ruleNames);
+            MappedIssueIndex.writeStrings(out, componentNames);
+         }
+         final long recordsOffset = (MappedIssueIndex.HEADER_SIZE + tables.size() + MappedIssueIndex.RECORD_SIZE - 1) / MappedIssueIndex.RECORD_SIZE
+               * MappedIssueIndex.RECORD_SIZE;
+         final long fingerprintsOffset = recordsOffset + recordCount * MappedIssueIndex.RECORD_SIZE;
+         final long blobsOffset = fingerprintsOffset + (long) fingerprintCount * MappedIssueIndex.FINGERPRINT_SIZE;
+         try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+            out.writeInt(MappedIssueIndex.MAGIC);
+            out.writeInt(MappedIssueIndex.VERSION);
+            out.writeLong(recordCount);
+            out.writeLong(recordsOffset);
+            out.writeLong(fingerprintsOffset);
+            out.writeLong(blobsOffset);
+            out.write(new byte[MappedIssueIndex.HEADER_SIZE - out.size()]);
+            tables.writeTo(out);
+            out.write(new byte[(int) (recordsOffset - out.size())]);
+            Files.copy(recordsFile.toPath(), out);
+            for (int i = 0; i < fingerprintCount; i++) {
+               out.writeLong(fingerprints[i]);
+            }
+            Files.copy(blobsFile.toPath(), out);
+         }
+         // the mapping must be released before the file is replaced (on Windows)
+         if (previous != null) {
+            previous.close();
+         }
+         Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+         // the changes of the journal are merged into the index
+         Files.deleteIfExists(MappedIssueIndex.getJournalFile(file).toPath());
+         MappedIssueIndex.LOG.info("Wrote issue index {} with {} issues of {} rules.", file, recordCount, ruleNames.length);
+      } finally {
+         Files.deleteIfExists(recordsFile.toPath());
+         Files.deleteIfExists(blobsFile.toPath());
+         Files.deleteIfExists(temp.toPath());
+      }
+   }
+
+   /**
+    * @return the date of the analysis of the target, which the index was built from
+    */
+   public String getAnalysisDate() {
+      return this.analysisDate;
+   }
+
+   /**
+    * @param rule the rule key
+    * @return true, if the issues of the rule are indexed (even if there are none)
+    */
+   public boolean hasRule(final String rule) {
+      return Arrays.binarySearch(this.rules, rule) >= 0;
+   }
+
+   /**
+    * @return the number of indexed issues
+    */
+   public long size() {
+      return this.recordCount;
+   }
+
+   @Override
+   public Issue findClosest(final Issue issue, final int deltaLines, final Predicate<Issue> available) {
+      if (issue.getLine() == null) {
+         return null;
+      }
+      final long[] range = this.getRange(issue);
+      if (range == null) {
+         return null;
+      }
+      final int line = issue.getLine();
+      Issue closest = null;
+      int closestDistance = Integer.MAX_VALUE;
+      for (long record = this.lowerBound(range[0], range[1], line - deltaLines); record < range[1]; record++) {
+         final int candidateLine = this.getLine(record);
+         if (candidateLine > line + deltaLines) {
+            break;
+         }
+         final int distance = Math.abs(candidateLine - line);
+         if (distance < closestDistance) {
+            // only read the blob of candidates, which are closer
+            final Issue candidate = this.getIssue(record);
+            if (available.test(candidate)) {
+               closest = candidate;
+               closestDistance = distance;
+            }
+         }
+      }
+      return closest;
+   }
+
+   @Override
+   public Issue findByFingerprint(final Issue issue, final Predicate<Issue> available) {
+      if (issue.getLine() == null || issue.getHash() == null) {
+         return null;
+      }
+      final int rule = Arrays.binarySearch(this.rules, issue.getRule());
+      final int component = Arrays.binarySearch(this.components, issue.getParsedComponent());
+      if (rule < 0 || component < 0) {
+         return null;
+      }
+      final long fingerprint = MappedIssueIndex.fingerprint(issue.getHash());
+      final int hash = MappedIssueIndex.hash32(fingerprint);
+      final int line = issue.getLine();
+      Issue closest = null;
+      int closestDistance = Integer.MAX_VALUE;
+      for (long i = this.lowerBoundFingerprint(hash); i < this.fingerprintCount; i++) {
+         final long entry = this.getLong(this.fingerprintsOffset + i * MappedIssueIndex.FINGERPRINT_SIZE);
+         if ((int) (entry >> 32) != hash) {
+            break;
+         }
+         final long record = entry & 0xFFFFFFFFL;
+         if (this.getFingerprint(record) != fingerprint || this.getRuleId(record) != rule || this.getComponentId(record) != component
+               || this.getLine(record) == MappedIssueIndex.NO_LINE) {
+            continue;
+         }
+         final int distance = Math.abs(this.getLine(record) - line);
+         if (distance < closestDistance) {
+            final Issue candidate = this.getIssue(record);
+            if (issue.getHash().equals(candidate.getHash()) && available.test(candidate)) {
+               closest = candidate;
+               closestDistance = distance;
+            }
+         }
+      }
+      return closest;
+   }
+
+   @Override
+   public int countCandidates(final Issue issue, final int deltaLines) {
+      if (issue.getLine() == null) {
+         return 0;
+      }
+      final long[] range = this.getRange(issue);
+      if (range == null) {
+         return 0;
+      }
+      return (int) (this.lowerBound(range[0], range[1], issue.getLine() + deltaLines + 1) - this.lowerBound(range[0], range[1], issue.getLine() - deltaLines));
+   }
+
+   /**
+    * Record a change of an indexed issue by the migration, i.e. the issue need not be changed again by later
+    * migrations. The change is appended to the journal immediately.
+    *
+    * @param issue the issue found in this index
+    * @param status the new status or null, if unchanged
+    * @param resolution the new resolution or null, if unchanged
+    * @param comment the added comment or null
+    * @throws IOException if the journal cannot be written
+    */
+   public void recordChange(final Issue issue, final String status, final String resolution, final String comment) throws IOException {
+      final Issue change = new Issue();
+      change.setKey(issue.getKey());
+      change.setRule(issue.getRule());
+      change.setComponent(issue.getParsedComponent());
+      change.setLine(issue.getLine());
+      change.setStatus(status);
+      change.setResolution(resolution);
+      if (comment != null) {
+         change.setComments(new ArrayList<>(Arrays.asList(MappedIssueIndex.comment(comment))));
+      }
+      if (this.applyChange(change)) {
+         if (this.journal == null) {
+            this.journal = Files.newBufferedWriter(MappedIssueIndex.getJournalFile(this.file).toPath(), StandardCharsets.UTF_8,
+                  StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+         }
+         this.journal.write(new String(MappedIssueIndex.toJson(change, true), StandardCharsets.UTF_8));
+         this.journal.newLine();
+         this.journal.flush();
+      }
+   }
+
+   /**
+    * Close the journal and release the mapped segments, i.e. the file may be replaced or deleted. The index must not
+    * be used any more, closing it again has no effect.
+    */
+   @Override
+   public void close() throws IOException {
+      for (int i = 0; i < this.segments.length; i++) {
+         if (this.segments[i] != null) {
+            MappedIssueIndex.unmap(this.segments[i]);
+            this.segments[i] = null;
+         }
+      }
+      if (this.journal != null) {
+         this.journal.close();
+         this.journal = null;
+      }
+   }
+
+   private void loadJournal() throws IOException {
+      final File journalFile = MappedIssueIndex.getJournalFile(this.file);
+      if (!journalFile.isFile()) {
+         return;
+      }
+      try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+         String line;
+         while ((line = reader.readLine()) != null) {
+            if (!line.isEmpty()) {
+               this.applyChange(MappedIssueIndex.fromJson(MappedIssueIndex.MAPPER.readTree(line)));
+            }
+         }
+      }
+   }
+
+   /** merge the change into the changes of its record */
+   private boolean applyChange(final Issue change) {
+      final long[] range = this.getRange(change);
+      if (range == null) {
+         return false;
+      }
+      final int line = MappedIssueIndex.getLine(change);
+      for (long record = this.lowerBound(range[0], range[1], line); record < range[1] && this.getLine(record) == line; record++) {
+         if (change.getKey().equals(MappedIssueIndex.fromJson(this.readBlob(record)).getKey())) {
+            final Issue changed = this.changes.computeIfAbsent(record, r -> new Issue());
+            MappedIssueIndex.merge(changed, change);
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private Issue getIssue(final long record) {
+      final Issue issue = MappedIssueIndex.fromJson(this.readBlob(record));
+      issue.setRule(this.rules[this.getRuleId(record)]);
+      issue.setComponent(this.components[this.getComponentId(record)]);
+      final int line = this.getLine(record);
+      issue.setLine(line != MappedIssueIndex.NO_LINE ? line : null);
+      final Issue change = this.changes.get(record);
+      if (change != null) {
+         MappedIssueIndex.merge(issue, change);
+      }
+      return issue;
+   }
+
+   private JsonNode readBlob(final long record) {
+      try {
+         return MappedIssueIndex.MAPPER.readTree(this.getBlob(record));
+      } catch (final IOException e) {
+         throw new IllegalStateException("Corrupt issue index " + this.file + ": " + e.getMessage(), e);
+      }
+   }
+
+   private byte[] getBlob(final long record) {
+      final long position = this.recordsOffset + record * MappedIssueIndex.RECORD_SIZE;
+      final byte[] blob = new byte[this.getInt(position + 12)];
+      final long start = this.blobsOffset + this.getLong(position + 16);
+      // blobs may span two segments
+      int done = 0;
+      while (done < blob.length) {
+         final ByteBuffer segment = this.segments[(int) ((start + done) >>> MappedIssueIndex.SEGMENT_BITS)].duplicate();
+         final int offset = (int) ((start + done) & MappedIssueIndex.SEGMENT_MASK);
+         final int length = Math.min(blob.length - done, segment.capacity() - offset);
+         segment.position(offset);
+         segment.get(blob, done, length);
+         done += length;
+      }
+      return blob;
+   }
+
+   /** records of the rule and component of the issue: first (inclusive) and last (exclusive) or null, if none */
+   private long[] getRange(final Issue issue) {
+      final int rule = Arrays.binarySearch(this.rules, issue.getRule());
+      final int component = Arrays.binarySearch(this.components, issue.getParsedComponent());
+      if (rule < 0 || component < 0) {
+         return null;
+      }
+      return new long[] { this.lowerBound(0, this.recordCount, rule, component, MappedIssueIndex.NO_LINE),
+            this.lowerBound(0, this.recordCount, rule, component + 1, MappedIssueIndex.NO_LINE) };
+   }
+
+   /** first record in the range (of one rule and component) with a line greater than or equal to the given line */
+   private long lowerBound(final long first, final long last, final int line) {
+      long low = first;
+      long high = last;
+      while (low < high) {
+         final long middle = (low + high) >>> 1;
+         if (this.getLine(middle) < line) {
+            low = middle + 1;
+         } else {
+            high = middle;
+         }
+      }
+      return low;
+   }
+
+   private long lowerBound(final long first, final long last, final int rule, final int component, final int line) {
+      long low = first;
+      long high = last;
+      while (low < high) {
+         final long middle = (low + high) >>> 1;
+         if (MappedIssueIndex.compare(this.getRuleId(middle), this.getComponentId(middle), this.getLine(middle), rule, component, line) < 0) {
+            low = middle + 1;
+         } else {
+            high = middle;
+         }
+      }
+      return low;
+   }
+
+   private long lowerBoundFingerprint(final int hash) {
+      final long key = (long) hash << 32;
+      long low = 0;
+      long high = this.fingerprintCount;
+      while (low < high) {
+         final long middle = (low + high) >>> 1;
+         if (this.getLong(this.fingerprintsOffset + middle * MappedIssueIndex.FINGERPRINT_SIZE) < key) {
+            low = middle + 1;
+         } else {
+            high = middle;
+         }
+      }
+      return low;
+   }
+
+   private int getRuleId(final long record) {
+      return this.getInt(this.recordsOffset + record * MappedIssueIndex.RECORD_SIZE);
+   }
+
+   private int getComponentId(final long record) {
+      return this.getInt(this.recordsOffset + record * MappedIssueIndex.RECORD_SIZE + 4);
+   }
+
+   private int getLine(final long record) {
+      return this.getInt(this.recordsOffset + record * MappedIssueIndex.RECORD_SIZE + 8);
+   }
+
+   private long getFingerprint(final long record) {
+      return this.getLong(this.recordsOffset + record * MappedIssueIndex.RECORD_SIZE + 24);
+   }
+
+   private int getInt(final long position) {
+      return this.segments[(int) (position >>> MappedIssueIndex.SEGMENT_BITS)].getInt((int) (position & MappedIssueIndex.SEGMENT_MASK));
+   }
+
+   private long getLong(final long position) {
+      return this.segments[(int) (position >>> MappedIssueIndex.SEGMENT_BITS)].getLong((int) (position & MappedIssueIndex.SEGMENT_MASK));
+   }
+
+   private static int compare(final int rule1, final int component1, final int line1, final int rule2, final int component2, final int line2) {
+      if (rule1 != rule2) {
+         return Integer.compare(rule1, rule2);
+      }
+      if (component1 != component2) {
+         return Integer.compare(component1, component2);
+      }
+      return Integer.compare(line1, line2);
+   }
+
+   private static int getLine(final Issue issue) {
+      return issue.getLine() != null ? issue.getLine() : MappedIssueIndex.NO_LINE;
+   }
+
+   /** 64 bit FNV-1a hash of the line hash of an issue, 0 for none */
+   private static long fingerprint(final String hash) {
+      if (hash == null) {
+         return 0;
+      }
+      long fingerprint = 0xcbf29ce484222325L;
+      for (int i = 0; i < hash.length(); i++) {
+         fingerprint ^= hash.charAt(i);
+         fingerprint *= 0x100000001b3L;
+      }
+      return fingerprint != 0 ? fingerprint : 1;
+   }
+
+   private static int hash32(final long fingerprint) {
+      return (int) (fingerprint ^ fingerprint >>> 32);
+   }
+
+   /**
+    * Release a mapped segment immediately instead of when it is garbage collected, which may be never. Files mapped
+    * cannot be replaced or deleted on Windows. There is no public API, i.e. the cleaner of the buffer is invoked: by
+    * Unsafe.invokeCleaner since Java 9, by DirectBuffer.cleaner() before.
+    */
+   private static void unmap(final MappedByteBuffer segment) {
+      try {
+         final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+         Method invokeCleaner;
+         try {
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+         } catch (final NoSuchMethodException e) {
+            invokeCleaner = null;
+         }
+         if (invokeCleaner != null) {
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), segment);
+         } else {
+            final Method cleaner = segment.getClass().getMethod("cleaner");
+            cleaner.setAccessible(true);
+            final Object instance = cleaner.invoke(segment);
+            if (instance != null) {
+               instance.getClass().getMethod("clean").invoke(instance);
+            }
+         }
+      } catch (final ReflectiveOperationException | RuntimeException e) {
+         MappedIssueIndex.LOG.debug("Mapped issue index not released, it is released by the garbage collector: {}", e.getMessage(), e);
+      }
+   }
+
+   private static File getJournalFile(final File file) {
+      return new File(file.getPath() + MappedIssueIndex.JOURNAL_SUFFIX);
+   }
+
+   private static Comment comment(final String markdown) {
+      final Comment comment = new Comment();
+      comment.setMarkdown(markdown);
+      return comment;
+   }
+
+   private static void merge(final Issue issue, final Issue change) {
+      if (change.getKey() != null) {
+         issue.setKey(change.getKey());
+      }
+      if (change.getStatus() != null) {
+         issue.setStatus(change.getStatus());
+      }
+      if (change.getResolution() != null) {
+         issue.setResolution(change.getResolution());
+      }
+      if (change.getComments() != null) {
+         if (issue.getComments() == null) {
+            issue.setComments(new ArrayList<>());
+         }
+         issue.getComments().addAll(change.getComments());
+      }
+   }
+
+   /** JSON of the key, status, resolution, line hash and comments (only the markdown) of an issue */
+   private static byte[] toJson(final Issue issue, final boolean withPosition) throws IOException {
+      final StringWriter writer = new StringWriter();
+      try (JsonGenerator json = MappedIssueIndex.FACTORY.createGenerator(writer)) {
+         json.writeStartObject();
+         json.writeStringField("key", issue.getKey());
+         if (withPosition) {
+            json.writeStringField("rule", issue.getRule());
+            json.writeStringField("component", issue.getParsedComponent());
+            if (issue.getLine() != null) {
+               json.writeNumberField("line", issue.getLine());
+            }
+         }
+         if (issue.getStatus() != null) {
+            json.writeStringField("status", issue.getStatus());
+         }
+         if (issue.getResolution() != null) {
+            json.writeStringField("resolution", issue.getResolution());
+         }
+         if (issue.getHash() != null) {
+            json.writeStringField("hash", issue.getHash());
+         }
+         if (issue.getComments() != null) {
+            json.writeArrayFieldStart("comments");
+            for (final Comment comment : issue.getComments()) {
+               json.writeString(comment.getMarkdown());
+            }
+            json.writeEndArray();
+         }
+         json.writeEndObject();
+      }
+      return writer.toString().getBytes(StandardCharsets.UTF_8);
+   }
+
+   private static Issue fromJson(final JsonNode json) {
+      final Issue issue = new Issue();
+      issue.setKey(json.path("key").asText(null));
+      issue.setRule(json.path("rule").asText(null));
+      issue.setComponent(json.path("component").asText(null));
+      issue.setLine(json.has("line") ? json.get("line").asInt() : null);
+      issue.setStatus(json.path("status").asText(null));
+      issue.setResolution(json.path("resolution").asText(null));
+      issue.setHash(json.path("hash").asText(null));
+      final List<Comment> comments = new ArrayList<>();
+      json.path("comments").forEach(markdown -> comments.add(MappedIssueIndex.comment(markdown.asText(null))));
+      issue.setComments(comments);
+      return issue;
+   }
+
+   private static int[] mapIds(final String[] names, final String[] newNames) {
+      final int[] ids = new int[names.length];
+      for (int i = 0; i < names.length; i++) {
+         ids[i] = Arrays.binarySearch(newNames, names[i]);
+      }
+      return ids;
+   }
+
+   private static void writeStrings(final DataOutputStream out, final String[] strings) throws IOException {
+      out.writeInt(strings.length);
+      for (final String string : strings) {
+         out.writeUTF(string);
+      }
+   }
+
+   private static String[] readStrings(final DataInputStream in) throws IOException {
+      final String[] strings = new String[in.readInt()];
+      for (int i = 0; i < strings.length; i++) {
+         strings[i] = in.readUTF();
+      }
+      return strings;
+   }
+
+}
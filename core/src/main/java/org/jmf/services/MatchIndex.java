@@ -0,0 +1,59 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.util.function.Predicate;
+
+import org.jmf.vo.Issue;
+
+/**
+ * Index of target issues, which source issues are matched with: in memory (see {@link IssueIndex}) or persisted (see
+ * {@link MappedIssueIndex}).
+ */
+public interface MatchIndex {
+
+   /**
+    * Find the issue with the same rule and component and the closest line number. If two issues are equally close
+    * (one above and one below), the one on the lower line wins, independent of the order the issues were fetched in;
+    * issues on the same line keep the order they were fetched in.
+    *
+    * @param issue the issue to match
+    * @param deltaLines the maximum delta of line numbers
+    * @param available filter for issues, which are still available, e.g. not yet matched
+    * @return the matching issue or null, if none is found
+    */
+   Issue findClosest(Issue issue, int deltaLines, Predicate<Issue> available);
+
+   /**
+    * Find the issue with the same rule, component and fingerprint (line hash) and the closest line number, e.g. if the
+    * code was moved by more than the delta of line numbers. Ties are broken as by
+    * {@link #findClosest(Issue, int, Predicate)}.
+    *
+    * @param issue the issue to match
+    * @param available filter for issues, which are still available, e.g. not yet matched
+    * @return the matching issue or null, if the issue has no fingerprint or none is found
+    */
+   Issue findByFingerprint(Issue issue, Predicate<Issue> available);
+
+   /**
+    * Count the issues with the same rule and component within the delta of line numbers, i.e. the candidates scanned
+    * by {@link #findClosest(Issue, int, Predicate)}.
+    *
+    * @param issue the issue to match
+    * @param deltaLines the maximum delta of line numbers
+    * @return the number of candidates
+    */
+   int countCandidates(Issue issue, int deltaLines);
+
+}
@@ -0,0 +1,438 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.jmf.vo.Facet;
+import org.jmf.vo.FacetValue;
+import org.jmf.vo.Issue;
+import org.jmf.vo.IssuesResponse;
+import org.jmf.vo.MigrationEstimate;
+import org.jmf.vo.MigrationJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Estimates the cost of an issue migration without running it.
+ * <p>
+ * The issues per rule are counted on the source and the target with searches returning a single issue and the rules
+ * facet. The issues of a few sample rules are fetched and matched like in the migration (without writing anything),
+ * which gives the match rate, the writes per issue, the bytes per issue and the latency of a page. From these the
+ * requests, bytes and wall time of the migration are extrapolated. Writes are assumed to take as long as a search
+ * returning a single issue (measured with a few of these searches), as they cannot be measured without changing the
+ * target.
+ * <p>
+ * An instance estimates one migration.
+ */
+public class MigrationEstimator {
+
+   /** page size of the issue searches of a migration (the default of the server) */
+   private static final int PAGE_SIZE = 100;
+
+   /** maximum number of results of an issue search */
+   private static final int MAX_RESULTS = 10000;
+
+   /** number of rules whose issues are fetched and matched */
+   private static final int SAMPLE_RULES = 5;
+
+   /** maximum number of target issues of a sample rule, if there are rules with less issues */
+   private static final int MAX_SAMPLE_TARGET_ISSUES = 5 * MigrationEstimator.PAGE_SIZE;
+
+   /** number of searches for a single issue measuring the round trip time of the target */
+   private static final int PROBES = 5;
+
+   /** number of rules per search when counting the target issues */
+   private static final int RULES_PER_SEARCH = 50;
+
+   private static final Logger LOG = LoggerFactory.getLogger(MigrationEstimator.class);
+
+   private final SonarClientService source;
+
+   private final SonarClientService target;
+
+   private int requests;
+
+   /** latencies of the counting searches in nanoseconds */
+   private final List<Long> countLatencies = new ArrayList<>();
+
+   /** latencies of the source pages in nanoseconds */
+   private final List<Long> sourceLatencies = new ArrayList<>();
+
+   /** latencies of the target pages in nanoseconds (per page of a rule) */
+   private final List<Long> targetLatencies = new ArrayList<>();
+
+   /**
+    * Constructor.
+    *
+    * @param source the service for the source server
+    * @param target the service for the target server
+    */
+   public MigrationEstimator(final SonarClientService source, final SonarClientService target) {
+      this.source = source;
+      this.target = target;
+   }
+
+   /**
+    * Estimate an issue migration. As the bytes received are taken from the {@link RunMetrics}, migrations must not be
+    * estimated concurrently.
+    *
+    * @param job the completed job (see {@link MigrationService#complete(MigrationJob)})
+    * @return the estimate
+    * @throws IllegalStateException if the issues cannot be counted
+    */
+   public MigrationEstimate estimate(final MigrationJob job) {
+      final MigrationEstimate estimate = new MigrationEstimate();
+      estimate.setSourceUrl(job.getSourceUrl());
+      estimate.setSourceComponent(job.getSourceComponent());
+      estimate.setTargetUrl(job.getTargetUrl());
+      estimate.setTargetComponent(job.getTargetComponent());
+      final List<String> notes = new ArrayList<>();
+
+      // count the source issues per rule, like the migration with one search per status
+      final Map<String, List<String>> queries = MigrationEstimator.getSourceQueries(job);
+      final Map<String, Integer> sourceCounts = new HashMap<>();
+      int sourceIssues = 0;
+      long sourceRequests = 0;
+      int unlisted = 0;
+      for (final Map.Entry<String, List<String>> query : queries.entrySet()) {
+         final IssuesResponse response = this.search(this.source, job.getSourceComponent(), Collections.emptyList(), query.getKey(), query.getValue(), 1, true);
+         if (response == null) {
+            throw new IllegalStateException("Issues of source " + job.getSourceComponent() + " cannot be counted");
+         }
+         final int total = response.getPaging().getTotal();
+         if (total > MigrationEstimator.MAX_RESULTS) {
+            notes.add("only the first " + MigrationEstimator.MAX_RESULTS + " of " + total + " " + query.getKey() + " issues can be fetched");
+         }
+         final int fetched = Math.min(total, MigrationEstimator.MAX_RESULTS);
+         sourceIssues += fetched;
+         sourceRequests += Math.max(1, MigrationEstimator.pages(fetched));
+         unlisted += total - MigrationEstimator.addCounts(response, sourceCounts);
+      }
+      int unlistedRules = 0;
+      if (unlisted > 0 && !sourceCounts.isEmpty()) {
+         // the facet lists only the rules with the most issues, the other rules have at most as many issues
+         unlistedRules = (unlisted + Collections.min(sourceCounts.values()) - 1) / Collections.min(sourceCounts.values());
+         notes.add("about " + unlistedRules + " rules not listed by the server");
+      }
+
+      // count the target issues of these rules
+      final List<String> rules = new ArrayList<>(sourceCounts.keySet());
+      Collections.sort(rules);
+      final Map<String, Integer> targetCounts = new HashMap<>();
+      for (int i = 0; i < rules.size(); i += MigrationEstimator.RULES_PER_SEARCH) {
+         final IssuesResponse response = this.search(this.target, job.getTargetComponent(),
+               rules.subList(i, Math.min(i + MigrationEstimator.RULES_PER_SEARCH, rules.size())), null, Collections.emptyList(), 1, true);
+         if (response == null) {
+            throw new IllegalStateException("Issues of target " + job.getTargetComponent() + " cannot be counted");
+         }
+         MigrationEstimator.addCounts(response, targetCounts);
+      }
+      int targetIssues = 0;
+      long targetRequests = unlistedRules;
+      for (final String rule : rules) {
+         final int count = targetCounts.getOrDefault(rule, 0);
+         targetIssues += count;
+         targetRequests += Math.max(1, MigrationEstimator.pages(count));
+      }
+
+      // fetch and match the issues of a few rules
+      final long bytesBefore = RunMetrics.get().getBytesIn(SonarClientService.API_SEARCH_ISSUES);
+      int sampledIssues = 0;
+      int receivedIssues = 0;
+      double weightedMatches = 0;
+      double weightedWrites = 0;
+      long weight = 0;
+      for (final String rule : MigrationEstimator.sampleRules(sourceCounts, targetCounts)) {
+         final List<Issue> sourceSample = new ArrayList<>();
+         for (final Map.Entry<String, List<String>> query : queries.entrySet()) {
+            final IssuesResponse response = this.search(this.source, job.getSourceComponent(), Collections.singletonList(rule), query.getKey(), query.getValue(),
+                  MigrationEstimator.PAGE_SIZE, false);
+            if (response != null) {
+               sourceSample.addAll(response.getIssues());
+            }
+         }
+         final List<Issue> targetSample = this.fetchTarget(job.getTargetComponent(), rule);
+         receivedIssues += sourceSample.size() + targetSample.size();
+         if (sourceSample.isEmpty()) {
+            continue;
+         }
+
+         final IssueMatcher matcher = new IssueMatcher(job.getDeltaLines());
+         final IssueIndex targetIndex = IssueIndex.of(targetSample);
+         int matches = 0;
+         int writes = 0;
+         for (final Issue sourceIssue : sourceSample) {
+            final Issue targetIssue = matcher.match(targetIndex, sourceIssue);
+            if (targetIssue != null) {
+               matches++;
+               if (SonarClientService.getTransition(sourceIssue, targetIssue, job.getMigrateConfirmed(), job.getMigrateFalsePositive(),
+                     job.getMigrateWontFix()) != null) {
+                  writes++;
+               }
+               writes += SonarClientService.getMissingComments(sourceIssue, targetIssue).size();
+            }
+         }
+         // the rates of a rule count as much as the issues of the rule
+         final int ruleIssues = sourceCounts.get(rule);
+         weightedMatches += (double) ruleIssues * matches / sourceSample.size();
+         weightedWrites += (double) ruleIssues * writes / sourceSample.size();
+         weight += ruleIssues;
+         sampledIssues += sourceSample.size();
+      }
+      final long sampleBytes = RunMetrics.get().getBytesIn(SonarClientService.API_SEARCH_ISSUES) - bytesBefore;
+
+      // measure the round trip time of the target with minimal responses (after the sample, when the connections are open)
+      final List<Long> probeLatencies = new ArrayList<>();
+      for (int i = 0; i < MigrationEstimator.PROBES && !rules.isEmpty(); i++) {
+         final long start = System.nanoTime();
+         if (this.target.searchIssues(job.getTargetComponent(), rules.subList(0, 1), null, Collections.emptyList(), 1, false) != null) {
+            probeLatencies.add(System.nanoTime() - start);
+         }
+         this.requests++;
+      }
+
+      final double bytesPerIssue = receivedIssues > 0 ? (double) sampleBytes / receivedIssues : 0;
+      final double matchRate = weight > 0 ? weightedMatches / weight : 0;
+      final double writesPerIssue = weight > 0 ? weightedWrites / weight : 0;
+      final long writeRequests = job.getDryRun() ? 0 : Math.round(sourceIssues * writesPerIssue);
+      if (job.getDryRun()) {
+         notes.add("dry run without writes");
+      }
+
+      // the requests of one migration are sent one after the other - the median latencies are used, as the first
+      // requests are slowed down by opening the connections (without sample pages those of the counting searches)
+      final double countSeconds = MigrationEstimator.median(this.countLatencies);
+      final double sourcePageSeconds = this.sourceLatencies.isEmpty() ? countSeconds : MigrationEstimator.median(this.sourceLatencies);
+      final double targetPageSeconds = this.targetLatencies.isEmpty() ? countSeconds : MigrationEstimator.median(this.targetLatencies);
+      final double writeSeconds = probeLatencies.isEmpty() ? targetPageSeconds : MigrationEstimator.median(probeLatencies);
+      final RequestThrottle sourceThrottle = RequestThrottle.forServer(job.getSourceUrl());
+      final RequestThrottle targetThrottle = RequestThrottle.forServer(job.getTargetUrl());
+      final double sourceSeconds = MigrationEstimator.seconds(sourceRequests, sourcePageSeconds, sourceThrottle.getReadRate());
+      final double targetSeconds = MigrationEstimator.seconds(targetRequests, targetPageSeconds, targetThrottle.getReadRate())
+            + MigrationEstimator.seconds(writeRequests, writeSeconds, targetThrottle.getWriteRate());
+
+      estimate.setSourceIssues(sourceIssues);
+      estimate.setTargetIssues(targetIssues);
+      estimate.setRules(rules.size() + unlistedRules);
+      estimate.setSampledIssues(sampledIssues);
+      estimate.setMatchRate(matchRate);
+      estimate.setWritesPerIssue(writesPerIssue);
+      estimate.setSourceRequests(sourceRequests);
+      estimate.setTargetRequests(targetRequests);
+      estimate.setWriteRequests(writeRequests);
+      estimate.setSourceBytes(Math.round(sourceIssues * bytesPerIssue));
+      estimate.setTargetBytes(Math.round(targetIssues * bytesPerIssue));
+      estimate.setSourceSeconds(sourceSeconds);
+      estimate.setTargetSeconds(targetSeconds);
+      estimate.setEstimatedSeconds(sourceSeconds + targetSeconds);
+      estimate.setEstimationRequests(this.requests);
+      estimate.setNote(notes.isEmpty() ? null : String.join(", ", notes));
+      MigrationEstimator.LOG.debug("Estimated migration of {} to {} with {} requests, latencies: {} s per source page, {} s per target page, {} s per write",
+            job.getSourceComponent(), job.getTargetComponent(), this.requests, sourcePageSeconds, targetPageSeconds, writeSeconds);
+      return estimate;
+   }
+
+   /**
+    * Combine the estimates of migrations run in parallel.
+    *
+    * @param estimates the estimates
+    * @param workers the maximum number of migrations running at the same time
+    * @param sharedSource if the migrations share the source, which is fetched only once (fan-out)
+    * @return the combined estimate
+    */
+   public static MigrationEstimate total(final List<MigrationEstimate> estimates, final int workers, final boolean sharedSource) {
+      final MigrationEstimate total = new MigrationEstimate();
+      final Set<String> sourceComponents = new LinkedHashSet<>();
+      final Set<String> targetComponents = new LinkedHashSet<>();
+      final Map<String, long[]> requestsByServer = new LinkedHashMap<>();
+      double weightedMatches = 0;
+      double weightedWrites = 0;
+      double sumSeconds = 0;
+      double maxSeconds = 0;
+      int errors = 0;
+      boolean first = true;
+      for (final MigrationEstimate estimate : estimates) {
+         if (estimate.getError() != null) {
+            errors++;
+            continue;
+         }
+         sourceComponents.add(estimate.getSourceComponent());
+         targetComponents.add(estimate.getTargetComponent());
+         final boolean withSource = first || !sharedSource;
+         if (withSource) {
+            total.setSourceIssues(total.getSourceIssues() + estimate.getSourceIssues());
+            total.setSourceRequests(total.getSourceRequests() + estimate.getSourceRequests());
+            total.setSourceBytes(total.getSourceBytes() + estimate.getSourceBytes());
+         }
+         if (!sharedSource) {
+            // a shared source is fetched before the migrations, its time is added below
+            requestsByServer.computeIfAbsent(estimate.getSourceUrl(), url -> new long[2])[0] += estimate.getSourceRequests();
+         }
+         total.setTargetIssues(total.getTargetIssues() + estimate.getTargetIssues());
+         total.setRules(Math.max(total.getRules(), estimate.getRules()));
+         total.setSampledIssues(total.getSampledIssues() + estimate.getSampledIssues());
+         total.setTargetRequests(total.getTargetRequests() + estimate.getTargetRequests());
+         total.setWriteRequests(total.getWriteRequests() + estimate.getWriteRequests());
+         total.setTargetBytes(total.getTargetBytes() + estimate.getTargetBytes());
+         total.setEstimationRequests(total.getEstimationRequests() + estimate.getEstimationRequests());
+         final long[] targetServer = requestsByServer.computeIfAbsent(estimate.getTargetUrl(), url -> new long[2]);
+         targetServer[0] += estimate.getTargetRequests();
+         targetServer[1] += estimate.getWriteRequests();
+         weightedMatches += estimate.getMatchRate() * estimate.getSourceIssues();
+         weightedWrites += estimate.getWritesPerIssue() * estimate.getSourceIssues();
+         total.setSourceSeconds(sharedSource ? Math.max(total.getSourceSeconds(), estimate.getSourceSeconds()) : total.getSourceSeconds() + estimate.getSourceSeconds());
+         total.setTargetSeconds(total.getTargetSeconds() + estimate.getTargetSeconds());
+         final double seconds = sharedSource ? estimate.getTargetSeconds() : estimate.getEstimatedSeconds();
+         sumSeconds += seconds;
+         maxSeconds = Math.max(maxSeconds, seconds);
+         first = false;
+      }
+      final long issues = estimates.stream().filter(e -> e.getError() == null).mapToLong(MigrationEstimate::getSourceIssues).sum();
+      total.setMatchRate(issues > 0 ? weightedMatches / issues : 0);
+      total.setWritesPerIssue(issues > 0 ? weightedWrites / issues : 0);
+
+      // the migrations run in parallel, but all migrations share the rate limits of a server
+      double seconds = Math.max(sumSeconds / Math.max(1, workers), maxSeconds);
+      for (final Map.Entry<String, long[]> server : requestsByServer.entrySet()) {
+         final RequestThrottle throttle = RequestThrottle.forServer(server.getKey());
+         seconds = Math.max(seconds, MigrationEstimator.seconds(server.getValue()[0], 0, throttle.getReadRate()));
+         seconds = Math.max(seconds, MigrationEstimator.seconds(server.getValue()[1], 0, throttle.getWriteRate()));
+      }
+      total.setEstimatedSeconds((sharedSource ? total.getSourceSeconds() : 0) + seconds);
+      total.setSourceComponent(String.join(", ", sourceComponents));
+      total.setTargetComponent(String.join(", ", targetComponents));
+      total.setNote(errors > 0 ? errors + " migrations could not be estimated" : null);
+      return total;
+   }
+
+   private static Map<String, List<String>> getSourceQueries(final MigrationJob job) {
+      final Map<String, List<String>> queries = new LinkedHashMap<>();
+      if (job.getMigrateConfirmed()) {
+         queries.put(SonarClientService.STATUS_CONFIRMED, Collections.emptyList());
+      }
+      final List<String> resolutions = new ArrayList<>();
+      if (job.getMigrateFalsePositive()) {
+         resolutions.add(SonarClientService.RESOLUTION_FALSE_POSITIVE);
+      }
+      if (job.getMigrateWontFix()) {
+         resolutions.add(SonarClientService.RESOLUTION_WONT_FIX);
+      }
+      if (!resolutions.isEmpty()) {
+         queries.put(SonarClientService.STATUS_RESOLVED, resolutions);
+      }
+      return queries;
+   }
+
+   /**
+    * Choose the sample rules: rules spread over the range from many to few source issues, preferring rules with few
+    * target issues, so that fetching the sample is cheap.
+    */
+   private static List<String> sampleRules(final Map<String, Integer> sourceCounts, final Map<String, Integer> targetCounts) {
+      final Comparator<String> byIssues = Comparator.comparing((final String rule) -> sourceCounts.get(rule)).reversed().thenComparing(rule -> rule);
+      List<String> candidates = new ArrayList<>();
+      for (final String rule : sourceCounts.keySet()) {
+         if (targetCounts.getOrDefault(rule, 0) <= MigrationEstimator.MAX_SAMPLE_TARGET_ISSUES) {
+            candidates.add(rule);
+         }
+      }
+      if (candidates.isEmpty()) {
+         candidates = new ArrayList<>(sourceCounts.keySet());
+      }
+      candidates.sort(byIssues);
+      if (candidates.size() <= MigrationEstimator.SAMPLE_RULES) {
+         return candidates;
+      }
+      final List<String> sample = new ArrayList<>();
+      for (int i = 0; i < MigrationEstimator.SAMPLE_RULES; i++) {
+         sample.add(candidates.get(i * (candidates.size() - 1) / (MigrationEstimator.SAMPLE_RULES - 1)));
+      }
+      return sample;
+   }
+
+   private IssuesResponse search(final SonarClientService service, final String componentKey, final List<String> rules, final String status,
+         final List<String> resolutions, final int pageSize, final boolean countRules) {
+      final long start = System.nanoTime();
+      final IssuesResponse response = service.searchIssues(componentKey, rules, status, resolutions, pageSize, countRules);
+      this.requests++;
+      if (response == null) {
+         return null;
+      } else if (countRules) {
+         this.countLatencies.add(System.nanoTime() - start);
+      } else {
+         // only the full pages of the source sample count for the latency of a source page
+         this.sourceLatencies.add(System.nanoTime() - start);
+      }
+      return response;
+   }
+
+   private List<Issue> fetchTarget(final String componentKey, final String rule) {
+      final List<Issue> issues = new ArrayList<>();
+      final long start = System.nanoTime();
+      final boolean complete = this.target.fetchIssuesForRule(componentKey, rule, issues);
+      final int pages = Math.max(1, MigrationEstimator.pages(issues.size()));
+      this.requests += pages;
+      if (complete) {
+         this.targetLatencies.add((System.nanoTime() - start) / pages);
+      }
+      return issues;
+   }
+
+   /** add the counts of the rules facet, returns the sum of the counts */
+   private static int addCounts(final IssuesResponse response, final Map<String, Integer> counts) {
+      int sum = 0;
+      if (response.getFacets() != null) {
+         for (final Facet facet : response.getFacets()) {
+            if ("rules".equals(facet.getProperty()) && facet.getValues() != null) {
+               for (final FacetValue value : facet.getValues()) {
+                  if (value.getCount() > 0) {
+                     counts.merge(value.getVal(), value.getCount(), Integer::sum);
+                     sum += value.getCount();
+                  }
+               }
+            }
+         }
+      }
+      return sum;
+   }
+
+   private static int pages(final int issues) {
+      return (issues + MigrationEstimator.PAGE_SIZE - 1) / MigrationEstimator.PAGE_SIZE;
+   }
+
+   /** the median of latencies in seconds */
+   private static double median(final List<Long> latencies) {
+      if (latencies.isEmpty()) {
+         return 0;
+      }
+      final List<Long> sorted = new ArrayList<>(latencies);
+      Collections.sort(sorted);
+      return (double) sorted.get(sorted.size() / 2) / TimeUnit.SECONDS.toNanos(1);
+   }
+
+   /** the time for sequential requests, which are limited by the latency or the rate */
+   private static double seconds(final long requests, final double latencySeconds, final double rate) {
+      return Math.max(requests * latencySeconds, rate > 0 ? requests / rate : 0);
+   }
+
+}
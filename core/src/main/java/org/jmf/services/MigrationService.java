@@ -0,0 +1,469 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jmf.vo.Issue;
+import org.jmf.vo.MigrationEstimate;
+import org.jmf.vo.MigrationJob;
+import org.jmf.vo.MigrationResult;
+import org.jmf.vo.QualityProfile;
+import org.jmf.vo.Setting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Service running migrations from a source to a target project.
+ */
+public class MigrationService {
+
+   /**
+    * Factory for the services accessing a SonarQube server.
+    */
+   @FunctionalInterface
+   public interface ClientFactory {
+
+      /**
+       * Create a service.
+       *
+       * @param baseUrl the base URL, e.g. http://localhost:9000
+       * @param login the user name or token
+       * @param password the password or empty for a token
+       * @param readonly do not actually do any changes
+       * @return the service
+       */
+      SonarClientService create(String baseUrl, String login, String password, boolean readonly);
+   }
+
+   private static final Logger LOG = LoggerFactory.getLogger(MigrationService.class);
+
+   /** format of dates in the web service API, e.g. 2020-04-29T14:21:07+0200 */
+   private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+
+   private static final Comparator<Issue> MOST_RECENT_FIRST = Comparator.comparing(MigrationService::getUpdateDate).reversed();
+
+   private final ClientFactory clientFactory;
+
+   private SettingsFingerprintStore fingerprintStore;
+
+   private long deadline;
+
+   private ContentStore contentStore;
+
+   /**
+    * Constructor.
+    */
+   public MigrationService() {
+      this(SonarClientService::new);
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param clientFactory the factory for the services accessing the SonarQube servers
+    */
+   public MigrationService(final ClientFactory clientFactory) {
+      this.clientFactory = clientFactory;
+   }
+
+   /**
+    * Set the store for the fingerprints of the project settings. If set, projects whose source and target settings are
+    * unchanged since the last successful migration are skipped.
+    *
+    * @param fingerprintStore the store or null
+    */
+   public void setFingerprintStore(final SettingsFingerprintStore fingerprintStore) {
+      this.fingerprintStore = fingerprintStore;
+   }
+
+   /**
+    * Set the deadline of the migrations: migrations not started yet, when it is reached, are not started anymore (the
+    * running migrations stop, if the deadline is set for their services, too).
+    *
+    * @param deadline the deadline in milliseconds since the epoch or 0 for no deadline
+    */
+   public void setDeadline(final long deadline) {
+      this.deadline = deadline;
+   }
+
+   /**
+    * Set the store of the file contents for mapping the lines of unmatched issues by a diff of the source and target
+    * files (see {@link LineMapper}).
+    *
+    * @param contentStore the store or null to match by the delta of line numbers only
+    */
+   public void setContentStore(final ContentStore contentStore) {
+      this.contentStore = contentStore;
+   }
+
+   /**
+    * Complete a job: use the source URL, component, login and password for the target, if not set, and enable all issue
+    * migration options, if none is given.
+    *
+    * @param job the job
+    * @return the completed job
+    * @throws IllegalArgumentException if the job is invalid
+    */
+   public MigrationJob complete(final MigrationJob job) {
+      final MigrationJob defaults = new MigrationJob();
+      defaults.setTargetUrl(job.getSourceUrl());
+      defaults.setTargetComponent(job.getSourceComponent());
+      defaults.setTargetLogin(job.getSourceLogin());
+      defaults.setTargetPassword(job.getSourcePassword());
+      defaults.setDeltaLines(0);
+      defaults.setMigrateProject(false);
+      defaults.setDryRun(false);
+      final MigrationJob completed = job.withDefaults(defaults);
+
+      if (StringUtils.isBlank(completed.getSourceUrl()) || StringUtils.isBlank(completed.getSourceComponent())) {
+         throw new IllegalArgumentException("Missing source SonarQube URL or source component key");
+      } else if (completed.getSourceUrl().equals(completed.getTargetUrl()) && completed.getSourceComponent().equals(completed.getTargetComponent())) {
+         throw new IllegalArgumentException("Invalid target. It must be different than the source.");
+      }
+
+      if (!completed.getMigrateProject()) {
+         final boolean migrateConfirmed = Boolean.TRUE.equals(completed.getMigrateConfirmed());
+         final boolean migrateFalsePositive = Boolean.TRUE.equals(completed.getMigrateFalsePositive());
+         final boolean migrateWontFix = Boolean.TRUE.equals(completed.getMigrateWontFix());
+         final boolean migrateComments = Boolean.TRUE.equals(completed.getMigrateComments());
+         if (!migrateConfirmed && !migrateFalsePositive && !migrateWontFix && !migrateComments) {
+            MigrationService.LOG.info("No migration options given. Enabling all options.");
+            completed.setMigrateConfirmed(true);
+            completed.setMigrateFalsePositive(true);
+            completed.setMigrateWontFix(true);
+            completed.setMigrateComments(true);
+         } else if (!migrateConfirmed && !migrateFalsePositive && !migrateWontFix) {
+            throw new IllegalArgumentException("Invalid migration options: one of confirmed, false-positives or wont-fix must be given.");
+         } else {
+            completed.setMigrateConfirmed(migrateConfirmed);
+            completed.setMigrateFalsePositive(migrateFalsePositive);
+            completed.setMigrateWontFix(migrateWontFix);
+            completed.setMigrateComments(migrateComments);
+         }
+      }
+      return completed;
+   }
+
+   /**
+    * Run a migration.
+    *
+    * @param job the job (see {@link #complete(MigrationJob)})
+    * @return the result
+    */
+   public MigrationResult run(final MigrationJob job) {
+      return this.timed(job, () -> {
+         final MigrationJob completed = this.complete(job);
+         return completed.getMigrateProject() ? this.migrateProject(completed) : this.migrateIssues(completed);
+      });
+   }
+
+   /**
+    * Run several migrations in parallel.
+    *
+    * @param jobs the jobs
+    * @param workers the maximum number of migrations running at the same time
+    * @return the results in the order of the jobs
+    */
+   public List<MigrationResult> runAll(final List<MigrationJob> jobs, final int workers) {
+      return this.runParallel(jobs, workers, this::run);
+   }
+
+   /**
+    * Migrate one source to several targets. The source is fetched only once and shared by the migrations to the targets,
+    * which run in parallel.
+    *
+    * @param job the job with the source and options (the target component is ignored)
+    * @param targetComponents the keys of the target components
+    * @param workers the maximum number of targets migrated at the same time
+    * @return the results in the order of the targets
+    */
+   public List<MigrationResult> runFanOut(final MigrationJob job, final List<String> targetComponents, final int workers) {
+      final List<MigrationJob> targetJobs = new ArrayList<>();
+      for (final String targetComponent : targetComponents) {
+         final MigrationJob targetJob = new MigrationJob();
+         targetJob.setTargetComponent(targetComponent);
+         targetJobs.add(this.complete(targetJob.withDefaults(job)));
+      }
+      final MigrationJob completed = targetJobs.get(0);
+      final SonarClientService source = this.clientFactory.create(completed.getSourceUrl(), completed.getSourceLogin(), completed.getSourcePassword(), true);
+
+      if (completed.getMigrateProject()) {
+         final List<Setting> sourceSettings = source.getSettings(completed.getSourceComponent());
+         final List<QualityProfile> sourceProfiles = source.getQualityProfiles(completed.getSourceComponent());
+         if (sourceSettings == null || sourceProfiles == null) {
+            throw new IllegalStateException("Settings of source project " + completed.getSourceComponent() + " not found");
+         }
+         return this.runParallel(targetJobs, workers, targetJob -> this.timed(targetJob, () -> this.migrateSettings(targetJob, sourceSettings, sourceProfiles)));
+      }
+
+      final IssueIndex sourceIndex = IssueIndex.of(this.getSourceIssues(source, completed));
+      MigrationService.LOG.info("Migrating {} issues of {} to {} targets...", sourceIndex.size(), completed.getSourceComponent(), targetJobs.size());
+      return this.runParallel(targetJobs, workers, targetJob -> this.timed(targetJob, () -> {
+         final SonarClientService target = this.createTarget(source, targetJob);
+         MigrationService.awaitAnalysis(target, targetJob);
+         return target.updateIssues(targetJob.getTargetComponent(), sourceIndex, targetJob.getDeltaLines(),
+               targetJob.getMigrateConfirmed(), targetJob.getMigrateFalsePositive(), targetJob.getMigrateWontFix(), targetJob.getMigrateComments());
+      }));
+   }
+
+   /**
+    * Migrate several sources to one target. The sources are fetched in parallel and merged, the target is read only
+    * once. If several source issues match the same target issue, the most recently changed source issue wins.
+    *
+    * @param job the job with the target and options (the source component is ignored)
+    * @param sourceComponents the keys of the source components
+    * @param workers the maximum number of sources fetched at the same time
+    * @return the result
+    */
+   public MigrationResult runConsolidation(final MigrationJob job, final List<String> sourceComponents, final int workers) {
+      final MigrationJob consolidationJob = job.withDefaults(new MigrationJob());
+      consolidationJob.setSourceComponent(String.join(", ", sourceComponents));
+      return this.timed(consolidationJob, () -> {
+         final List<MigrationJob> sourceJobs = new ArrayList<>();
+         for (final String sourceComponent : sourceComponents) {
+            final MigrationJob sourceJob = new MigrationJob();
+            sourceJob.setSourceComponent(sourceComponent);
+            sourceJobs.add(this.complete(sourceJob.withDefaults(job)));
+         }
+         final MigrationJob completed = sourceJobs.get(0);
+         if (completed.getMigrateProject()) {
+            throw new IllegalArgumentException("Project settings cannot be migrated from several sources");
+         }
+
+         final SonarClientService source = this.clientFactory.create(completed.getSourceUrl(), completed.getSourceLogin(), completed.getSourcePassword(), true);
+         final List<Issue> sourceIssues = new ArrayList<>();
+         for (final List<Issue> issues : this.runParallel(sourceJobs, workers, sourceJob -> this.getSourceIssues(source, sourceJob))) {
+            sourceIssues.addAll(issues);
+         }
+         // stable sort: the order of the sources decides between issues changed at the same time
+         sourceIssues.sort(MigrationService.MOST_RECENT_FIRST);
+
+         MigrationService.LOG.info("Migrating {} issues of {} sources to {}...", sourceIssues.size(), sourceJobs.size(), completed.getTargetComponent());
+         final SonarClientService target = this.createTarget(source, completed);
+         MigrationService.awaitAnalysis(target, completed);
+         return target.updateIssues(completed.getTargetComponent(), sourceIssues, completed.getDeltaLines(),
+               completed.getMigrateConfirmed(), completed.getMigrateFalsePositive(), completed.getMigrateWontFix(), completed.getMigrateComments());
+      });
+   }
+
+   /**
+    * Estimate the cost of migrations without running them. The estimates are done one after the other, so that the
+    * measured bytes and latencies are not distorted.
+    *
+    * @param jobs the jobs
+    * @return the estimates in the order of the jobs
+    * @see MigrationEstimator
+    */
+   public List<MigrationEstimate> estimateAll(final List<MigrationJob> jobs) {
+      final List<MigrationEstimate> estimates = new ArrayList<>();
+      for (final MigrationJob job : jobs) {
+         estimates.add(this.estimate(job));
+      }
+      return estimates;
+   }
+
+   /**
+    * Estimate the cost of a migration without running it.
+    *
+    * @param job the job (see {@link #complete(MigrationJob)})
+    * @return the estimate
+    * @see MigrationEstimator
+    */
+   public MigrationEstimate estimate(final MigrationJob job) {
+      try {
+         final MigrationJob completed = this.complete(job);
+         if (completed.getMigrateProject()) {
+            throw new IllegalArgumentException("Migrations of project settings cannot be estimated");
+         }
+         final SonarClientService source = this.clientFactory.create(completed.getSourceUrl(), completed.getSourceLogin(), completed.getSourcePassword(), true);
+         return new MigrationEstimator(source, this.createTarget(completed)).estimate(completed);
+      } catch (final Exception e) {
+         MigrationService.LOG.error("Error estimating migration of {} to {}: {}", job.getSourceComponent(), job.getTargetComponent(), e.getMessage(), e);
+         final MigrationEstimate estimate = new MigrationEstimate();
+         estimate.setSourceComponent(job.getSourceComponent());
+         estimate.setTargetComponent(job.getTargetComponent() != null ? job.getTargetComponent() : job.getSourceComponent());
+         estimate.setError(e.getMessage());
+         return estimate;
+      }
+   }
+
+   private static Instant getUpdateDate(final Issue issue) {
+      try {
+         return issue.getUpdateDate() != null ? MigrationService.DATE_FORMAT.parse(issue.getUpdateDate(), Instant::from) : Instant.MIN;
+      } catch (final DateTimeParseException e) {
+         return Instant.MIN;
+      }
+   }
+
+   private MigrationResult timed(final MigrationJob job, final Supplier<MigrationResult> migration) {
+      final long start = System.currentTimeMillis();
+      MigrationResult result;
+      try {
+         if (this.deadline > 0 && start >= this.deadline) {
+            throw new IllegalStateException("Deadline reached before the migration started");
+         }
+         result = migration.get();
+      } catch (final Exception e) {
+         MigrationService.LOG.error("Error migrating {} to {}: {}", job.getSourceComponent(), job.getTargetComponent(), e.getMessage(), e);
+         result = new MigrationResult();
+         result.setError(e.getMessage());
+      }
+      result.setSourceComponent(job.getSourceComponent());
+      result.setTargetComponent(job.getTargetComponent() != null ? job.getTargetComponent() : job.getSourceComponent());
+      result.setDurationMillis(System.currentTimeMillis() - start);
+      return result;
+   }
+
+   private <T> List<T> runParallel(final List<MigrationJob> jobs, final int workers, final Function<MigrationJob, T> migration) {
+      final AtomicInteger threadCount = new AtomicInteger();
+      final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+         final Thread thread = new Thread(runnable, "migration-" + threadCount.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      });
+      try {
+         final List<Future<T>> futures = new ArrayList<>();
+         for (final MigrationJob job : jobs) {
+            futures.add(executor.submit(() -> migration.apply(job)));
+         }
+         final List<T> results = new ArrayList<>();
+         for (final Future<T> future : futures) {
+            results.add(future.get());
+         }
+         return results;
+      } catch (final ExecutionException e) {
+         throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+      } catch (final InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException("Interrupted waiting for migrations", e);
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   private SonarClientService createTarget(final MigrationJob job) {
+      return this.clientFactory.create(job.getTargetUrl(), job.getTargetLogin(), job.getTargetPassword(), job.getDryRun());
+   }
+
+   /** create the service of the target of an issue migration */
+   private SonarClientService createTarget(final SonarClientService source, final MigrationJob job) {
+      final SonarClientService target = this.createTarget(job);
+      if (this.contentStore != null) {
+         target.setLineMapper(new LineMapper(source, target, this.contentStore));
+      }
+      return target;
+   }
+
+   private MigrationResult migrateProject(final MigrationJob job) {
+      final SonarClientService source = this.clientFactory.create(job.getSourceUrl(), job.getSourceLogin(), job.getSourcePassword(), true);
+      final List<Setting> sourceSettings = source.getSettings(job.getSourceComponent());
+      final List<QualityProfile> sourceProfiles = source.getQualityProfiles(job.getSourceComponent());
+      if (sourceSettings == null || sourceProfiles == null) {
+         throw new IllegalStateException("Settings of source project " + job.getSourceComponent() + " not found");
+      }
+
+      return this.migrateSettings(job, sourceSettings, sourceProfiles);
+   }
+
+   private MigrationResult migrateSettings(final MigrationJob job, final List<Setting> sourceSettings, final List<QualityProfile> sourceProfiles) {
+      final SonarClientService target = this.createTarget(job);
+      if (this.fingerprintStore == null) {
+         return target.updateSettings(job.getTargetComponent(), sourceSettings, sourceProfiles);
+      }
+
+      final String id = SettingsFingerprintStore.getId(job.getSourceUrl(), job.getSourceComponent(), job.getTargetUrl(), job.getTargetComponent());
+      final String sourceFingerprint = SettingsFingerprintStore.fingerprint(sourceSettings, sourceProfiles);
+      final List<Setting> targetSettings = target.getSettings(job.getTargetComponent());
+      // the quality profiles of the target are part of its fingerprint, so that a manual change is detected
+      final List<QualityProfile> targetProfiles = targetSettings != null ? target.getQualityProfiles(job.getTargetComponent()) : null;
+      if (targetSettings != null && targetProfiles != null
+            && this.fingerprintStore.isUnchanged(id, sourceFingerprint, SettingsFingerprintStore.fingerprint(targetSettings, targetProfiles))) {
+         MigrationService.LOG.info("Settings of {} and {} unchanged since last migration", job.getSourceComponent(), job.getTargetComponent());
+         final MigrationResult result = new MigrationResult();
+         result.setProcessed(sourceSettings.size());
+         return result;
+      }
+
+      final MigrationResult result = target.updateSettings(job.getTargetComponent(), sourceSettings, sourceProfiles);
+      if (result.getError() == null && result.getFailed() == 0 && !job.getDryRun()) {
+         final boolean changed = result.getUpdated() > 0 || targetSettings == null || targetProfiles == null;
+         final List<Setting> updatedSettings = changed ? target.getSettings(job.getTargetComponent()) : targetSettings;
+         final List<QualityProfile> updatedProfiles = changed ? target.getQualityProfiles(job.getTargetComponent()) : targetProfiles;
+         if (updatedSettings != null && updatedProfiles != null) {
+            try {
+               this.fingerprintStore.put(id, sourceFingerprint, SettingsFingerprintStore.fingerprint(updatedSettings, updatedProfiles));
+            } catch (final IOException e) {
+               MigrationService.LOG.warn("Error storing settings fingerprints: {}", e.getMessage(), e);
+            }
+         }
+      }
+      return result;
+   }
+
+   private MigrationResult migrateIssues(final MigrationJob job) {
+      final SonarClientService source = this.clientFactory.create(job.getSourceUrl(), job.getSourceLogin(), job.getSourcePassword(), true);
+      final List<Issue> sourceIssues = this.getSourceIssues(source, job);
+      final SonarClientService target = this.createTarget(source, job);
+      MigrationService.awaitAnalysis(target, job);
+      return target.updateIssues(job.getTargetComponent(), sourceIssues, job.getDeltaLines(),
+            job.getMigrateConfirmed(), job.getMigrateFalsePositive(), job.getMigrateWontFix(), job.getMigrateComments());
+   }
+
+   /**
+    * Wait for the running analysis of the target, if requested by the job. The source issues are fetched before, so
+    * that fetching overlaps with the analysis.
+    */
+   private static void awaitAnalysis(final SonarClientService target, final MigrationJob job) {
+      if (job.getWaitForAnalysis() != null && job.getWaitForAnalysis() > 0) {
+         new AnalysisGate(target).await(job.getTargetComponent(), TimeUnit.SECONDS.toMillis(job.getWaitForAnalysis()));
+      }
+   }
+
+   private List<Issue> getSourceIssues(final SonarClientService source, final MigrationJob job) {
+      final List<Issue> sourceIssues = new ArrayList<>();
+      if (job.getMigrateConfirmed()) {
+         sourceIssues.addAll(source.getIssuesInStatus(job.getSourceComponent(), SonarClientService.STATUS_CONFIRMED));
+      }
+      final Set<String> resolutions = new HashSet<>();
+      if (job.getMigrateFalsePositive()) {
+         resolutions.add(SonarClientService.RESOLUTION_FALSE_POSITIVE);
+      }
+      if (job.getMigrateWontFix()) {
+         resolutions.add(SonarClientService.RESOLUTION_WONT_FIX);
+      }
+      if (!resolutions.isEmpty()) {
+         sourceIssues.addAll(source.getIssuesInStatus(job.getSourceComponent(), SonarClientService.STATUS_RESOLVED, resolutions.toArray(new String[resolutions.size()])));
+      }
+      return sourceIssues;
+   }
+
+}
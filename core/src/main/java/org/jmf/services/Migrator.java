@@ -0,0 +1,551 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.jmf.vo.FailedWrite;
+import org.jmf.vo.MigrationEstimate;
+import org.jmf.vo.MigrationJob;
+import org.jmf.vo.MigrationResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Entry point for running migrations in-process, e.g. from a build server or an orchestration service:
+ *
+ * <pre>
+ * final MigrationResult result = Migrator.builder()
+ *       .source("https://sonar.test.com", "com.test:prj1")
+ *       .target(null, "com.test:prj1-branch")
+ *       .sourceLogin("21...", null)
+ *       .deltaLines(5)
+ *       .build()
+ *       .run();
+ * </pre>
+ *
+ * A migrator is immutable and can run several migrations, also concurrently. The settings shared by all migrations in
+ * the JVM are configured directly, e.g. {@link RequestThrottle#setRates(String, double, double)} or
+ * {@link HttpClientPool#setMaxConnections(int)}.
+ */
+public final class Migrator {
+
+   /** default maximum number of migrations running in parallel */
+   public static final int DEFAULT_WORKERS = 4;
+
+   private static final Logger LOG = LoggerFactory.getLogger(Migrator.class);
+
+   private final MigrationJob job;
+
+   private final Integer workers;
+
+   private final Integer writeParallelism;
+
+   private final DecisionTrace decisionTrace;
+
+   private final DeadLetterQueue deadLetters;
+
+   private final File indexDirectory;
+
+   private final boolean matchByHash;
+
+   private final Double hedgePercentile;
+
+   private final double hedgeBudget;
+
+   private final UpdatePriority updatePriority;
+
+   private final long deadline;
+
+   private final Map<String, HedgingPolicy> hedgingPolicies = new ConcurrentHashMap<>();
+
+   private final MigrationService migrationService;
+
+   private Migrator(final Builder builder) {
+      this.job = builder.job.withDefaults(new MigrationJob());
+      this.workers = builder.workers;
+      this.writeParallelism = builder.writeParallelism;
+      this.decisionTrace = builder.decisionTrace;
+      this.deadLetters = builder.deadLetters;
+      this.indexDirectory = builder.indexDirectory;
+      this.matchByHash = builder.matchByHash;
+      this.hedgePercentile = builder.hedgePercentile;
+      this.hedgeBudget = builder.hedgeBudget;
+      this.updatePriority = new UpdatePriority(builder.ruleWeights);
+      this.deadline = builder.deadline;
+      this.migrationService = new MigrationService(this::createService);
+      this.migrationService.setFingerprintStore(builder.fingerprintStore);
+      this.migrationService.setDeadline(builder.deadline);
+      this.migrationService.setContentStore(builder.contentDirectory != null ? new ContentStore(builder.contentDirectory) : null);
+   }
+
+   /**
+    * @return a new builder
+    */
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   /**
+    * Check the migration options of the job.
+    *
+    * @throws IllegalArgumentException if the job is invalid
+    */
+   public void validate() {
+      this.migrationService.complete(this.job);
+   }
+
+   /**
+    * Check the migration options of another job, e.g. before queueing it.
+    *
+    * @param job the job - properties not set are taken from the job of the migrator
+    * @throws IllegalArgumentException if the job is invalid
+    */
+   public void validate(final MigrationJob job) {
+      this.migrationService.complete(job.withDefaults(this.job));
+   }
+
+   /**
+    * Run the migration of the job.
+    *
+    * @return the result
+    */
+   public MigrationResult run() {
+      return this.migrationService.run(this.job);
+   }
+
+   /**
+    * Run the migration of another job, e.g. one of the jobs submitted to a long-running process.
+    *
+    * @param job the job - properties not set are taken from the job of the migrator
+    * @return the result
+    */
+   public MigrationResult run(final MigrationJob job) {
+      return this.migrationService.run(job.withDefaults(this.job));
+   }
+
+   /**
+    * Run several migrations in parallel (see {@link Builder#workers(int)}, default {@value #DEFAULT_WORKERS}).
+    *
+    * @param jobs the jobs - properties not set are taken from the job of the migrator
+    * @return the results in the order of the jobs
+    */
+   public List<MigrationResult> runAll(final List<MigrationJob> jobs) {
+      return this.migrationService.runAll(this.withDefaults(jobs), this.getWorkers(Migrator.DEFAULT_WORKERS));
+   }
+
+   /**
+    * Migrate the source of the job to several targets, fetching the source only once.
+    *
+    * @param targetComponents the keys of the target components
+    * @return the results in the order of the targets
+    */
+   public List<MigrationResult> runFanOut(final List<String> targetComponents) {
+      return this.migrationService.runFanOut(this.job, targetComponents, this.getWorkers(targetComponents.size()));
+   }
+
+   /**
+    * Migrate several sources to the target of the job.
+    *
+    * @param sourceComponents the keys of the source components
+    * @return the result
+    */
+   public MigrationResult runConsolidation(final List<String> sourceComponents) {
+      return this.migrationService.runConsolidation(this.job, sourceComponents, this.getWorkers(sourceComponents.size()));
+   }
+
+   /**
+    * Estimate the migration of the job without running it.
+    *
+    * @return the estimate
+    * @see MigrationEstimator
+    */
+   public MigrationEstimate estimate() {
+      return this.migrationService.estimate(this.job);
+   }
+
+   /**
+    * Estimate several migrations without running them.
+    *
+    * @param jobs the jobs - properties not set are taken from the job of the migrator
+    * @return the estimates in the order of the jobs
+    * @see MigrationEstimator
+    */
+   public List<MigrationEstimate> estimateAll(final List<MigrationJob> jobs) {
+      return this.migrationService.estimateAll(this.withDefaults(jobs));
+   }
+
+   /**
+    * Send failed writes again. The writes went to the target, so the target login of the job is used (or the source
+    * login, if not set).
+    *
+    * @param failures the failed writes, e.g. read from a dead-letter queue
+    * @return the results per server
+    */
+   public List<MigrationResult> replayFailures(final List<FailedWrite> failures) {
+      final boolean targetLogin = this.job.getTargetLogin() != null;
+      final String login = targetLogin ? this.job.getTargetLogin() : this.job.getSourceLogin();
+      final String password = targetLogin ? this.job.getTargetPassword() : this.job.getSourcePassword();
+      final Map<String, List<FailedWrite>> failuresByUrl = failures.stream()
+            .collect(Collectors.groupingBy(FailedWrite::getUrl, LinkedHashMap::new, Collectors.toList()));
+      Migrator.LOG.info("Replaying {} failed writes to {} servers...", failures.size(), failuresByUrl.size());
+      final List<MigrationResult> results = new ArrayList<>();
+      failuresByUrl.forEach((url, writes) -> {
+         final long start = System.currentTimeMillis();
+         final MigrationResult result = this.createService(url, login, password, Boolean.TRUE.equals(this.job.getDryRun())).replayFailures(writes);
+         result.setDurationMillis(System.currentTimeMillis() - start);
+         results.add(result);
+      });
+      return results;
+   }
+
+   /**
+    * @return the job (a copy)
+    */
+   public MigrationJob getJob() {
+      return this.job.withDefaults(new MigrationJob());
+   }
+
+   private List<MigrationJob> withDefaults(final List<MigrationJob> jobs) {
+      return jobs.stream().map(j -> j.withDefaults(this.job)).collect(Collectors.toList());
+   }
+
+   private int getWorkers(final int defaultWorkers) {
+      return this.workers != null ? this.workers : defaultWorkers;
+   }
+
+   private SonarClientService createService(final String url, final String login, final String password, final boolean readonly) {
+      final SonarClientService service = new SonarClientService(url, login, password, readonly);
+      if (this.writeParallelism != null) {
+         service.setWriteParallelism(this.writeParallelism);
+      }
+      service.setDecisionTrace(this.decisionTrace);
+      service.setDeadLetterQueue(this.deadLetters);
+      service.setIndexDirectory(this.indexDirectory);
+      service.setMatchByHash(this.matchByHash);
+      service.setUpdatePriority(this.updatePriority);
+      service.setDeadline(this.deadline);
+      if (this.hedgePercentile != null) {
+         // one policy per server, so that the latencies of all migrations are observed
+         service.setHedgingPolicy(this.hedgingPolicies.computeIfAbsent(url, u -> new HedgingPolicy(this.hedgePercentile, this.hedgeBudget)));
+      }
+      return service;
+   }
+
+   /**
+    * Builder for a {@link Migrator}.
+    */
+   public static final class Builder {
+
+      private MigrationJob job = new MigrationJob();
+
+      private Integer workers;
+
+      private Integer writeParallelism;
+
+      private DecisionTrace decisionTrace;
+
+      private DeadLetterQueue deadLetters;
+
+      private File indexDirectory;
+
+      private boolean matchByHash;
+
+      private SettingsFingerprintStore fingerprintStore;
+
+      private Double hedgePercentile;
+
+      private double hedgeBudget = 0.1;
+
+      private final Map<String, Double> ruleWeights = new HashMap<>();
+
+      private long deadline;
+
+      private File contentDirectory;
+
+      private Builder() {
+         // see Migrator.builder()
+      }
+
+      /**
+       * Take all properties of a job, e.g. the defaults from a command line. Properties set later override them.
+       *
+       * @param job the job
+       * @return this builder
+       */
+      public Builder job(final MigrationJob job) {
+         this.job = job.withDefaults(new MigrationJob());
+         return this;
+      }
+
+      /**
+       * @param url the URL of the source SonarQube
+       * @param componentKey the source component key, e.g. project key
+       * @return this builder
+       */
+      public Builder source(final String url, final String componentKey) {
+         this.job.setSourceUrl(url);
+         this.job.setSourceComponent(componentKey);
+         return this;
+      }
+
+      /**
+       * @param login the user name or token for the source
+       * @param password the password, if a user name is given
+       * @return this builder
+       */
+      public Builder sourceLogin(final String login, final String password) {
+         this.job.setSourceLogin(login);
+         this.job.setSourcePassword(password);
+         return this;
+      }
+
+      /**
+       * @param url the URL of the target SonarQube - if null, the source URL is used
+       * @param componentKey the target component key - if null, the source component key is used
+       * @return this builder
+       */
+      public Builder target(final String url, final String componentKey) {
+         this.job.setTargetUrl(url);
+         this.job.setTargetComponent(componentKey);
+         return this;
+      }
+
+      /**
+       * @param login the user name or token for the target - if null, the source login is used
+       * @param password the password, if a user name is given
+       * @return this builder
+       */
+      public Builder targetLogin(final String login, final String password) {
+         this.job.setTargetLogin(login);
+         this.job.setTargetPassword(password);
+         return this;
+      }
+
+      /**
+       * @param deltaLines the maximum delta of line numbers (default 0)
+       * @return this builder
+       */
+      public Builder deltaLines(final int deltaLines) {
+         this.job.setDeltaLines(deltaLines);
+         return this;
+      }
+
+      /**
+       * Wait for the running analysis of the target before migrating the issues, e.g. right after starting the
+       * analysis in a pipeline. The migration fails, if the analysis fails or does not finish in time.
+       *
+       * @param timeoutSeconds the maximum time to wait in seconds
+       * @return this builder
+       */
+      public Builder waitForAnalysis(final int timeoutSeconds) {
+         this.job.setWaitForAnalysis(timeoutSeconds);
+         return this;
+      }
+
+      /**
+       * Match the issues, which are not found within the delta of line numbers, at their line mapped by a diff of the
+       * source and target file. The sources are fetched only for files with unmatched issues and stored in a
+       * content-addressed store (see {@link ContentStore}), so that they are fetched again only after a new analysis.
+       *
+       * @param storeDirectory the directory of the store of the file contents
+       * @return this builder
+       */
+      public Builder sourceDiff(final File storeDirectory) {
+         this.contentDirectory = storeDirectory;
+         return this;
+      }
+
+      /**
+       * Limit the time of the migrations, e.g. to a maintenance window. The matched issues are updated by priority
+       * (see {@link UpdatePriority}), so the most valuable updates are written first. At the deadline, the issue being
+       * updated is finished, the remaining updates are reported (and added to the dead-letter queue, if set) and
+       * migrations not started yet are skipped.
+       *
+       * @param deadline the deadline in milliseconds since the epoch
+       * @return this builder
+       */
+      public Builder deadline(final long deadline) {
+         this.deadline = deadline;
+         return this;
+      }
+
+      /**
+       * Set the weight of a rule for the priority of the updates (default 1), see {@link UpdatePriority}.
+       *
+       * @param rule the rule key, e.g. java:S2068
+       * @param weight the weight
+       * @return this builder
+       */
+      public Builder ruleWeight(final String rule, final double weight) {
+         this.ruleWeights.put(rule, weight);
+         return this;
+      }
+
+      /**
+       * Migrate the project settings instead of the issues.
+       *
+       * @return this builder
+       */
+      public Builder migrateProject() {
+         this.job.setMigrateProject(true);
+         return this;
+      }
+
+      /**
+       * Migrate confirmed issues. If none of the issue options is given, all are enabled.
+       *
+       * @return this builder
+       */
+      public Builder migrateConfirmed() {
+         this.job.setMigrateConfirmed(true);
+         return this;
+      }
+
+      /**
+       * Migrate false positives. If none of the issue options is given, all are enabled.
+       *
+       * @return this builder
+       */
+      public Builder migrateFalsePositive() {
+         this.job.setMigrateFalsePositive(true);
+         return this;
+      }
+
+      /**
+       * Migrate won't fix issues. If none of the issue options is given, all are enabled.
+       *
+       * @return this builder
+       */
+      public Builder migrateWontFix() {
+         this.job.setMigrateWontFix(true);
+         return this;
+      }
+
+      /**
+       * Migrate comments. If none of the issue options is given, all are enabled.
+       *
+       * @return this builder
+       */
+      public Builder migrateComments() {
+         this.job.setMigrateComments(true);
+         return this;
+      }
+
+      /**
+       * Run without actually updating anything.
+       *
+       * @return this builder
+       */
+      public Builder dryRun() {
+         this.job.setDryRun(true);
+         return this;
+      }
+
+      /**
+       * @param workers the maximum number of migrations running in parallel (default {@value Migrator#DEFAULT_WORKERS}
+       *           for {@link Migrator#runAll(List)}, all for several sources or targets)
+       * @return this builder
+       */
+      public Builder workers(final int workers) {
+         this.workers = workers;
+         return this;
+      }
+
+      /**
+       * @param writeParallelism the maximum number of concurrent write requests per migration (default
+       *           {@value SonarClientService#DEFAULT_WRITE_PARALLELISM})
+       * @return this builder
+       */
+      public Builder writeParallelism(final int writeParallelism) {
+         this.writeParallelism = writeParallelism;
+         return this;
+      }
+
+      /**
+       * @param decisionTrace the trace of the decisions for each source issue (closed by the caller)
+       * @return this builder
+       */
+      public Builder decisionTrace(final DecisionTrace decisionTrace) {
+         this.decisionTrace = decisionTrace;
+         return this;
+      }
+
+      /**
+       * @param deadLetters the queue for the writes, which failed (closed by the caller)
+       * @return this builder
+       */
+      public Builder deadLetterQueue(final DeadLetterQueue deadLetters) {
+         this.deadLetters = deadLetters;
+         return this;
+      }
+
+      /**
+       * @param indexDirectory the directory for the persisted indexes of the target issues
+       * @return this builder
+       */
+      public Builder indexDirectory(final File indexDirectory) {
+         this.indexDirectory = indexDirectory;
+         return this;
+      }
+
+      /**
+       * Match the issues, which are not found within the delta of line numbers, with the closest issue of the same
+       * rule in the same file with the same line hash, i.e. code moved further (default off).
+       *
+       * @return this builder
+       */
+      public Builder matchByHash() {
+         this.matchByHash = true;
+         return this;
+      }
+
+      /**
+       * @param fingerprintStore the store for the fingerprints of the project settings
+       * @return this builder
+       */
+      public Builder fingerprintStore(final SettingsFingerprintStore fingerprintStore) {
+         this.fingerprintStore = fingerprintStore;
+         return this;
+      }
+
+      /**
+       * Hedge GET requests (see {@link HedgingPolicy}).
+       *
+       * @param percentile the percentile of the observed latencies after which a request is hedged, e.g. 95
+       * @param budget the maximum fraction of requests which may be hedged, e.g. 0.1 for 10%
+       * @return this builder
+       */
+      public Builder hedging(final double percentile, final double budget) {
+         this.hedgePercentile = percentile;
+         this.hedgeBudget = budget;
+         return this;
+      }
+
+      /**
+       * @return the migrator
+       */
+      public Migrator build() {
+         return new Migrator(this);
+      }
+   }
+
+}
@@ -0,0 +1,300 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.HttpStatus;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Client-side load balancer for a SonarQube server with several application nodes (e.g. a Data Center Edition).
+ * <p>
+ * Each request is sent to the available node with the least outstanding requests. A node, which refused a
+ * connection, failed or answered as unavailable, is taken out of the rotation and probed in the background
+ * ({@value #API_PING}) with an increasing delay until it answers again.
+ * <p>
+ * There is at most one balancer per server URL in the JVM, i.e. all {@link SonarClientService} instances for the same
+ * server share the nodes. Servers without configured nodes are not balanced.
+ */
+public final class NodeBalancer {
+
+   /** endpoint probing the health of a node */
+   static final String API_PING = "api/system/ping";
+
+   private static final Logger LOG = LoggerFactory.getLogger(NodeBalancer.class);
+
+   private static final Map<String, NodeBalancer> BALANCERS = new ConcurrentHashMap<>();
+
+   /** delay of the first probe of a failed node */
+   private static final long MIN_PROBE_DELAY = TimeUnit.SECONDS.toMillis(1);
+
+   /** maximum delay between the probes of a failed node */
+   private static final long MAX_PROBE_DELAY = TimeUnit.SECONDS.toMillis(30);
+
+   /** connect and socket timeout of a probe */
+   private static final int PROBE_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(5);
+
+   private static ScheduledExecutorService prober;
+
+   private final String baseUrl;
+
+   private final List<Node> nodes;
+
+   /** rotates the first node considered, so that idle nodes are used in turn */
+   private final AtomicInteger next = new AtomicInteger();
+
+   private NodeBalancer(final String baseUrl, final List<Node> nodes) {
+      this.baseUrl = baseUrl;
+      this.nodes = nodes;
+   }
+
+   /**
+    * Set the application nodes of a server. Must be called before the first request.
+    *
+    * @param baseUrl the base URL of the server as given for the migrations
+    * @param nodeUrls the base URLs of the nodes
+    */
+   public static void setNodes(final String baseUrl, final Collection<String> nodeUrls) {
+      final List<Node> nodes = new ArrayList<>();
+      nodeUrls.forEach(url -> nodes.add(new Node(NodeBalancer.normalize(url))));
+      if (nodes.isEmpty()) {
+         NodeBalancer.BALANCERS.remove(NodeBalancer.normalize(baseUrl));
+      } else {
+         NodeBalancer.BALANCERS.put(NodeBalancer.normalize(baseUrl), new NodeBalancer(NodeBalancer.normalize(baseUrl), Collections.unmodifiableList(nodes)));
+      }
+   }
+
+   /**
+    * Get the balancer of a server.
+    *
+    * @param baseUrl the base URL of the server
+    * @return the balancer or null, if no nodes are configured for the server
+    */
+   public static NodeBalancer forServer(final String baseUrl) {
+      return NodeBalancer.BALANCERS.get(NodeBalancer.normalize(baseUrl));
+   }
+
+   /**
+    * Get the URL of a request as sent to the server, i.e. with the URL of the node replaced by the URL of the server,
+    * e.g. to record requests independently of the node.
+    *
+    * @param url the URL of a request
+    * @return the URL with the server URL or the given URL, if it is not sent to a node
+    */
+   static String toServerUrl(final String url) {
+      for (final NodeBalancer balancer : NodeBalancer.BALANCERS.values()) {
+         for (final Node node : balancer.nodes) {
+            if (url.startsWith(node.url)) {
+               return balancer.baseUrl + url.substring(node.url.length());
+            }
+         }
+      }
+      return url;
+   }
+
+   /**
+    * Stop probing failed nodes, see {@link HttpClientPool#shutdown()}.
+    */
+   static synchronized void shutdown() {
+      if (NodeBalancer.prober != null) {
+         NodeBalancer.prober.shutdownNow();
+         NodeBalancer.prober = null;
+      }
+   }
+
+   /**
+    * @return the number of nodes
+    */
+   public int size() {
+      return this.nodes.size();
+   }
+
+   /**
+    * Choose the node for a request and count the request as outstanding until it is {@link #release(Node) released}.
+    * Available nodes are preferred, if all nodes failed, the request is sent to a failed node anyway.
+    *
+    * @param tried the nodes already tried for the request (not chosen again, if possible)
+    * @return the node
+    */
+   Node acquire(final Collection<Node> tried) {
+      final int start = Math.floorMod(this.next.getAndIncrement(), this.nodes.size());
+      Node best = null;
+      for (int i = 0; i < this.nodes.size(); i++) {
+         final Node node = this.nodes.get((start + i) % this.nodes.size());
+         if (best == null || node.rank(tried) < best.rank(tried)
+               || node.rank(tried) == best.rank(tried) && node.outstanding.get() < best.outstanding.get()) {
+            best = node;
+         }
+      }
+      best.outstanding.incrementAndGet();
+      return best;
+   }
+
+   /**
+    * Count a request of a node as finished.
+    *
+    * @param node the node
+    */
+   void release(final Node node) {
+      node.outstanding.decrementAndGet();
+   }
+
+   /**
+    * Take a node out of the rotation until it answers a probe.
+    *
+    * @param node the node
+    * @param reason the reason, e.g. the error message
+    */
+   void markDown(final Node node, final String reason) {
+      synchronized (node) {
+         if (!node.available) {
+            return;
+         }
+         node.available = false;
+         node.probeDelay = NodeBalancer.MIN_PROBE_DELAY;
+      }
+      NodeBalancer.LOG.warn("Node {} of {} failed, probing it until it answers again: {}", node.url, this.baseUrl, reason);
+      this.scheduleProbe(node);
+   }
+
+   /**
+    * Get the URL of a request sent to a node.
+    *
+    * @param node the node
+    * @param url the URL of the request to the server
+    * @return the URL of the request to the node
+    */
+   String toNodeUrl(final Node node, final String url) {
+      return url.startsWith(this.baseUrl) ? node.url + url.substring(this.baseUrl.length()) : url;
+   }
+
+   /**
+    * Check whether a status means, that the node cannot handle requests (e.g. still starting or behind a failed proxy).
+    * Such requests were not processed and can be sent to another node, also writes.
+    *
+    * @param status the HTTP status
+    * @return true if the node is unavailable
+    */
+   static boolean isUnavailable(final int status) {
+      return status == HttpStatus.SC_BAD_GATEWAY || status == HttpStatus.SC_SERVICE_UNAVAILABLE || status == HttpStatus.SC_GATEWAY_TIMEOUT;
+   }
+
+   /**
+    * Check whether a request failed because of the node, i.e. the connection failed or the node answered as
+    * unavailable. Other errors (e.g. an unexpected status or an invalid response) would be the same on every node.
+    *
+    * @param e the error of the request
+    * @return true if the node failed
+    */
+   static boolean isNodeFailure(final IOException e) {
+      return e instanceof UnavailableException || e instanceof SocketException || e instanceof ConnectTimeoutException
+            || e instanceof SocketTimeoutException || e instanceof NoHttpResponseException || e instanceof ConnectionClosedException
+            || e instanceof UnknownHostException;
+   }
+
+   private void scheduleProbe(final Node node) {
+      synchronized (NodeBalancer.class) {
+         if (NodeBalancer.prober == null) {
+            NodeBalancer.prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+               final Thread thread = new Thread(runnable, "node-probe");
+               thread.setDaemon(true);
+               return thread;
+            });
+         }
+         NodeBalancer.prober.schedule(() -> this.probe(node), node.probeDelay, TimeUnit.MILLISECONDS);
+      }
+   }
+
+   private void probe(final Node node) {
+      final HttpGet request = new HttpGet(node.url + NodeBalancer.API_PING);
+      request.setConfig(RequestConfig.custom().setConnectTimeout(NodeBalancer.PROBE_TIMEOUT).setSocketTimeout(NodeBalancer.PROBE_TIMEOUT).build());
+      int status = 0;
+      try (CloseableHttpResponse response = HttpClientPool.getClient().execute(request)) {
+         status = response.getStatusLine().getStatusCode();
+         EntityUtils.consume(response.getEntity());
+      } catch (final Exception e) {
+         NodeBalancer.LOG.debug("Probe of node {} failed: {}", node.url, e.getMessage());
+      }
+      if (status == HttpStatus.SC_OK) {
+         node.available = true;
+         NodeBalancer.LOG.info("Node {} of {} is available again.", node.url, this.baseUrl);
+         return;
+      }
+      synchronized (node) {
+         node.probeDelay = Math.min(NodeBalancer.MAX_PROBE_DELAY, node.probeDelay * 2);
+      }
+      this.scheduleProbe(node);
+   }
+
+   private static String normalize(final String baseUrl) {
+      return baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+   }
+
+   /** answer of a node, which cannot handle requests (see {@link NodeBalancer#isUnavailable(int)}) */
+   static final class UnavailableException extends IOException {
+
+      private static final long serialVersionUID = 1L;
+
+      UnavailableException(final String message) {
+         super(message);
+      }
+   }
+
+   /** application node of a server */
+   static final class Node {
+
+      final String url;
+
+      final AtomicInteger outstanding = new AtomicInteger();
+
+      volatile boolean available = true;
+
+      long probeDelay;
+
+      Node(final String url) {
+         this.url = url;
+      }
+
+      /** preference of the node for a request: 0 for available and not tried yet, 1 for failed, 2 for tried */
+      int rank(final Collection<Node> tried) {
+         if (tried.contains(this)) {
+            return 2;
+         }
+         return this.available ? 0 : 1;
+      }
+   }
+
+}
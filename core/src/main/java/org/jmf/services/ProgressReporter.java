@@ -0,0 +1,118 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reports the progress of a migration at a fixed interval with throughput and estimated time of arrival.
+ * <p>
+ * Counting is cheap, the progress line is only logged when the interval has elapsed. An instance is used by one thread.
+ */
+public class ProgressReporter {
+
+   /** default interval in milliseconds */
+   public static final long DEFAULT_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+   private static final Logger LOG = LoggerFactory.getLogger(ProgressReporter.class);
+
+   private static volatile long interval = ProgressReporter.DEFAULT_INTERVAL;
+
+   private final String name;
+
+   private final int total;
+
+   private final long start = System.nanoTime();
+
+   private long nextReport;
+
+   private int processed;
+
+   private int matched;
+
+   private int unmatched;
+
+   private int updated;
+
+   private int failed;
+
+   /**
+    * Constructor.
+    *
+    * @param name the name of the migration, e.g. the target component key
+    * @param total the total number of items
+    */
+   public ProgressReporter(final String name, final int total) {
+      this.name = name;
+      this.total = total;
+      this.nextReport = this.start + TimeUnit.MILLISECONDS.toNanos(ProgressReporter.interval);
+   }
+
+   /**
+    * Set the interval for all reporters.
+    *
+    * @param interval the interval in milliseconds
+    */
+   public static void setInterval(final long interval) {
+      ProgressReporter.interval = interval;
+   }
+
+   /**
+    * Count a matched item and report, if the interval has elapsed.
+    *
+    * @param isUpdated if the item has been updated
+    * @param isFailed if updating the item failed
+    */
+   public void matched(final boolean isUpdated, final boolean isFailed) {
+      this.matched++;
+      if (isUpdated) {
+         this.updated++;
+      }
+      if (isFailed) {
+         this.failed++;
+      }
+      this.processed();
+   }
+
+   /**
+    * Count an unmatched item and report, if the interval has elapsed.
+    */
+   public void unmatched() {
+      this.unmatched++;
+      this.processed();
+   }
+
+   private void processed() {
+      this.processed++;
+      final long now = System.nanoTime();
+      if (now >= this.nextReport) {
+         this.nextReport = now + TimeUnit.MILLISECONDS.toNanos(ProgressReporter.interval);
+         this.report(now);
+      }
+   }
+
+   private void report(final long now) {
+      final double seconds = (now - this.start) / 1e9;
+      final double rate = seconds > 0 ? this.processed / seconds : 0;
+      final long eta = rate > 0 ? Math.round((this.total - this.processed) / rate) : -1;
+      ProgressReporter.LOG.info("{}: {}/{} issues ({}%), {}/s, ETA {} - {} matched, {} unmatched, {} updated, {} failed",
+            this.name, this.processed, this.total, this.total > 0 ? 100 * this.processed / this.total : 100, String.format("%.1f", rate),
+            eta < 0 ? "unknown" : String.format("%d:%02d:%02d", eta / 3600, eta / 60 % 60, eta % 60),
+            this.matched, this.unmatched, this.updated, this.failed);
+   }
+
+}
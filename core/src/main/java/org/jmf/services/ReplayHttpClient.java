@@ -0,0 +1,172 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.jmf.vo.RecordedExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * HTTP client serving the responses of an archive recorded by {@link HttpRecorder} instead of sending requests.
+ * <p>
+ * Requests are matched by method, URL and form parameters. Identical requests get the recorded responses in the order
+ * they were recorded, the last one is repeated, if there are more requests than recorded. Requests which were not
+ * recorded are answered with 404.
+ */
+public class ReplayHttpClient extends CloseableHttpClient {
+
+   private static final Logger LOG = LoggerFactory.getLogger(ReplayHttpClient.class);
+
+   private final Map<String, Queue<RecordedExchange>> exchanges = new HashMap<>();
+
+   private final double latencyScale;
+
+   /**
+    * Constructor.
+    *
+    * @param archive the archive recorded by {@link HttpRecorder}
+    * @param latencyScale the factor for the recorded latencies, e.g. 0 for no latency, 1 for the recorded latency
+    * @throws IOException if the archive cannot be read
+    */
+   public ReplayHttpClient(final File archive, final double latencyScale) throws IOException {
+      this.latencyScale = latencyScale;
+      final ObjectReader reader = new ObjectMapper().readerFor(RecordedExchange.class);
+      int count = 0;
+      try (BufferedReader in = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(archive.toPath())), StandardCharsets.UTF_8))) {
+         String line;
+         while ((line = in.readLine()) != null) {
+            if (!line.isEmpty()) {
+               final RecordedExchange exchange = reader.readValue(line);
+               this.exchanges.computeIfAbsent(ReplayHttpClient.getKey(exchange.getMethod(), exchange.getUrl(), exchange.getRequestBody()), k -> new ArrayDeque<>())
+                     .add(exchange);
+               count++;
+            }
+         }
+      }
+      ReplayHttpClient.LOG.info("Replaying {} recorded requests from {}", count, archive);
+   }
+
+   @Override
+   protected CloseableHttpResponse doExecute(final HttpHost target, final HttpRequest request, final HttpContext context) throws IOException {
+      final String body = request instanceof HttpEntityEnclosingRequest && ((HttpEntityEnclosingRequest) request).getEntity() != null
+            ? EntityUtils.toString(((HttpEntityEnclosingRequest) request).getEntity(), StandardCharsets.UTF_8)
+            : null;
+      final String key = ReplayHttpClient.getKey(request.getRequestLine().getMethod(), HttpRecorder.scrub(HttpRecorder.getUrl(target, request)),
+            body != null ? HttpRecorder.scrub(body) : null);
+      final RecordedExchange exchange = this.next(key);
+      if (exchange == null) {
+         ReplayHttpClient.LOG.warn("Request not recorded: {}", key);
+         return new ReplayResponse(HttpStatus.SC_NOT_FOUND, "{\"errors\":[{\"msg\":\"Request not recorded\"}]}", ContentType.APPLICATION_JSON.toString());
+      }
+      final long latencyMicros = (long) (exchange.getLatencyMicros() * this.latencyScale);
+      if (latencyMicros > 0) {
+         try {
+            TimeUnit.MICROSECONDS.sleep(latencyMicros);
+         } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted replaying request");
+         }
+      }
+      return new ReplayResponse(exchange.getStatus(), exchange.getResponseBody(), exchange.getContentType());
+   }
+
+   private synchronized RecordedExchange next(final String key) {
+      final Queue<RecordedExchange> queue = this.exchanges.get(key);
+      if (queue == null) {
+         return null;
+      }
+      return queue.size() > 1 ? queue.poll() : queue.peek();
+   }
+
+   @Override
+   public void close() {
+      // nothing to close
+   }
+
+   /**
+    * Not supported: the parameters of the deprecated HttpClient 4.0 API are only used by callers of that API, the
+    * services use the request configuration.
+    */
+   @Override
+   @Deprecated
+   @SuppressWarnings("deprecation")
+   public org.apache.http.params.HttpParams getParams() {
+      throw new UnsupportedOperationException();
+   }
+
+   /**
+    * Not supported: there are no connections to manage, the connection pool is configured by {@link HttpClientPool}
+    * only for real clients.
+    */
+   @Override
+   @Deprecated
+   @SuppressWarnings("deprecation")
+   public org.apache.http.conn.ClientConnectionManager getConnectionManager() {
+      throw new UnsupportedOperationException();
+   }
+
+   private static String getKey(final String method, final String url, final String body) {
+      return method.toUpperCase(Locale.ROOT) + " " + url + (body != null ? " " + body : "");
+   }
+
+   /**
+    * Recorded response.
+    */
+   private static final class ReplayResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+      ReplayResponse(final int status, final String body, final String contentType) {
+         super(HttpVersion.HTTP_1_1, status, null);
+         if (body != null) {
+            this.setEntity(new StringEntity(body,
+                  (contentType != null ? ContentType.parse(contentType) : ContentType.APPLICATION_JSON).withCharset(StandardCharsets.UTF_8)));
+         }
+      }
+
+      @Override
+      public void close() {
+         // nothing to close
+      }
+   }
+
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket throttle for the requests to one SonarQube server with separate budgets for reading and writing.
+ * <p>
+ * There is exactly one throttle per server URL in the JVM, i.e. all {@link SonarClientService} instances for the same
+ * server share the budgets.
+ */
+public final class RequestThrottle {
+
+   private static final Map<String, RequestThrottle> THROTTLES = new ConcurrentHashMap<>();
+
+   private static volatile double defaultReadRate;
+
+   private static volatile double defaultWriteRate;
+
+   private final TokenBucket reads;
+
+   private final TokenBucket writes;
+
+   private RequestThrottle(final double readRate, final double writeRate) {
+      this.reads = new TokenBucket(readRate);
+      this.writes = new TokenBucket(writeRate);
+   }
+
+   /**
+    * Get the throttle for a server.
+    *
+    * @param baseUrl the base URL of the server
+    * @return the throttle shared by all requests to this server
+    */
+   public static RequestThrottle forServer(final String baseUrl) {
+      return RequestThrottle.THROTTLES.computeIfAbsent(RequestThrottle.normalize(baseUrl),
+            url -> new RequestThrottle(RequestThrottle.defaultReadRate, RequestThrottle.defaultWriteRate));
+   }
+
+   /**
+    * Set the rates for all servers, which are not explicitly configured.
+    * Must be called before the first request.
+    *
+    * @param readRate the maximum number of read requests per second (0 for unlimited)
+    * @param writeRate the maximum number of write requests per second (0 for unlimited)
+    */
+   public static void setDefaultRates(final double readRate, final double writeRate) {
+      RequestThrottle.defaultReadRate = readRate;
+      RequestThrottle.defaultWriteRate = writeRate;
+   }
+
+   /**
+    * Set the rates for a server.
+    *
+    * @param baseUrl the base URL of the server
+    * @param readRate the maximum number of read requests per second (0 for unlimited)
+    * @param writeRate the maximum number of write requests per second (0 for unlimited)
+    */
+   public static void setRates(final String baseUrl, final double readRate, final double writeRate) {
+      RequestThrottle.THROTTLES.put(RequestThrottle.normalize(baseUrl), new RequestThrottle(readRate, writeRate));
+   }
+
+   /**
+    * Wait for a token for a read request.
+    *
+    * @throws InterruptedIOException if interrupted while waiting
+    */
+   public void acquireRead() throws InterruptedIOException {
+      this.reads.acquire();
+   }
+
+   /**
+    * Wait for a token for a write request.
+    *
+    * @throws InterruptedIOException if interrupted while waiting
+    */
+   public void acquireWrite() throws InterruptedIOException {
+      this.writes.acquire();
+   }
+
+   /**
+    * @return the maximum number of read requests per second (0 for unlimited)
+    */
+   public double getReadRate() {
+      return this.reads.rate;
+   }
+
+   /**
+    * @return the maximum number of write requests per second (0 for unlimited)
+    */
+   public double getWriteRate() {
+      return this.writes.rate;
+   }
+
+   private static String normalize(final String baseUrl) {
+      return baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+   }
+
+   /**
+    * Token bucket with a burst size of one second. Tokens are reserved ahead, i.e. the number of tokens might become
+    * negative and callers wait for their turn in the order of arrival.
+    */
+   private static final class TokenBucket {
+
+      private final double rate;
+
+      private final double capacity;
+
+      private double tokens;
+
+      private long lastRefill;
+
+      TokenBucket(final double rate) {
+         this.rate = rate;
+         this.capacity = Math.max(1.0, rate);
+         this.tokens = this.capacity;
+         this.lastRefill = System.nanoTime();
+      }
+
+      void acquire() throws InterruptedIOException {
+         if (this.rate <= 0) {
+            return;
+         }
+         final long waitNanos;
+         synchronized (this) {
+            final long now = System.nanoTime();
+            this.tokens = Math.min(this.capacity, this.tokens + (now - this.lastRefill) * this.rate / TimeUnit.SECONDS.toNanos(1));
+            this.lastRefill = now;
+            this.tokens -= 1;
+            waitNanos = this.tokens < 0 ? (long) (-this.tokens / this.rate * TimeUnit.SECONDS.toNanos(1)) : 0;
+         }
+         if (waitNanos > 0) {
+            try {
+               TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (final InterruptedException e) {
+               Thread.currentThread().interrupt();
+               throw new InterruptedIOException("Interrupted waiting for request token");
+            }
+         }
+      }
+   }
+
+}
@@ -0,0 +1,309 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Metrics of a run: requests, latencies and bytes per endpoint and time per phase.
+ * <p>
+ * There is one instance per JVM shared by all {@link SonarClientService} instances. The metrics can be exported as JSON
+ * summary and in the Prometheus text format.
+ */
+public final class RunMetrics {
+
+   /** phase fetching issues */
+   public static final String PHASE_FETCH = "fetch";
+
+   /** phase matching source and target issues */
+   public static final String PHASE_MATCH = "match";
+
+   /** phase writing changes */
+   public static final String PHASE_WRITE = "write";
+
+   /** phase waiting for the analysis of the target */
+   public static final String PHASE_WAIT = "wait";
+
+   private static final RunMetrics INSTANCE = new RunMetrics();
+
+   private static final double[] QUANTILES = { 0.5, 0.95, 0.99 };
+
+   private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+   private final Map<String, LongAdder> phases = new ConcurrentHashMap<>();
+
+   private volatile long start = System.nanoTime();
+
+   private RunMetrics() {
+      // singleton
+   }
+
+   /**
+    * @return the metrics of this JVM
+    */
+   public static RunMetrics get() {
+      return RunMetrics.INSTANCE;
+   }
+
+   /**
+    * Reset all metrics and start measuring the wall time of a new run.
+    */
+   public void reset() {
+      this.endpoints.clear();
+      this.phases.clear();
+      this.start = System.nanoTime();
+   }
+
+   /**
+    * Record a request.
+    *
+    * @param endpoint the endpoint, e.g. api/issues/search
+    * @param status the HTTP status code or 0, if the request failed
+    * @param nanos the duration in nanoseconds
+    * @param bytesIn the number of bytes received
+    * @param bytesOut the number of bytes sent
+    */
+   public void recordRequest(final String endpoint, final int status, final long nanos, final long bytesIn, final long bytesOut) {
+      final EndpointMetrics metrics = this.endpoints.computeIfAbsent(endpoint, e -> new EndpointMetrics());
+      metrics.requests.increment();
+      if (status == 0 || status >= 400) {
+         metrics.errors.increment();
+      }
+      metrics.bytesIn.add(bytesIn);
+      metrics.bytesOut.add(bytesOut);
+      metrics.latency.record(nanos);
+   }
+
+   /**
+    * Record a hedged (duplicate) request.
+    *
+    * @param endpoint the endpoint, e.g. api/issues/search
+    */
+   public void recordHedge(final String endpoint) {
+      this.endpoints.computeIfAbsent(endpoint, e -> new EndpointMetrics()).hedges.increment();
+   }
+
+   /**
+    * Record a retried request.
+    *
+    * @param endpoint the endpoint, e.g. api/issues/search
+    */
+   public void recordRetry(final String endpoint) {
+      this.endpoints.computeIfAbsent(endpoint, e -> new EndpointMetrics()).retries.increment();
+   }
+
+   /**
+    * Record time spent in a phase. As phases run in several threads, the time is the sum over all threads.
+    *
+    * @param phase the phase, e.g. {@link #PHASE_FETCH}
+    * @param nanos the duration in nanoseconds
+    */
+   public void recordPhase(final String phase, final long nanos) {
+      this.phases.computeIfAbsent(phase, p -> new LongAdder()).add(nanos);
+   }
+
+   /**
+    * Get the time spent in a phase.
+    *
+    * @param phase the phase, e.g. {@link #PHASE_FETCH}
+    * @return the time in nanoseconds summed over all threads
+    */
+   public long getPhaseNanos(final String phase) {
+      final LongAdder nanos = this.phases.get(phase);
+      return nanos != null ? nanos.sum() : 0;
+   }
+
+   /**
+    * Get the number of bytes received from an endpoint.
+    *
+    * @param endpoint the endpoint, e.g. api/issues/search
+    * @return the number of bytes received
+    */
+   public long getBytesIn(final String endpoint) {
+      final EndpointMetrics metrics = this.endpoints.get(endpoint);
+      return metrics != null ? metrics.bytesIn.sum() : 0;
+   }
+
+   /**
+    * @return the summary of all metrics
+    */
+   public Map<String, Object> getSummary() {
+      final Map<String, Object> summary = new LinkedHashMap<>();
+      summary.put("wallSeconds", RunMetrics.seconds(System.nanoTime() - this.start));
+      final Map<String, Object> phaseSummary = new TreeMap<>();
+      this.phases.forEach((phase, nanos) -> phaseSummary.put(phase, RunMetrics.seconds(nanos.sum())));
+      summary.put("phaseSeconds", phaseSummary);
+      final Map<String, Object> endpointSummary = new TreeMap<>();
+      this.endpoints.forEach((endpoint, metrics) -> {
+         final Map<String, Object> values = new LinkedHashMap<>();
+         values.put("requests", metrics.requests.sum());
+         values.put("errors", metrics.errors.sum());
+         values.put("hedges", metrics.hedges.sum());
+         values.put("retries", metrics.retries.sum());
+         values.put("bytesIn", metrics.bytesIn.sum());
+         values.put("bytesOut", metrics.bytesOut.sum());
+         values.put("totalSeconds", RunMetrics.seconds(metrics.latency.getSum()));
+         for (final double quantile : RunMetrics.QUANTILES) {
+            values.put("p" + Math.round(quantile * 100) + "Millis", TimeUnit.NANOSECONDS.toMillis(metrics.latency.getQuantile(quantile)));
+         }
+         endpointSummary.put(endpoint, values);
+      });
+      summary.put("endpoints", endpointSummary);
+      return summary;
+   }
+
+   /**
+    * Write the summary as JSON.
+    *
+    * @param file the file
+    * @throws IOException if the file cannot be written
+    */
+   public void writeJson(final File file) throws IOException {
+      new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, this.getSummary());
+   }
+
+   /**
+    * Write the metrics in the Prometheus text format.
+    *
+    * @param file the file
+    * @throws IOException if the file cannot be written
+    */
+   public void writePrometheus(final File file) throws IOException {
+      try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+         this.writePrometheus(out);
+      }
+   }
+
+   /**
+    * Write the metrics in the Prometheus text format.
+    *
+    * @param out the writer
+    */
+   public void writePrometheus(final PrintWriter out) {
+      out.println("# TYPE sonar_migrator_wall_seconds gauge");
+      out.printf("sonar_migrator_wall_seconds %s%n", RunMetrics.seconds(System.nanoTime() - this.start));
+      out.println("# TYPE sonar_migrator_phase_seconds counter");
+      new TreeMap<>(this.phases).forEach((phase, nanos) -> out.printf("sonar_migrator_phase_seconds{phase=\"%s\"} %s%n", phase, RunMetrics.seconds(nanos.sum())));
+
+      final Map<String, EndpointMetrics> sorted = new TreeMap<>(this.endpoints);
+      RunMetrics.writeCounter(out, "sonar_migrator_requests_total", sorted, metrics -> metrics.requests);
+      RunMetrics.writeCounter(out, "sonar_migrator_request_errors_total", sorted, metrics -> metrics.errors);
+      RunMetrics.writeCounter(out, "sonar_migrator_request_hedges_total", sorted, metrics -> metrics.hedges);
+      RunMetrics.writeCounter(out, "sonar_migrator_request_retries_total", sorted, metrics -> metrics.retries);
+      RunMetrics.writeCounter(out, "sonar_migrator_received_bytes_total", sorted, metrics -> metrics.bytesIn);
+      RunMetrics.writeCounter(out, "sonar_migrator_sent_bytes_total", sorted, metrics -> metrics.bytesOut);
+      out.println("# TYPE sonar_migrator_request_duration_seconds summary");
+      sorted.forEach((endpoint, metrics) -> {
+         for (final double quantile : RunMetrics.QUANTILES) {
+            out.printf("sonar_migrator_request_duration_seconds{endpoint=\"%s\",quantile=\"%s\"} %s%n", endpoint, quantile,
+                  RunMetrics.seconds(metrics.latency.getQuantile(quantile)));
+         }
+         out.printf("sonar_migrator_request_duration_seconds_sum{endpoint=\"%s\"} %s%n", endpoint, RunMetrics.seconds(metrics.latency.getSum()));
+         out.printf("sonar_migrator_request_duration_seconds_count{endpoint=\"%s\"} %d%n", endpoint, metrics.latency.getCount());
+      });
+   }
+
+   private static void writeCounter(final PrintWriter out, final String name, final Map<String, EndpointMetrics> endpoints,
+         final Function<EndpointMetrics, LongAdder> counter) {
+      out.printf("# TYPE %s counter%n", name);
+      endpoints.forEach((endpoint, metrics) -> out.printf("%s{endpoint=\"%s\"} %d%n", name, endpoint, counter.apply(metrics).sum()));
+   }
+
+   private static double seconds(final long nanos) {
+      return nanos / 1e9;
+   }
+
+   private static final class EndpointMetrics {
+
+      private final LongAdder requests = new LongAdder();
+
+      private final LongAdder errors = new LongAdder();
+
+      private final LongAdder hedges = new LongAdder();
+
+      private final LongAdder retries = new LongAdder();
+
+      private final LongAdder bytesIn = new LongAdder();
+
+      private final LongAdder bytesOut = new LongAdder();
+
+      private final LatencyHistogram latency = new LatencyHistogram();
+   }
+
+   /**
+    * Lock free histogram with exponential buckets from 100 microseconds to about 20 minutes (relative error 12.5%).
+    */
+   private static final class LatencyHistogram {
+
+      private static final long MIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+      private static final double FACTOR = 1.25;
+
+      private static final int BUCKETS = 74;
+
+      private final AtomicLongArray counts = new AtomicLongArray(LatencyHistogram.BUCKETS);
+
+      private final LongAdder sum = new LongAdder();
+
+      private final LongAdder count = new LongAdder();
+
+      void record(final long nanos) {
+         final int bucket = nanos <= LatencyHistogram.MIN_NANOS ? 0
+               : (int) Math.min(LatencyHistogram.BUCKETS - 1, Math.ceil(Math.log((double) nanos / LatencyHistogram.MIN_NANOS) / Math.log(LatencyHistogram.FACTOR)));
+         this.counts.incrementAndGet(bucket);
+         this.sum.add(nanos);
+         this.count.increment();
+      }
+
+      long getQuantile(final double quantile) {
+         long total = 0;
+         for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            total += this.counts.get(i);
+         }
+         final long rank = (long) Math.ceil(quantile * total);
+         long cumulated = 0;
+         for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            cumulated += this.counts.get(i);
+            if (cumulated >= rank && cumulated > 0) {
+               // upper bound of the bucket
+               return (long) (LatencyHistogram.MIN_NANOS * Math.pow(LatencyHistogram.FACTOR, i));
+            }
+         }
+         return 0;
+      }
+
+      long getSum() {
+         return this.sum.sum();
+      }
+
+      long getCount() {
+         return this.count.sum();
+      }
+   }
+
+}
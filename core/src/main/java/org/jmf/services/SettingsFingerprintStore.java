@@ -0,0 +1,148 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.jmf.vo.QualityProfile;
+import org.jmf.vo.Setting;
+
+/**
+ * Persistent store of the fingerprints of the settings of source and target projects after the last successful
+ * synchronization. If both fingerprints are unchanged, the project need not be synchronized again.
+ */
+public class SettingsFingerprintStore {
+
+   private static final String SEPARATOR = ",";
+
+   private final File file;
+
+   private final Properties fingerprints = new Properties();
+
+   /**
+    * Constructor. Loads the store, if the file exists.
+    *
+    * @param file the file of the store
+    * @throws IOException if the file cannot be read
+    */
+   public SettingsFingerprintStore(final File file) throws IOException {
+      this.file = file;
+      if (file.exists()) {
+         try (InputStream in = Files.newInputStream(file.toPath())) {
+            this.fingerprints.load(in);
+         }
+      }
+   }
+
+   /**
+    * Calculate the fingerprint of settings and quality profiles. The fingerprint does not depend on the order of the
+    * settings, values, field values or quality profiles.
+    *
+    * @param settings the settings
+    * @param profiles the quality profiles or null, if they should not be part of the fingerprint
+    * @return the fingerprint (hex encoded SHA-256 hash)
+    */
+   public static String fingerprint(final List<Setting> settings, final List<QualityProfile> profiles) {
+      final StringBuilder sb = new StringBuilder();
+      settings.stream()
+            .sorted(Comparator.comparing(Setting::getKey))
+            .forEach(setting -> sb.append("s:").append(setting.getKey())
+                  .append('=').append(setting.getValue())
+                  .append('|').append(SettingsFingerprintStore.normalize(setting.getValues()))
+                  .append('|').append(setting.getFieldValues() == null ? null
+                        : SettingsFingerprintStore.normalize(setting.getFieldValues().stream()
+                              .map(fieldValue -> new TreeMap<>(fieldValue).toString())
+                              .collect(Collectors.toList())))
+                  .append('\n'));
+      if (profiles != null) {
+         profiles.stream()
+               .sorted(Comparator.comparing(QualityProfile::getLanguage))
+               .forEach(profile -> sb.append("p:").append(profile.getLanguage()).append('=').append(profile.getName()).append('\n'));
+      }
+      try {
+         final byte[] hash = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+         final StringBuilder hex = new StringBuilder();
+         for (final byte b : hash) {
+            hex.append(String.format("%02x", b));
+         }
+         return hex.toString();
+      } catch (final NoSuchAlgorithmException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /**
+    * Check, if source and target are unchanged since the last synchronization.
+    *
+    * @param id the ID of the synchronization, see {@link #getId(String, String, String, String)}
+    * @param sourceFingerprint the current fingerprint of the source
+    * @param targetFingerprint the current fingerprint of the target
+    * @return true, if both fingerprints are the same as after the last synchronization
+    */
+   public synchronized boolean isUnchanged(final String id, final String sourceFingerprint, final String targetFingerprint) {
+      return (sourceFingerprint + SettingsFingerprintStore.SEPARATOR + targetFingerprint).equals(this.fingerprints.getProperty(id));
+   }
+
+   /**
+    * Store the fingerprints after a successful synchronization.
+    *
+    * @param id the ID of the synchronization, see {@link #getId(String, String, String, String)}
+    * @param sourceFingerprint the fingerprint of the source
+    * @param targetFingerprint the fingerprint of the target
+    * @throws IOException if the store cannot be written
+    */
+   public synchronized void put(final String id, final String sourceFingerprint, final String targetFingerprint) throws IOException {
+      this.fingerprints.setProperty(id, sourceFingerprint + SettingsFingerprintStore.SEPARATOR + targetFingerprint);
+      final File temp = new File(this.file.getAbsoluteFile().getParentFile(), this.file.getName() + ".tmp");
+      try (OutputStream out = Files.newOutputStream(temp.toPath())) {
+         this.fingerprints.store(out, "Settings fingerprints of sonar-issue-migrator");
+      }
+      Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+   }
+
+   /**
+    * Get the ID of a synchronization.
+    *
+    * @param sourceUrl the URL of the source SonarQube
+    * @param sourceComponent the source component key
+    * @param targetUrl the URL of the target SonarQube
+    * @param targetComponent the target component key
+    * @return the ID
+    */
+   public static String getId(final String sourceUrl, final String sourceComponent, final String targetUrl, final String targetComponent) {
+      return sourceUrl + "|" + sourceComponent + "->" + targetUrl + "|" + targetComponent;
+   }
+
+   private static String normalize(final Collection<String> values) {
+      if (values == null) {
+         return null;
+      }
+      return values.stream().sorted().collect(Collectors.joining(",", "[", "]"));
+   }
+
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.jmf.vo.QualityProfile;
+import org.jmf.vo.Setting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the server wide catalog of a SonarQube server: all quality profiles and the global settings.
+ * <p>
+ * The catalog is shared by all {@link SonarClientService} instances for the same server and user. It is loaded on first
+ * use and reloaded after the time to live or when invalidated. If it cannot be loaded, it is unavailable (the callers
+ * read per project instead) and loading is retried after a delay.
+ */
+public final class SonarCatalog {
+
+   /** default time to live in milliseconds */
+   public static final long DEFAULT_TTL = TimeUnit.MINUTES.toMillis(10);
+
+   private static final Logger LOG = LoggerFactory.getLogger(SonarCatalog.class);
+
+   /** delay before loading a catalog again, which could not be loaded */
+   private static final long RETRY_DELAY = TimeUnit.SECONDS.toMillis(30);
+
+   private static final Map<String, SonarCatalog> CATALOGS = new ConcurrentHashMap<>();
+
+   private static volatile long ttl = SonarCatalog.DEFAULT_TTL;
+
+   private List<QualityProfile> profiles;
+
+   private List<Setting> globalSettings;
+
+   private long loaded;
+
+   private long failed;
+
+   private SonarCatalog() {
+      // use forServer
+   }
+
+   /**
+    * Get the catalog for a server.
+    *
+    * @param baseUrl the base URL of the server
+    * @param login the user name or token (the visible settings depend on the permissions)
+    * @return the catalog
+    */
+   public static SonarCatalog forServer(final String baseUrl, final String login) {
+      return SonarCatalog.CATALOGS.computeIfAbsent(baseUrl + "|" + (login != null ? login : ""), key -> new SonarCatalog());
+   }
+
+   /**
+    * Set the time to live of all catalogs.
+    *
+    * @param ttl the time to live in milliseconds
+    */
+   public static void setTtl(final long ttl) {
+      SonarCatalog.ttl = ttl;
+   }
+
+   /**
+    * Invalidate all catalogs, so that they are reloaded on next use.
+    */
+   public static void invalidateAll() {
+      SonarCatalog.CATALOGS.values().forEach(SonarCatalog::invalidate);
+   }
+
+   /**
+    * Invalidate the catalog, so that it is reloaded on next use.
+    */
+   public synchronized void invalidate() {
+      this.loaded = 0;
+      this.failed = 0;
+   }
+
+   /**
+    * @param service the service used to load the catalog
+    * @return the global settings or null, if the catalog is unavailable
+    */
+   public List<Setting> getGlobalSettings(final SonarClientService service) {
+      return this.load(service) ? this.globalSettings : null;
+   }
+
+   /**
+    * @param service the service used to load the catalog
+    * @return the default quality profiles (one per language) or null, if the catalog is unavailable
+    */
+   public List<QualityProfile> getDefaultProfiles(final SonarClientService service) {
+      return this.load(service) ? this.profiles.stream()
+            .filter(QualityProfile::isDefault)
+            .collect(Collectors.toList()) : null;
+   }
+
+   /**
+    * Check, if a quality profile exists.
+    *
+    * @param service the service used to load the catalog
+    * @param language the language
+    * @param name the name of the quality profile
+    * @return true, if the quality profile exists or the catalog is unavailable (i.e. the server decides)
+    */
+   public boolean hasProfile(final SonarClientService service, final String language, final String name) {
+      return !this.load(service) || this.profiles.stream()
+            .anyMatch(profile -> language.equals(profile.getLanguage()) && name.equals(profile.getName()));
+   }
+
+   /** load the catalog, if necessary: false, if it is unavailable */
+   private synchronized boolean load(final SonarClientService service) {
+      final long now = System.currentTimeMillis();
+      if (this.loaded != 0 && now - this.loaded <= SonarCatalog.ttl) {
+         return true;
+      }
+      if (this.failed != 0 && now - this.failed <= SonarCatalog.RETRY_DELAY) {
+         return false;
+      }
+      final List<QualityProfile> newProfiles = service.getAllQualityProfiles();
+      final List<Setting> newGlobalSettings = newProfiles != null ? service.getGlobalSettings() : null;
+      if (newProfiles == null || newGlobalSettings == null) {
+         SonarCatalog.LOG.warn("Catalog of quality profiles and global settings of {} could not be loaded, reading them per project.", service.getBaseUrl());
+         this.loaded = 0;
+         this.failed = now;
+         return false;
+      }
+      this.profiles = Collections.unmodifiableList(newProfiles);
+      this.globalSettings = Collections.unmodifiableList(newGlobalSettings);
+      this.loaded = now;
+      this.failed = 0;
+      SonarCatalog.LOG.debug("Catalog loaded: {} quality profiles, {} global settings", this.profiles.size(), this.globalSettings.size());
+      return true;
+   }
+
+}
@@ -0,0 +1,1666 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpStatus;
+import org.apache.http.NameValuePair;
+import org.apache.http.StatusLine;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.HttpHostConnectException;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+import org.jmf.services.jfr.HttpRequestEvent;
+import org.jmf.services.jfr.IssueMatchEvent;
+import org.jmf.services.jfr.JfrSupport;
+import org.jmf.services.jfr.PageFetchEvent;
+import org.jmf.vo.CeComponentResponse;
+import org.jmf.vo.Comment;
+import org.jmf.vo.ComponentResponse;
+import org.jmf.vo.FailedWrite;
+import org.jmf.vo.Issue;
+import org.jmf.vo.IssueDecision;
+import org.jmf.vo.IssuesResponse;
+import org.jmf.vo.MigrationResult;
+import org.jmf.vo.QualityProfile;
+import org.jmf.vo.QualityProfilesResponse;
+import org.jmf.vo.Setting;
+import org.jmf.vo.SettingsResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Service for Sonar web service API.
+ *
+ * @author jose
+ * @author mvlcek
+ */
+public class SonarClientService {
+
+   /** open status */
+   public static final String STATUS_OPEN = "OPEN";
+
+   /** confirmed status */
+   public static final String STATUS_CONFIRMED = "CONFIRMED";
+
+   /** reopened status */
+   public static final String STATUS_REOPENED = "REOPENED";
+
+   /** resolved status */
+   public static final String STATUS_RESOLVED = "RESOLVED";
+
+   /** resolution false positive */
+   public static final String RESOLUTION_FALSE_POSITIVE = "FALSE-POSITIVE";
+
+   /** resolution won't fix */
+   public static final String RESOLUTION_WONT_FIX = "WONTFIX";
+
+   /** default number of concurrent write requests */
+   public static final int DEFAULT_WRITE_PARALLELISM = 4;
+
+   private static final Logger LOG = LoggerFactory.getLogger(SonarClientService.class);
+
+   private static final ObjectMapper MAPPER = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+   /** pre-built readers for the response classes */
+   private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+   /** the endpoint for searching issues */
+   static final String API_SEARCH_ISSUES = "api/issues/search";
+
+   private static final String API_DO_TRANSITION = "api/issues/do_transition";
+
+   private static final String API_ADD_COMMENT = "api/issues/add_comment";
+
+   private static final String API_BULK_CHANGE = "api/issues/bulk_change";
+
+   private static final String API_ASSIGN = "api/issues/assign";
+
+   private static final String API_SHOW_COMPONENT = "api/components/show";
+
+   private static final String API_CE_COMPONENT = "api/ce/component";
+
+   private static final String API_SOURCES_RAW = "api/sources/raw";
+
+   private static final String API_SETTINGS = "api/settings/values";
+
+   private static final String API_SET = "api/settings/set";
+
+   private static final String API_RESET = "api/settings/reset";
+
+   private static final String API_CREATE_PROJECT = "api/projects/create";
+
+   private static final String API_SEARCH_QUALITY_PROFILES = "api/qualityprofiles/search";
+
+   private static final String API_ADD_PROJECT_TO_QUALITY_PROFILE = "api/qualityprofiles/add_project";
+
+   private static final String PARAM_ISSUE = "issue";
+
+   private static final String PARAM_TRANSITION = "transition";
+
+   private static final String PARAM_TEXT = "text";
+
+   private static final String PARAM_COMPONENT_KEYS = "componentKeys";
+
+   private static final String PARAM_STATUSES = "statuses";
+
+   private static final String PARAM_RESOLUTIONS = "resolutions";
+
+   private static final String PARAM_RULES = "rules";
+
+   private static final String PARAM_ASSIGNEE = "assignee";
+
+   private static final String PARAM_PAGE_INDEX = "pageIndex";
+
+   private static final String PARAM_PAGE_SIZE = "ps";
+
+   private static final String PARAM_ISSUES = "issues";
+
+   private static final String PARAM_DO_TRANSITION = "do_transition";
+
+   private static final String PARAM_ADDITIONAL_FIELDS = "additionalFields";
+
+   private static final String PARAM_COMPONENT = "component";
+
+   private static final String PARAM_KEY = "key";
+
+   private static final String PARAM_KEYS = "keys";
+
+   private static final String PARAM_VALUE = "value";
+
+   private static final String PARAM_VALUES = "values";
+
+   private static final String PARAM_FIELD_VALUES = "fieldValues";
+
+   private static final String PARAM_PROJECT = "project";
+
+   private static final String PARAM_NAME = "name";
+
+   private static final String PARAM_QUALITY_PROFILE = "qualityProfile";
+
+   private static final String PARAM_LANGUAGE = "language";
+
+   /** transition confirming an issue */
+   static final String TRANSITION_CONFIRM = "confirm";
+
+   /** transition resolving an issue as false positive */
+   static final String TRANSITION_FALSE_POSITIVE = "falsepositive";
+
+   /** transition resolving an issue as won't fix */
+   static final String TRANSITION_WONT_FIX = "wontfix";
+
+   private static final String FIELD_COMMENTS = "comments";
+
+   private static final String PARAM_FACETS = "facets";
+
+   private static final String FACET_RULES = "rules";
+
+   /** maximum number of issues of a bulk search or change */
+   private static final int BULK_SIZE = 500;
+
+   /** error of the updates left at the deadline in the dead-letter queue */
+   private static final String DEADLINE_REACHED = "Deadline reached";
+
+   private final String baseUrl;
+
+   private final String login;
+
+   private final String password;
+
+   private final boolean readonly;
+
+   private final RequestThrottle throttle;
+
+   private final SonarCatalog catalog;
+
+   private final NodeBalancer balancer;
+
+   private HedgingPolicy hedgingPolicy;
+
+   private int writeParallelism = SonarClientService.DEFAULT_WRITE_PARALLELISM;
+
+   private DecisionTrace decisionTrace;
+
+   private File indexDirectory;
+
+   private boolean matchByHash;
+
+   private DeadLetterQueue deadLetters;
+
+   private LineMapper lineMapper;
+
+   private UpdatePriority updatePriority = UpdatePriority.DEFAULT;
+
+   private long deadline;
+
+   /**
+    * Constructor.
+    *
+    * @param baseUrl the base URL, e.g. http://localhost:9000
+    * @param login the user name or token
+    * @param password the password or empty for a token
+    * @param readonly do not actually do any changes
+    */
+   public SonarClientService(final String baseUrl, final String login, final String password, final boolean readonly) {
+      this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+      this.login = login;
+      this.password = password;
+      this.readonly = readonly;
+      this.throttle = RequestThrottle.forServer(this.baseUrl);
+      this.catalog = SonarCatalog.forServer(this.baseUrl, login);
+      this.balancer = NodeBalancer.forServer(this.baseUrl);
+   }
+
+   /**
+    * Set the policy for hedging GET requests.
+    *
+    * @param hedgingPolicy the hedging policy or null to disable hedging
+    */
+   public void setHedgingPolicy(final HedgingPolicy hedgingPolicy) {
+      this.hedgingPolicy = hedgingPolicy;
+   }
+
+   /**
+    * Set the trace for the decisions of issue migrations.
+    *
+    * @param decisionTrace the decision trace or null to disable tracing
+    */
+   public void setDecisionTrace(final DecisionTrace decisionTrace) {
+      this.decisionTrace = decisionTrace;
+   }
+
+   /**
+    * Set the directory of the persisted indexes of the target issues (see {@link MappedIssueIndex}).
+    *
+    * @param indexDirectory the directory or null to always fetch the target issues
+    */
+   public void setIndexDirectory(final File indexDirectory) {
+      this.indexDirectory = indexDirectory;
+   }
+
+   /**
+    * Set the dead-letter queue for writes, which failed.
+    *
+    * @param deadLetters the dead-letter queue or null to only log failed writes
+    */
+   public void setDeadLetterQueue(final DeadLetterQueue deadLetters) {
+      this.deadLetters = deadLetters;
+   }
+
+   /**
+    * Set whether the issues, which are not found within the delta of line numbers, are matched by their line hash, i.e.
+    * the closest issue of the same rule in the same file with the same line hash.
+    *
+    * @param matchByHash true to match by line hash, too
+    */
+   public void setMatchByHash(final boolean matchByHash) {
+      this.matchByHash = matchByHash;
+   }
+
+   /**
+    * Set the mapper of the lines of unmatched source issues to the target of the issue migrations.
+    *
+    * @param lineMapper the line mapper or null to match by the delta of line numbers only
+    */
+   void setLineMapper(final LineMapper lineMapper) {
+      this.lineMapper = lineMapper;
+   }
+
+   /**
+    * Set the priority of the updates of target issues, i.e. the order in which they are written.
+    *
+    * @param updatePriority the priority
+    */
+   public void setUpdatePriority(final UpdatePriority updatePriority) {
+      this.updatePriority = updatePriority;
+   }
+
+   /**
+    * Set the deadline of issue migrations: when it is reached, the issue being updated is finished and the remaining
+    * updates are left (and added to the dead-letter queue, if set).
+    *
+    * @param deadline the deadline in milliseconds since the epoch or 0 for no deadline
+    */
+   public void setDeadline(final long deadline) {
+      this.deadline = deadline;
+   }
+
+   /**
+    * @return the base URL of the server (ending with a slash)
+    */
+   public String getBaseUrl() {
+      return this.baseUrl;
+   }
+
+   /**
+    * Set the maximum number of concurrent write requests, e.g. when updating the settings.
+    *
+    * @param writeParallelism the number of concurrent write requests
+    */
+   public void setWriteParallelism(final int writeParallelism) {
+      this.writeParallelism = Math.max(1, writeParallelism);
+   }
+
+   /**
+    * Update project's issues based on flagged issues list.
+    *
+    * @param componentKey the component key, e.g. project key
+    * @param sourceIssues List of source issues
+    * @param deltaLines maximum delta of line numbers to successfully match an issue
+    * @param migrateConfirmed if open issues should be confirmed, if the source issue is confirmed
+    * @param migrateFalsePositives if unresolved issues should be resolved as false positive, if the source issue is a false positive
+    * @param migrateWontFixes if unresolved issues should be resolved as wontfix, if the source issue is a wontfix
+    * @param addComments if comments should be migrated, too
+    * @return the result with the number of processed, updated, unmatched and failed issues
+    */
+   public MigrationResult updateIssues(final String componentKey, final List<Issue> sourceIssues, final int deltaLines,
+         final boolean migrateConfirmed, final boolean migrateFalsePositives, final boolean migrateWontFixes, final boolean addComments) {
+      return this.updateIssues(componentKey, IssueIndex.of(sourceIssues), deltaLines, migrateConfirmed, migrateFalsePositives, migrateWontFixes, addComments);
+   }
+
+   /**
+    * Update project's issues based on flagged issues index.
+    *
+    * @param componentKey the component key, e.g. project key
+    * @param sourceIndex the index of the source issues (not modified, i.e. it can be shared by several migrations)
+    * @param deltaLines maximum delta of line numbers to successfully match an issue
+    * @param migrateConfirmed if open issues should be confirmed, if the source issue is confirmed
+    * @param migrateFalsePositives if unresolved issues should be resolved as false positive, if the source issue is a false positive
+    * @param migrateWontFixes if unresolved issues should be resolved as wontfix, if the source issue is a wontfix
+    * @param addComments if comments should be migrated, too
+    * @return the result with the number of processed, updated, unmatched and failed issues
+    */
+   public MigrationResult updateIssues(final String componentKey, final IssueIndex sourceIndex, final int deltaLines,
+         final boolean migrateConfirmed, final boolean migrateFalsePositives, final boolean migrateWontFixes, final boolean addComments) {
+      final IssueMatcher matcher = new IssueMatcher(deltaLines, this.matchByHash);
+      final MigrationResult result = new MigrationResult();
+
+      final int total = sourceIndex.size();
+      int processed = 0;
+      int updated = 0;
+      int unmatched = 0;
+      int failed = 0;
+      int remapped = 0;
+
+      SonarClientService.LOG.info("Processing {} issues for project {}...", total, componentKey);
+      final ProgressReporter progress = new ProgressReporter(componentKey, total);
+      try (TargetIssues targetIssues = new TargetIssues(this, componentKey, this.indexDirectory)) {
+         // match all issues first, so that the updates can be written by priority
+         final List<PlannedUpdate> updates = new ArrayList<>();
+         for (final String rule : sourceIndex.getRules()) {
+            if (this.isDeadlineReached(0)) {
+               break;
+            }
+            final MatchIndex targetIndex = targetIssues.getIndex(rule);
+            for (final Issue sourceIssue : sourceIndex.getIssues(rule)) {
+               final long matchStart = System.nanoTime();
+               final IssueMatchEvent matchEvent = JfrSupport.AVAILABLE ? IssueMatchEvent.start() : null;
+               Issue targetIssue = matcher.match(targetIndex, sourceIssue);
+               RunMetrics.get().recordPhase(RunMetrics.PHASE_MATCH, System.nanoTime() - matchStart);
+               if (targetIssue == null && this.lineMapper != null && sourceIssue.getLine() != null) {
+                  targetIssue = this.matchMapped(matcher, targetIndex, sourceIssue, componentKey, deltaLines);
+                  if (targetIssue != null) {
+                     remapped++;
+                  }
+               }
+               if (IssueMatchEvent.isRecorded(matchEvent)) {
+                  IssueMatchEvent.finish(matchEvent, rule, sourceIssue.getParsedComponent(), sourceIssue.getLine() != null ? sourceIssue.getLine() : -1,
+                        targetIndex.countCandidates(sourceIssue, deltaLines),
+                        targetIssue != null ? Math.abs(targetIssue.getLine() - sourceIssue.getLine()) : -1);
+               }
+
+               if (targetIssue != null) {
+                  final String transition = SonarClientService.getTransition(sourceIssue, targetIssue, migrateConfirmed, migrateFalsePositives, migrateWontFixes);
+                  final List<Comment> comments = SonarClientService.getMissingComments(sourceIssue, targetIssue);
+                  if (transition != null || !comments.isEmpty()) {
+                     updates.add(new PlannedUpdate(sourceIssue, targetIssue, transition, comments, this.updatePriority.getPriority(targetIssue, transition)));
+                     continue;
+                  }
+                  progress.matched(false, false);
+                  this.traceDecision(componentKey, sourceIssue, targetIssue, null, 0, false);
+               } else {
+                  unmatched++;
+                  SonarClientService.LOG.debug("Could not find match for {}/{}", sourceIssue.getParsedComponent(), sourceIssue.getLine());
+                  progress.unmatched();
+                  this.traceDecision(componentKey, sourceIssue, null, null, 0, false);
+               }
+               processed++;
+            }
+         }
+
+         // stable sort: updates of the same priority are written in the order of the rules
+         updates.sort(PlannedUpdate.BY_PRIORITY);
+         final CloseableHttpClient client = HttpClientPool.getClient();
+         long lastUpdateMillis = 0;
+         int written = 0;
+         for (; written < updates.size(); written++) {
+            // do not start an update, which is not expected to finish before the deadline
+            if (this.isDeadlineReached(lastUpdateMillis)) {
+               break;
+            }
+            final long updateStart = System.currentTimeMillis();
+            final PlannedUpdate update = updates.get(written);
+            final Issue targetIssue = update.targetIssue;
+            boolean changed = false;
+            boolean error = false;
+            if (update.transition != null) {
+               if (this.doTransition(client, targetIssue, update.transition)) {
+                  if (!this.readonly) {
+                     targetIssues.recordChange(targetIssue, SonarClientService.getStatus(update.transition), SonarClientService.getResolution(update.transition), null);
+                  }
+                  changed = true;
+               } else {
+                  error = true;
+               }
+            }
+            int comments = 0;
+
+            for (final Comment comment : update.comments) {
+               if (this.addComment(client, targetIssue, comment.getMarkdown())) {
+                  if (!this.readonly) {
+                     targetIssues.recordChange(targetIssue, null, null, comment.getMarkdown());
+                  }
+                  changed = true;
+                  comments++;
+               } else {
+                  error = true;
+               }
+            }
+
+            if (changed) {
+               updated++;
+            }
+            if (error) {
+               failed++;
+            }
+            progress.matched(changed, error);
+            this.traceDecision(componentKey, update.sourceIssue, targetIssue, update.transition, comments, error);
+            processed++;
+            lastUpdateMillis = System.currentTimeMillis() - updateStart;
+         }
+
+         if (this.lineMapper != null) {
+            SonarClientService.LOG.info("Matched {} issues of project {} by the diffs of {} files ({} sources fetched).", remapped, componentKey,
+                  this.lineMapper.getDiffed(), this.lineMapper.getFetched());
+         }
+         if (processed < total) {
+            this.leave(componentKey, updates.subList(written, updates.size()), total - processed);
+         }
+         SonarClientService.LOG.info("Processed {} issues of project {}: {} updated, {} unmatched, {} failed.", processed, componentKey, updated, unmatched, failed);
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error updating issues: {}", e.getMessage(), e);
+         result.setError(e.getMessage());
+      }
+      result.setTargetComponent(componentKey);
+      result.setProcessed(processed);
+      result.setUpdated(updated);
+      result.setUnmatched(unmatched);
+      result.setFailed(failed);
+      result.setRemaining(total - processed);
+      return result;
+   }
+
+   /**
+    * Match a source issue at its line mapped to the target by the diff of its file: exactly, if the line is unchanged,
+    * otherwise within the delta of line numbers around the shifted line.
+    */
+   private Issue matchMapped(final IssueMatcher matcher, final MatchIndex targetIndex, final Issue sourceIssue, final String componentKey, final int deltaLines) {
+      final int[] map = this.lineMapper.getLineMap(sourceIssue, componentKey);
+      if (map == null) {
+         return null;
+      }
+      final int line = sourceIssue.getLine();
+      final long matchStart = System.nanoTime();
+      final Issue targetIssue = matcher.matchAt(targetIndex, sourceIssue, LineMapper.mapLine(map, line), LineMapper.isUnchanged(map, line) ? 0 : deltaLines);
+      RunMetrics.get().recordPhase(RunMetrics.PHASE_MATCH, System.nanoTime() - matchStart);
+      return targetIssue;
+   }
+
+   private boolean isDeadlineReached(final long nextMillis) {
+      return this.deadline > 0 && System.currentTimeMillis() + nextMillis >= this.deadline;
+   }
+
+   /**
+    * Report the updates left at the deadline and add them to the dead-letter queue, so that they can be sent later.
+    */
+   private void leave(final String componentKey, final List<PlannedUpdate> updates, final int remaining) {
+      final int[] bySeverity = new int[UpdatePriority.SEVERITIES.size()];
+      for (final PlannedUpdate update : updates) {
+         bySeverity[UpdatePriority.getSeverity(update.targetIssue)]++;
+         this.traceDeferred(componentKey, update);
+         if (update.transition != null) {
+            this.deadLetter(SonarClientService.API_DO_TRANSITION, 0, SonarClientService.DEADLINE_REACHED,
+                  new BasicNameValuePair(SonarClientService.PARAM_ISSUE, update.targetIssue.getKey()),
+                  new BasicNameValuePair(SonarClientService.PARAM_TRANSITION, update.transition));
+         }
+         for (final Comment comment : update.comments) {
+            this.deadLetter(SonarClientService.API_ADD_COMMENT, 0, SonarClientService.DEADLINE_REACHED,
+                  new BasicNameValuePair(SonarClientService.PARAM_ISSUE, update.targetIssue.getKey()),
+                  new BasicNameValuePair(SonarClientService.PARAM_TEXT, comment.getMarkdown()));
+         }
+      }
+      final List<String> severities = new ArrayList<>();
+      for (int severity = bySeverity.length - 1; severity >= 0; severity--) {
+         if (bySeverity[severity] > 0) {
+            severities.add(bySeverity[severity] + " " + UpdatePriority.SEVERITIES.get(severity));
+         }
+      }
+      SonarClientService.LOG.warn("Deadline reached: {} issues of project {} left, {} of them matched with updates not written{}.", remaining, componentKey,
+            updates.size(), severities.isEmpty() ? "" : " (" + String.join(", ", severities) + ")");
+   }
+
+   /**
+    * Get the transition to apply to a matched target issue.
+    *
+    * @param sourceIssue the source issue
+    * @param targetIssue the matched target issue
+    * @param migrateConfirmed if open issues should be confirmed, if the source issue is confirmed
+    * @param migrateFalsePositives if unresolved issues should be resolved as false positive, if the source issue is a false positive
+    * @param migrateWontFixes if unresolved issues should be resolved as wontfix, if the source issue is a wontfix
+    * @return the transition or null, if the target issue needs no transition
+    */
+   static String getTransition(final Issue sourceIssue, final Issue targetIssue, final boolean migrateConfirmed, final boolean migrateFalsePositives,
+         final boolean migrateWontFixes) {
+      String transition = null;
+      if (SonarClientService.STATUS_OPEN.equals(targetIssue.getStatus())) {
+         if (migrateConfirmed && SonarClientService.STATUS_CONFIRMED.equals(sourceIssue.getStatus())) {
+            transition = SonarClientService.TRANSITION_CONFIRM;
+         }
+      }
+      if (!SonarClientService.STATUS_RESOLVED.equals(targetIssue.getStatus())) {
+         if (migrateFalsePositives && SonarClientService.RESOLUTION_FALSE_POSITIVE.equals(sourceIssue.getResolution())) {
+            transition = SonarClientService.TRANSITION_FALSE_POSITIVE;
+         } else if (migrateWontFixes && SonarClientService.RESOLUTION_WONT_FIX.equals(sourceIssue.getResolution())) {
+            transition = SonarClientService.TRANSITION_WONT_FIX;
+         }
+      }
+      return transition;
+   }
+
+   /**
+    * Get the comments of a source issue, which the matched target issue does not have yet.
+    *
+    * @param sourceIssue the source issue
+    * @param targetIssue the matched target issue
+    * @return the missing comments
+    */
+   static List<Comment> getMissingComments(final Issue sourceIssue, final Issue targetIssue) {
+      if (sourceIssue.getComments() == null || targetIssue.getComments() == null) {
+         return Collections.emptyList();
+      }
+      return sourceIssue.getComments().stream()
+            .filter(comment -> targetIssue.getComments().stream().noneMatch(c -> c.getMarkdown() != null && c.getMarkdown().equals(comment.getMarkdown())))
+            .collect(Collectors.toList());
+   }
+
+   private static String getStatus(final String transition) {
+      return SonarClientService.TRANSITION_CONFIRM.equals(transition) ? SonarClientService.STATUS_CONFIRMED : SonarClientService.STATUS_RESOLVED;
+   }
+
+   private static String getResolution(final String transition) {
+      if (SonarClientService.TRANSITION_FALSE_POSITIVE.equals(transition)) {
+         return SonarClientService.RESOLUTION_FALSE_POSITIVE;
+      }
+      return SonarClientService.TRANSITION_WONT_FIX.equals(transition) ? SonarClientService.RESOLUTION_WONT_FIX : null;
+   }
+
+   /**
+    * Send the writes of a dead-letter queue again, which failed on this server. Transitions and comments already
+    * applied to the issues (e.g. by a later migration) are skipped: the current state of the issues is checked with one
+    * search per 500 issues. The transitions are sent as bulk changes, the other writes concurrently. Writes failing
+    * again are added to the dead-letter queue of this service. If the issues cannot be checked (e.g. the server is not
+    * reachable), all writes are added to the dead-letter queue again, i.e. nothing is lost.
+    *
+    * @param failures the failed writes
+    * @return the result with the number of processed, resent, unmatched (issue does not exist any more) and again
+    *         failed writes
+    */
+   public MigrationResult replayFailures(final List<FailedWrite> failures) {
+      final MigrationResult result = new MigrationResult();
+      result.setTargetComponent(this.baseUrl);
+      final ExecutorService executor = Executors.newFixedThreadPool(this.writeParallelism);
+      int updated = 0;
+      int unmatched = 0;
+      int failed = 0;
+      try {
+         final CloseableHttpClient client = HttpClientPool.getClient();
+         final Map<String, Issue> issues = this.getIssuesByKey(failures.stream()
+               .map(failure -> SonarClientService.getParameter(failure, SonarClientService.PARAM_ISSUE))
+               .filter(Objects::nonNull)
+               .distinct()
+               .collect(Collectors.toList()));
+
+         // issue keys by transition
+         final Map<String, List<String>> transitions = new LinkedHashMap<>();
+         final List<CompletableFuture<Boolean>> writes = new ArrayList<>();
+         for (final FailedWrite failure : failures) {
+            final String issueKey = SonarClientService.getParameter(failure, SonarClientService.PARAM_ISSUE);
+            final Issue issue = issueKey != null ? issues.get(issueKey) : null;
+            if (issueKey == null) {
+               writes.add(CompletableFuture.supplyAsync(() -> this.resend(client, failure), executor));
+            } else if (issue == null) {
+               SonarClientService.LOG.warn("Issue {} does not exist any more: {} not sent again.", issueKey, failure.getEndpoint());
+               unmatched++;
+            } else if (SonarClientService.API_DO_TRANSITION.equals(failure.getEndpoint())) {
+               final String transition = SonarClientService.getParameter(failure, SonarClientService.PARAM_TRANSITION);
+               if (SonarClientService.needsTransition(issue, transition)) {
+                  transitions.computeIfAbsent(transition, t -> new ArrayList<>()).add(issueKey);
+               }
+            } else if (SonarClientService.API_ADD_COMMENT.equals(failure.getEndpoint())) {
+               final String text = SonarClientService.getParameter(failure, SonarClientService.PARAM_TEXT);
+               if (issue.getComments() == null || issue.getComments().stream().noneMatch(c -> c.getMarkdown() != null && c.getMarkdown().equals(text))) {
+                  writes.add(CompletableFuture.supplyAsync(() -> this.addComment(client, issue, text), executor));
+               }
+            } else {
+               writes.add(CompletableFuture.supplyAsync(() -> this.resend(client, failure), executor));
+            }
+         }
+
+         final List<CompletableFuture<Void>> bulkChanges = new ArrayList<>();
+         for (final Map.Entry<String, List<String>> transition : transitions.entrySet()) {
+            for (int i = 0; i < transition.getValue().size(); i += SonarClientService.BULK_SIZE) {
+               final List<String> issueKeys = transition.getValue().subList(i, Math.min(i + SonarClientService.BULK_SIZE, transition.getValue().size()));
+               bulkChanges.add(CompletableFuture.runAsync(() -> this.bulkTransition(client, transition.getKey(), issueKeys), executor));
+            }
+         }
+         bulkChanges.forEach(CompletableFuture::join);
+         // a bulk change does not tell, which issues failed: check them and send the failed transitions one by one
+         final Map<String, Issue> changedIssues = this.readonly ? issues
+               : this.getIssuesByKey(transitions.values().stream().flatMap(List::stream).distinct().collect(Collectors.toList()));
+         for (final Map.Entry<String, List<String>> transition : transitions.entrySet()) {
+            for (final String issueKey : transition.getValue()) {
+               final Issue issue = changedIssues.get(issueKey);
+               if (this.readonly || issue != null && !SonarClientService.needsTransition(issue, transition.getKey())) {
+                  updated++;
+               } else if (issue != null) {
+                  writes.add(CompletableFuture.supplyAsync(() -> this.doTransition(client, issue, transition.getKey()), executor));
+               } else {
+                  unmatched++;
+               }
+            }
+         }
+
+         for (final CompletableFuture<Boolean> write : writes) {
+            if (write.join()) {
+               updated++;
+            } else {
+               failed++;
+            }
+         }
+         SonarClientService.LOG.info("Replayed {} failed writes to {}: {} sent, {} unmatched, {} failed again.", failures.size(), this.baseUrl, updated, unmatched, failed);
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error replaying failed writes: {}", e.getMessage(), e);
+         result.setError(e.getMessage());
+         // writes already sent are skipped by the next replay
+         failures.forEach(this::deadLetter);
+         updated = 0;
+         unmatched = 0;
+         failed = failures.size();
+      } finally {
+         executor.shutdown();
+      }
+      result.setProcessed(failures.size());
+      result.setUpdated(updated);
+      result.setUnmatched(unmatched);
+      result.setFailed(failed);
+      return result;
+   }
+
+   /** if the transition is (still) to be done, see {@link #updateIssues(String, IssueIndex, int, boolean, boolean, boolean, boolean)} */
+   private static boolean needsTransition(final Issue issue, final String transition) {
+      if (SonarClientService.TRANSITION_CONFIRM.equals(transition)) {
+         return SonarClientService.STATUS_OPEN.equals(issue.getStatus());
+      }
+      return !SonarClientService.STATUS_RESOLVED.equals(issue.getStatus());
+   }
+
+   private static String getParameter(final FailedWrite failure, final String name) {
+      final List<String> values = failure.getParameters() != null ? failure.getParameters().get(name) : null;
+      return values != null && !values.isEmpty() ? values.get(0) : null;
+   }
+
+   /** the issues with the given keys, fetched with one search per 500 keys */
+   private Map<String, Issue> getIssuesByKey(final List<String> issueKeys) throws IOException {
+      final Map<String, Issue> issues = new LinkedHashMap<>();
+      for (int i = 0; i < issueKeys.size(); i += SonarClientService.BULK_SIZE) {
+         final List<Issue> page = new ArrayList<>();
+         // missing issues would be taken as deleted
+         if (!this.fetchIssues(page,
+               new BasicNameValuePair(SonarClientService.PARAM_ISSUES, String.join(",", issueKeys.subList(i, Math.min(i + SonarClientService.BULK_SIZE, issueKeys.size())))),
+               new BasicNameValuePair(SonarClientService.PARAM_ADDITIONAL_FIELDS, SonarClientService.FIELD_COMMENTS),
+               new BasicNameValuePair(SonarClientService.PARAM_PAGE_SIZE, String.valueOf(SonarClientService.BULK_SIZE)))) {
+            throw new IOException("Issues could not be read from " + this.baseUrl);
+         }
+         page.forEach(issue -> issues.put(issue.getKey(), issue));
+      }
+      return issues;
+   }
+
+   private void bulkTransition(final CloseableHttpClient client, final String transition, final List<String> issueKeys) {
+      if (this.readonly) {
+         SonarClientService.LOG.info("{} issues would be updated: {}", issueKeys.size(), transition);
+         return;
+      }
+      try {
+         final StatusLine statusLine = this.post(client, this.baseUrl + SonarClientService.API_BULK_CHANGE,
+               new BasicNameValuePair(SonarClientService.PARAM_ISSUES, String.join(",", issueKeys)),
+               new BasicNameValuePair(SonarClientService.PARAM_DO_TRANSITION, transition));
+         if (statusLine.getStatusCode() == HttpStatus.SC_OK) {
+            SonarClientService.LOG.debug("{} issues updated: {}", issueKeys.size(), transition);
+         } else {
+            SonarClientService.LOG.warn("Error doing transition '{}' for {} issues: {}", transition, issueKeys.size(), statusLine);
+         }
+      } catch (final Exception e) {
+         SonarClientService.LOG.warn("Error doing transition '{}' for {} issues: {}", transition, issueKeys.size(), e.getMessage(), e);
+      }
+   }
+
+   private boolean resend(final CloseableHttpClient client, final FailedWrite failure) {
+      final List<NameValuePair> parameters = new ArrayList<>();
+      if (failure.getParameters() != null) {
+         failure.getParameters().forEach((name, values) -> values.forEach(value -> parameters.add(new BasicNameValuePair(name, value))));
+      }
+      final NameValuePair[] parameterArray = parameters.toArray(new NameValuePair[parameters.size()]);
+      if (this.readonly) {
+         SonarClientService.LOG.info("{} would be sent again: {}", failure.getEndpoint(), parameters);
+         return true;
+      }
+      try {
+         final StatusLine statusLine = this.post(client, this.baseUrl + failure.getEndpoint(), parameterArray);
+         if (statusLine.getStatusCode() == HttpStatus.SC_OK || statusLine.getStatusCode() == HttpStatus.SC_NO_CONTENT) {
+            SonarClientService.LOG.info("{} sent again: {}", failure.getEndpoint(), parameters);
+            return true;
+         } else {
+            SonarClientService.LOG.error("Error sending {} again: {}", failure.getEndpoint(), statusLine);
+            this.deadLetter(failure.getEndpoint(), statusLine.getStatusCode(), statusLine.toString(), parameterArray);
+         }
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error sending {} again: {}", failure.getEndpoint(), e.getMessage(), e);
+         this.deadLetter(failure.getEndpoint(), 0, e.getMessage(), parameterArray);
+      }
+      return false;
+   }
+
+   /** add a failed write to the dead-letter queue again as it was */
+   private void deadLetter(final FailedWrite failure) {
+      if (this.deadLetters == null) {
+         return;
+      }
+      try {
+         this.deadLetters.add(failure);
+      } catch (final IOException e) {
+         SonarClientService.LOG.error("Error writing dead-letter queue: {}", e.getMessage(), e);
+      }
+   }
+
+   private void deadLetter(final String endpoint, final int status, final String error, final NameValuePair... parameters) {
+      if (this.deadLetters == null) {
+         return;
+      }
+      final Map<String, List<String>> parameterMap = new LinkedHashMap<>();
+      for (final NameValuePair parameter : parameters) {
+         parameterMap.computeIfAbsent(parameter.getName(), name -> new ArrayList<>()).add(parameter.getValue());
+      }
+      final FailedWrite failure = new FailedWrite();
+      failure.setTimestamp(System.currentTimeMillis());
+      failure.setUrl(this.baseUrl);
+      failure.setEndpoint(endpoint);
+      failure.setParameters(parameterMap);
+      failure.setStatus(status);
+      failure.setError(error);
+      try {
+         this.deadLetters.add(failure);
+      } catch (final IOException e) {
+         SonarClientService.LOG.error("Error writing dead-letter queue: {}", e.getMessage(), e);
+      }
+   }
+
+   private void traceDeferred(final String componentKey, final PlannedUpdate update) {
+      if (this.decisionTrace == null) {
+         return;
+      }
+      final IssueDecision decision = this.createDecision(componentKey, update.sourceIssue, update.targetIssue, update.transition, 0, false);
+      decision.setDeferred(true);
+      this.decisionTrace.record(decision);
+   }
+
+   private void traceDecision(final String componentKey, final Issue sourceIssue, final Issue targetIssue, final String transition, final int comments,
+         final boolean failed) {
+      if (this.decisionTrace == null) {
+         return;
+      }
+      this.decisionTrace.record(this.createDecision(componentKey, sourceIssue, targetIssue, transition, comments, failed));
+   }
+
+   private IssueDecision createDecision(final String componentKey, final Issue sourceIssue, final Issue targetIssue, final String transition, final int comments,
+         final boolean failed) {
+      final IssueDecision decision = new IssueDecision();
+      decision.setTimestamp(System.currentTimeMillis());
+      decision.setTargetComponent(componentKey);
+      decision.setSourceKey(sourceIssue.getKey());
+      decision.setRule(sourceIssue.getRule());
+      decision.setComponent(sourceIssue.getParsedComponent());
+      decision.setLine(sourceIssue.getLine());
+      if (targetIssue != null) {
+         decision.setMatched(true);
+         decision.setTargetKey(targetIssue.getKey());
+         decision.setTargetLine(targetIssue.getLine());
+         decision.setLineDistance(Math.abs(targetIssue.getLine() - sourceIssue.getLine()));
+      }
+      decision.setTransition(transition);
+      decision.setComments(comments);
+      decision.setFailed(failed);
+      decision.setDryRun(this.readonly);
+      return decision;
+   }
+
+   private boolean doTransition(final CloseableHttpClient client, final Issue issue, final String transition) {
+      if (this.readonly) {
+         SonarClientService.LOG.debug("Issue {}/{} would be updated: {}", issue.getParsedComponent(), issue.getLine(), transition);
+         return true;
+      }
+      final NameValuePair[] parameters = {
+            new BasicNameValuePair(SonarClientService.PARAM_ISSUE, issue.getKey()),
+            new BasicNameValuePair(SonarClientService.PARAM_TRANSITION, transition) };
+      try {
+         final StatusLine statusLine = this.post(client, this.baseUrl + SonarClientService.API_DO_TRANSITION, parameters);
+         if (statusLine.getStatusCode() == HttpStatus.SC_OK) {
+            SonarClientService.LOG.debug("Issue {}/{} updated: {}", issue.getParsedComponent(), issue.getLine(), transition);
+            return true;
+         } else {
+            SonarClientService.LOG.error("Error doing transition '{}' for issue {}/{}: {}", transition, issue.getParsedComponent(), issue.getLine(), statusLine);
+            this.deadLetter(SonarClientService.API_DO_TRANSITION, statusLine.getStatusCode(), statusLine.toString(), parameters);
+         }
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error doing transition '{}' for issue {}/{}: {}", transition, issue.getParsedComponent(), issue.getLine(), e.getMessage(), e);
+         this.deadLetter(SonarClientService.API_DO_TRANSITION, 0, e.getMessage(), parameters);
+      }
+      return false;
+   }
+
+   private boolean addComment(final CloseableHttpClient client, final Issue issue, final String text) {
+      if (this.readonly) {
+         SonarClientService.LOG.debug("Issue {}/{} would be updated with comment: '{}'", issue.getParsedComponent(), issue.getLine(), text);
+         return true;
+      }
+      final NameValuePair[] parameters = {
+            new BasicNameValuePair(SonarClientService.PARAM_ISSUE, issue.getKey()),
+            new BasicNameValuePair(SonarClientService.PARAM_TEXT, text) };
+      try {
+         final StatusLine statusLine = this.post(client, this.baseUrl + SonarClientService.API_ADD_COMMENT, parameters);
+         if (statusLine.getStatusCode() == HttpStatus.SC_OK) {
+            SonarClientService.LOG.debug("Issue {}/{} updated with comment: '{}'", issue.getParsedComponent(), issue.getLine(), text);
+            return true;
+         } else {
+            SonarClientService.LOG.error("Error adding comment '{}' to issue {}/{}: {}", text, issue.getParsedComponent(), issue.getLine(), statusLine);
+            this.deadLetter(SonarClientService.API_ADD_COMMENT, statusLine.getStatusCode(), statusLine.toString(), parameters);
+         }
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error adding comment '{}' to issue {}/{}: {}", text, issue.getParsedComponent(), issue.getLine(), e.getMessage(), e);
+         this.deadLetter(SonarClientService.API_ADD_COMMENT, 0, e.getMessage(), parameters);
+      }
+      return false;
+   }
+
+   /** not yet used */
+   private boolean assign(final CloseableHttpClient client, final Issue issue, final String assignee) {
+      if (this.readonly) {
+         SonarClientService.LOG.info("Issue {}/{} would be assigned to {}", issue.getParsedComponent(), issue.getLine(), assignee);
+         return true;
+      }
+      try {
+         final StatusLine statusLine = this.post(client, this.baseUrl + SonarClientService.API_ASSIGN,
+               new BasicNameValuePair(SonarClientService.PARAM_ISSUE, issue.getKey()),
+               new BasicNameValuePair(SonarClientService.PARAM_ASSIGNEE, assignee));
+         if (statusLine.getStatusCode() == HttpStatus.SC_OK) {
+            SonarClientService.LOG.info("Issue {}/{} assigned to {}", issue.getParsedComponent(), issue.getLine(), assignee);
+            return true;
+         } else {
+            SonarClientService.LOG.error("Error assigning to {} issue {}/{}: {}", assignee, issue.getParsedComponent(), issue.getLine(), statusLine);
+         }
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error assigning to {} issue {}/{}: {}", assignee, issue.getParsedComponent(), issue.getLine(), e.getMessage(), e);
+      }
+      return false;
+   }
+
+   /**
+    * Get list of issues for a given status.
+    *
+    * @param componentKey the component key, e.g. project key
+    * @param status the status, e.g. CONFIRMED or RESOLVED
+    * @param resolutions the resolutions, e.g. FALSE-POSITIVE or WONTFIX
+    * @return the issues
+    * @throws UnsupportedEncodingException never
+    */
+   public List<Issue> getIssuesInStatus(final String componentKey, final String status, final String... resolutions) {
+      try {
+         return this.getIssues(
+               new BasicNameValuePair(SonarClientService.PARAM_COMPONENT_KEYS, componentKey),
+               new BasicNameValuePair(SonarClientService.PARAM_STATUSES, status),
+               new BasicNameValuePair(SonarClientService.PARAM_ADDITIONAL_FIELDS, SonarClientService.FIELD_COMMENTS),
+               new BasicNameValuePair(SonarClientService.PARAM_RESOLUTIONS, Arrays.stream(resolutions).collect(Collectors.joining(","))));
+      } catch (final Exception e) {
+         return new ArrayList<>();
+      }
+   }
+
+   /**
+    * Get list issues for a given rule.
+    *
+    * @param componentKey the component key, e.g. project key
+    * @param rule the rule key, e.g. java:S2384
+    * @return the issues
+    * @throws UnsupportedEncodingException
+    */
+   public List<Issue> getIssuesForRule(final String componentKey, final String rule) {
+      final List<Issue> issues = new ArrayList<>();
+      this.fetchIssuesForRule(componentKey, rule, issues);
+      return issues;
+   }
+
+   /**
+    * Fetch the issues for a given rule.
+    *
+    * @param componentKey the component key, e.g. project key
+    * @param rule the rule key, e.g. java:S2384
+    * @param issues the list, which the issues are added to
+    * @return true, if all issues could be fetched
+    */
+   boolean fetchIssuesForRule(final String componentKey, final String rule, final List<Issue> issues) {
+      return this.fetchIssues(issues,
+            new BasicNameValuePair(SonarClientService.PARAM_COMPONENT_KEYS, componentKey),
+            new BasicNameValuePair(SonarClientService.PARAM_RULES, rule),
+            new BasicNameValuePair(SonarClientService.PARAM_ADDITIONAL_FIELDS, SonarClientService.FIELD_COMMENTS));
+   }
+
+   /**
+    * Get the date of the last analysis of a component.
+    *
+    * @param componentKey the component key, e.g. project key
+    * @return the date of the last analysis or null, if the component was not analyzed yet or cannot be read
+    */
+   public String getAnalysisDate(final String componentKey) {
+      final String url = this.getUrl(this.baseUrl + SonarClientService.API_SHOW_COMPONENT,
+            new BasicNameValuePair(SonarClientService.PARAM_COMPONENT, componentKey));
+      try {
+         final CloseableHttpClient client = HttpClientPool.getClient();
+         final ComponentResponse obj = this.get(client, url, ComponentResponse.class);
+         return obj.getComponent() != null ? obj.getComponent().getAnalysisDate() : null;
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error getting component from URL {}: {}.", url, e.getMessage(), e);
+      }
+      return null;
+   }
+
+   /**
+    * Get the background tasks of a component, i.e. the pending and running tasks and the last finished task.
+    *
+    * @param componentKey the component key, e.g. project key
+    * @return the tasks or null, if they cannot be read
+    */
+   public CeComponentResponse getAnalysisTasks(final String componentKey) {
+      final String url = this.getUrl(this.baseUrl + SonarClientService.API_CE_COMPONENT,
+            new BasicNameValuePair(SonarClientService.PARAM_COMPONENT, componentKey));
+      try {
+         final CloseableHttpClient client = HttpClientPool.getClient();
+         return this.get(client, url, CeComponentResponse.class);
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error getting background tasks from URL {}: {}.", url, e.getMessage(), e);
+      }
+      return null;
+   }
+
+   /**
+    * Get the source of a file.
+    *
+    * @param fileKey the file key, e.g. com.test:prj1:src/main/java/com/test/Test.java
+    * @return the source or null, if it cannot be read (e.g. the file does not exist or the user may not see the source)
+    */
+   public String getSource(final String fileKey) {
+      final String url = this.getUrl(this.baseUrl + SonarClientService.API_SOURCES_RAW, new BasicNameValuePair(SonarClientService.PARAM_KEY, fileKey));
+      try {
+         final CloseableHttpClient client = HttpClientPool.getClient();
+         return this.get(client, url, String.class);
+      } catch (final Exception e) {
+         SonarClientService.LOG.warn("Error getting source from URL {}: {}.", url, e.getMessage());
+      }
+      return null;
+   }
+
+   /**
+    * Search the first page of issues, e.g. to count the issues per rule without fetching them.
+    *
+    * @param componentKey the component key, e.g. project key
+    * @param rules the rule keys or empty for all rules
+    * @param status the status or null for all statuses
+    * @param resolutions the resolutions or empty for all resolutions
+    * @param pageSize the page size, e.g. 1 if only the total and the facet is needed
+    * @param countRules if the response should contain the facet with the number of issues per rule
+    * @return the response or null, if the issues cannot be searched
+    */
+   IssuesResponse searchIssues(final String componentKey, final Collection<String> rules, final String status, final Collection<String> resolutions,
+         final int pageSize, final boolean countRules) {
+      final List<NameValuePair> parameters = new ArrayList<>();
+      parameters.add(new BasicNameValuePair(SonarClientService.PARAM_COMPONENT_KEYS, componentKey));
+      if (!rules.isEmpty()) {
+         parameters.add(new BasicNameValuePair(SonarClientService.PARAM_RULES, String.join(",", rules)));
+      }
+      if (status != null) {
+         parameters.add(new BasicNameValuePair(SonarClientService.PARAM_STATUSES, status));
+      }
+      if (!resolutions.isEmpty()) {
+         parameters.add(new BasicNameValuePair(SonarClientService.PARAM_RESOLUTIONS, String.join(",", resolutions)));
+      }
+      parameters.add(new BasicNameValuePair(SonarClientService.PARAM_ADDITIONAL_FIELDS, SonarClientService.FIELD_COMMENTS));
+      parameters.add(new BasicNameValuePair(SonarClientService.PARAM_PAGE_SIZE, String.valueOf(pageSize)));
+      if (countRules) {
+         parameters.add(new BasicNameValuePair(SonarClientService.PARAM_FACETS, SonarClientService.FACET_RULES));
+      }
+      final String url = this.getUrl(this.baseUrl + SonarClientService.API_SEARCH_ISSUES, parameters.toArray(new NameValuePair[parameters.size()]));
+      try {
+         return this.get(HttpClientPool.getClient(), url, IssuesResponse.class);
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error searching issues from URL {}: {}.", url, e.getMessage(), e);
+      }
+      return null;
+   }
+
+   private List<Issue> getIssues(final NameValuePair... parameters) {
+      final List<Issue> issues = new ArrayList<>();
+      this.fetchIssues(issues, parameters);
+      return issues;
+   }
+
+   private boolean fetchIssues(final List<Issue> issues, final NameValuePair... parameters) {
+      boolean complete = false;
+      Integer pageIndex = 0; // Current page
+      IssuesResponse obj = null;
+
+      final long start = System.nanoTime();
+      try {
+         final CloseableHttpClient client = HttpClientPool.getClient();
+         do {
+            final String url = this.getUrl(this.baseUrl + SonarClientService.API_SEARCH_ISSUES,
+                  this.addParameters(parameters, new BasicNameValuePair(SonarClientService.PARAM_PAGE_INDEX, String.valueOf(pageIndex + 1))));
+            try {
+               final PageFetchEvent pageEvent = JfrSupport.AVAILABLE ? PageFetchEvent.start(pageIndex + 1) : null;
+               obj = this.get(client, url, IssuesResponse.class);
+               PageFetchEvent.finish(pageEvent, obj.getIssues().size(), obj.getPaging().getTotal());
+
+               // Add list of issues extracted from current page
+               issues.addAll(obj.getIssues());
+               pageIndex = obj.getPaging().getPageIndex(); // Current page
+            } catch (final Exception e) {
+               SonarClientService.LOG.error("Error getting issues from URL {}.", url, e);
+               break;
+            }
+            complete = issues.size() >= obj.getPaging().getTotal();
+         } while (!complete);
+      } catch (final Exception e) {
+         final String url = this.getUrl(this.baseUrl + SonarClientService.API_SEARCH_ISSUES, parameters);
+         SonarClientService.LOG.error("Error getting issues from URL {}: {}.", url, e.getMessage(), e);
+      }
+      RunMetrics.get().recordPhase(RunMetrics.PHASE_FETCH, System.nanoTime() - start);
+
+      return complete;
+   }
+
+   /**
+    * Update the settings
+    *
+    * @param componentKey the project key
+    * @param sourceSettings the settings of the source project
+    * @param sourceProfiles the quality profiles of the source project
+    * @return the result with the number of processed source settings, updated (set or reset) and failed settings
+    */
+   public MigrationResult updateSettings(final String componentKey, final List<Setting> sourceSettings, final List<QualityProfile> sourceProfiles) {
+      final MigrationResult result = new MigrationResult();
+      result.setTargetComponent(componentKey);
+      final ExecutorService executor = Executors.newFixedThreadPool(this.writeParallelism);
+      try {
+         final CloseableHttpClient client = HttpClientPool.getClient();
+
+         List<Setting> targetSettings = this.getSettings(componentKey);
+         final CompletableFuture<List<QualityProfile>> targetProfiles;
+         if (targetSettings == null) {
+            if (!this.createProject(client, componentKey)) {
+               throw new IllegalStateException("Project " + componentKey + " could not be created");
+            }
+            // the settings and quality profiles of a new project are the global settings and default profiles
+            final List<QualityProfile> defaultProfiles = this.catalog.getDefaultProfiles(this);
+            targetSettings = defaultProfiles != null ? this.catalog.getGlobalSettings(this) : this.getGlobalSettings();
+            if (targetSettings == null) {
+               throw new IllegalStateException("Global settings could not be read");
+            }
+            targetProfiles = defaultProfiles != null ? CompletableFuture.completedFuture(defaultProfiles)
+                  : CompletableFuture.supplyAsync(() -> this.getQualityProfiles(componentKey), executor);
+         } else {
+            targetProfiles = CompletableFuture.supplyAsync(() -> this.getQualityProfiles(componentKey), executor);
+         }
+
+         // compute all changes first, then apply the independent changes concurrently
+         final Map<String, Setting> targetSettingsByKey = targetSettings.stream()
+               .collect(Collectors.toMap(Setting::getKey, Function.identity()));
+         final List<CompletableFuture<Boolean>> changes = new ArrayList<>();
+         for (final Setting sourceSetting : sourceSettings) {
+            final Setting targetSetting = targetSettingsByKey.remove(sourceSetting.getKey());
+            final Object value = this.getChangedValue(sourceSetting, targetSetting);
+            if (value != null) {
+               changes.add(CompletableFuture.supplyAsync(() -> this.setSetting(client, componentKey, sourceSetting.getKey(), value), executor));
+            }
+         }
+
+         final Map<String, QualityProfile> targetProfilesByLanguage = Optional.ofNullable(targetProfiles.join()).orElse(Collections.emptyList()).stream()
+               .collect(Collectors.toMap(QualityProfile::getLanguage, Function.identity()));
+         for (final QualityProfile sourceProfile : sourceProfiles) {
+            final QualityProfile targetProfile = targetProfilesByLanguage.get(sourceProfile.getLanguage());
+            if (targetProfile != null && sourceProfile.getName().equals(targetProfile.getName())) {
+               continue;
+            }
+            if (!this.catalog.hasProfile(this, sourceProfile.getLanguage(), sourceProfile.getName())) {
+               SonarClientService.LOG.error("Quality profile {} for language {} does not exist", sourceProfile.getName(), sourceProfile.getLanguage());
+               changes.add(CompletableFuture.completedFuture(false));
+            } else {
+               changes.add(CompletableFuture.supplyAsync(() -> this.setQualityProfile(client, componentKey, sourceProfile.getName(), sourceProfile.getLanguage()), executor));
+            }
+         }
+
+         int updated = 0;
+         int failed = 0;
+         for (final CompletableFuture<Boolean> change : changes) {
+            if (change.join()) {
+               updated++;
+            } else {
+               failed++;
+            }
+         }
+
+         // reset the remaining settings after all settings have been set
+         if (!targetSettingsByKey.isEmpty()) {
+            final String[] keys = targetSettingsByKey.keySet().stream().toArray(String[]::new);
+            if (this.resetSetting(client, componentKey, keys)) {
+               updated += keys.length;
+            } else {
+               failed++;
+            }
+         }
+         result.setUpdated(updated);
+         result.setFailed(failed);
+
+         SonarClientService.LOG.info("Settings for {} updated: {} changes, {} failed", componentKey, updated, failed);
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error setting settings: {}", e.getMessage(), e);
+         result.setError(e.getMessage());
+      } finally {
+         executor.shutdown();
+      }
+      result.setProcessed(sourceSettings.size());
+      return result;
+   }
+
+   /**
+    * Get the value of the source setting, if it differs from the target setting.
+    *
+    * @param sourceSetting the source setting
+    * @param targetSetting the target setting or null, if not set
+    * @return the value (String or Collection) to set or null, if the setting need not be changed
+    */
+   private Object getChangedValue(final Setting sourceSetting, final Setting targetSetting) {
+      if (targetSetting == null) {
+         if (sourceSetting.getValue() != null) {
+            return sourceSetting.getValue();
+         } else if (sourceSetting.getValues() != null) {
+            return sourceSetting.getValues();
+         } else if (sourceSetting.getFieldValues() != null) {
+            return sourceSetting.getFieldValues();
+         }
+      } else if (sourceSetting.getValue() != null && !sourceSetting.getValue().equals(targetSetting.getValue())) {
+         SonarClientService.LOG.info("Changing setting {}: {} -> {}", sourceSetting.getKey(), targetSetting.getValue(), sourceSetting.getValue());
+         return sourceSetting.getValue();
+      } else if (sourceSetting.getValues() != null && !sourceSetting.getValues().equals(targetSetting.getValues())) {
+         SonarClientService.LOG.info("Changing setting {}: {} -> {}", sourceSetting.getKey(), targetSetting.getValues(), sourceSetting.getValues());
+         return sourceSetting.getValues();
+      } else if (sourceSetting.getFieldValues() != null && !sourceSetting.getFieldValues().equals(targetSetting.getFieldValues())) {
+         SonarClientService.LOG.info("Changing setting {}: {} -> {}", sourceSetting.getKey(), targetSetting.getFieldValues(), sourceSetting.getFieldValues());
+         return sourceSetting.getFieldValues();
+      }
+      return null;
+   }
+
+   /**
+    * Get the settings for a component.
+    *
+    * @param componentKey the key of the component
+    * @return the settings (or null if nothing found)
+    */
+   public List<Setting> getSettings(final String componentKey) {
+      final String url = this.getUrl(this.baseUrl + SonarClientService.API_SETTINGS,
+            new BasicNameValuePair(SonarClientService.PARAM_COMPONENT, componentKey));
+      try {
+         final CloseableHttpClient client = HttpClientPool.getClient();
+         final SettingsResponse obj = this.get(client, url, SettingsResponse.class);
+         return obj.getSettings();
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error getting settings from URL {}: {}.", url, e.getMessage(), e);
+      }
+      return null;
+   }
+
+   /**
+    * Get the global settings.
+    *
+    * @return the settings (or null if nothing found)
+    */
+   public List<Setting> getGlobalSettings() {
+      final String url = this.baseUrl + SonarClientService.API_SETTINGS;
+      try {
+         final CloseableHttpClient client = HttpClientPool.getClient();
+         final SettingsResponse obj = this.get(client, url, SettingsResponse.class);
+         return obj.getSettings();
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error getting settings from URL {}: {}.", url, e.getMessage(), e);
+      }
+      return null;
+   }
+
+   private boolean createProject(final CloseableHttpClient client, final String componentKey) {
+      if (this.readonly) {
+         SonarClientService.LOG.info("Project {} would be created", componentKey);
+         return true;
+      }
+      try {
+         final StatusLine statusLine = this.post(client, this.baseUrl + SonarClientService.API_CREATE_PROJECT,
+               new BasicNameValuePair(SonarClientService.PARAM_PROJECT, componentKey),
+               new BasicNameValuePair(SonarClientService.PARAM_NAME, "Project " + componentKey));
+         if (statusLine.getStatusCode() == HttpStatus.SC_OK) {
+            SonarClientService.LOG.info("Project {} created", componentKey);
+            return true;
+         } else {
+            SonarClientService.LOG.error("Error creating project {}: {}", componentKey, statusLine);
+         }
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error creating project {}: {}", componentKey, e.getMessage(), e);
+      }
+      return false;
+   }
+
+   private boolean setSetting(final CloseableHttpClient client, final String componentKey, final String key, final Object value) {
+      if (this.readonly) {
+         SonarClientService.LOG.info("Setting {} would be updated to '{}'", key, value);
+         return true;
+      }
+      final List<NameValuePair> params = new ArrayList<>();
+      try {
+         StatusLine statusLine = null;
+         params.add(new BasicNameValuePair(SonarClientService.PARAM_COMPONENT, componentKey));
+         params.add(new BasicNameValuePair(SonarClientService.PARAM_KEY, key));
+         if (value instanceof String) {
+            params.add(new BasicNameValuePair(SonarClientService.PARAM_VALUE, value.toString()));
+            statusLine = this.post(client, this.baseUrl + SonarClientService.API_SET, params.toArray(new NameValuePair[params.size()]));
+         } else if (value instanceof Collection<?> && !((Collection<?>) value).isEmpty()) {
+            final List<?> values = new ArrayList<>((Collection<?>) value);
+            if (values.get(0) instanceof String) {
+               values.forEach(v -> params.add(new BasicNameValuePair(SonarClientService.PARAM_VALUES, v.toString())));
+            } else {
+               for (final Object v : values) {
+                  params.add(new BasicNameValuePair(SonarClientService.PARAM_FIELD_VALUES, SonarClientService.MAPPER.writeValueAsString(v)));
+               }
+            }
+            statusLine = this.post(client, this.baseUrl + SonarClientService.API_SET, params.toArray(new NameValuePair[params.size()]));
+         }
+         if (statusLine != null && statusLine.getStatusCode() == HttpStatus.SC_NO_CONTENT) {
+            SonarClientService.LOG.info("Setting {} updated to '{}'", key, value);
+            return true;
+         } else {
+            SonarClientService.LOG.error("Error updating setting {} to '{}': {}", key, value, statusLine);
+            if (statusLine != null) {
+               this.deadLetter(SonarClientService.API_SET, statusLine.getStatusCode(), statusLine.toString(), params.toArray(new NameValuePair[params.size()]));
+            }
+         }
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error updating setting {} to '{}': {}", key, value, e.getMessage(), e);
+         this.deadLetter(SonarClientService.API_SET, 0, e.getMessage(), params.toArray(new NameValuePair[params.size()]));
+      }
+      return false;
+   }
+
+   private boolean resetSetting(final CloseableHttpClient client, final String componentKey, final String... keys) {
+      if (this.readonly) {
+         SonarClientService.LOG.info("Settings {} would be reset", String.join(", ", keys));
+         return true;
+      }
+      final NameValuePair[] parameters = {
+            new BasicNameValuePair(SonarClientService.PARAM_COMPONENT, componentKey),
+            new BasicNameValuePair(SonarClientService.PARAM_KEYS, String.join(",", keys)) };
+      try {
+         final StatusLine statusLine = this.post(client, this.baseUrl + SonarClientService.API_RESET, parameters);
+         if (statusLine.getStatusCode() == HttpStatus.SC_NO_CONTENT) {
+            SonarClientService.LOG.info("Settings {} reset", String.join(", ", keys));
+            return true;
+         } else {
+            SonarClientService.LOG.error("Error resetting settings {}: {}", String.join(", ", keys), statusLine);
+            this.deadLetter(SonarClientService.API_RESET, statusLine.getStatusCode(), statusLine.toString(), parameters);
+         }
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error resetting settings {}: {}", String.join(", ", keys), e.getMessage(), e);
+         this.deadLetter(SonarClientService.API_RESET, 0, e.getMessage(), parameters);
+      }
+      return false;
+   }
+
+   /**
+    * Get all quality profiles of the server.
+    *
+    * @return the quality profiles (or null if they cannot be read)
+    */
+   public List<QualityProfile> getAllQualityProfiles() {
+      final String url = this.baseUrl + SonarClientService.API_SEARCH_QUALITY_PROFILES;
+      try {
+         final CloseableHttpClient client = HttpClientPool.getClient();
+         final QualityProfilesResponse obj = this.get(client, url, QualityProfilesResponse.class);
+         return obj.getProfiles();
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error getting quality profiles: {}.", e.getMessage(), e);
+      }
+      return null;
+   }
+
+   /**
+    * Get the quality profiles for a project.
+    *
+    * @param componentKey the key of the project
+    * @return the quality profiles (or null if the project does not exist)
+    */
+   public List<QualityProfile> getQualityProfiles(final String componentKey) {
+      final String url = this.getUrl(this.baseUrl + SonarClientService.API_SEARCH_QUALITY_PROFILES,
+            new BasicNameValuePair(SonarClientService.PARAM_PROJECT, componentKey));
+      try {
+         final CloseableHttpClient client = HttpClientPool.getClient();
+         final QualityProfilesResponse obj = this.get(client, url, QualityProfilesResponse.class);
+         return obj.getProfiles();
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error getting quality profiles for project {}: {}.", componentKey, e.getMessage(), e);
+      }
+      return null;
+   }
+
+   private boolean setQualityProfile(final CloseableHttpClient client, final String componentKey, final String name, final String language) {
+      if (this.readonly) {
+         SonarClientService.LOG.info("Quality profile for language {} would be set to {}", language, name);
+         return true;
+      }
+      final NameValuePair[] parameters = {
+            new BasicNameValuePair(SonarClientService.PARAM_PROJECT, componentKey),
+            new BasicNameValuePair(SonarClientService.PARAM_LANGUAGE, language),
+            new BasicNameValuePair(SonarClientService.PARAM_QUALITY_PROFILE, name) };
+      try {
+         final StatusLine statusLine = this.post(client, this.baseUrl + SonarClientService.API_ADD_PROJECT_TO_QUALITY_PROFILE, parameters);
+         if (statusLine.getStatusCode() == HttpStatus.SC_NO_CONTENT) {
+            SonarClientService.LOG.info("Quality profile for language {} set to {}", language, name);
+            return true;
+         } else {
+            SonarClientService.LOG.error("Error setting quality profile {} for language {}: {}", name, language, statusLine);
+            this.deadLetter(SonarClientService.API_ADD_PROJECT_TO_QUALITY_PROFILE, statusLine.getStatusCode(), statusLine.toString(), parameters);
+         }
+      } catch (final Exception e) {
+         SonarClientService.LOG.error("Error setting quality profile {} for language {}: {}", name, language, e.getMessage(), e);
+         this.deadLetter(SonarClientService.API_ADD_PROJECT_TO_QUALITY_PROFILE, 0, e.getMessage(), parameters);
+      }
+      return false;
+
+   }
+
+   private <T> T get(final CloseableHttpClient client, final String url, final Class<T> clazz, final NameValuePair... parameters) throws IOException {
+      if (this.hedgingPolicy != null) {
+         return this.getHedged(client, this.getUrl(url, parameters), clazz);
+      }
+      return this.execute(client, this.createGet(this.getUrl(url, parameters)), clazz);
+   }
+
+   private <T> T getHedged(final CloseableHttpClient client, final String url, final Class<T> clazz) throws IOException {
+      final HedgingPolicy policy = this.hedgingPolicy;
+      final CompletionService<T> completionService = new ExecutorCompletionService<>(policy.getExecutor());
+      final List<HttpGet> requests = new ArrayList<>();
+      policy.recordRequest();
+      final long start = System.nanoTime();
+      try {
+         requests.add(this.submit(completionService, client, url, clazz));
+         final long delay = policy.getHedgeDelay();
+         Future<T> done = delay < 0 ? null : completionService.poll(delay, TimeUnit.MILLISECONDS);
+         if (done == null && delay >= 0 && policy.tryAcquireHedge()) {
+            SonarClientService.LOG.debug("Hedging request {} after {} ms", url, delay);
+            RunMetrics.get().recordHedge(this.getEndpoint(url));
+            requests.add(this.submit(completionService, client, url, clazz));
+         }
+         ExecutionException failure = null;
+         for (int pending = requests.size(); pending > 0; pending--) {
+            final Future<T> future = done != null ? done : completionService.take();
+            done = null;
+            try {
+               final T result = future.get();
+               // only the latency of the primary request is sampled - if the hedge won, the primary took at least as long
+               policy.recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+               return result;
+            } catch (final ExecutionException e) {
+               failure = e;
+            }
+         }
+         if (failure.getCause() instanceof IOException) {
+            throw (IOException) failure.getCause();
+         }
+         throw new IOException(failure.getCause());
+      } catch (final InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted waiting for " + url);
+      } finally {
+         // cancel the loser, if any
+         requests.forEach(HttpGet::abort);
+      }
+   }
+
+   private <T> HttpGet submit(final CompletionService<T> completionService, final CloseableHttpClient client, final String url, final Class<T> clazz) {
+      final HttpGet request = this.createGet(url);
+      completionService.submit(() -> this.execute(client, request, clazz));
+      return request;
+   }
+
+   private HttpGet createGet(final String url) {
+      final HttpGet request = new HttpGet(url);
+      this.getAuthenticationHeader().ifPresent(request::addHeader);
+      return request;
+   }
+
+   private <T> T execute(final CloseableHttpClient client, final HttpGet request, final Class<T> clazz) throws IOException {
+      this.throttle.acquireRead();
+      final String endpoint = this.getEndpoint(request.getURI().toString());
+      if (this.balancer == null) {
+         return this.execute(client, request, clazz, endpoint);
+      }
+      // reads are idempotent, so a failure of a node is retried on the next one
+      final String url = request.getURI().toString();
+      final List<NodeBalancer.Node> tried = new ArrayList<>();
+      while (true) {
+         final NodeBalancer.Node node = this.balancer.acquire(tried);
+         tried.add(node);
+         request.setURI(URI.create(this.balancer.toNodeUrl(node, url)));
+         try {
+            return this.execute(client, request, clazz, endpoint);
+         } catch (final IOException e) {
+            if (request.isAborted() || e instanceof InterruptedIOException && Thread.currentThread().isInterrupted() || !NodeBalancer.isNodeFailure(e)) {
+               throw e;
+            }
+            this.balancer.markDown(node, e.getMessage());
+            if (tried.size() >= this.balancer.size()) {
+               throw e;
+            }
+            RunMetrics.get().recordRetry(endpoint);
+         } finally {
+            this.balancer.release(node);
+         }
+      }
+   }
+
+   private <T> T execute(final CloseableHttpClient client, final HttpGet request, final Class<T> clazz, final String endpoint) throws IOException {
+      final HttpRequestEvent event = JfrSupport.AVAILABLE ? HttpRequestEvent.start(request.getMethod(), endpoint) : null;
+      final long start = System.nanoTime();
+      int status = 0;
+      CountingInputStream body = null;
+      try (CloseableHttpResponse response = client.execute(request)) {
+         status = response.getStatusLine().getStatusCode();
+         if (this.balancer != null && NodeBalancer.isUnavailable(status)) {
+            throw new NodeBalancer.UnavailableException(response.getStatusLine().toString());
+         }
+         // decode directly from the stream, closing it consumes the rest of the entity, so the connection is reused
+         body = new CountingInputStream(response.getEntity().getContent());
+         if (clazz == String.class) {
+            // plain text, e.g. the source of a file
+            if (status != HttpStatus.SC_OK) {
+               throw new IOException(response.getStatusLine().toString());
+            }
+            return clazz.cast(EntityUtils.toString(new InputStreamEntity(body), StandardCharsets.UTF_8));
+         }
+         return SonarClientService.READERS.computeIfAbsent(clazz, SonarClientService.MAPPER::readerFor).readValue(body);
+      } finally {
+         final long bytesIn = body != null ? body.getCount() : 0;
+         if (!request.isAborted()) {
+            RunMetrics.get().recordRequest(endpoint, status, System.nanoTime() - start, bytesIn, 0);
+            HttpRequestEvent.finish(event, status, bytesIn, 0);
+         }
+      }
+   }
+
+   private StatusLine post(final CloseableHttpClient client, final String url, final NameValuePair... parameters) throws IOException {
+      final HttpPost request = new HttpPost(url);
+      request.setEntity(new UrlEncodedFormEntity(Arrays.asList(parameters), StandardCharsets.UTF_8));
+      this.getAuthenticationHeader().ifPresent(request::addHeader);
+
+      final long phaseStart = System.nanoTime();
+      this.throttle.acquireWrite();
+      final String endpoint = this.getEndpoint(url);
+      try {
+         if (this.balancer == null) {
+            return this.execute(client, request, endpoint);
+         }
+         // a write is sent to the next node only, if the failed node did not receive it
+         final List<NodeBalancer.Node> tried = new ArrayList<>();
+         while (true) {
+            final NodeBalancer.Node node = this.balancer.acquire(tried);
+            tried.add(node);
+            request.setURI(URI.create(this.balancer.toNodeUrl(node, url)));
+            try {
+               final StatusLine statusLine = this.execute(client, request, endpoint);
+               if (!NodeBalancer.isUnavailable(statusLine.getStatusCode())) {
+                  return statusLine;
+               }
+               this.balancer.markDown(node, statusLine.toString());
+               if (tried.size() >= this.balancer.size()) {
+                  return statusLine;
+               }
+            } catch (final HttpHostConnectException | ConnectTimeoutException e) {
+               this.balancer.markDown(node, e.getMessage());
+               if (tried.size() >= this.balancer.size()) {
+                  throw e;
+               }
+            } catch (final IOException e) {
+               if (!(e instanceof InterruptedIOException && Thread.currentThread().isInterrupted())) {
+                  this.balancer.markDown(node, e.getMessage());
+               }
+               throw e;
+            } finally {
+               this.balancer.release(node);
+            }
+            RunMetrics.get().recordRetry(endpoint);
+         }
+      } finally {
+         RunMetrics.get().recordPhase(RunMetrics.PHASE_WRITE, System.nanoTime() - phaseStart);
+      }
+   }
+
+   private StatusLine execute(final CloseableHttpClient client, final HttpPost request, final String endpoint) throws IOException {
+      final HttpRequestEvent event = JfrSupport.AVAILABLE ? HttpRequestEvent.start(request.getMethod(), endpoint) : null;
+      final long start = System.nanoTime();
+      int status = 0;
+      long bytesIn = 0;
+      try (CloseableHttpResponse response = client.execute(request)) {
+         status = response.getStatusLine().getStatusCode();
+         bytesIn = response.getEntity() != null ? EntityUtils.toByteArray(response.getEntity()).length : 0;
+         return response.getStatusLine();
+      } finally {
+         RunMetrics.get().recordRequest(endpoint, status, System.nanoTime() - start, bytesIn, request.getEntity().getContentLength());
+         HttpRequestEvent.finish(event, status, bytesIn, request.getEntity().getContentLength());
+      }
+   }
+
+   /** the endpoint of an URL, e.g. api/issues/search */
+   private String getEndpoint(final String url) {
+      final String path = url.startsWith(this.baseUrl) ? url.substring(this.baseUrl.length()) : url;
+      final int query = path.indexOf('?');
+      return query >= 0 ? path.substring(0, query) : path;
+   }
+
+   private NameValuePair[] addParameters(final NameValuePair[] parameters1, final NameValuePair... parameters2) {
+      final List<NameValuePair> parameters = new ArrayList<>();
+      parameters.addAll(Arrays.asList(parameters1));
+      parameters.addAll(Arrays.asList(parameters2));
+      return parameters.toArray(new NameValuePair[parameters.size()]);
+   }
+
+   private String getUrl(final String url, final NameValuePair... parameters) {
+      final StringBuilder sb = new StringBuilder(url);
+      try {
+         for (final NameValuePair parameter : parameters) {
+            sb.append(sb.toString().contains("?") ? "&" : "?")
+                  .append(parameter.getName()).append("=").append(URLEncoder.encode(parameter.getValue(), StandardCharsets.UTF_8.toString()));
+         }
+      } catch (final UnsupportedEncodingException e) {
+         // ignore - should never happen
+      }
+      return sb.toString();
+   }
+
+   private Optional<Header> getAuthenticationHeader() {
+      if (StringUtils.isNotBlank(this.login)) {
+         final String value = this.login + ":" + (StringUtils.isNotBlank(this.password) ? this.password : "");
+         return Optional.of(new BasicHeader("Authorization", "Basic " + Base64.getEncoder().encodeToString((value).getBytes(StandardCharsets.UTF_8))));
+      }
+      return Optional.empty();
+   }
+   /** update of a matched target issue, which is written later */
+   private static final class PlannedUpdate {
+
+      static final Comparator<PlannedUpdate> BY_PRIORITY = Comparator.comparingDouble((final PlannedUpdate update) -> update.priority).reversed();
+
+      final Issue sourceIssue;
+
+      final Issue targetIssue;
+
+      final String transition;
+
+      final List<Comment> comments;
+
+      final double priority;
+
+      PlannedUpdate(final Issue sourceIssue, final Issue targetIssue, final String transition, final List<Comment> comments, final double priority) {
+         this.sourceIssue = sourceIssue;
+         this.targetIssue = targetIssue;
+         this.transition = transition;
+         this.comments = comments;
+         this.priority = priority;
+      }
+   }
+
+}
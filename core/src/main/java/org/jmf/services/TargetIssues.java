@@ -0,0 +1,197 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jmf.vo.Comment;
+import org.jmf.vo.Issue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The target issues of one migration, fetched rule by rule or read from the persisted index of the target (see
+ * {@link MappedIssueIndex}). Issues fetched are added to the persisted index, when the migration is finished (or
+ * earlier, if there are many). The persisted index is stale only after a new analysis of the target, i.e. issues changed
+ * in SonarQube by hand in the meantime are served as indexed.
+ * <p>
+ * An instance is used by one thread. Migrations into the same target in this JVM wait for each other, if the index is
+ * persisted.
+ */
+class TargetIssues implements Closeable {
+
+   /** number of fetched issues, which are added to the persisted index during the migration already */
+   private static final int MAX_PENDING = 200000;
+
+   private static final Logger LOG = LoggerFactory.getLogger(TargetIssues.class);
+
+   private static final Map<File, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+
+   private final SonarClientService service;
+
+   private final String componentKey;
+
+   private final File file;
+
+   private final String analysisDate;
+
+   private final ReentrantLock lock;
+
+   private MappedIssueIndex persisted;
+
+   private final Set<String> pendingRules = new LinkedHashSet<>();
+
+   private final List<Issue> pendingIssues = new ArrayList<>();
+
+   /**
+    * Constructor.
+    *
+    * @param service the service of the target
+    * @param componentKey the target component key
+    * @param indexDirectory the directory of the persisted indexes or null, if the index should not be persisted
+    */
+   TargetIssues(final SonarClientService service, final String componentKey, final File indexDirectory) {
+      this.service = service;
+      this.componentKey = componentKey;
+      this.analysisDate = indexDirectory != null ? service.getAnalysisDate(componentKey) : null;
+      if (this.analysisDate == null) {
+         if (indexDirectory != null) {
+            TargetIssues.LOG.warn("Target issues of {} are not indexed: date of the last analysis unknown.", componentKey);
+         }
+         this.file = null;
+         this.lock = null;
+         return;
+      }
+      this.file = MappedIssueIndex.getFile(indexDirectory, service.getBaseUrl(), componentKey).getAbsoluteFile();
+      this.lock = TargetIssues.LOCKS.computeIfAbsent(this.file, f -> new ReentrantLock());
+      this.lock.lock();
+      try {
+         this.persisted = MappedIssueIndex.open(this.file, this.analysisDate);
+         if (this.persisted != null) {
+            TargetIssues.LOG.info("Using issue index {} with {} issues of analysis {}.", this.file, this.persisted.size(), this.analysisDate);
+         }
+      } catch (final IOException | RuntimeException e) {
+         // e.g. a corrupt index, the lock is kept until closed
+         TargetIssues.LOG.warn("Error reading issue index {}, it is rebuilt: {}", this.file, e.getMessage(), e);
+      }
+   }
+
+   /**
+    * Get the index of the target issues of a rule.
+    *
+    * @param rule the rule key
+    * @return the index of the target issues (of at least this rule)
+    */
+   MatchIndex getIndex(final String rule) {
+      if (this.persisted != null && this.persisted.hasRule(rule)) {
+         return this.persisted;
+      }
+      final List<Issue> issues = new ArrayList<>();
+      final boolean complete = this.service.fetchIssuesForRule(this.componentKey, rule, issues);
+      // incomplete results (e.g. errors) are not persisted
+      if (this.file != null && complete) {
+         if (this.pendingIssues.size() + issues.size() > TargetIssues.MAX_PENDING) {
+            this.flush();
+         }
+         this.pendingRules.add(rule);
+         this.pendingIssues.addAll(issues);
+      }
+      return IssueIndex.of(issues);
+   }
+
+   /**
+    * Record a change of a target issue, i.e. later migrations using the persisted index see the change.
+    *
+    * @param issue the target issue, which is updated, too
+    * @param status the new status or null, if unchanged
+    * @param resolution the new resolution or null, if unchanged
+    * @param comment the added comment or null
+    */
+   void recordChange(final Issue issue, final String status, final String resolution, final String comment) {
+      if (status != null) {
+         issue.setStatus(status);
+         issue.setResolution(resolution);
+      }
+      if (comment != null && issue.getComments() != null) {
+         final Comment added = new Comment();
+         added.setMarkdown(comment);
+         issue.getComments().add(added);
+      }
+      // fetched issues, which are not persisted yet, are persisted with the change, the others are journaled
+      if (this.persisted != null && !this.pendingRules.contains(issue.getRule()) && this.persisted.hasRule(issue.getRule())) {
+         try {
+            this.persisted.recordChange(issue, status, resolution, comment);
+         } catch (final IOException e) {
+            TargetIssues.LOG.warn("Error writing journal of issue index {}: {}", this.file, e.getMessage(), e);
+         }
+      }
+   }
+
+   /**
+    * Add the fetched issues to the persisted index.
+    */
+   @Override
+   public void close() {
+      try {
+         this.flush();
+         if (this.persisted != null) {
+            this.persisted.close();
+         }
+      } catch (final IOException e) {
+         TargetIssues.LOG.warn("Error closing issue index {}: {}", this.file, e.getMessage(), e);
+      } finally {
+         if (this.lock != null) {
+            this.lock.unlock();
+         }
+      }
+   }
+
+   private void flush() {
+      if (this.pendingRules.isEmpty()) {
+         return;
+      }
+      // the previous index is closed by the write, its mapping is released before the file is replaced
+      final MappedIssueIndex previous = this.persisted;
+      this.persisted = null;
+      try {
+         MappedIssueIndex.write(this.file, this.analysisDate, previous, this.pendingRules, this.pendingIssues);
+         this.persisted = MappedIssueIndex.open(this.file, this.analysisDate);
+      } catch (final IOException e) {
+         TargetIssues.LOG.warn("Error writing issue index {}: {}", this.file, e.getMessage(), e);
+         TargetIssues.closeQuietly(previous);
+      }
+      this.pendingRules.clear();
+      this.pendingIssues.clear();
+   }
+
+   private static void closeQuietly(final MappedIssueIndex index) {
+      if (index != null) {
+         try {
+            index.close();
+         } catch (final IOException e) {
+            TargetIssues.LOG.warn("Error closing issue index: {}", e.getMessage(), e);
+         }
+      }
+   }
+
+}
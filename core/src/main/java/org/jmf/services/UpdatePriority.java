@@ -0,0 +1,83 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jmf.vo.Issue;
+
+/**
+ * Priority of the updates of target issues, so that the most valuable updates are written first when the time of a
+ * migration is limited.
+ * <p>
+ * The priority is the product of the weights of the severity of the target issue (BLOCKER 10000, CRITICAL 1000, MAJOR
+ * 100, MINOR 10, INFO 1, unknown as MAJOR), the kind of update (false positive 4, won't fix 3, confirm 2, comments only
+ * 1) and the rule (default 1). So the severity dominates, unless a rule weight of 10 or more is configured.
+ */
+public class UpdatePriority {
+
+   /** the priority without rule weights */
+   public static final UpdatePriority DEFAULT = new UpdatePriority(Collections.emptyMap());
+
+   /** the severities from lowest to highest */
+   static final List<String> SEVERITIES = Arrays.asList("INFO", "MINOR", "MAJOR", "CRITICAL", "BLOCKER");
+
+   private static final int SEVERITY_MAJOR = 2;
+
+   private static final Map<String, Double> TRANSITION_WEIGHTS = new HashMap<>();
+
+   static {
+      UpdatePriority.TRANSITION_WEIGHTS.put(SonarClientService.TRANSITION_FALSE_POSITIVE, 4.0);
+      UpdatePriority.TRANSITION_WEIGHTS.put(SonarClientService.TRANSITION_WONT_FIX, 3.0);
+      UpdatePriority.TRANSITION_WEIGHTS.put(SonarClientService.TRANSITION_CONFIRM, 2.0);
+   }
+
+   private final Map<String, Double> ruleWeights;
+
+   /**
+    * Constructor.
+    *
+    * @param ruleWeights the weights of rules, e.g. java:S2068=20 - rules not given have the weight 1
+    */
+   public UpdatePriority(final Map<String, Double> ruleWeights) {
+      this.ruleWeights = new HashMap<>(ruleWeights);
+   }
+
+   /**
+    * Get the priority of an update.
+    *
+    * @param targetIssue the target issue to update
+    * @param transition the transition or null, if only comments are added
+    * @return the priority, higher is more valuable
+    */
+   public double getPriority(final Issue targetIssue, final String transition) {
+      return Math.pow(10, UpdatePriority.getSeverity(targetIssue))
+            * (transition != null ? UpdatePriority.TRANSITION_WEIGHTS.getOrDefault(transition, 1.0) : 1.0)
+            * this.ruleWeights.getOrDefault(targetIssue.getRule(), 1.0);
+   }
+
+   /**
+    * @param issue the issue
+    * @return the index of the severity of the issue in {@link #SEVERITIES}
+    */
+   static int getSeverity(final Issue issue) {
+      final int severity = UpdatePriority.SEVERITIES.indexOf(issue.getSeverity());
+      return severity >= 0 ? severity : UpdatePriority.SEVERITY_MAJOR;
+   }
+
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a request to the SonarQube web service API.
+ */
+@Name("org.jmf.HttpRequest")
+@Label("SonarQube Request")
+@Category("Sonar Issue Migrator")
+@Description("Request to the SonarQube web service API")
+public class HttpRequestEvent extends Event {
+
+   @Label("Method")
+   private String method;
+
+   @Label("Endpoint")
+   private String endpoint;
+
+   @Label("Status")
+   @Description("HTTP status code or 0, if the request failed")
+   private int status;
+
+   @Label("Bytes Received")
+   @DataAmount
+   private long bytesIn;
+
+   @Label("Bytes Sent")
+   @DataAmount
+   private long bytesOut;
+
+   /**
+    * Start an event. Must only be called, if JFR is available (see {@link JfrSupport#AVAILABLE}).
+    *
+    * @param method the HTTP method
+    * @param endpoint the endpoint, e.g. api/issues/search
+    * @return the event
+    */
+   public static HttpRequestEvent start(final String method, final String endpoint) {
+      final HttpRequestEvent event = new HttpRequestEvent();
+      event.method = method;
+      event.endpoint = endpoint;
+      event.begin();
+      return event;
+   }
+
+   /**
+    * Finish an event.
+    *
+    * @param event the event or null, if JFR is not available
+    * @param status the HTTP status code or 0, if the request failed
+    * @param bytesIn the number of bytes received
+    * @param bytesOut the number of bytes sent
+    */
+   public static void finish(final HttpRequestEvent event, final int status, final long bytesIn, final long bytesOut) {
+      if (event != null && event.shouldCommit()) {
+         event.status = status;
+         event.bytesIn = bytesIn;
+         event.bytesOut = bytesOut;
+         event.commit();
+      }
+   }
+
+}
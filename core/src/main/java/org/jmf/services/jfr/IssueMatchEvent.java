@@ -0,0 +1,92 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for matching a source issue with the target issues.
+ */
+@Name("org.jmf.IssueMatch")
+@Label("Issue Match")
+@Category("Sonar Issue Migrator")
+@Description("Matching a source issue with the target issues")
+public class IssueMatchEvent extends Event {
+
+   @Label("Rule")
+   private String rule;
+
+   @Label("Component")
+   private String component;
+
+   @Label("Line")
+   private int line;
+
+   @Label("Candidates Scanned")
+   @Description("Number of target issues within the line delta")
+   private int candidates;
+
+   @Label("Matched")
+   private boolean matched;
+
+   @Label("Match Distance")
+   @Description("Delta of line numbers of source and target issue or -1, if not matched")
+   private int distance;
+
+   /**
+    * Start an event. Must only be called, if JFR is available (see {@link JfrSupport#AVAILABLE}).
+    *
+    * @return the event
+    */
+   public static IssueMatchEvent start() {
+      final IssueMatchEvent event = new IssueMatchEvent();
+      event.begin();
+      return event;
+   }
+
+   /**
+    * @param event the event or null, if JFR is not available
+    * @return true, if the event is recorded, i.e. the details should be collected
+    */
+   public static boolean isRecorded(final IssueMatchEvent event) {
+      return event != null && event.shouldCommit();
+   }
+
+   /**
+    * Finish an event.
+    *
+    * @param event the event or null, if JFR is not available
+    * @param rule the rule of the source issue
+    * @param component the (parsed) component of the source issue
+    * @param line the line of the source issue or -1
+    * @param candidates the number of target issues within the line delta
+    * @param distance the delta of line numbers of source and target issue or -1, if not matched
+    */
+   public static void finish(final IssueMatchEvent event, final String rule, final String component, final int line, final int candidates, final int distance) {
+      if (event != null && event.shouldCommit()) {
+         event.rule = rule;
+         event.component = component;
+         event.line = line;
+         event.candidates = candidates;
+         event.matched = distance >= 0;
+         event.distance = distance;
+         event.commit();
+      }
+   }
+
+}
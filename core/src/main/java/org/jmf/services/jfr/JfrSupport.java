@@ -0,0 +1,91 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services.jfr;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * Support for JDK Flight Recorder: availability check and recording of a run.
+ * <p>
+ * JFR is available on Java 11 and later and on Java 8 from update 262. The event classes must only be used, if
+ * {@link #AVAILABLE} is true.
+ */
+public final class JfrSupport {
+
+   /** if JFR is available in this JVM */
+   public static final boolean AVAILABLE = JfrSupport.isJfrAvailable();
+
+   private static final Logger LOG = LoggerFactory.getLogger(JfrSupport.class);
+
+   private static Recording recording;
+
+   private JfrSupport() {
+      // never instantiated
+   }
+
+   /**
+    * Start a recording with the default JFR settings and all events of the migrator.
+    *
+    * @throws IOException if the recording cannot be started
+    */
+   public static synchronized void start() throws IOException {
+      if (!JfrSupport.AVAILABLE) {
+         throw new IOException("JDK Flight Recorder is not available in this JVM");
+      }
+      try {
+         JfrSupport.recording = new Recording(Configuration.getConfiguration("default"));
+      } catch (final ParseException e) {
+         throw new IOException("Error reading default JFR configuration", e);
+      }
+      JfrSupport.recording.setName("sonar-issue-migrator");
+      JfrSupport.recording.enable(HttpRequestEvent.class);
+      JfrSupport.recording.enable(PageFetchEvent.class);
+      JfrSupport.recording.enable(IssueMatchEvent.class);
+      JfrSupport.recording.start();
+   }
+
+   /**
+    * Stop the recording and write it to a file.
+    *
+    * @param file the file
+    * @throws IOException if the recording cannot be written
+    */
+   public static synchronized void stop(final File file) throws IOException {
+      if (JfrSupport.recording != null) {
+         JfrSupport.recording.stop();
+         JfrSupport.recording.dump(file.toPath());
+         JfrSupport.recording.close();
+         JfrSupport.recording = null;
+         JfrSupport.LOG.info("JFR recording written to {}", file);
+      }
+   }
+
+   private static boolean isJfrAvailable() {
+      try {
+         Class.forName("jdk.jfr.Event");
+         return true;
+      } catch (final ClassNotFoundException | LinkageError e) {
+         return false;
+      }
+   }
+
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for fetching a page of issues.
+ */
+@Name("org.jmf.PageFetch")
+@Label("Issue Page Fetch")
+@Category("Sonar Issue Migrator")
+@Description("Fetching and decoding a page of issues")
+public class PageFetchEvent extends Event {
+
+   @Label("Page Index")
+   private int pageIndex;
+
+   @Label("Issues")
+   @Description("Number of issues on the page")
+   private int issues;
+
+   @Label("Total")
+   @Description("Total number of issues of the search")
+   private int total;
+
+   /**
+    * Start an event. Must only be called, if JFR is available (see {@link JfrSupport#AVAILABLE}).
+    *
+    * @param pageIndex the index of the page (starting with 1)
+    * @return the event
+    */
+   public static PageFetchEvent start(final int pageIndex) {
+      final PageFetchEvent event = new PageFetchEvent();
+      event.pageIndex = pageIndex;
+      event.begin();
+      return event;
+   }
+
+   /**
+    * Finish an event.
+    *
+    * @param event the event or null, if JFR is not available
+    * @param issues the number of issues on the page
+    * @param total the total number of issues of the search
+    */
+   public static void finish(final PageFetchEvent event, final int issues, final int total) {
+      if (event != null && event.shouldCommit()) {
+         event.issues = issues;
+         event.total = total;
+         event.commit();
+      }
+   }
+
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.vo;
+
+import java.util.List;
+
+/**
+ * Response of api/ce/component: the queued and running background tasks of a component and its last finished task.
+ */
+public class CeComponentResponse {
+
+   /** the pending and running tasks */
+   private List<CeTask> queue;
+
+   /** the last finished task or null, if no task has finished yet */
+   private CeTask current;
+
+   public List<CeTask> getQueue() {
+      return this.queue;
+   }
+
+   public void setQueue(final List<CeTask> queue) {
+      this.queue = queue;
+   }
+
+   public CeTask getCurrent() {
+      return this.current;
+   }
+
+   public void setCurrent(final CeTask current) {
+      this.current = current;
+   }
+
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.vo;
+
+/**
+ * Represents a background task of the compute engine, e.g. the processing of an analysis report.
+ */
+public class CeTask {
+
+   private String id;
+
+   /** the type, e.g. REPORT */
+   private String type;
+
+   private String componentKey;
+
+   /** the status: PENDING, IN_PROGRESS, SUCCESS, FAILED or CANCELED */
+   private String status;
+
+   private String submittedAt;
+
+   private String startedAt;
+
+   private String executedAt;
+
+   /** the execution time of a finished task in milliseconds */
+   private Long executionTimeMs;
+
+   private String errorMessage;
+
+   public String getId() {
+      return this.id;
+   }
+
+   public void setId(final String id) {
+      this.id = id;
+   }
+
+   public String getType() {
+      return this.type;
+   }
+
+   public void setType(final String type) {
+      this.type = type;
+   }
+
+   public String getComponentKey() {
+      return this.componentKey;
+   }
+
+   public void setComponentKey(final String componentKey) {
+      this.componentKey = componentKey;
+   }
+
+   public String getStatus() {
+      return this.status;
+   }
+
+   public void setStatus(final String status) {
+      this.status = status;
+   }
+
+   public String getSubmittedAt() {
+      return this.submittedAt;
+   }
+
+   public void setSubmittedAt(final String submittedAt) {
+      this.submittedAt = submittedAt;
+   }
+
+   public String getStartedAt() {
+      return this.startedAt;
+   }
+
+   public void setStartedAt(final String startedAt) {
+      this.startedAt = startedAt;
+   }
+
+   public String getExecutedAt() {
+      return this.executedAt;
+   }
+
+   public void setExecutedAt(final String executedAt) {
+      this.executedAt = executedAt;
+   }
+
+   public Long getExecutionTimeMs() {
+      return this.executionTimeMs;
+   }
+
+   public void setExecutionTimeMs(final Long executionTimeMs) {
+      this.executionTimeMs = executionTimeMs;
+   }
+
+   public String getErrorMessage() {
+      return this.errorMessage;
+   }
+
+   public void setErrorMessage(final String errorMessage) {
+      this.errorMessage = errorMessage;
+   }
+
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.vo;
+
+/**
+ * Represents a SonarQube component, e.g. a project.
+ */
+public class Component {
+
+   private String key;
+
+   private String name;
+
+   private String qualifier;
+
+   private String analysisDate;
+
+   public String getKey() {
+      return this.key;
+   }
+
+   public void setKey(final String key) {
+      this.key = key;
+   }
+
+   public String getName() {
+      return this.name;
+   }
+
+   public void setName(final String name) {
+      this.name = name;
+   }
+
+   public String getQualifier() {
+      return this.qualifier;
+   }
+
+   public void setQualifier(final String qualifier) {
+      this.qualifier = qualifier;
+   }
+
+   public String getAnalysisDate() {
+      return this.analysisDate;
+   }
+
+   public void setAnalysisDate(final String analysisDate) {
+      this.analysisDate = analysisDate;
+   }
+
+}
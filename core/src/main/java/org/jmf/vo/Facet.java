@@ -0,0 +1,45 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.vo;
+
+import java.util.List;
+
+/**
+ * Represents a facet of a search, e.g. the number of issues per rule.
+ */
+public class Facet {
+
+   /** the property, e.g. rules */
+   private String property;
+
+   /** the values with their counts */
+   private List<FacetValue> values;
+
+   public String getProperty() {
+      return this.property;
+   }
+
+   public void setProperty(final String property) {
+      this.property = property;
+   }
+
+   public List<FacetValue> getValues() {
+      return this.values;
+   }
+
+   public void setValues(final List<FacetValue> values) {
+      this.values = values;
+   }
+
+}
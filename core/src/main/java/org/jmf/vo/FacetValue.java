@@ -0,0 +1,43 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.vo;
+
+/**
+ * Represents a value of a facet with its count.
+ */
+public class FacetValue {
+
+   /** the value, e.g. the rule key */
+   private String val;
+
+   /** the number of results with this value */
+   private int count;
+
+   public String getVal() {
+      return this.val;
+   }
+
+   public void setVal(final String val) {
+      this.val = val;
+   }
+
+   public int getCount() {
+      return this.count;
+   }
+
+   public void setCount(final int count) {
+      this.count = count;
+   }
+
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.vo;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write request, which failed, persisted in the dead-letter queue to be sent again later.
+ */
+public class FailedWrite {
+
+   /** the time of the failure in milliseconds since the epoch */
+   private long timestamp;
+
+   /** the base URL of the server */
+   private String url;
+
+   /** the endpoint, e.g. api/issues/do_transition */
+   private String endpoint;
+
+   /** the form parameters of the request */
+   private Map<String, List<String>> parameters;
+
+   /** the HTTP status code of the response or 0, if there was no response */
+   private int status;
+
+   /** the error */
+   private String error;
+
+   public long getTimestamp() {
+      return this.timestamp;
+   }
+
+   public void setTimestamp(final long timestamp) {
+      this.timestamp = timestamp;
+   }
+
+   public String getUrl() {
+      return this.url;
+   }
+
+   public void setUrl(final String url) {
+      this.url = url;
+   }
+
+   public String getEndpoint() {
+      return this.endpoint;
+   }
+
+   public void setEndpoint(final String endpoint) {
+      this.endpoint = endpoint;
+   }
+
+   public Map<String, List<String>> getParameters() {
+      return this.parameters;
+   }
+
+   public void setParameters(final Map<String, List<String>> parameters) {
+      this.parameters = parameters;
+   }
+
+   public int getStatus() {
+      return this.status;
+   }
+
+   public void setStatus(final int status) {
+      this.status = status;
+   }
+
+   public String getError() {
+      return this.error;
+   }
+
+   public void setError(final String error) {
+      this.error = error;
+   }
+
+}
@@ -36,10 +36,14 @@ public final class Issue {
 
    private Integer line;
 
+   private String hash;
+
    private String actionPlan;
 
    private String assignee;
 
+   private String updateDate;
+
    private List<Comment> comments;
 
    public String getActionPlan() {
@@ -106,6 +110,14 @@ public final class Issue {
       this.line = line;
    }
 
+   public String getHash() {
+      return this.hash;
+   }
+
+   public void setHash(final String hash) {
+      this.hash = hash;
+   }
+
    public String getParsedComponent() {
       return this.component == null ? "" : this.component.replaceAll(".*:", "");
    }
@@ -126,4 +138,12 @@ public final class Issue {
       this.assignee = assignee;
    }
 
+   public String getUpdateDate() {
+      return this.updateDate;
+   }
+
+   public void setUpdateDate(final String updateDate) {
+      this.updateDate = updateDate;
+   }
+
 }
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.vo;
+
+/**
+ * Decision made for one source issue during an issue migration.
+ */
+public class IssueDecision {
+
+   /** the time of the decision in milliseconds since the epoch */
+   private long timestamp;
+
+   /** the target component key */
+   private String targetComponent;
+
+   /** the key of the source issue */
+   private String sourceKey;
+
+   /** the rule of the source issue */
+   private String rule;
+
+   /** the (parsed) component of the source issue */
+   private String component;
+
+   /** the line of the source issue */
+   private Integer line;
+
+   /** if a target issue was found */
+   private boolean matched;
+
+   /** the key of the matched target issue */
+   private String targetKey;
+
+   /** the line of the matched target issue */
+   private Integer targetLine;
+
+   /** the delta of line numbers of source and target issue */
+   private Integer lineDistance;
+
+   /** the transition applied to the target issue, e.g. confirm */
+   private String transition;
+
+   /** the number of comments added to the target issue */
+   private int comments;
+
+   /** if an update of the target issue failed */
+   private boolean failed;
+
+   /** if the updates were only simulated */
+   private boolean dryRun;
+
+   /** if the updates were not done, because the deadline was reached */
+   private boolean deferred;
+
+   public long getTimestamp() {
+      return this.timestamp;
+   }
+
+   public void setTimestamp(final long timestamp) {
+      this.timestamp = timestamp;
+   }
+
+   public String getTargetComponent() {
+      return this.targetComponent;
+   }
+
+   public void setTargetComponent(final String targetComponent) {
+      this.targetComponent = targetComponent;
+   }
+
+   public String getSourceKey() {
+      return this.sourceKey;
+   }
+
+   public void setSourceKey(final String sourceKey) {
+      this.sourceKey = sourceKey;
+   }
+
+   public String getRule() {
+      return this.rule;
+   }
+
+   public void setRule(final String rule) {
+      this.rule = rule;
+   }
+
+   public String getComponent() {
+      return this.component;
+   }
+
+   public void setComponent(final String component) {
+      this.component = component;
+   }
+
+   public Integer getLine() {
+      return this.line;
+   }
+
+   public void setLine(final Integer line) {
+      this.line = line;
+   }
+
+   public boolean isMatched() {
+      return this.matched;
+   }
+
+   public void setMatched(final boolean matched) {
+      this.matched = matched;
+   }
+
+   public String getTargetKey() {
+      return this.targetKey;
+   }
+
+   public void setTargetKey(final String targetKey) {
+      this.targetKey = targetKey;
+   }
+
+   public Integer getTargetLine() {
+      return this.targetLine;
+   }
+
+   public void setTargetLine(final Integer targetLine) {
+      this.targetLine = targetLine;
+   }
+
+   public Integer getLineDistance() {
+      return this.lineDistance;
+   }
+
+   public void setLineDistance(final Integer lineDistance) {
+      this.lineDistance = lineDistance;
+   }
+
+   public String getTransition() {
+      return this.transition;
+   }
+
+   public void setTransition(final String transition) {
+      this.transition = transition;
+   }
+
+   public int getComments() {
+      return this.comments;
+   }
+
+   public void setComments(final int comments) {
+      this.comments = comments;
+   }
+
+   public boolean isFailed() {
+      return this.failed;
+   }
+
+   public void setFailed(final boolean failed) {
+      this.failed = failed;
+   }
+
+   public boolean isDryRun() {
+      return this.dryRun;
+   }
+
+   public void setDryRun(final boolean dryRun) {
+      this.dryRun = dryRun;
+   }
+
+   public boolean isDeferred() {
+      return this.deferred;
+   }
+
+   public void setDeferred(final boolean deferred) {
+      this.deferred = deferred;
+   }
+
+}
@@ -11,6 +11,8 @@ public final class IssuesResponse {
     private List<Issue> issues;
     
     private List<Rule> rules;
+    
+    private List<Facet> facets;
 
 
     public List<Rule> getRules() {
@@ -44,6 +46,13 @@ public final class IssuesResponse {
     public void setIssues(List<Issue> issues) {
         this.issues = issues;
     }
-    
+
+    public List<Facet> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(List<Facet> facets) {
+        this.facets = facets;
+    }
 
 }
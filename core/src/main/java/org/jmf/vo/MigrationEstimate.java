@@ -0,0 +1,252 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.vo;
+
+/**
+ * Estimated cost of a migration.
+ */
+public class MigrationEstimate {
+
+   /** the URL of the source server */
+   private String sourceUrl;
+
+   /** the source component key */
+   private String sourceComponent;
+
+   /** the URL of the target server */
+   private String targetUrl;
+
+   /** the target component key */
+   private String targetComponent;
+
+   /** the number of source issues to migrate */
+   private int sourceIssues;
+
+   /** the number of target issues with the rules of the source issues */
+   private int targetIssues;
+
+   /** the number of rules of the source issues */
+   private int rules;
+
+   /** the number of source issues fetched and matched for the estimate */
+   private int sampledIssues;
+
+   /** the estimated fraction of source issues with a matching target issue */
+   private double matchRate;
+
+   /** the estimated number of write requests (transitions and comments) per source issue */
+   private double writesPerIssue;
+
+   /** the estimated number of read requests to the source */
+   private long sourceRequests;
+
+   /** the estimated number of read requests to the target */
+   private long targetRequests;
+
+   /** the estimated number of write requests to the target */
+   private long writeRequests;
+
+   /** the estimated number of bytes received from the source */
+   private long sourceBytes;
+
+   /** the estimated number of bytes received from the target */
+   private long targetBytes;
+
+   /** the estimated time for fetching the source issues in seconds */
+   private double sourceSeconds;
+
+   /** the estimated time for fetching the target issues and writing the changes in seconds */
+   private double targetSeconds;
+
+   /** the estimated wall time in seconds */
+   private double estimatedSeconds;
+
+   /** the number of requests sent for the estimate */
+   private int estimationRequests;
+
+   /** remarks on the accuracy of the estimate */
+   private String note;
+
+   /** the error message, if the migration cannot be estimated */
+   private String error;
+
+   public String getSourceUrl() {
+      return this.sourceUrl;
+   }
+
+   public void setSourceUrl(final String sourceUrl) {
+      this.sourceUrl = sourceUrl;
+   }
+
+   public String getSourceComponent() {
+      return this.sourceComponent;
+   }
+
+   public void setSourceComponent(final String sourceComponent) {
+      this.sourceComponent = sourceComponent;
+   }
+
+   public String getTargetUrl() {
+      return this.targetUrl;
+   }
+
+   public void setTargetUrl(final String targetUrl) {
+      this.targetUrl = targetUrl;
+   }
+
+   public String getTargetComponent() {
+      return this.targetComponent;
+   }
+
+   public void setTargetComponent(final String targetComponent) {
+      this.targetComponent = targetComponent;
+   }
+
+   public int getSourceIssues() {
+      return this.sourceIssues;
+   }
+
+   public void setSourceIssues(final int sourceIssues) {
+      this.sourceIssues = sourceIssues;
+   }
+
+   public int getTargetIssues() {
+      return this.targetIssues;
+   }
+
+   public void setTargetIssues(final int targetIssues) {
+      this.targetIssues = targetIssues;
+   }
+
+   public int getRules() {
+      return this.rules;
+   }
+
+   public void setRules(final int rules) {
+      this.rules = rules;
+   }
+
+   public int getSampledIssues() {
+      return this.sampledIssues;
+   }
+
+   public void setSampledIssues(final int sampledIssues) {
+      this.sampledIssues = sampledIssues;
+   }
+
+   public double getMatchRate() {
+      return this.matchRate;
+   }
+
+   public void setMatchRate(final double matchRate) {
+      this.matchRate = matchRate;
+   }
+
+   public double getWritesPerIssue() {
+      return this.writesPerIssue;
+   }
+
+   public void setWritesPerIssue(final double writesPerIssue) {
+      this.writesPerIssue = writesPerIssue;
+   }
+
+   public long getSourceRequests() {
+      return this.sourceRequests;
+   }
+
+   public void setSourceRequests(final long sourceRequests) {
+      this.sourceRequests = sourceRequests;
+   }
+
+   public long getTargetRequests() {
+      return this.targetRequests;
+   }
+
+   public void setTargetRequests(final long targetRequests) {
+      this.targetRequests = targetRequests;
+   }
+
+   public long getWriteRequests() {
+      return this.writeRequests;
+   }
+
+   public void setWriteRequests(final long writeRequests) {
+      this.writeRequests = writeRequests;
+   }
+
+   public long getSourceBytes() {
+      return this.sourceBytes;
+   }
+
+   public void setSourceBytes(final long sourceBytes) {
+      this.sourceBytes = sourceBytes;
+   }
+
+   public long getTargetBytes() {
+      return this.targetBytes;
+   }
+
+   public void setTargetBytes(final long targetBytes) {
+      this.targetBytes = targetBytes;
+   }
+
+   public double getSourceSeconds() {
+      return this.sourceSeconds;
+   }
+
+   public void setSourceSeconds(final double sourceSeconds) {
+      this.sourceSeconds = sourceSeconds;
+   }
+
+   public double getTargetSeconds() {
+      return this.targetSeconds;
+   }
+
+   public void setTargetSeconds(final double targetSeconds) {
+      this.targetSeconds = targetSeconds;
+   }
+
+   public double getEstimatedSeconds() {
+      return this.estimatedSeconds;
+   }
+
+   public void setEstimatedSeconds(final double estimatedSeconds) {
+      this.estimatedSeconds = estimatedSeconds;
+   }
+
+   public int getEstimationRequests() {
+      return this.estimationRequests;
+   }
+
+   public void setEstimationRequests(final int estimationRequests) {
+      this.estimationRequests = estimationRequests;
+   }
+
+   public String getNote() {
+      return this.note;
+   }
+
+   public void setNote(final String note) {
+      this.note = note;
+   }
+
+   public String getError() {
+      return this.error;
+   }
+
+   public void setError(final String error) {
+      this.error = error;
+   }
+
+}
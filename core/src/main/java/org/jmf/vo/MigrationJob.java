@@ -0,0 +1,226 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.vo;
+
+/**
+ * One migration from a source to a target project, e.g. an entry of a batch manifest.
+ * <p>
+ * Properties, which are not set, are taken from the defaults (see {@link #withDefaults(MigrationJob)}).
+ */
+public class MigrationJob {
+
+   /** the URL of the source SonarQube */
+   private String sourceUrl;
+
+   /** the source component key, e.g. project key */
+   private String sourceComponent;
+
+   /** the user name or token for the source */
+   private String sourceLogin;
+
+   /** the password for the source, if a user name is given */
+   private String sourcePassword;
+
+   /** the URL of the target SonarQube - if not set, the source URL is used */
+   private String targetUrl;
+
+   /** the target component key - if not set, the source component key is used */
+   private String targetComponent;
+
+   /** the user name or token for the target - if not set, the source login is used */
+   private String targetLogin;
+
+   /** the password for the target - if not set, the source password is used */
+   private String targetPassword;
+
+   /** the maximum delta of line numbers */
+   private Integer deltaLines;
+
+   /** if the project settings should be migrated (instead of the issues) */
+   private Boolean migrateProject;
+
+   /** if confirmed issues should be migrated */
+   private Boolean migrateConfirmed;
+
+   /** if false positives should be migrated */
+   private Boolean migrateFalsePositive;
+
+   /** if won't fix issues should be migrated */
+   private Boolean migrateWontFix;
+
+   /** if comments should be migrated */
+   private Boolean migrateComments;
+
+   /** if the migration should run without actually updating anything */
+   private Boolean dryRun;
+
+   /** the maximum time in seconds to wait for the running analysis of the target before migrating the issues */
+   private Integer waitForAnalysis;
+
+   /**
+    * Create a copy of this job, where all properties, which are not set, are taken from the defaults.
+    *
+    * @param defaults the defaults, e.g. from the command line
+    * @return the new job
+    */
+   public MigrationJob withDefaults(final MigrationJob defaults) {
+      final MigrationJob job = new MigrationJob();
+      job.sourceUrl = this.sourceUrl != null ? this.sourceUrl : defaults.sourceUrl;
+      job.sourceComponent = this.sourceComponent != null ? this.sourceComponent : defaults.sourceComponent;
+      job.sourceLogin = this.sourceLogin != null ? this.sourceLogin : defaults.sourceLogin;
+      job.sourcePassword = this.sourcePassword != null ? this.sourcePassword : defaults.sourcePassword;
+      job.targetUrl = this.targetUrl != null ? this.targetUrl : defaults.targetUrl;
+      job.targetComponent = this.targetComponent != null ? this.targetComponent : defaults.targetComponent;
+      job.targetLogin = this.targetLogin != null ? this.targetLogin : defaults.targetLogin;
+      job.targetPassword = this.targetPassword != null ? this.targetPassword : defaults.targetPassword;
+      job.deltaLines = this.deltaLines != null ? this.deltaLines : defaults.deltaLines;
+      job.migrateProject = this.migrateProject != null ? this.migrateProject : defaults.migrateProject;
+      job.migrateConfirmed = this.migrateConfirmed != null ? this.migrateConfirmed : defaults.migrateConfirmed;
+      job.migrateFalsePositive = this.migrateFalsePositive != null ? this.migrateFalsePositive : defaults.migrateFalsePositive;
+      job.migrateWontFix = this.migrateWontFix != null ? this.migrateWontFix : defaults.migrateWontFix;
+      job.migrateComments = this.migrateComments != null ? this.migrateComments : defaults.migrateComments;
+      job.dryRun = this.dryRun != null ? this.dryRun : defaults.dryRun;
+      job.waitForAnalysis = this.waitForAnalysis != null ? this.waitForAnalysis : defaults.waitForAnalysis;
+      return job;
+   }
+
+   public String getSourceUrl() {
+      return this.sourceUrl;
+   }
+
+   public void setSourceUrl(final String sourceUrl) {
+      this.sourceUrl = sourceUrl;
+   }
+
+   public String getSourceComponent() {
+      return this.sourceComponent;
+   }
+
+   public void setSourceComponent(final String sourceComponent) {
+      this.sourceComponent = sourceComponent;
+   }
+
+   public String getSourceLogin() {
+      return this.sourceLogin;
+   }
+
+   public void setSourceLogin(final String sourceLogin) {
+      this.sourceLogin = sourceLogin;
+   }
+
+   public String getSourcePassword() {
+      return this.sourcePassword;
+   }
+
+   public void setSourcePassword(final String sourcePassword) {
+      this.sourcePassword = sourcePassword;
+   }
+
+   public String getTargetUrl() {
+      return this.targetUrl;
+   }
+
+   public void setTargetUrl(final String targetUrl) {
+      this.targetUrl = targetUrl;
+   }
+
+   public String getTargetComponent() {
+      return this.targetComponent;
+   }
+
+   public void setTargetComponent(final String targetComponent) {
+      this.targetComponent = targetComponent;
+   }
+
+   public String getTargetLogin() {
+      return this.targetLogin;
+   }
+
+   public void setTargetLogin(final String targetLogin) {
+      this.targetLogin = targetLogin;
+   }
+
+   public String getTargetPassword() {
+      return this.targetPassword;
+   }
+
+   public void setTargetPassword(final String targetPassword) {
+      this.targetPassword = targetPassword;
+   }
+
+   public Integer getDeltaLines() {
+      return this.deltaLines;
+   }
+
+   public void setDeltaLines(final Integer deltaLines) {
+      this.deltaLines = deltaLines;
+   }
+
+   public Boolean getMigrateProject() {
+      return this.migrateProject;
+   }
+
+   public void setMigrateProject(final Boolean migrateProject) {
+      this.migrateProject = migrateProject;
+   }
+
+   public Boolean getMigrateConfirmed() {
+      return this.migrateConfirmed;
+   }
+
+   public void setMigrateConfirmed(final Boolean migrateConfirmed) {
+      this.migrateConfirmed = migrateConfirmed;
+   }
+
+   public Boolean getMigrateFalsePositive() {
+      return this.migrateFalsePositive;
+   }
+
+   public void setMigrateFalsePositive(final Boolean migrateFalsePositive) {
+      this.migrateFalsePositive = migrateFalsePositive;
+   }
+
+   public Boolean getMigrateWontFix() {
+      return this.migrateWontFix;
+   }
+
+   public void setMigrateWontFix(final Boolean migrateWontFix) {
+      this.migrateWontFix = migrateWontFix;
+   }
+
+   public Boolean getMigrateComments() {
+      return this.migrateComments;
+   }
+
+   public void setMigrateComments(final Boolean migrateComments) {
+      this.migrateComments = migrateComments;
+   }
+
+   public Boolean getDryRun() {
+      return this.dryRun;
+   }
+
+   public void setDryRun(final Boolean dryRun) {
+      this.dryRun = dryRun;
+   }
+
+   public Integer getWaitForAnalysis() {
+      return this.waitForAnalysis;
+   }
+
+   public void setWaitForAnalysis(final Integer waitForAnalysis) {
+      this.waitForAnalysis = waitForAnalysis;
+   }
+
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.vo;
+
+/**
+ * Result of a migration.
+ */
+public class MigrationResult {
+
+   /** the source component key */
+   private String sourceComponent;
+
+   /** the target component key */
+   private String targetComponent;
+
+   /** the number of processed source issues */
+   private int processed;
+
+   /** the number of updated target issues */
+   private int updated;
+
+   /** the number of source issues without matching target issue */
+   private int unmatched;
+
+   /** the number of issues or settings, which could not be updated */
+   private int failed;
+
+   /** the number of source issues left, because the deadline was reached */
+   private int remaining;
+
+   /** the duration of the migration in milliseconds */
+   private long durationMillis;
+
+   /** the error message, if the migration failed */
+   private String error;
+
+   public String getSourceComponent() {
+      return this.sourceComponent;
+   }
+
+   public void setSourceComponent(final String sourceComponent) {
+      this.sourceComponent = sourceComponent;
+   }
+
+   public String getTargetComponent() {
+      return this.targetComponent;
+   }
+
+   public void setTargetComponent(final String targetComponent) {
+      this.targetComponent = targetComponent;
+   }
+
+   public int getProcessed() {
+      return this.processed;
+   }
+
+   public void setProcessed(final int processed) {
+      this.processed = processed;
+   }
+
+   public int getUpdated() {
+      return this.updated;
+   }
+
+   public void setUpdated(final int updated) {
+      this.updated = updated;
+   }
+
+   public int getUnmatched() {
+      return this.unmatched;
+   }
+
+   public void setUnmatched(final int unmatched) {
+      this.unmatched = unmatched;
+   }
+
+   public int getFailed() {
+      return this.failed;
+   }
+
+   public void setFailed(final int failed) {
+      this.failed = failed;
+   }
+
+   public int getRemaining() {
+      return this.remaining;
+   }
+
+   public void setRemaining(final int remaining) {
+      this.remaining = remaining;
+   }
+
+   public long getDurationMillis() {
+      return this.durationMillis;
+   }
+
+   public void setDurationMillis(final long durationMillis) {
+      this.durationMillis = durationMillis;
+   }
+
+   public String getError() {
+      return this.error;
+   }
+
+   public void setError(final String error) {
+      this.error = error;
+   }
+
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.vo;
+
+/**
+ * Request and response recorded for replaying a run.
+ */
+public class RecordedExchange {
+
+   /** the HTTP method */
+   private String method;
+
+   /** the URL (without credentials) */
+   private String url;
+
+   /** the form parameters of a POST request (without credentials) */
+   private String requestBody;
+
+   /** the HTTP status code of the response */
+   private int status;
+
+   /** the content type of the response */
+   private String contentType;
+
+   /** the body of the response */
+   private String responseBody;
+
+   /** the time until the response was received in microseconds */
+   private long latencyMicros;
+
+   public String getMethod() {
+      return this.method;
+   }
+
+   public void setMethod(final String method) {
+      this.method = method;
+   }
+
+   public String getUrl() {
+      return this.url;
+   }
+
+   public void setUrl(final String url) {
+      this.url = url;
+   }
+
+   public String getRequestBody() {
+      return this.requestBody;
+   }
+
+   public void setRequestBody(final String requestBody) {
+      this.requestBody = requestBody;
+   }
+
+   public int getStatus() {
+      return this.status;
+   }
+
+   public void setStatus(final int status) {
+      this.status = status;
+   }
+
+   public String getContentType() {
+      return this.contentType;
+   }
+
+   public void setContentType(final String contentType) {
+      this.contentType = contentType;
+   }
+
+   public String getResponseBody() {
+      return this.responseBody;
+   }
+
+   public void setResponseBody(final String responseBody) {
+      this.responseBody = responseBody;
+   }
+
+   public long getLatencyMicros() {
+      return this.latencyMicros;
+   }
+
+   public void setLatencyMicros(final long latencyMicros) {
+      this.latencyMicros = latencyMicros;
+   }
+
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jmf.vo.CeTask;
+import org.junit.Test;
+
+/**
+ * Tests of the adaptive polling of {@link AnalysisGate}.
+ */
+public class AnalysisGateTest {
+
+   private static final String RUNNING = "{\"id\":\"t2\",\"status\":\"IN_PROGRESS\"}";
+
+   private static final String PENDING = "{\"id\":\"t2\",\"status\":\"PENDING\"}";
+
+   /** the times of the polls in milliseconds since the first poll */
+   private final List<Long> polls = Collections.synchronizedList(new ArrayList<>());
+
+   private volatile long firstPoll;
+
+   @Test
+   public void idleComponentIsNotWaitedFor() throws IOException {
+      try (FakeSonar sonar = this.sonar(Long.MAX_VALUE, null, "{\"id\":\"t1\",\"status\":\"SUCCESS\"}")) {
+         final CeTask task = new AnalysisGate(AnalysisGateTest.service(sonar)).await("prj", 10000);
+         assertEquals("t1", task.getId());
+         assertEquals(1, this.polls.size());
+      }
+   }
+
+   @Test
+   public void pollsAfterHalfOfTheExpectedRemainingTime() throws IOException {
+      // the last analysis took 4 s: polls after 2 s (half of 4 s) and 1 s (half of the remaining 2 s)
+      try (FakeSonar sonar = this.sonar(2500, AnalysisGateTest.RUNNING, "{\"id\":\"t1\",\"status\":\"SUCCESS\",\"executionTimeMs\":4000}")) {
+         new AnalysisGate(AnalysisGateTest.service(sonar)).await("prj", 10000);
+         assertEquals(this.polls.toString(), 3, this.polls.size());
+         AnalysisGateTest.assertBetween(1900, 2500, this.polls.get(1) - this.polls.get(0));
+         AnalysisGateTest.assertBetween(900, 1500, this.polls.get(2) - this.polls.get(1));
+      }
+   }
+
+   @Test
+   public void delayDoublesWithoutEstimate() throws IOException {
+      // no finished task: 0.5 s, then 1 s
+      try (FakeSonar sonar = this.sonar(800, AnalysisGateTest.PENDING, null)) {
+         assertNull(new AnalysisGate(AnalysisGateTest.service(sonar)).await("prj", 10000));
+         assertEquals(this.polls.toString(), 3, this.polls.size());
+         AnalysisGateTest.assertBetween(450, 900, this.polls.get(1) - this.polls.get(0));
+         AnalysisGateTest.assertBetween(950, 1500, this.polls.get(2) - this.polls.get(1));
+      }
+   }
+
+   @Test
+   public void failedAnalysisIsReported() throws IOException {
+      try (FakeSonar sonar = this.sonar(Long.MAX_VALUE, null, "{\"id\":\"t1\",\"status\":\"FAILED\",\"errorMessage\":\"broken\"}")) {
+         new AnalysisGate(AnalysisGateTest.service(sonar)).await("prj", 10000);
+         fail("Failed analysis not reported");
+      } catch (final IllegalStateException e) {
+         assertEquals("Last analysis of prj failed: broken", e.getMessage());
+      }
+   }
+
+   @Test
+   public void pollsOnceMoreAtTheTimeout() throws IOException {
+      try (FakeSonar sonar = this.sonar(Long.MAX_VALUE, AnalysisGateTest.PENDING, null)) {
+         new AnalysisGate(AnalysisGateTest.service(sonar)).await("prj", 700);
+         fail("Timeout not reported");
+      } catch (final IllegalStateException e) {
+         assertTrue(e.getMessage(), e.getMessage().contains("did not finish"));
+         // at 0, 0.5 and 0.7 s
+         assertEquals(this.polls.toString(), 3, this.polls.size());
+         AnalysisGateTest.assertBetween(650, 1000, this.polls.get(2) - this.polls.get(0));
+      }
+   }
+
+   /**
+    * @param finishMillis time after the first poll, when the task in the queue is finished
+    * @param queued the task in the queue (until finished) or null
+    * @param current the last finished task or null
+    */
+   private FakeSonar sonar(final long finishMillis, final String queued, final String current) throws IOException {
+      final FakeSonar sonar = new FakeSonar();
+      sonar.on("api/ce/component", parameters -> {
+         final long now = System.nanoTime();
+         if (this.polls.isEmpty()) {
+            this.firstPoll = now;
+         }
+         final long elapsed = TimeUnit.NANOSECONDS.toMillis(now - this.firstPoll);
+         this.polls.add(elapsed);
+         final boolean finished = queued == null || elapsed >= finishMillis;
+         return "{\"queue\":[" + (finished ? "" : queued) + "]" + (current != null ? ",\"current\":" + current : "") + "}";
+      });
+      return sonar;
+   }
+
+   private static SonarClientService service(final FakeSonar sonar) {
+      return new SonarClientService(sonar.getUrl(), null, null, false);
+   }
+
+   private static void assertBetween(final long min, final long max, final long actual) {
+      assertTrue(actual + " ms not between " + min + " and " + max, actual >= min && actual <= max);
+   }
+
+}
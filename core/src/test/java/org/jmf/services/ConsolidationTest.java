@@ -0,0 +1,100 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.jmf.vo.MigrationResult;
+import org.junit.Test;
+
+/**
+ * Tests of the consolidation of several sources into one target (see {@link Migrator#runConsolidation(List)}).
+ */
+public class ConsolidationTest {
+
+   private static final String RULE = "java:S100";
+
+   @Test
+   public void mostRecentlyChangedSourceIssueWins() throws IOException {
+      // the false positive of the first source is older than the won't fix of the second source
+      assertEquals(Collections.singletonList("api/issues/do_transition {issue=t1, transition=wontfix}"),
+            ConsolidationTest.consolidate("2024-01-01T10:00:00+0000", "2024-06-01T10:00:00+0000"));
+      assertEquals(Collections.singletonList("api/issues/do_transition {issue=t1, transition=falsepositive}"),
+            ConsolidationTest.consolidate("2024-06-01T10:00:00+0000", "2024-01-01T10:00:00+0000"));
+   }
+
+   @Test
+   public void orderOfSourcesDecidesOnSameDate() throws IOException {
+      assertEquals(Collections.singletonList("api/issues/do_transition {issue=t1, transition=falsepositive}"),
+            ConsolidationTest.consolidate("2024-01-01T10:00:00+0000", "2024-01-01T10:00:00+0000"));
+   }
+
+   /** consolidate a false positive of source a and a won't fix of source b on the same line, answer the transitions */
+   private static List<String> consolidate(final String falsePositiveDate, final String wontFixDate) throws IOException {
+      try (FakeSonar sonar = new FakeSonar()) {
+         sonar.on("api/issues/search", parameters -> {
+            switch (parameters.get("componentKeys")) {
+               case "a":
+                  return ConsolidationTest.issues(ConsolidationTest.issue("a1", "a", "RESOLVED", "FALSE-POSITIVE", falsePositiveDate));
+               case "b":
+                  return ConsolidationTest.issues(ConsolidationTest.issue("b1", "b", "RESOLVED", "WONTFIX", wontFixDate));
+               default:
+                  return ConsolidationTest.issues(ConsolidationTest.issue("t1", "tgt", "OPEN", null, "2024-01-01T10:00:00+0000"));
+            }
+         });
+         sonar.on("api/issues/do_transition", "{}");
+         sonar.on("api/issues/bulk_change", "{}");
+
+         final MigrationResult result = Migrator.builder()
+               .source(sonar.getUrl(), "a")
+               .target(sonar.getUrl(), "tgt")
+               .migrateFalsePositive()
+               .migrateWontFix()
+               .build()
+               .runConsolidation(Arrays.asList("a", "b"));
+         assertNull(result.getError());
+         assertEquals(1, result.getUpdated());
+         return sonar.getRequests("api/issues/do_transition");
+      }
+   }
+
+   private static String issues(final String... issues) {
+      return Arrays.stream(issues).collect(Collectors.joining(",",
+            "{\"paging\":{\"pageIndex\":1,\"pageSize\":500,\"total\":" + issues.length + "},\"issues\":[", "]}"));
+   }
+
+   private static String issue(final String key, final String project, final String status, final String resolution, final String updateDate) {
+      final Map<String, String> fields = new LinkedHashMap<>();
+      fields.put("key", key);
+      fields.put("rule", ConsolidationTest.RULE);
+      fields.put("component", project + ":src/A.java");
+      fields.put("status", status);
+      fields.put("resolution", resolution);
+      fields.put("updateDate", updateDate);
+      return fields.entrySet().stream()
+            .filter(field -> field.getValue() != null)
+            .map(field -> "\"" + field.getKey() + "\":\"" + field.getValue() + "\"")
+            .collect(Collectors.joining(",", "{", ",\"line\":10}"));
+   }
+
+}
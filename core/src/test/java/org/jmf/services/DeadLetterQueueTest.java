@@ -0,0 +1,178 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.jmf.vo.FailedWrite;
+import org.jmf.vo.MigrationResult;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link DeadLetterQueue} and of replaying the failed writes.
+ */
+public class DeadLetterQueueTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   /** status of the target issues by key */
+   private final Map<String, String> statuses = new ConcurrentHashMap<>();
+
+   @Test
+   public void failedWritesAreReplayed() throws IOException {
+      try (FakeSonar sonar = this.sonar()) {
+         final List<FailedWrite> failures = this.queue(sonar,
+               DeadLetterQueueTest.failure(sonar, "api/issues/do_transition", "issue", "t1", "transition", "falsepositive"),
+               DeadLetterQueueTest.failure(sonar, "api/issues/do_transition", "issue", "deleted", "transition", "wontfix"),
+               DeadLetterQueueTest.failure(sonar, "api/issues/add_comment", "issue", "t1", "text", "new"),
+               DeadLetterQueueTest.failure(sonar, "api/issues/add_comment", "issue", "t2", "text", "migrated"),
+               DeadLetterQueueTest.failure(sonar, "api/settings/set", "component", "tgt", "key", "a", "value", "1"));
+         assertEquals(5, failures.size());
+         assertEquals(Arrays.asList("t1", "falsepositive"), Arrays.asList(failures.get(0).getParameters().get("issue").get(0),
+               failures.get(0).getParameters().get("transition").get(0)));
+
+         final File again = new File(this.folder.getRoot(), "again.jsonl");
+         final MigrationResult result = DeadLetterQueueTest.replay(sonar, failures, again);
+         assertNull(result.getError());
+         assertEquals(5, result.getProcessed());
+         // the comment already added to t2 is skipped
+         assertEquals(3, result.getUpdated());
+         assertEquals(1, result.getUnmatched());
+         assertEquals(0, result.getFailed());
+         assertEquals(Collections.singletonList("api/issues/bulk_change {do_transition=falsepositive, issues=t1}"), sonar.getRequests("api/issues/bulk_change"));
+         assertEquals(Collections.singletonList("api/issues/add_comment {issue=t1, text=new}"), sonar.getRequests("api/issues/add_comment"));
+         assertEquals(Collections.singletonList("api/settings/set {component=tgt, key=a, value=1}"), sonar.getRequests("api/settings/set"));
+         assertEquals(Collections.emptyList(), DeadLetterQueue.read(again));
+      }
+   }
+
+   @Test
+   public void writesFailingAgainAreQueuedAgain() throws IOException {
+      try (FakeSonar sonar = this.sonar()) {
+         sonar.fail("api/settings/set", 500);
+         final List<FailedWrite> failures = this.queue(sonar,
+               DeadLetterQueueTest.failure(sonar, "api/issues/do_transition", "issue", "t1", "transition", "falsepositive"),
+               DeadLetterQueueTest.failure(sonar, "api/settings/set", "component", "tgt", "key", "a", "value", "1"));
+
+         final File again = new File(this.folder.getRoot(), "again.jsonl");
+         final MigrationResult result = DeadLetterQueueTest.replay(sonar, failures, again);
+         assertEquals(1, result.getUpdated());
+         assertEquals(1, result.getFailed());
+         final List<FailedWrite> queued = DeadLetterQueue.read(again);
+         assertEquals(1, queued.size());
+         assertEquals("api/settings/set", queued.get(0).getEndpoint());
+         assertEquals(500, queued.get(0).getStatus());
+      }
+   }
+
+   @Test
+   public void writesAreQueuedAgainIfIssuesCannotBeChecked() throws IOException {
+      try (FakeSonar sonar = this.sonar()) {
+         sonar.fail("api/issues/search", 500);
+         final List<FailedWrite> failures = this.queue(sonar,
+               DeadLetterQueueTest.failure(sonar, "api/issues/do_transition", "issue", "t1", "transition", "falsepositive"),
+               DeadLetterQueueTest.failure(sonar, "api/issues/add_comment", "issue", "t1", "text", "new"));
+
+         final File again = new File(this.folder.getRoot(), "again.jsonl");
+         final MigrationResult result = DeadLetterQueueTest.replay(sonar, failures, again);
+         assertNotNull(result.getError());
+         assertEquals(0, result.getUnmatched());
+         assertEquals(2, result.getFailed());
+         assertEquals(Collections.emptyList(), sonar.getRequests("api/issues/bulk_change"));
+         assertEquals(DeadLetterQueueTest.describe(failures), DeadLetterQueueTest.describe(DeadLetterQueue.read(again)));
+      }
+   }
+
+   private FakeSonar sonar() throws IOException {
+      this.statuses.put("t1", "OPEN");
+      this.statuses.put("t2", "OPEN");
+      final FakeSonar sonar = new FakeSonar();
+      sonar.on("api/issues/search", parameters -> {
+         final List<String> issues = new ArrayList<>();
+         for (final String key : parameters.get("issues").split(",")) {
+            final String status = this.statuses.get(key);
+            if (status != null) {
+               issues.add("{\"key\":\"" + key + "\",\"status\":\"" + status + "\",\"comments\":["
+                     + ("t2".equals(key) ? "{\"markdown\":\"migrated\"}" : "") + "]}");
+            }
+         }
+         return "{\"paging\":{\"pageIndex\":1,\"pageSize\":500,\"total\":" + issues.size() + "},\"issues\":[" + String.join(",", issues) + "]}";
+      });
+      sonar.on("api/issues/bulk_change", parameters -> {
+         Arrays.stream(parameters.get("issues").split(",")).forEach(key -> this.statuses.put(key, "RESOLVED"));
+         return "{}";
+      });
+      sonar.on("api/issues/add_comment", "{}");
+      sonar.on("api/settings/set", parameters -> null);
+      return sonar;
+   }
+
+   /** write the failures to a queue and read them again */
+   private List<FailedWrite> queue(final FakeSonar sonar, final FailedWrite... failures) throws IOException {
+      final File file = this.folder.newFile();
+      try (DeadLetterQueue queue = new DeadLetterQueue(file)) {
+         for (final FailedWrite failure : failures) {
+            queue.add(failure);
+         }
+         assertEquals(failures.length, queue.getCount());
+      }
+      return DeadLetterQueue.read(file);
+   }
+
+   private static MigrationResult replay(final FakeSonar sonar, final List<FailedWrite> failures, final File again) throws IOException {
+      try (DeadLetterQueue deadLetters = new DeadLetterQueue(again)) {
+         final List<MigrationResult> results = Migrator.builder()
+               .source(sonar.getUrl(), "src")
+               .deadLetterQueue(deadLetters)
+               .build()
+               .replayFailures(failures);
+         assertEquals(1, results.size());
+         return results.get(0);
+      }
+   }
+
+   private static FailedWrite failure(final FakeSonar sonar, final String endpoint, final String... parameters) {
+      final FailedWrite failure = new FailedWrite();
+      failure.setUrl(sonar.getUrl());
+      failure.setEndpoint(endpoint);
+      failure.setStatus(503);
+      final Map<String, List<String>> parameterMap = new LinkedHashMap<>();
+      for (int i = 0; i < parameters.length; i += 2) {
+         parameterMap.put(parameters[i], Collections.singletonList(parameters[i + 1]));
+      }
+      failure.setParameters(parameterMap);
+      return failure;
+   }
+
+   private static List<String> describe(final List<FailedWrite> failures) {
+      return failures.stream().map(failure -> failure.getEndpoint() + " " + failure.getParameters()).collect(Collectors.toList());
+   }
+
+}
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Scripted SonarQube web API for tests: the answers are registered by path (e.g. "api/settings/values") and get the
+ * parameters of the query and the form, the requests are recorded. Paths without answer are answered with 404.
+ */
+final class FakeSonar implements Closeable {
+
+   private final HttpServer server;
+
+   private final ExecutorService executor = Executors.newCachedThreadPool();
+
+   private final Map<String, Function<Map<String, String>, String>> answers = new ConcurrentHashMap<>();
+
+   private final Map<String, Integer> statuses = new ConcurrentHashMap<>();
+
+   private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+   /**
+    * Constructor. The server listens on a free port of the loopback interface.
+    *
+    * @throws IOException if the server cannot be started
+    */
+   FakeSonar() throws IOException {
+      this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+      this.server.createContext("/", this::handle);
+      this.server.setExecutor(this.executor);
+      this.server.start();
+   }
+
+   /**
+    * @return the base URL of the server
+    */
+   String getUrl() {
+      return "http://127.0.0.1:" + this.server.getAddress().getPort() + "/";
+   }
+
+   /**
+    * Answer the requests of a path.
+    *
+    * @param path the path without leading slash
+    * @param answer the JSON answer by parameters or null for 204 (no content)
+    * @return this server
+    */
+   FakeSonar on(final String path, final Function<Map<String, String>, String> answer) {
+      this.answers.put(path, answer);
+      this.statuses.remove(path);
+      return this;
+   }
+
+   /**
+    * Answer the requests of a path always the same.
+    *
+    * @param path the path without leading slash
+    * @param json the JSON answer
+    * @return this server
+    */
+   FakeSonar on(final String path, final String json) {
+      return this.on(path, parameters -> json);
+   }
+
+   /**
+    * Answer the requests of a path with an error.
+    *
+    * @param path the path without leading slash
+    * @param status the HTTP status
+    * @return this server
+    */
+   FakeSonar fail(final String path, final int status) {
+      this.statuses.put(path, status);
+      return this;
+   }
+
+   /**
+    * @param path the path without leading slash
+    * @return the requests of the path (the parameters sorted by name) in the order received
+    */
+   List<String> getRequests(final String path) {
+      synchronized (this.requests) {
+         return this.requests.stream()
+               .filter(request -> request.equals(path) || request.startsWith(path + " "))
+               .collect(Collectors.toList());
+      }
+   }
+
+   @Override
+   public void close() {
+      this.server.stop(0);
+      this.executor.shutdownNow();
+   }
+
+   private void handle(final HttpExchange exchange) throws IOException {
+      final String path = exchange.getRequestURI().getPath().substring(1);
+      final Map<String, String> parameters = new TreeMap<>();
+      FakeSonar.parse(exchange.getRequestURI().getRawQuery(), parameters);
+      try (InputStream in = exchange.getRequestBody()) {
+         final ByteArrayOutputStream body = new ByteArrayOutputStream();
+         final byte[] buffer = new byte[8192];
+         int read;
+         while ((read = in.read(buffer)) > 0) {
+            body.write(buffer, 0, read);
+         }
+         FakeSonar.parse(new String(body.toByteArray(), StandardCharsets.UTF_8), parameters);
+      }
+      this.requests.add(parameters.isEmpty() ? path : path + " " + parameters);
+
+      final Function<Map<String, String>, String> answer = this.answers.get(path);
+      final Integer status = this.statuses.get(path);
+      final int code = status != null ? status : answer != null ? 200 : 404;
+      final String json = code == 200 ? answer.apply(parameters) : "{\"errors\":[{\"msg\":\"HTTP " + code + "\"}]}";
+      if (json == null) {
+         exchange.sendResponseHeaders(204, -1);
+         exchange.close();
+         return;
+      }
+      final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(code, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+         out.write(bytes);
+      }
+   }
+
+   /** add the parameters, values of the same name are joined by commas */
+   private static void parse(final String encoded, final Map<String, String> parameters) throws UnsupportedEncodingException {
+      if (encoded == null || encoded.isEmpty()) {
+         return;
+      }
+      for (final String parameter : encoded.split("&")) {
+         final int separator = parameter.indexOf('=');
+         final String name = URLDecoder.decode(separator >= 0 ? parameter.substring(0, separator) : parameter, "UTF-8");
+         final String value = separator >= 0 ? URLDecoder.decode(parameter.substring(separator + 1), "UTF-8") : "";
+         parameters.merge(name, value, (first, second) -> first + "," + second);
+      }
+   }
+
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link HedgingPolicy} and of hedged requests.
+ */
+public class HedgingPolicyTest {
+
+   @Test
+   public void hedgesAreLimitedByTheBudget() {
+      final HedgingPolicy policy = new HedgingPolicy(95, 0.1);
+      for (int i = 0; i < 9; i++) {
+         policy.recordRequest();
+      }
+      assertFalse(policy.tryAcquireHedge());
+      policy.recordRequest();
+      assertTrue(policy.tryAcquireHedge());
+      assertFalse(policy.tryAcquireHedge());
+      for (int i = 0; i < 10; i++) {
+         policy.recordRequest();
+      }
+      assertTrue(policy.tryAcquireHedge());
+      assertEquals(2, policy.getHedges());
+      assertEquals(20, policy.getRequests());
+   }
+
+   @Test
+   public void delayIsThePercentileOfTheSamples() {
+      final HedgingPolicy p95 = new HedgingPolicy(95, 0.1);
+      final HedgingPolicy p50 = new HedgingPolicy(50, 0.1);
+      for (int i = 1; i <= HedgingPolicy.MIN_SAMPLES; i++) {
+         assertEquals(-1, p95.getHedgeDelay());
+         p95.recordLatency(i);
+         p50.recordLatency(i);
+      }
+      assertEquals(10, p95.getHedgeDelay());
+      assertEquals(5, p50.getHedgeDelay());
+
+      // the delay is computed again after some samples only
+      for (int i = 1; i < HedgingPolicy.RECOMPUTE_INTERVAL; i++) {
+         p95.recordLatency(1000);
+      }
+      assertEquals(10, p95.getHedgeDelay());
+      p95.recordLatency(1000);
+      assertEquals(1000, p95.getHedgeDelay());
+   }
+
+   @Test
+   public void losingRequestIsCanceled() throws IOException, InterruptedException {
+      final AtomicInteger count = new AtomicInteger();
+      try (FakeSonar sonar = new FakeSonar()) {
+         sonar.on("api/components/show", parameters -> {
+            // the first request after the warm-up hangs
+            if (count.incrementAndGet() == HedgingPolicy.MIN_SAMPLES + 1) {
+               try {
+                  Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+               } catch (final InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            }
+            return "{\"component\":{\"key\":\"prj\",\"analysisDate\":\"2024-01-01T10:00:00+0000\"}}";
+         });
+         final HedgingPolicy policy = new HedgingPolicy(50, 0.5);
+         final SonarClientService service = new SonarClientService(sonar.getUrl(), null, null, false);
+         service.setHedgingPolicy(policy);
+         for (int i = 0; i < HedgingPolicy.MIN_SAMPLES; i++) {
+            service.getAnalysisDate("prj");
+         }
+         assertTrue(policy.getHedgeDelay() >= 0);
+         assertEquals(0, policy.getHedges());
+
+         final long start = System.nanoTime();
+         assertEquals("2024-01-01T10:00:00+0000", service.getAnalysisDate("prj"));
+         assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+         assertEquals(1, policy.getHedges());
+
+         // the hanging request is aborted, i.e. no thread waits for its response
+         final ThreadPoolExecutor executor = (ThreadPoolExecutor) policy.getExecutor();
+         final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+         while (executor.getActiveCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+         }
+         assertEquals(0, executor.getActiveCount());
+      }
+   }
+
+}
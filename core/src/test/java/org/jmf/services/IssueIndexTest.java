@@ -0,0 +1,133 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.jmf.vo.Issue;
+import org.junit.Test;
+
+/**
+ * Tests of {@link IssueIndex}.
+ */
+public class IssueIndexTest {
+
+   private static final String RULE = "java:S100";
+
+   private static final String COMPONENT = "prj:src/A.java";
+
+   @Test
+   public void findClosestWithinDelta() {
+      final Issue line10 = IssueIndexTest.issue("t1", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, 10);
+      final Issue line20 = IssueIndexTest.issue("t2", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, 20);
+      final IssueIndex index = IssueIndex.of(Arrays.asList(line20, line10));
+
+      assertSame(line10, index.findClosest(IssueIndexTest.source(12), 2, issue -> true));
+      assertSame(line20, index.findClosest(IssueIndexTest.source(16), 5, issue -> true));
+      assertNull(index.findClosest(IssueIndexTest.source(15), 4, issue -> true));
+   }
+
+   @Test
+   public void findClosestAtBoundaries() {
+      final Issue first = IssueIndexTest.issue("t1", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, 1);
+      final Issue last = IssueIndexTest.issue("t2", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, 1000);
+      final IssueIndex index = IssueIndex.of(Arrays.asList(first, last));
+
+      // exactly at the delta below and above
+      assertSame(first, index.findClosest(IssueIndexTest.source(4), 3, issue -> true));
+      assertSame(last, index.findClosest(IssueIndexTest.source(997), 3, issue -> true));
+      assertNull(index.findClosest(IssueIndexTest.source(5), 3, issue -> true));
+      // before the first and after the last issue
+      assertSame(first, index.findClosest(IssueIndexTest.source(0), 1, issue -> true));
+      assertSame(last, index.findClosest(IssueIndexTest.source(1001), 1, issue -> true));
+      assertEquals(0, index.countCandidates(IssueIndexTest.source(2000), 10));
+   }
+
+   @Test
+   public void findClosestPrefersLowerLineOnTie() {
+      final Issue below = IssueIndexTest.issue("t1", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, 8);
+      final Issue above = IssueIndexTest.issue("t2", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, 12);
+      final IssueIndex index = IssueIndex.of(Arrays.asList(above, below));
+
+      assertSame(below, index.findClosest(IssueIndexTest.source(10), 2, issue -> true));
+      assertSame(above, index.findClosest(IssueIndexTest.source(10), 2, issue -> issue != below));
+   }
+
+   @Test
+   public void findClosestKeepsFetchOrderOnSameLine() {
+      final Issue first = IssueIndexTest.issue("t2", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, 10);
+      final Issue second = IssueIndexTest.issue("t1", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, 10);
+      final IssueIndex index = IssueIndex.of(Arrays.asList(first, second));
+
+      assertSame(first, index.findClosest(IssueIndexTest.source(10), 0, issue -> true));
+      assertSame(second, index.findClosest(IssueIndexTest.source(10), 0, issue -> issue != first));
+   }
+
+   @Test
+   public void findClosestSkipsUnavailableAndOtherFiles() {
+      final Issue same = IssueIndexTest.issue("t1", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, 10);
+      final Issue sameLineOtherFile = IssueIndexTest.issue("t2", IssueIndexTest.RULE, "prj:src/B.java", 10);
+      final Issue sameLineOtherRule = IssueIndexTest.issue("t3", "java:S101", IssueIndexTest.COMPONENT, 10);
+      final IssueIndex index = IssueIndex.of(Arrays.asList(same, sameLineOtherFile, sameLineOtherRule));
+
+      assertSame(same, index.findClosest(IssueIndexTest.source(10), 0, issue -> true));
+      assertNull(index.findClosest(IssueIndexTest.source(10), 0, issue -> issue != same));
+   }
+
+   @Test
+   public void issuesWithoutLineAreNeverMatched() {
+      final Issue closed = IssueIndexTest.issue("t1", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, null);
+      final Issue line3 = IssueIndexTest.issue("t2", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, 3);
+      final IssueIndex index = IssueIndex.of(Arrays.asList(line3, closed));
+
+      assertSame(line3, index.findClosest(IssueIndexTest.source(1), 5, issue -> true));
+      assertEquals(1, index.countCandidates(IssueIndexTest.source(1), 5));
+      assertNull(index.findClosest(IssueIndexTest.issue("s", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, null), 5, issue -> true));
+      assertEquals(2, index.size());
+      assertEquals(Arrays.asList(line3, closed), index.getIssues(IssueIndexTest.RULE));
+   }
+
+   @Test
+   public void countCandidatesWithDuplicateLines() {
+      final IssueIndex index = IssueIndex.of(Arrays.asList(
+            IssueIndexTest.issue("t1", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, 5),
+            IssueIndexTest.issue("t2", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, 5),
+            IssueIndexTest.issue("t3", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, 6),
+            IssueIndexTest.issue("t4", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, 9)));
+
+      assertEquals(2, index.countCandidates(IssueIndexTest.source(5), 0));
+      assertEquals(3, index.countCandidates(IssueIndexTest.source(6), 1));
+      assertEquals(4, index.countCandidates(IssueIndexTest.source(7), 2));
+      assertEquals(0, IssueIndex.of(Collections.emptyList()).countCandidates(IssueIndexTest.source(7), 2));
+   }
+
+   private static Issue source(final int line) {
+      return IssueIndexTest.issue("s", IssueIndexTest.RULE, IssueIndexTest.COMPONENT, line);
+   }
+
+   static Issue issue(final String key, final String rule, final String component, final Integer line) {
+      final Issue issue = new Issue();
+      issue.setKey(key);
+      issue.setRule(rule);
+      issue.setComponent(component);
+      issue.setLine(line);
+      return issue;
+   }
+
+}
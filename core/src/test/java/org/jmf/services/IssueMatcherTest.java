@@ -0,0 +1,61 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.jmf.vo.Issue;
+import org.junit.Test;
+
+/**
+ * Tests of {@link IssueMatcher}.
+ */
+public class IssueMatcherTest {
+
+   private static final String RULE = "java:S100";
+
+   private static final String COMPONENT = "prj:src/A.java";
+
+   @Test
+   public void matchesEachTargetIssueOnce() {
+      final Issue target = IssueMatcherTest.issue("t1", 10, "h1");
+      final IssueMatcher matcher = new IssueMatcher(1);
+      final IssueIndex index = IssueIndex.of(Arrays.asList(target));
+
+      assertSame(target, matcher.match(index, IssueMatcherTest.issue("s1", 10, "h1")));
+      assertNull(matcher.match(index, IssueMatcherTest.issue("s2", 10, "h1")));
+      assertEquals(1, matcher.getMatched());
+   }
+
+   @Test
+   public void matchByHashIsOffByDefault() {
+      final Issue moved = IssueMatcherTest.issue("t1", 100, "h1");
+      final IssueIndex index = IssueIndex.of(Arrays.asList(moved));
+
+      assertNull(new IssueMatcher(5).match(index, IssueMatcherTest.issue("s1", 10, "h1")));
+      assertSame(moved, new IssueMatcher(5, true).match(index, IssueMatcherTest.issue("s1", 10, "h1")));
+      assertNull(new IssueMatcher(5, true).match(index, IssueMatcherTest.issue("s1", 10, "h2")));
+   }
+
+   private static Issue issue(final String key, final int line, final String hash) {
+      final Issue issue = IssueIndexTest.issue(key, IssueMatcherTest.RULE, IssueMatcherTest.COMPONENT, line);
+      issue.setHash(hash);
+      return issue;
+   }
+
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link LineDiff}.
+ */
+public class LineDiffTest {
+
+   @Test
+   public void emptyFiles() {
+      assertArrayEquals(new int[] { 0 }, LineDiff.map(Collections.emptyList(), Collections.emptyList()));
+      assertArrayEquals(new int[] { 0 }, LineDiff.map(Collections.emptyList(), LineDiffTest.lines("a", "b")));
+      assertArrayEquals(new int[] { 0, 0, 0 }, LineDiff.map(LineDiffTest.lines("a", "b"), Collections.emptyList()));
+   }
+
+   @Test
+   public void identicalFiles() {
+      assertArrayEquals(new int[] { 0, 1, 2, 3 }, LineDiff.map(LineDiffTest.lines("a", "b", "c"), LineDiffTest.lines("a", "b", "c")));
+   }
+
+   @Test
+   public void insertedLines() {
+      assertArrayEquals(new int[] { 0, 3, 4 }, LineDiff.map(LineDiffTest.lines("a", "b"), LineDiffTest.lines("x", "y", "a", "b")));
+      assertArrayEquals(new int[] { 0, 1, 4 }, LineDiff.map(LineDiffTest.lines("a", "b"), LineDiffTest.lines("a", "x", "y", "b")));
+      assertArrayEquals(new int[] { 0, 1, 2 }, LineDiff.map(LineDiffTest.lines("a", "b"), LineDiffTest.lines("a", "b", "x", "y")));
+   }
+
+   @Test
+   public void deletedLines() {
+      assertArrayEquals(new int[] { 0, 0, 0, 1, 2 }, LineDiff.map(LineDiffTest.lines("x", "y", "a", "b"), LineDiffTest.lines("a", "b")));
+      assertArrayEquals(new int[] { 0, 1, 0, 0, 2 }, LineDiff.map(LineDiffTest.lines("a", "x", "y", "b"), LineDiffTest.lines("a", "b")));
+      assertArrayEquals(new int[] { 0, 0, 0 }, LineDiff.map(LineDiffTest.lines("a", "b"), LineDiffTest.lines("x", "y")));
+   }
+
+   @Test
+   public void reorderedLines() {
+      // a line moved to the top is deleted and inserted, the others keep their order
+      assertArrayEquals(new int[] { 0, 2, 3, 0 }, LineDiff.map(LineDiffTest.lines("a", "b", "c"), LineDiffTest.lines("c", "a", "b")));
+      final int[] reversed = LineDiff.map(LineDiffTest.lines("a", "b", "c", "d"), LineDiffTest.lines("d", "c", "b", "a"));
+      assertEquals(1, LineDiffTest.countMapped(reversed));
+   }
+
+   @Test
+   public void mapIsLongestCommonSubsequence() {
+      final Random random = new Random(42);
+      for (int run = 0; run < 2000; run++) {
+         final List<String> oldLines = LineDiffTest.randomLines(random, random.nextInt(40), 1 + random.nextInt(6));
+         final List<String> newLines = LineDiffTest.randomLines(random, random.nextInt(40), 1 + random.nextInt(6));
+         final int[] map = LineDiff.map(oldLines, newLines);
+         assertNotNull(map);
+         assertEquals(oldLines.size() + 1, map.length);
+         int previous = 0;
+         for (int line = 1; line < map.length; line++) {
+            if (map[line] > 0) {
+               assertTrue(map[line] > previous);
+               assertEquals(oldLines.get(line - 1), newLines.get(map[line] - 1));
+               previous = map[line];
+            }
+         }
+         assertEquals(LineDiffTest.lcs(oldLines, newLines), LineDiffTest.countMapped(map));
+      }
+   }
+
+   @Test
+   public void largeFileWithFewEdits() {
+      final List<String> oldLines = new ArrayList<>();
+      for (int i = 0; i < 200000; i++) {
+         oldLines.add("line " + i);
+      }
+      final List<String> newLines = new ArrayList<>(oldLines);
+      newLines.add(100, "inserted");
+      newLines.remove(150000);
+
+      final int[] map = LineDiff.map(oldLines, newLines);
+      assertEquals(100, map[100]);
+      assertEquals(102, map[101]);
+      assertEquals(0, map[150000]);
+      assertEquals(200000, map[200000]);
+      assertEquals(199999, LineDiffTest.countMapped(map));
+   }
+
+   @Test
+   public void tooManyEdits() {
+      final List<String> oldLines = new ArrayList<>();
+      final List<String> newLines = new ArrayList<>();
+      for (int i = 0; i < LineDiff.MAX_EDITS / 2; i++) {
+         oldLines.add("old " + i);
+         newLines.add("new " + i);
+      }
+      assertEquals(0, LineDiffTest.countMapped(LineDiff.map(oldLines, newLines)));
+      newLines.add("new");
+      assertNull(LineDiff.map(oldLines, newLines));
+      // unchanged lines in between do not count
+      oldLines.add("same");
+      newLines.add(0, "same");
+      assertNull(LineDiff.map(oldLines, newLines));
+   }
+
+   private static List<String> lines(final String... lines) {
+      return Arrays.asList(lines);
+   }
+
+   private static List<String> randomLines(final Random random, final int count, final int distinct) {
+      final List<String> lines = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+         lines.add(String.valueOf((char) ('a' + random.nextInt(distinct))));
+      }
+      return lines;
+   }
+
+   private static int countMapped(final int[] map) {
+      return (int) Arrays.stream(map).filter(line -> line > 0).count();
+   }
+
+   private static int lcs(final List<String> a, final List<String> b) {
+      final int[][] lengths = new int[a.size() + 1][b.size() + 1];
+      for (int i = 1; i <= a.size(); i++) {
+         for (int j = 1; j <= b.size(); j++) {
+            lengths[i][j] = a.get(i - 1).equals(b.get(j - 1)) ? lengths[i - 1][j - 1] + 1 : Math.max(lengths[i - 1][j], lengths[i][j - 1]);
+         }
+      }
+      return lengths[a.size()][b.size()];
+   }
+
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Tests of the mapping of lines by {@link LineMapper}.
+ */
+public class LineMapperTest {
+
+   @Test
+   public void unchangedLinesAreMappedExactly() {
+      // two lines inserted at the top
+      final int[] map = LineDiff.map(Arrays.asList("a", "b", "c"), Arrays.asList("x", "y", "a", "b", "c"));
+
+      assertTrue(LineMapper.isUnchanged(map, 1));
+      assertEquals(3, LineMapper.mapLine(map, 1));
+      assertEquals(5, LineMapper.mapLine(map, 3));
+   }
+
+   @Test
+   public void changedLinesAreShiftedLikeTheClosestUnchangedLine() {
+      // b changed, d deleted
+      final int[] map = LineDiff.map(Arrays.asList("a", "b", "c", "d", "e"), Arrays.asList("x", "a", "B", "c", "e"));
+
+      assertFalse(LineMapper.isUnchanged(map, 2));
+      assertEquals(3, LineMapper.mapLine(map, 2));
+      assertFalse(LineMapper.isUnchanged(map, 4));
+      assertEquals(5, LineMapper.mapLine(map, 4));
+      // after the end of the old version
+      assertFalse(LineMapper.isUnchanged(map, 8));
+      assertEquals(7, LineMapper.mapLine(map, 7));
+   }
+
+   @Test
+   public void linesBeforeTheFirstUnchangedLineAreShiftedLikeIt() {
+      // a and b deleted
+      final int[] map = LineDiff.map(Arrays.asList("a", "b", "c", "d"), Arrays.asList("c", "d"));
+
+      assertEquals(1, LineMapper.mapLine(map, 3));
+      assertEquals(1, LineMapper.mapLine(map, 1));
+      assertEquals(1, LineMapper.mapLine(map, 2));
+   }
+
+   @Test
+   public void withoutUnchangedLinesTheLineIsKept() {
+      final int[] deleted = LineDiff.map(Arrays.asList("a", "b"), Collections.emptyList());
+      final int[] inserted = LineDiff.map(Collections.emptyList(), Arrays.asList("a", "b"));
+
+      assertFalse(LineMapper.isUnchanged(deleted, 0));
+      assertEquals(2, LineMapper.mapLine(deleted, 2));
+      assertFalse(LineMapper.isUnchanged(inserted, 1));
+      assertEquals(1, LineMapper.mapLine(inserted, 1));
+   }
+
+}
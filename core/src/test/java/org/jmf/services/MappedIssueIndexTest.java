@@ -0,0 +1,205 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.jmf.vo.Issue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link MappedIssueIndex}.
+ */
+public class MappedIssueIndexTest {
+
+   private static final String RULE = "java:S100";
+
+   private static final String OTHER_RULE = "java:S101";
+
+   private static final String COMPONENT = "prj:src/A.java";
+
+   private static final String ANALYSIS = "2024-01-01T10:00:00+0000";
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   @Test
+   public void fileIsVersionedAndPerTarget() throws IOException {
+      final File file = this.write(Collections.singletonList(MappedIssueIndexTest.RULE),
+            MappedIssueIndexTest.issue("t1", MappedIssueIndexTest.RULE, 10, "h1"));
+
+      assertTrue(file.getName().startsWith("prj-"));
+      assertTrue(file.getName().endsWith(".idx"));
+      assertFalse(file.equals(MappedIssueIndex.getFile(this.folder.getRoot(), "http://other", "prj")));
+      try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()))) {
+         assertEquals(0x53494458, in.readInt());
+         assertEquals(MappedIssueIndex.VERSION, in.readInt());
+         assertEquals(1, in.readLong());
+      }
+   }
+
+   @Test
+   public void writeAndReopen() throws IOException {
+      final File file = this.write(Arrays.asList(MappedIssueIndexTest.RULE, MappedIssueIndexTest.OTHER_RULE),
+            MappedIssueIndexTest.issue("t3", MappedIssueIndexTest.RULE, 1000, "h3"),
+            MappedIssueIndexTest.issue("t1", MappedIssueIndexTest.RULE, 1, "h1"),
+            MappedIssueIndexTest.issue("t2", MappedIssueIndexTest.RULE, null, null),
+            MappedIssueIndexTest.issue("t4", MappedIssueIndexTest.OTHER_RULE, 1, "h1"));
+
+      try (MappedIssueIndex index = MappedIssueIndex.open(file, MappedIssueIndexTest.ANALYSIS)) {
+         assertEquals(4, index.size());
+         assertTrue(index.hasRule(MappedIssueIndexTest.OTHER_RULE));
+         assertFalse(index.hasRule("java:S102"));
+         // at the delta and before the first and after the last record
+         assertEquals("t1", index.findClosest(MappedIssueIndexTest.source(4), 3, issue -> true).getKey());
+         assertNull(index.findClosest(MappedIssueIndexTest.source(5), 3, issue -> true));
+         assertEquals("t1", index.findClosest(MappedIssueIndexTest.source(0), 1, issue -> true).getKey());
+         assertEquals("t3", index.findClosest(MappedIssueIndexTest.source(1001), 1, issue -> true).getKey());
+         assertNull(index.findClosest(MappedIssueIndexTest.source(1), 0, issue -> !"t1".equals(issue.getKey())));
+         assertEquals(2, index.countCandidates(MappedIssueIndexTest.source(500), 500));
+         // issues without line are never matched
+         assertNull(index.findClosest(MappedIssueIndexTest.issue("s", MappedIssueIndexTest.RULE, null, null), 5, issue -> true));
+
+         final Issue moved = MappedIssueIndexTest.issue("s", MappedIssueIndexTest.RULE, 500, "h3");
+         assertEquals("t3", index.findByFingerprint(moved, issue -> true).getKey());
+         assertEquals(1000, index.findByFingerprint(moved, issue -> true).getLine().intValue());
+         assertNull(index.findByFingerprint(MappedIssueIndexTest.issue("s", MappedIssueIndexTest.RULE, 500, "h4"), issue -> true));
+      }
+   }
+
+   @Test
+   public void findClosestPrefersLowerLineOnTie() throws IOException {
+      // the same tie-break as in memory (see IssueIndexTest), i.e. independent of the order the issues were fetched in
+      final File file = this.write(Collections.singletonList(MappedIssueIndexTest.RULE),
+            MappedIssueIndexTest.issue("t2", MappedIssueIndexTest.RULE, 12, null),
+            MappedIssueIndexTest.issue("t1", MappedIssueIndexTest.RULE, 8, null));
+
+      try (MappedIssueIndex index = MappedIssueIndex.open(file, MappedIssueIndexTest.ANALYSIS)) {
+         assertEquals("t1", index.findClosest(MappedIssueIndexTest.source(10), 2, issue -> true).getKey());
+         assertEquals("t2", index.findClosest(MappedIssueIndexTest.source(10), 2, issue -> !"t1".equals(issue.getKey())).getKey());
+      }
+   }
+
+   @Test
+   public void staleAnalysisIsIgnored() throws IOException {
+      final File file = this.write(Collections.singletonList(MappedIssueIndexTest.RULE),
+            MappedIssueIndexTest.issue("t1", MappedIssueIndexTest.RULE, 10, "h1"));
+
+      assertNull(MappedIssueIndex.open(file, "2024-02-01T10:00:00+0000"));
+      assertNull(MappedIssueIndex.open(new File(this.folder.getRoot(), "missing.idx"), MappedIssueIndexTest.ANALYSIS));
+      // the stale index is rebuilt in place
+      MappedIssueIndex.write(file, "2024-02-01T10:00:00+0000", null, Collections.singletonList(MappedIssueIndexTest.RULE),
+            Collections.singletonList(MappedIssueIndexTest.issue("t2", MappedIssueIndexTest.RULE, 20, "h2")));
+      try (MappedIssueIndex index = MappedIssueIndex.open(file, "2024-02-01T10:00:00+0000")) {
+         assertEquals(1, index.size());
+         assertEquals("t2", index.findClosest(MappedIssueIndexTest.source(20), 0, issue -> true).getKey());
+      }
+   }
+
+   @Test
+   public void otherVersionIsIgnored() throws IOException {
+      final File file = this.write(Collections.singletonList(MappedIssueIndexTest.RULE),
+            MappedIssueIndexTest.issue("t1", MappedIssueIndexTest.RULE, 10, "h1"));
+      try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+         out.seek(4);
+         out.writeInt(MappedIssueIndex.VERSION + 1);
+      }
+
+      assertNull(MappedIssueIndex.open(file, MappedIssueIndexTest.ANALYSIS));
+   }
+
+   @Test
+   public void changesAreJournaledAndMerged() throws IOException {
+      final File file = this.write(Arrays.asList(MappedIssueIndexTest.RULE, MappedIssueIndexTest.OTHER_RULE),
+            MappedIssueIndexTest.issue("t1", MappedIssueIndexTest.RULE, 10, "h1"),
+            MappedIssueIndexTest.issue("t2", MappedIssueIndexTest.OTHER_RULE, 10, "h2"));
+      final File journal = new File(file.getPath() + ".journal");
+
+      try (MappedIssueIndex index = MappedIssueIndex.open(file, MappedIssueIndexTest.ANALYSIS)) {
+         final Issue issue = index.findClosest(MappedIssueIndexTest.source(10), 0, i -> true);
+         index.recordChange(issue, "RESOLVED", "FALSE-POSITIVE", "migrated");
+      }
+      assertTrue(journal.isFile());
+
+      // the journal is replayed, when the index is opened again
+      final MappedIssueIndex previous = MappedIssueIndex.open(file, MappedIssueIndexTest.ANALYSIS);
+      MappedIssueIndexTest.assertChanged(previous.findClosest(MappedIssueIndexTest.source(10), 0, i -> true));
+
+      // the issues of the other rule are replaced, the journal is merged into the file
+      MappedIssueIndex.write(file, MappedIssueIndexTest.ANALYSIS, previous, Collections.singletonList(MappedIssueIndexTest.OTHER_RULE),
+            Collections.singletonList(MappedIssueIndexTest.issue("t3", MappedIssueIndexTest.OTHER_RULE, 30, "h3")));
+      assertFalse(journal.exists());
+      try (MappedIssueIndex index = MappedIssueIndex.open(file, MappedIssueIndexTest.ANALYSIS)) {
+         assertEquals(2, index.size());
+         MappedIssueIndexTest.assertChanged(index.findClosest(MappedIssueIndexTest.source(10), 0, i -> true));
+         final Issue other = MappedIssueIndexTest.issue("s", MappedIssueIndexTest.OTHER_RULE, 10, null);
+         assertNull(index.findClosest(other, 0, i -> true));
+         other.setLine(30);
+         assertEquals("t3", index.findClosest(other, 0, i -> true).getKey());
+      }
+   }
+
+   @Test
+   public void closeReleasesTheFile() throws IOException {
+      final File file = this.write(Collections.singletonList(MappedIssueIndexTest.RULE),
+            MappedIssueIndexTest.issue("t1", MappedIssueIndexTest.RULE, 10, "h1"));
+      final MappedIssueIndex index = MappedIssueIndex.open(file, MappedIssueIndexTest.ANALYSIS);
+      assertNotNull(index.findClosest(MappedIssueIndexTest.source(10), 0, i -> true));
+
+      index.close();
+      index.close();
+      Files.delete(file.toPath());
+      assertFalse(file.exists());
+   }
+
+   private File write(final Collection<String> rules, final Issue... issues) throws IOException {
+      final File file = MappedIssueIndex.getFile(this.folder.getRoot(), "http://localhost:9000", "prj");
+      MappedIssueIndex.write(file, MappedIssueIndexTest.ANALYSIS, null, rules, Arrays.asList(issues));
+      return file;
+   }
+
+   private static void assertChanged(final Issue issue) {
+      assertEquals("t1", issue.getKey());
+      assertEquals("RESOLVED", issue.getStatus());
+      assertEquals("FALSE-POSITIVE", issue.getResolution());
+      assertEquals(1, issue.getComments().size());
+      assertEquals("migrated", issue.getComments().get(0).getMarkdown());
+   }
+
+   private static Issue source(final int line) {
+      return MappedIssueIndexTest.issue("s", MappedIssueIndexTest.RULE, line, null);
+   }
+
+   private static Issue issue(final String key, final String rule, final Integer line, final String hash) {
+      final Issue issue = IssueIndexTest.issue(key, rule, MappedIssueIndexTest.COMPONENT, line);
+      issue.setHash(hash);
+      return issue;
+   }
+
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import org.apache.http.HttpHost;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.HttpHostConnectException;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+
+/**
+ * Tests of the failures, which take a node out of the rotation of a {@link NodeBalancer}.
+ */
+public class NodeBalancerTest {
+
+   @Test
+   public void connectionFailuresAndUnavailableNodesFailOver() {
+      assertTrue(NodeBalancer.isNodeFailure(new HttpHostConnectException(new IOException("refused"), new HttpHost("app1"))));
+      assertTrue(NodeBalancer.isNodeFailure(new ConnectTimeoutException("timeout")));
+      assertTrue(NodeBalancer.isNodeFailure(new SocketTimeoutException("read timeout")));
+      assertTrue(NodeBalancer.isNodeFailure(new NoHttpResponseException("no response")));
+      assertTrue(NodeBalancer.isNodeFailure(new NodeBalancer.UnavailableException("HTTP/1.1 503 Service Unavailable")));
+   }
+
+   @Test
+   public void errorsOfTheRequestDoNotFailOver() {
+      assertFalse(NodeBalancer.isNodeFailure(new IOException("HTTP/1.1 404 Not Found")));
+      assertFalse(NodeBalancer.isNodeFailure(new JsonParseException("Unexpected character", JsonLocation.NA)));
+   }
+
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link RequestThrottle}.
+ */
+public class RequestThrottleTest {
+
+   @Test
+   public void throttleIsSharedPerServer() {
+      RequestThrottle.setRates("http://throttle-shared", 5, 2);
+
+      final RequestThrottle throttle = RequestThrottle.forServer("http://throttle-shared/");
+      assertSame(throttle, RequestThrottle.forServer("http://throttle-shared"));
+      assertEquals(5, throttle.getReadRate(), 0);
+      assertEquals(2, throttle.getWriteRate(), 0);
+   }
+
+   @Test
+   public void burstOfOneSecondIsNotThrottled() throws InterruptedIOException {
+      RequestThrottle.setRates("http://throttle-burst", 20, 0);
+      final RequestThrottle throttle = RequestThrottle.forServer("http://throttle-burst");
+
+      final long start = System.nanoTime();
+      for (int i = 0; i < 20; i++) {
+         throttle.acquireRead();
+      }
+      // writes are unlimited
+      for (int i = 0; i < 1000; i++) {
+         throttle.acquireWrite();
+      }
+      assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+   }
+
+   @Test
+   public void concurrentRequestsReserveTokensAhead() throws InterruptedIOException {
+      RequestThrottle.setRates("http://throttle-reserve", 20, 20);
+      final RequestThrottle throttle = RequestThrottle.forServer("http://throttle-reserve");
+      for (int i = 0; i < 20; i++) {
+         throttle.acquireRead();
+      }
+
+      // the bucket is empty: 10 concurrent reads wait for their turn, i.e. the last one for 10 tokens (0.5 s)
+      final long start = System.nanoTime();
+      final List<CompletableFuture<Long>> reads = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+         reads.add(CompletableFuture.supplyAsync(() -> {
+            try {
+               throttle.acquireRead();
+            } catch (final InterruptedIOException e) {
+               throw new IllegalStateException(e);
+            }
+            return System.nanoTime() - start;
+         }));
+      }
+      // the write budget is separate
+      throttle.acquireWrite();
+      assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200));
+
+      final long last = reads.stream().mapToLong(CompletableFuture::join).max().getAsLong();
+      final long first = reads.stream().mapToLong(CompletableFuture::join).min().getAsLong();
+      assertTrue("last read after " + last + " ns", last >= TimeUnit.MILLISECONDS.toNanos(400));
+      assertTrue("last read after " + last + " ns", last < TimeUnit.SECONDS.toNanos(3));
+      assertTrue("first read after " + first + " ns", first < TimeUnit.MILLISECONDS.toNanos(300));
+   }
+
+   @Test(expected = InterruptedIOException.class)
+   public void waitingIsInterruptible() throws InterruptedIOException {
+      RequestThrottle.setRates("http://throttle-interrupt", 1, 0);
+      final RequestThrottle throttle = RequestThrottle.forServer("http://throttle-interrupt");
+      throttle.acquireRead();
+      Thread.currentThread().interrupt();
+      try {
+         throttle.acquireRead();
+      } finally {
+         assertTrue(Thread.interrupted());
+      }
+   }
+
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.jmf.vo.MigrationResult;
+import org.jmf.vo.QualityProfile;
+import org.jmf.vo.Setting;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link SettingsFingerprintStore} and of skipping unchanged projects.
+ */
+public class SettingsFingerprintStoreTest {
+
+   private static final String PROFILES = "{\"profiles\":[{\"key\":\"p1\",\"name\":\"Sonar way\",\"language\":\"java\",\"isDefault\":true}]}";
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   @Test
+   public void fingerprintIgnoresOrder() {
+      final Setting first = SettingsFingerprintStoreTest.setting("a", "1");
+      final Setting second = SettingsFingerprintStoreTest.setting("b", "2");
+      final QualityProfile profile = new QualityProfile();
+      profile.setLanguage("java");
+      profile.setName("Sonar way");
+
+      assertEquals(SettingsFingerprintStore.fingerprint(Arrays.asList(first, second), Collections.singletonList(profile)),
+            SettingsFingerprintStore.fingerprint(Arrays.asList(second, first), Collections.singletonList(profile)));
+      assertNotEquals(SettingsFingerprintStore.fingerprint(Arrays.asList(first, second), null),
+            SettingsFingerprintStore.fingerprint(Arrays.asList(first, second), Collections.singletonList(profile)));
+   }
+
+   @Test
+   public void storedFingerprintsAreReloaded() throws IOException {
+      final File file = new File(this.folder.getRoot(), "fingerprints.properties");
+      new SettingsFingerprintStore(file).put("id", "source", "target");
+
+      final SettingsFingerprintStore store = new SettingsFingerprintStore(file);
+      assertTrue(store.isUnchanged("id", "source", "target"));
+      assertFalse(store.isUnchanged("id", "source", "other"));
+      assertFalse(store.isUnchanged("other", "source", "target"));
+   }
+
+   @Test
+   public void projectSynchronizedByResetsOnlyIsSkippedNextTime() throws IOException {
+      // the target has an additional setting, which is reset by the synchronization
+      final Map<String, String> targetSettings = new TreeMap<>();
+      targetSettings.put("a", "1");
+      targetSettings.put("b", "2");
+      try (FakeSonar sonar = new FakeSonar()) {
+         sonar.on("api/settings/values", parameters -> {
+            if ("src".equals(parameters.get("component"))) {
+               return SettingsFingerprintStoreTest.settings(Collections.singletonMap("a", "1"));
+            }
+            return SettingsFingerprintStoreTest.settings("tgt".equals(parameters.get("component")) ? targetSettings : Collections.emptyMap());
+         });
+         sonar.on("api/qualityprofiles/search", SettingsFingerprintStoreTest.PROFILES);
+         sonar.on("api/settings/reset", parameters -> {
+            Arrays.asList(parameters.get("keys").split(",")).forEach(targetSettings::remove);
+            return null;
+         });
+         final File file = new File(this.folder.getRoot(), "fingerprints.properties");
+
+         final MigrationResult first = SettingsFingerprintStoreTest.migrate(sonar, file);
+         assertEquals(1, first.getUpdated());
+         assertEquals(Collections.singletonList("api/settings/reset {component=tgt, keys=b}"), sonar.getRequests("api/settings/reset"));
+         final int targetReads = sonar.getRequests("api/settings/values {component=tgt}").size();
+
+         // the stored target fingerprint is the one after the reset, so the project is not synchronized again
+         final MigrationResult second = SettingsFingerprintStoreTest.migrate(sonar, file);
+         assertEquals(0, second.getUpdated());
+         assertEquals(targetReads + 1, sonar.getRequests("api/settings/values {component=tgt}").size());
+
+         // a manual change of the target is synchronized again
+         targetSettings.put("c", "3");
+         assertEquals(1, SettingsFingerprintStoreTest.migrate(sonar, file).getUpdated());
+         assertEquals(2, sonar.getRequests("api/settings/reset").size());
+      }
+   }
+
+   private static MigrationResult migrate(final FakeSonar sonar, final File file) throws IOException {
+      return Migrator.builder()
+            .source(sonar.getUrl(), "src")
+            .target(sonar.getUrl(), "tgt")
+            .migrateProject()
+            .fingerprintStore(new SettingsFingerprintStore(file))
+            .build()
+            .run();
+   }
+
+   private static String settings(final Map<String, String> settings) {
+      return settings.entrySet().stream()
+            .map(setting -> "{\"key\":\"" + setting.getKey() + "\",\"value\":\"" + setting.getValue() + "\"}")
+            .collect(Collectors.joining(",", "{\"settings\":[", "]}"));
+   }
+
+   private static Setting setting(final String key, final String value) {
+      final Setting setting = new Setting();
+      setting.setKey(key);
+      setting.setValue(value);
+      return setting;
+   }
+
+}
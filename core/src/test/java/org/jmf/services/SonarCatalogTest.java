@@ -0,0 +1,92 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.jmf.vo.MigrationResult;
+import org.junit.Test;
+
+/**
+ * Tests of {@link SonarCatalog} used by the synchronization of the quality profiles.
+ */
+public class SonarCatalogTest {
+
+   private static final String SONAR_WAY = "{\"key\":\"p1\",\"name\":\"Sonar way\",\"language\":\"java\",\"isDefault\":true}";
+
+   private static final String CUSTOM = "{\"key\":\"p2\",\"name\":\"Custom\",\"language\":\"java\",\"isDefault\":false}";
+
+   private static final String ADD_CUSTOM = "api/qualityprofiles/add_project {language=java, project=tgt, qualityProfile=Custom}";
+
+   @Test
+   public void unreadableCatalogFallsBackToProjectReads() throws IOException {
+      try (FakeSonar sonar = SonarCatalogTest.sonar()) {
+         // all quality profiles of the server cannot be read
+         sonar.on("api/qualityprofiles/search", parameters -> parameters.get("project") == null ? "unreadable"
+               : SonarCatalogTest.profiles("src".equals(parameters.get("project")) ? SonarCatalogTest.CUSTOM : SonarCatalogTest.SONAR_WAY));
+
+         final MigrationResult result = SonarCatalogTest.migrate(sonar);
+         assertEquals(null, result.getError());
+         assertEquals(1, result.getUpdated());
+         assertEquals(Collections.singletonList(SonarCatalogTest.ADD_CUSTOM), sonar.getRequests("api/qualityprofiles/add_project"));
+      }
+   }
+
+   @Test
+   public void invalidatedCatalogIsReloaded() throws IOException {
+      try (FakeSonar sonar = SonarCatalogTest.sonar()) {
+         sonar.on("api/qualityprofiles/search", parameters -> SonarCatalogTest.profiles(
+               "src".equals(parameters.get("project")) ? SonarCatalogTest.CUSTOM : SonarCatalogTest.SONAR_WAY));
+
+         // the profile does not exist in the target
+         final MigrationResult first = SonarCatalogTest.migrate(sonar);
+         assertEquals(1, first.getFailed());
+         assertTrue(sonar.getRequests("api/qualityprofiles/add_project").isEmpty());
+
+         // the profile is added, but the cached catalog does not know it until invalidated
+         sonar.on("api/qualityprofiles/search", parameters -> "src".equals(parameters.get("project")) ? SonarCatalogTest.profiles(SonarCatalogTest.CUSTOM)
+               : parameters.get("project") == null ? SonarCatalogTest.profiles(SonarCatalogTest.SONAR_WAY + "," + SonarCatalogTest.CUSTOM)
+                     : SonarCatalogTest.profiles(SonarCatalogTest.SONAR_WAY));
+         assertEquals(1, SonarCatalogTest.migrate(sonar).getFailed());
+         SonarCatalog.invalidateAll();
+         assertEquals(1, SonarCatalogTest.migrate(sonar).getUpdated());
+         assertEquals(Collections.singletonList(SonarCatalogTest.ADD_CUSTOM), sonar.getRequests("api/qualityprofiles/add_project"));
+      }
+   }
+
+   private static FakeSonar sonar() throws IOException {
+      final FakeSonar sonar = new FakeSonar();
+      sonar.on("api/settings/values", "{\"settings\":[]}");
+      sonar.on("api/qualityprofiles/add_project", parameters -> null);
+      return sonar;
+   }
+
+   private static MigrationResult migrate(final FakeSonar sonar) {
+      return Migrator.builder()
+            .source(sonar.getUrl(), "src")
+            .target(sonar.getUrl(), "tgt")
+            .migrateProject()
+            .build()
+            .run();
+   }
+
+   private static String profiles(final String profiles) {
+      return "{\"profiles\":[" + profiles + "]}";
+   }
+
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.jmf.vo.Issue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link TargetIssues} with a persisted index.
+ */
+public class TargetIssuesTest {
+
+   private static final String RULE = "java:S100";
+
+   private static final String ANALYSIS = "2024-01-01T10:00:00+0000";
+
+   private static final Issue SOURCE = IssueIndexTest.issue("s", TargetIssuesTest.RULE, "tgt:src/A.java", 10);
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   @Test
+   public void corruptIndexIsRebuiltAndUnlocked() throws Exception {
+      try (FakeSonar sonar = new FakeSonar()) {
+         sonar.on("api/components/show", "{\"component\":{\"key\":\"tgt\",\"analysisDate\":\"" + TargetIssuesTest.ANALYSIS + "\"}}");
+         sonar.on("api/issues/search", "{\"paging\":{\"pageIndex\":1,\"pageSize\":500,\"total\":1},\"issues\":[{\"key\":\"t1\",\"rule\":\""
+               + TargetIssuesTest.RULE + "\",\"component\":\"tgt:src/A.java\",\"line\":10}]}");
+         final SonarClientService service = new SonarClientService(sonar.getUrl(), null, null, false);
+         final File file = MappedIssueIndex.getFile(this.folder.getRoot(), service.getBaseUrl(), "tgt");
+         MappedIssueIndex.write(file, TargetIssuesTest.ANALYSIS, null, Collections.singletonList(TargetIssuesTest.RULE), Collections.emptyList());
+         // a negative number of rules behind the header and the analysis date
+         try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(64 + 2 + TargetIssuesTest.ANALYSIS.getBytes(StandardCharsets.UTF_8).length);
+            out.writeInt(-1);
+         }
+
+         try (TargetIssues issues = new TargetIssues(service, "tgt", this.folder.getRoot())) {
+            assertEquals("t1", issues.getIndex(TargetIssuesTest.RULE).findClosest(TargetIssuesTest.SOURCE, 0, issue -> true).getKey());
+         }
+         assertEquals(1, sonar.getRequests("api/issues/search").size());
+
+         // the index is rebuilt and the lock released, i.e. another thread reuses the index
+         CompletableFuture.runAsync(() -> {
+            try (TargetIssues issues = new TargetIssues(service, "tgt", this.folder.getRoot())) {
+               assertEquals("t1", issues.getIndex(TargetIssuesTest.RULE).findClosest(TargetIssuesTest.SOURCE, 0, issue -> true).getKey());
+            }
+         }).get(10, TimeUnit.SECONDS);
+         assertEquals(1, sonar.getRequests("api/issues/search").size());
+         try (MappedIssueIndex index = MappedIssueIndex.open(file, TargetIssuesTest.ANALYSIS)) {
+            assertNotNull(index);
+            assertTrue(index.hasRule(TargetIssuesTest.RULE));
+         }
+      }
+   }
+
+}
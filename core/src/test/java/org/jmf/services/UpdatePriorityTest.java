@@ -0,0 +1,153 @@
+/*******************************************************************************
+ ** COPYRIGHT: CNS-Solutions & Support GmbH
+ **            Member of Frequentis Group
+ **            Innovationsstrasse 1
+ **            A-1100 Vienna
+ **            AUSTRIA
+ **            Tel. +43 1 81150-0
+ ** LANGUAGE:  Java, J2SE JDK
+ **
+ ** The copyright to the computer program(s) herein is the property of
+ ** CNS-Solutions & Support GmbH, Austria. The program(s) shall not be used
+ ** and/or copied without the written permission of CNS-Solutions & Support GmbH.
+ *******************************************************************************/
+package org.jmf.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.jmf.vo.FailedWrite;
+import org.jmf.vo.Issue;
+import org.jmf.vo.MigrationResult;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link UpdatePriority} and of the order and the deadline of the issue updates.
+ */
+public class UpdatePriorityTest {
+
+   /** the target issues: key, rule, severity and line - the source issues are on the same lines */
+   private static final String[][] ISSUES = {
+         { "t1", "java:S1", "MINOR", "10", "FALSE-POSITIVE" },
+         { "t2", "java:S2", "BLOCKER", "20", "WONTFIX" },
+         { "t3", "java:S3", "MAJOR", "30", "FALSE-POSITIVE" } };
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   @Test
+   public void severityDominatesUnlessRuleIsWeighted() {
+      final Issue minor = UpdatePriorityTest.issue("java:S1", "MINOR");
+      final Issue blocker = UpdatePriorityTest.issue("java:S2", "BLOCKER");
+
+      assertTrue(UpdatePriority.DEFAULT.getPriority(blocker, null) > UpdatePriority.DEFAULT.getPriority(minor, SonarClientService.TRANSITION_FALSE_POSITIVE));
+      assertTrue(UpdatePriority.DEFAULT.getPriority(minor, SonarClientService.TRANSITION_FALSE_POSITIVE)
+            > UpdatePriority.DEFAULT.getPriority(minor, SonarClientService.TRANSITION_WONT_FIX));
+      assertEquals(UpdatePriority.DEFAULT.getPriority(UpdatePriorityTest.issue("java:S1", "MAJOR"), null),
+            UpdatePriority.DEFAULT.getPriority(UpdatePriorityTest.issue("java:S1", null), null), 0);
+
+      final UpdatePriority weighted = new UpdatePriority(Collections.singletonMap("java:S1", 10000.0));
+      assertTrue(weighted.getPriority(minor, null) > weighted.getPriority(blocker, SonarClientService.TRANSITION_FALSE_POSITIVE));
+   }
+
+   @Test
+   public void updatesAreWrittenByPriority() throws IOException {
+      try (FakeSonar sonar = UpdatePriorityTest.sonar(0)) {
+         final MigrationResult result = UpdatePriorityTest.builder(sonar).build().run();
+         assertEquals(3, result.getUpdated());
+         assertEquals(Arrays.asList("t2", "t3", "t1"), UpdatePriorityTest.transitions(sonar));
+      }
+      try (FakeSonar sonar = UpdatePriorityTest.sonar(0)) {
+         UpdatePriorityTest.builder(sonar).ruleWeight("java:S1", 10000).build().run();
+         assertEquals(Arrays.asList("t1", "t2", "t3"), UpdatePriorityTest.transitions(sonar));
+      }
+   }
+
+   @Test
+   public void updatesLeftAtTheDeadlineAreDeadLettered() throws IOException {
+      final File file = new File(this.folder.getRoot(), "failed.jsonl");
+      // an update takes 1 s, so no update is started after the first one
+      try (FakeSonar sonar = UpdatePriorityTest.sonar(1000);
+            DeadLetterQueue deadLetters = new DeadLetterQueue(file)) {
+         final MigrationResult result = UpdatePriorityTest.builder(sonar)
+               .deadline(System.currentTimeMillis() + 1500)
+               .deadLetterQueue(deadLetters)
+               .build()
+               .run();
+         assertNull(result.getError());
+         assertEquals(1, result.getUpdated());
+         assertEquals(1, result.getProcessed());
+         assertEquals(2, result.getRemaining());
+         assertEquals(Collections.singletonList("t2"), UpdatePriorityTest.transitions(sonar));
+      }
+      final List<FailedWrite> left = DeadLetterQueue.read(file);
+      assertEquals(Arrays.asList("t3", "t1"), left.stream().map(failure -> failure.getParameters().get("issue").get(0)).collect(Collectors.toList()));
+      assertEquals("Deadline reached", left.get(0).getError());
+   }
+
+   @Test
+   public void migrationIsSkippedAfterTheDeadline() throws IOException {
+      try (FakeSonar sonar = UpdatePriorityTest.sonar(0)) {
+         final MigrationResult result = UpdatePriorityTest.builder(sonar).deadline(System.currentTimeMillis() - 1).build().run();
+         assertEquals("Deadline reached before the migration started", result.getError());
+         assertEquals(Collections.emptyList(), sonar.getRequests("api/issues/search"));
+      }
+   }
+
+   /** the server with the source and target issues, the transitions take the given time */
+   private static FakeSonar sonar(final long transitionMillis) throws IOException {
+      final FakeSonar sonar = new FakeSonar();
+      sonar.on("api/issues/search", parameters -> {
+         final boolean source = "src".equals(parameters.get("componentKeys"));
+         final List<String> issues = Arrays.stream(UpdatePriorityTest.ISSUES)
+               .filter(issue -> source || parameters.get("rules") == null || Arrays.asList(parameters.get("rules").split(",")).contains(issue[1]))
+               .map(issue -> "{\"key\":\"" + (source ? "s" + issue[0] : issue[0]) + "\",\"rule\":\"" + issue[1] + "\",\"severity\":\"" + issue[2]
+                     + "\",\"line\":" + issue[3] + ",\"component\":\"" + parameters.get("componentKeys") + ":src/A.java\",\"status\":\""
+                     + (source ? "RESOLVED\",\"resolution\":\"" + issue[4] : "OPEN") + "\"}")
+               .collect(Collectors.toList());
+         return "{\"paging\":{\"pageIndex\":1,\"pageSize\":500,\"total\":" + issues.size() + "},\"issues\":[" + String.join(",", issues) + "]}";
+      });
+      sonar.on("api/issues/do_transition", parameters -> {
+         try {
+            Thread.sleep(transitionMillis);
+         } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         return "{}";
+      });
+      return sonar;
+   }
+
+   private static Migrator.Builder builder(final FakeSonar sonar) {
+      return Migrator.builder()
+            .source(sonar.getUrl(), "src")
+            .target(sonar.getUrl(), "tgt")
+            .migrateFalsePositive()
+            .migrateWontFix();
+   }
+
+   /** the issues transitioned in the order of the requests */
+   private static List<String> transitions(final FakeSonar sonar) {
+      return sonar.getRequests("api/issues/do_transition").stream()
+            .map(request -> request.replaceAll(".*issue=([^,}]*).*", "$1"))
+            .collect(Collectors.toList());
+   }
+
+   private static Issue issue(final String rule, final String severity) {
+      final Issue issue = new Issue();
+      issue.setRule(rule);
+      issue.setSeverity(severity);
+      return issue;
+   }
+
+}